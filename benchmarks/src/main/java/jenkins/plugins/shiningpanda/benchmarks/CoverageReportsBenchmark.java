@@ -0,0 +1,92 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jenkins.plugins.shiningpanda.coverage.ReportIndex;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CoverageReportsBenchmark {
+
+    /**
+     * Number of reports in the tree.
+     */
+    @Param({ "10", "100" })
+    public int reports;
+
+    /**
+     * The build directory.
+     */
+    private File root;
+
+    /**
+     * The base directory of the reports.
+     */
+    private File base;
+
+    @Setup
+    public void setUp() throws Exception {
+	// Get a build directory
+	root = Fixtures.createTmpDir("reports");
+	// Create a tree of reports with 200 pages each, the index is written
+	// next to it
+	base = Fixtures.createReports(new File(root, CoveragePublisher.BASENAME), reports, 200);
+    }
+
+    @TearDown
+    public void tearDown() {
+	// Delete the reports and their index
+	Fixtures.delete(root);
+    }
+
+    @Benchmark
+    public List<String> scan() {
+	return ReportIndex.scan(base);
+    }
+
+    @Benchmark
+    public List<String> index() {
+	return ReportIndex.get(base).getReports();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.FilePath;
+import jenkins.plugins.shiningpanda.utils.FilePathUtil;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FilePathUtilBenchmark {
+
+    /**
+     * Number of packages to synchronize.
+     */
+    @Param({ "10", "50" })
+    public int packages;
+
+    /**
+     * The source packages directory.
+     */
+    private File src;
+
+    /**
+     * The destination packages directory, already synchronized.
+     */
+    private File dest;
+
+    /**
+     * Content of the script synchronized with a file.
+     */
+    private String content;
+
+    /**
+     * The file synchronized with the script.
+     */
+    private File script;
+
+    @Setup
+    public void setUp() throws Exception {
+	// Create the source packages
+	src = Fixtures.createPackages(Fixtures.createTmpDir("src"), packages, 256 * 1024);
+	// Create the destination
+	dest = Fixtures.createTmpDir("dest");
+	// Synchronize it once so that benchmarks measure the no-change path
+	FilePathUtil.synchronize(new FilePath(src), new FilePath(dest));
+	// Get a script of the size of virtualenv.py
+	content = Fixtures.createWindowsScript(2000);
+	// Get the script file
+	script = new File(dest, "virtualenv.py");
+	// Synchronize it once
+	FilePathUtil.synchronize(new FilePath(script), content);
+    }
+
+    @TearDown
+    public void tearDown() {
+	// Delete the source
+	Fixtures.delete(src);
+	// Delete the destination
+	Fixtures.delete(dest);
+    }
+
+    @Benchmark
+    public FilePath synchronizeDirectory() throws Exception {
+	return FilePathUtil.synchronize(new FilePath(src), new FilePath(dest));
+    }
+
+    @Benchmark
+    public FilePath synchronizeContent() throws Exception {
+	return FilePathUtil.synchronize(new FilePath(script), content);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class Fixtures {
+
+    /**
+     * Seed of the random generator so that all the runs use the same data.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * Create a temporary directory.
+     * 
+     * @param prefix
+     *            The prefix of the directory name
+     * @return The directory
+     * @throws IOException
+     */
+    public static File createTmpDir(String prefix) throws IOException {
+	// Get a temporary file
+	File dir = File.createTempFile(prefix, "");
+	// Replace it by a directory
+	if (!dir.delete() || !dir.mkdirs())
+	    // Failed to create the directory
+	    throw new IOException("failed to create " + dir);
+	// Return the directory
+	return dir;
+    }
+
+    /**
+     * Write a file of the provided size with pseudo random content.
+     * 
+     * @param file
+     *            The file
+     * @param size
+     *            The size in bytes
+     * @param random
+     *            The random generator
+     * @throws IOException
+     */
+    public static void writeRandom(File file, int size, Random random) throws IOException {
+	// Create the parent directory
+	file.getParentFile().mkdirs();
+	// Get the content
+	byte[] content = new byte[size];
+	// Fill it
+	random.nextBytes(content);
+	// Open the file
+	OutputStream out = new FileOutputStream(file);
+	// Write the content
+	try {
+	    // Write
+	    out.write(content);
+	} finally {
+	    // Close
+	    out.close();
+	}
+    }
+
+    /**
+     * Create a packages directory like the one provided by users to avoid
+     * downloads when creating a VIRTUALENV.
+     * 
+     * @param dir
+     *            The directory
+     * @param count
+     *            The number of packages
+     * @param size
+     *            The size of each package in bytes
+     * @return The directory
+     * @throws IOException
+     */
+    public static File createPackages(File dir, int count, int size) throws IOException {
+	// Get a reproducible generator
+	Random random = new Random(SEED);
+	// Create the packages
+	for (int i = 0; i < count; i++)
+	    // Create a package
+	    writeRandom(new File(dir, "package" + i + "-1.0." + i + ".tar.gz"), size, random);
+	// Return the directory
+	return dir;
+    }
+
+    /**
+     * Create a CPYTHON installation layout.
+     * 
+     * @param home
+     *            The home directory
+     * @param executableSize
+     *            The size of the executable in bytes
+     * @param libraries
+     *            The number of shared libraries
+     * @return The home directory
+     * @throws IOException
+     */
+    public static File createCPython(File home, int executableSize, int libraries) throws IOException {
+	// Get a reproducible generator
+	Random random = new Random(SEED);
+	// Create the executable
+	writeRandom(new File(new File(home, "bin"), "python"), executableSize, random);
+	// Create the shared libraries
+	for (int i = 0; i < libraries; i++)
+	    // Create a library
+	    writeRandom(new File(new File(home, "lib"), "libpython2.7.so." + i), 64 * 1024, random);
+	// Create some standard modules
+	for (int i = 0; i < 100; i++)
+	    // Create a module
+	    writeRandom(new File(new File(new File(home, "lib"), "python2.7"), "module" + i + ".py"), 4 * 1024,
+		    random);
+	// Return the home directory
+	return home;
+    }
+
+    /**
+     * Create a tree of HTML coverage reports.
+     * 
+     * @param base
+     *            The base directory
+     * @param reports
+     *            The number of reports
+     * @param pages
+     *            The number of HTML pages per report
+     * @return The base directory
+     * @throws IOException
+     */
+    public static File createReports(File base, int reports, int pages) throws IOException {
+	// Go threw the reports
+	for (int i = 0; i < reports; i++) {
+	    // Get the folder of the report
+	    File dir = new File(new File(new File(base, "module" + (i % 10)), "report" + i), "htmlcov");
+	    // Create the mandatory files
+	    FileUtils.writeStringToFile(new File(dir, CoveragePublisher.INDEX), "<html></html>");
+	    // Create the JavaScript file
+	    FileUtils.writeStringToFile(new File(dir, CoveragePublisher.JS), "// coverage");
+	    // Create the status file
+	    FileUtils.writeStringToFile(new File(dir, CoveragePublisher.STATUS), "{}");
+	    // Create the pages
+	    for (int j = 0; j < pages; j++)
+		// Create a page
+		FileUtils.writeStringToFile(new File(dir, "package_module" + j + "_py.html"), "<html></html>");
+	}
+	// Return the base directory
+	return base;
+    }
+
+    /**
+     * Create a shell script using Windows separators and variables.
+     * 
+     * @param lines
+     *            The number of lines
+     * @return The script
+     */
+    public static String createWindowsScript(int lines) {
+	// Store the script
+	StringBuilder sb = new StringBuilder();
+	// Go threw the lines
+	for (int i = 0; i < lines; i++)
+	    // Add a line with paths and variables
+	    sb.append("python %WORKSPACE%\\src\\module").append(i).append("\\setup.py install --prefix=%HOME%\\env")
+		    .append(i).append("\r\n");
+	// Return the script
+	return sb.toString();
+    }
+
+    /**
+     * Delete a directory without failing.
+     * 
+     * @param dir
+     *            The directory
+     */
+    public static void delete(File dir) {
+	FileUtils.deleteQuietly(dir);
+    }
+}
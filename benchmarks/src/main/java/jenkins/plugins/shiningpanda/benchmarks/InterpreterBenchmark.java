@@ -0,0 +1,99 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.FilePath;
+import jenkins.plugins.shiningpanda.interpreters.Python;
+import jenkins.plugins.shiningpanda.interpreters.Virtualenv;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    /**
+     * The temporary directory containing the fixtures.
+     */
+    private File tmp;
+
+    /**
+     * Home of the CPYTHON installation.
+     */
+    private FilePath home;
+
+    /**
+     * The interpreter.
+     */
+    private Python interpreter;
+
+    /**
+     * The workspace.
+     */
+    private BenchWorkspace workspace;
+
+    @Setup
+    public void setUp() throws Exception {
+	// Get a temporary directory
+	tmp = Fixtures.createTmpDir("interpreter");
+	// Create an installation with an executable of the size of a real one
+	home = new FilePath(Fixtures.createCPython(new File(tmp, "python"), 4 * 1024 * 1024, 3));
+	// Get the interpreter
+	interpreter = Python.fromHome(home);
+	// Create the workspace with a packages directory
+	workspace = new BenchWorkspace(new File(tmp, "workspace"),
+		Fixtures.createPackages(new File(tmp, "packages"), 20, 1024));
+    }
+
+    @TearDown
+    public void tearDown() {
+	// Delete the fixtures
+	Fixtures.delete(tmp);
+    }
+
+    @Benchmark
+    public Python fromHome() throws Exception {
+	return Python.fromHome(home);
+    }
+
+    @Benchmark
+    public String getSignature() throws Exception {
+	return Virtualenv.getSignature(workspace, interpreter, false);
+    }
+}
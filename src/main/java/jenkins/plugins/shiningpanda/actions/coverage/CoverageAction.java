@@ -22,7 +22,6 @@
 package jenkins.plugins.shiningpanda.actions.coverage;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,15 +29,16 @@ import java.util.List;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.tools.ant.DirectoryScanner;
-import org.apache.tools.ant.Project;
-import org.apache.tools.ant.types.FileSet;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
-import hudson.Util;
 import hudson.model.Action;
 import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.coverage.ReportFile;
+import jenkins.plugins.shiningpanda.coverage.ReportIndex;
+import jenkins.plugins.shiningpanda.coverage.ReportSender;
+import jenkins.plugins.shiningpanda.coverage.ReportStore;
+import jenkins.plugins.shiningpanda.metrics.FlightEvent;
 import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
 
 public abstract class CoverageAction implements Action {
@@ -108,8 +108,8 @@ public abstract class CoverageAction implements Action {
      * @return True if contains reports, else false
      */
     protected boolean hasReports(File base) {
-	// If not null then check that at least one report
-	return base == null ? false : !getReports(base).isEmpty();
+	// Read the index of the reports
+	return ReportIndex.get(base).hasReports();
     }
 
     /**
@@ -120,31 +120,8 @@ public abstract class CoverageAction implements Action {
      * @return The list of relative paths to reports
      */
     protected List<String> getReports(File base) {
-	// Store reports
-	List<String> dirs = new ArrayList<String>();
-	// Check is base folder was specified
-	if (base == null)
-	    // If not return the empty list
-	    return dirs;
-	// Check if the base folder is itself a report folder
-	if (isReport(base))
-	    // If yes, return it
-	    dirs.add("");
-	// Else look for multiple reports
-	else {
-	    // Get the file set to search reports
-	    FileSet fs = Util.createFileSet(base, "**/" + CoveragePublisher.JS, null);
-	    // Get a scanner
-	    DirectoryScanner ds = fs.getDirectoryScanner(new Project());
-	    // Go threw the found files
-	    for (String file : ds.getIncludedFiles())
-		// Check if this is a report
-		if (isReport(new File(base, file).getParentFile()))
-		    // If this is one, add to the list
-		    dirs.add(new File(file).getParent());
-	}
-	// Return the list of relative paths to reports
-	return dirs;
+	// Read the index of the reports
+	return ReportIndex.get(base).getReports();
     }
 
     /**
@@ -165,15 +142,48 @@ public abstract class CoverageAction implements Action {
      */
     protected void serve(StaplerRequest req, StaplerResponse rsp, String title, File base, String path)
 	    throws IOException, ServletException {
+	// Begin the flight recorder event
+	FlightEvent event = FlightEvent.begin(FlightEvent.COVERAGE_SERVE);
+	// Store the status, error until served
+	int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+	try {
+	    // Serve the request
+	    status = doServe(req, rsp, title, base, path);
+	} finally {
+	    // Commit the flight recorder event
+	    event.commit(base, path, status);
+	}
+    }
+
+    /**
+     * Server a request, see
+     * {@link #serve(StaplerRequest, StaplerResponse, String, File, String)}.
+     * 
+     * @param req
+     *            The request
+     * @param rsp
+     *            The response
+     * @param title
+     *            The title if an index page is generated
+     * @param base
+     *            The base folder
+     * @param path
+     *            The path to serve
+     * @return The status of the response
+     * @throws IOException
+     * @throws ServletException
+     */
+    private int doServe(StaplerRequest req, StaplerResponse rsp, String title, File base, String path)
+	    throws IOException, ServletException {
 	// Check if base folder is specified
 	if (base == null) {
 	    // If not send a 404
 	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
 	    // No need to go further
-	    return;
+	    return HttpServletResponse.SC_NOT_FOUND;
 	}
 	// Check if an index generation is required
-	if (!isReport(base) && "/".equals(path)) {
+	if ("/".equals(path) && !ReportIndex.get(base).isSingle()) {
 	    // Get the reports
 	    List<String> dirs = getReports(base);
 	    // Create a list of bean to generate page
@@ -189,30 +199,38 @@ public abstract class CoverageAction implements Action {
 	    // Render the page
 	    req.getView(CoverageAction.class, "entries.jelly").forward(req, rsp);
 	    // No need to go further
-	    return;
+	    return HttpServletResponse.SC_OK;
 	}
 	// Serve a file, check that path is valid
 	if (path.replace('\\', '/').indexOf("/../") != -1) {
 	    // If not end a 500
 	    rsp.sendError(HttpServletResponse.SC_BAD_REQUEST);
 	    // No need to go further
-	    return;
+	    return HttpServletResponse.SC_BAD_REQUEST;
 	}
-	// Get the file to serve
-	File file = new File(base, path.substring(1));
+	// Get the store of the reports
+	ReportStore store = ReportStore.get(base);
+	// Get the path of the file in the store
+	String name = path.substring(1).replace('\\', '/');
+	// Remove the trailing separators
+	while (name.endsWith("/"))
+	    // Remove the last character
+	    name = name.substring(0, name.length() - 1);
 	// Check if this is a folder
-	if (file.isDirectory())
+	if (store != null && store.isDirectory(name))
 	    // If this is a folder append an index file
-	    file = new File(file, CoveragePublisher.INDEX);
+	    name = (name.length() == 0 ? "" : name + "/") + CoveragePublisher.INDEX;
+	// Get the file to serve
+	ReportFile file = store == null ? null : store.getFile(name);
 	// Check if this file exists
-	if (!file.exists()) {
+	if (file == null) {
 	    // If not send a 404
 	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
 	    // No need to go further
-	    return;
+	    return HttpServletResponse.SC_NOT_FOUND;
 	}
-	// Else serve the file
-	rsp.serveFile(req, new FileInputStream(file), file.lastModified(), -1, file.length(), file.getName());
+	// Else send the file, answering conditional and range requests
+	return ReportSender.send(req, rsp, file, req.getStapler().getServletContext().getMimeType(file.getName()));
     }
 
     /**
@@ -223,11 +241,8 @@ public abstract class CoverageAction implements Action {
      * @return True if this is a report, else false
      */
     protected boolean isReport(File base) {
-	// Check that not null and that the three file exists
-	return base != null && new File(base, CoveragePublisher.INDEX).exists()
-		&& new File(base, CoveragePublisher.JS).exists()
-		&& (new File(base, CoveragePublisher.STATUS_LTE_3).exists()
-			|| new File(base, CoveragePublisher.STATUS).exists());
+	// Delegate
+	return ReportIndex.isReport(base);
     }
 
     /**
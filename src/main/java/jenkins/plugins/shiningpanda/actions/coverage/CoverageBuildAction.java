@@ -22,15 +22,24 @@
 package jenkins.plugins.shiningpanda.actions.coverage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 import hudson.model.AbstractBuild;
+import jenkins.plugins.shiningpanda.coverage.CoverageDiff;
+import jenkins.plugins.shiningpanda.coverage.CoverageSummary;
+import jenkins.plugins.shiningpanda.coverage.ReportIndex;
 import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
 
+@ExportedBean
 public class CoverageBuildAction extends CoverageAction {
 
     /**
@@ -61,6 +70,112 @@ public class CoverageBuildAction extends CoverageAction {
 	return hasReports(CoveragePublisher.getHtmlDir(build));
     }
 
+    /**
+     * Get the coverage summary of the build.
+     * 
+     * @return The summary, null if the reports were not summarized
+     */
+    public CoverageSummary getSummary() {
+	return CoverageSummary.get(CoveragePublisher.getHtmlDir(build));
+    }
+
+    /**
+     * Get the covered percentage of the build, from its summary.
+     * 
+     * @return The percentage, null if the reports were not summarized
+     */
+    @Exported(visibility = 2)
+    public Double getPercent() {
+	// Get the summary
+	CoverageSummary summary = getSummary();
+	// Return the percentage of the totals
+	return summary == null ? null : summary.getTotals().getPercent();
+    }
+
+    /**
+     * Get the number of statements of the build, from its summary.
+     * 
+     * @return The number of statements, null if the reports were not
+     *         summarized
+     */
+    @Exported(visibility = 2)
+    public Long getStatements() {
+	// Get the summary
+	CoverageSummary summary = getSummary();
+	// Return the statements of the totals
+	return summary == null ? null : summary.getTotals().getStatements();
+    }
+
+    /**
+     * Get the number of statements not executed of the build, from its
+     * summary.
+     * 
+     * @return The number of statements not executed, null if the reports were
+     *         not summarized
+     */
+    @Exported(visibility = 2)
+    public Long getMissing() {
+	// Get the summary
+	CoverageSummary summary = getSummary();
+	// Return the missing statements of the totals
+	return summary == null ? null : summary.getTotals().getMissing();
+    }
+
+    /**
+     * Get the coverage of each report of the build, from its summary and its
+     * index.
+     * 
+     * @return The coverage of the reports, empty if the reports were not
+     *         summarized
+     */
+    @Exported(name = "reports", visibility = 2)
+    public List<Report> getReportSummaries() {
+	// Store the reports
+	List<Report> reports = new ArrayList<Report>();
+	// Get the summary
+	CoverageSummary summary = getSummary();
+	// Check if summarized
+	if (summary == null)
+	    // No report
+	    return reports;
+	// Go threw the reports of the index
+	for (Map.Entry<String, CoverageSummary> entry : summary
+		.split(ReportIndex.get(CoveragePublisher.getHtmlDir(build)).getReports()).entrySet())
+	    // Add the report
+	    reports.add(new Report(entry.getKey(), entry.getValue()));
+	// Return the reports
+	return reports;
+    }
+
+    /**
+     * Get the coverage changes since the previous successful build, computed
+     * when the reports were published.
+     * 
+     * @return The changes, null if the build was not compared
+     */
+    public CoverageDiff getDiff() {
+	return CoverageDiff.get(CoveragePublisher.getHtmlDir(build));
+    }
+
+    /**
+     * Serve the coverage changes page.
+     * 
+     * @param req
+     *            The request
+     * @param rsp
+     *            The response
+     * @throws IOException
+     * @throws ServletException
+     */
+    public void doChanges(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+	// Set page title in context
+	req.setAttribute("title", build.getFullDisplayName());
+	// Set changes in context
+	req.setAttribute("diff", getDiff());
+	// Render the view
+	req.getView(CoverageBuildAction.class, "changes.jelly").forward(req, rsp);
+    }
+
     /**
      * Serve report files.
      * 
@@ -75,4 +190,89 @@ public class CoverageBuildAction extends CoverageAction {
 	// Delegate
 	serve(req, rsp, build.getFullDisplayName(), CoveragePublisher.getHtmlDir(build), getPath(req));
     }
+
+    /**
+     * The coverage of a report.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Report {
+
+	/**
+	 * The relative path of the report.
+	 */
+	private final String path;
+
+	/**
+	 * The summary of the report.
+	 */
+	private final CoverageSummary summary;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param path
+	 *            The relative path of the report, blank for a report at
+	 *            the root
+	 * @param summary
+	 *            The summary of the report
+	 */
+	public Report(String path, CoverageSummary summary) {
+	    // Call super
+	    super();
+	    // Store the path
+	    this.path = path;
+	    // Store the summary
+	    this.summary = summary;
+	}
+
+	/**
+	 * Get the relative path of the report.
+	 * 
+	 * @return The path, blank for a report at the root
+	 */
+	@Exported
+	public String getPath() {
+	    return path;
+	}
+
+	/**
+	 * Get the number of files of the report.
+	 * 
+	 * @return The number of files
+	 */
+	@Exported
+	public int getFiles() {
+	    return summary.getFiles().size();
+	}
+
+	/**
+	 * Get the covered percentage of the report.
+	 * 
+	 * @return The percentage
+	 */
+	@Exported
+	public double getPercent() {
+	    return summary.getTotals().getPercent();
+	}
+
+	/**
+	 * Get the number of statements of the report.
+	 * 
+	 * @return The number of statements
+	 */
+	@Exported
+	public long getStatements() {
+	    return summary.getTotals().getStatements();
+	}
+
+	/**
+	 * Get the number of statements not executed of the report.
+	 * 
+	 * @return The number of statements not executed
+	 */
+	@Exported
+	public long getMissing() {
+	    return summary.getTotals().getMissing();
+	}
+    }
 }
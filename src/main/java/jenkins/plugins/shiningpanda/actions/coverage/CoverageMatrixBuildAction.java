@@ -0,0 +1,403 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.actions.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixConfiguration;
+import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import jenkins.plugins.shiningpanda.coverage.CoverageSummary;
+import jenkins.plugins.shiningpanda.coverage.ReportStore;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class CoverageMatrixBuildAction implements RunAction2 {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CoverageMatrixBuildAction.class.getName());
+
+    /**
+     * Number of matrix builds to look at when searching the latest index.
+     */
+    private static final int LOOKUP = Integer.getInteger(CoverageMatrixBuildAction.class.getName() + ".lookup", 10);
+
+    /**
+     * The latest coverage reports of each configuration. The map is never
+     * modified once set, but replaced by a modified copy, so that the build
+     * can be saved while configurations are recorded.
+     */
+    private volatile Map<String, Cell> cells = new TreeMap<String, Cell>();
+
+    /**
+     * The number of configurations in the combined coverage.
+     */
+    private int configurations;
+
+    /**
+     * The combined coverage of the configurations merged so far, until
+     * written next to the reports of the matrix build.
+     */
+    private transient volatile CoverageSummary union;
+
+    /**
+     * The matrix build.
+     */
+    private transient Run<?, ?> build;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onAttached(hudson.model.Run)
+     */
+    public void onAttached(Run<?, ?> r) {
+	build = r;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onLoad(hudson.model.Run)
+     */
+    public void onLoad(Run<?, ?> r) {
+	build = r;
+    }
+
+    /**
+     * Get the matrix build.
+     * 
+     * @return The build
+     */
+    public Run<?, ?> getBuild() {
+	return build;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getDisplayName()
+     */
+    public String getDisplayName() {
+	return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getUrlName()
+     */
+    public String getUrlName() {
+	return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getIconFileName()
+     */
+    public String getIconFileName() {
+	return null;
+    }
+
+    /**
+     * Get the combined coverage of the configurations of the matrix build.
+     * 
+     * @return The combined coverage, null if no configuration was merged
+     */
+    public CoverageSummary getUnion() {
+	// Get the combined coverage in memory
+	CoverageSummary summary = union;
+	// Check if still running
+	if (summary != null)
+	    // Return it
+	    return summary;
+	// Else read the one written at the end of the matrix build
+	return build == null ? null : CoverageSummary.get(CoveragePublisher.getHtmlDir(build));
+    }
+
+    /**
+     * Get the number of configurations in the combined coverage.
+     * 
+     * @return The number of configurations
+     */
+    public int getConfigurations() {
+	return configurations;
+    }
+
+    /**
+     * Show the combined coverage of the configurations merged so far.
+     * 
+     * @param summary
+     *            The combined coverage
+     * @param configurations
+     *            The number of configurations merged
+     */
+    public void setUnion(CoverageSummary summary, int configurations) {
+	// Store the number of configurations
+	this.configurations = configurations;
+	// Store the combined coverage
+	this.union = summary;
+    }
+
+    /**
+     * Record the reports of a configuration.
+     * 
+     * @param combination
+     *            The combination of the configuration
+     * @param number
+     *            The number of the configuration build
+     * @param reports
+     *            The relative paths to the reports
+     */
+    public synchronized void put(String combination, int number, List<String> reports) {
+	// Copy the cells, the current ones may be being saved
+	Map<String, Cell> copy = new TreeMap<String, Cell>(cells);
+	// Check if got reports
+	if (reports.isEmpty())
+	    // Forget this configuration
+	    copy.remove(combination);
+	// Else store them
+	else
+	    // Create the cell
+	    copy.put(combination, new Cell(combination, number, reports));
+	// Publish the new cells
+	cells = copy;
+    }
+
+    /**
+     * Get the latest coverage reports of the active configurations whose
+     * builds still exist.
+     * 
+     * @param matrix
+     *            The matrix project
+     * @return The cells, sorted by combination
+     */
+    public synchronized List<Cell> getCells(MatrixProject matrix) {
+	// Store the cells
+	List<Cell> active = new ArrayList<Cell>();
+	// Go threw the cells
+	for (Cell cell : cells.values()) {
+	    // Get the configuration
+	    MatrixConfiguration configuration = matrix.getItem(cell.getCombination());
+	    // Check that it is still active and that its build was not deleted,
+	    // its reports being possibly compacted to their summary
+	    if (configuration != null && configuration.isActiveConfiguration()
+		    && (ReportStore.isArchived(cell.getHtmlDir(configuration))
+			    || CoverageSummary.getFile(cell.getHtmlDir(configuration)).isFile()))
+		// Add the cell
+		active.add(cell);
+	}
+	// Return the active cells
+	return active;
+    }
+
+    /**
+     * Record the reports of a configuration build on its matrix build. The
+     * index of the matrix build starts from the one of the previous matrix
+     * build, so configurations that did not publish keep their latest
+     * reports.
+     * 
+     * @param run
+     *            The configuration build
+     * @param reports
+     *            The relative paths to the reports
+     */
+    public static void record(MatrixRun run, List<String> reports) {
+	// Get the matrix build
+	MatrixBuild parent = run.getParentBuild();
+	// Check if found
+	if (parent == null)
+	    // Nothing to record
+	    return;
+	// Store the action
+	CoverageMatrixBuildAction action;
+	// Only one action per build
+	synchronized (CoverageMatrixBuildAction.class) {
+	    // Get the action
+	    action = parent.getAction(CoverageMatrixBuildAction.class);
+	    // Check if exists
+	    if (action == null) {
+		// Create it
+		action = new CoverageMatrixBuildAction();
+		// Look for the index of a previous build
+		CoverageMatrixBuildAction previous = find(parent.getPreviousBuild());
+		// Check if found
+		if (previous != null)
+		    // Start from it, its cells are never modified
+		    action.cells = new TreeMap<String, Cell>(previous.cells);
+		// Register it
+		parent.addAction(action);
+	    }
+	}
+	// Save under the lock of the action so that the last recorded
+	// configuration is also the last saved
+	synchronized (action) {
+	    // Record the reports
+	    action.put(run.getParent().getCombination().toString(), run.getNumber(), reports);
+	    try {
+		// Save the matrix build
+		parent.save();
+	    } catch (IOException e) {
+		// Log
+		LOGGER.log(Level.WARNING, "failed to save coverage index of " + parent, e);
+	    }
+	}
+    }
+
+    /**
+     * Get the latest coverage index of a matrix project.
+     * 
+     * @param matrix
+     *            The matrix project
+     * @return The index, null if not found in the latest builds
+     */
+    public static CoverageMatrixBuildAction find(MatrixProject matrix) {
+	return find(matrix.getLastBuild());
+    }
+
+    /**
+     * Look for a coverage index from a matrix build.
+     * 
+     * @param build
+     *            The first matrix build to look at
+     * @return The index, null if not found in the previous builds
+     */
+    private static CoverageMatrixBuildAction find(MatrixBuild build) {
+	// Only look at the latest builds
+	for (int i = 0; build != null && i < LOOKUP; i++, build = build.getPreviousBuild()) {
+	    // Get the index
+	    CoverageMatrixBuildAction action = build.getAction(CoverageMatrixBuildAction.class);
+	    // Check if found
+	    if (action != null)
+		// Return it
+		return action;
+	}
+	// Not found
+	return null;
+    }
+
+    /**
+     * The latest coverage reports of a configuration.
+     */
+    public static class Cell {
+
+	/**
+	 * The combination of the configuration.
+	 */
+	private final String combination;
+
+	/**
+	 * The number of the configuration build.
+	 */
+	private final int number;
+
+	/**
+	 * The relative paths to the reports.
+	 */
+	private final List<String> reports;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param combination
+	 *            The combination of the configuration
+	 * @param number
+	 *            The number of the configuration build
+	 * @param reports
+	 *            The relative paths to the reports
+	 */
+	public Cell(String combination, int number, List<String> reports) {
+	    // Call super
+	    super();
+	    // Store the combination
+	    this.combination = combination;
+	    // Store the number
+	    this.number = number;
+	    // Store the reports
+	    this.reports = new ArrayList<String>(reports);
+	}
+
+	/**
+	 * Get the combination of the configuration.
+	 * 
+	 * @return The combination
+	 */
+	public String getCombination() {
+	    return combination;
+	}
+
+	/**
+	 * Get the number of the configuration build.
+	 * 
+	 * @return The number
+	 */
+	public int getNumber() {
+	    return number;
+	}
+
+	/**
+	 * Get the relative paths to the reports.
+	 * 
+	 * @return The list of relative paths, blank for a report at the root
+	 */
+	public List<String> getReports() {
+	    return Collections.unmodifiableList(reports);
+	}
+
+	/**
+	 * Get the title of the reports, without loading the configuration
+	 * build.
+	 * 
+	 * @param configuration
+	 *            The configuration
+	 * @return The title
+	 */
+	public String getTitle(MatrixConfiguration configuration) {
+	    return configuration.getFullDisplayName() + " #" + number;
+	}
+
+	/**
+	 * Get the archived reports folder, without loading the configuration
+	 * build.
+	 * 
+	 * @param configuration
+	 *            The configuration
+	 * @return The folder
+	 */
+	public File getHtmlDir(MatrixConfiguration configuration) {
+	    return new File(new File(configuration.getBuildDir(), Integer.toString(number)),
+		    CoveragePublisher.BASENAME);
+	}
+    }
+}
@@ -31,6 +31,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 import hudson.matrix.MatrixConfiguration;
 import hudson.matrix.MatrixProject;
@@ -38,8 +40,15 @@ import hudson.matrix.MatrixRun;
 import hudson.model.AbstractProject;
 import hudson.model.ProminentProjectAction;
 import hudson.model.Run;
+import jenkins.plugins.shiningpanda.coverage.CoverageCounts;
+import jenkins.plugins.shiningpanda.coverage.CoverageHistory;
+import jenkins.plugins.shiningpanda.coverage.CoverageSummary;
+import jenkins.plugins.shiningpanda.coverage.CoverageTrend;
+import jenkins.plugins.shiningpanda.coverage.ReportFile;
+import jenkins.plugins.shiningpanda.coverage.ReportSender;
 import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
 
+@ExportedBean
 public class CoverageProjectAction extends CoverageAction implements ProminentProjectAction {
 
     /**
@@ -74,6 +83,48 @@ public class CoverageProjectAction extends CoverageAction implements ProminentPr
 	return null;
     }
 
+    /**
+     * Get the latest coverage reports of the configurations of a matrix
+     * project.
+     * 
+     * @param matrix
+     *            The matrix project
+     * @return The reports
+     */
+    private List<Target> getTargets(MatrixProject matrix) {
+	// Store the targets
+	List<Target> targets = new ArrayList<Target>();
+	// Look for the index maintained on the matrix builds
+	CoverageMatrixBuildAction index = CoverageMatrixBuildAction.find(matrix);
+	// Check if found
+	if (index != null) {
+	    // Go threw the indexed configurations, without loading their builds
+	    for (CoverageMatrixBuildAction.Cell cell : index.getCells(matrix)) {
+		// Get the configuration
+		MatrixConfiguration configuration = matrix.getItem(cell.getCombination());
+		// Add the target
+		targets.add(new Target(cell.getCombination(), cell.getTitle(configuration),
+			cell.getHtmlDir(configuration), cell.getReports()));
+	    }
+	    // Return the targets
+	    return targets;
+	}
+	// No index, go threw the configurations
+	for (MatrixConfiguration configuration : matrix.getActiveConfigurations()) {
+	    // Get the last successful build for this configuration
+	    MatrixRun run = configuration.getLastSuccessfulBuild();
+	    // Get its reports folder
+	    File base = CoveragePublisher.getHtmlDir(run);
+	    // Check is has some reports
+	    if (hasReports(base))
+		// If has at least one add to the list
+		targets.add(new Target(configuration.getCombination().toString(), run.getFullDisplayName(), base,
+			getReports(base)));
+	}
+	// Return the targets
+	return targets;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -86,14 +137,130 @@ public class CoverageProjectAction extends CoverageAction implements ProminentPr
 	if (matrix == null)
 	    // Check if some report exists for the last successful build
 	    return hasReports(CoveragePublisher.getHtmlDir(project.getLastSuccessfulBuild()));
-	// Go threw the configurations
-	for (MatrixConfiguration configuration : matrix.getActiveConfigurations())
-	    // Check if this configuration has a report
-	    if (hasReports(CoveragePublisher.getHtmlDir(configuration.getLastSuccessfulBuild())))
-		// If yes no need to go further
-		return true;
-	// No report found
-	return false;
+	// Check if a configuration has a report
+	return !getTargets(matrix).isEmpty();
+    }
+
+    /**
+     * Get the latest recorded coverage, without loading any build: the last
+     * row of the history of the job, or the combined coverage of the latest
+     * matrix build.
+     * 
+     * @return The latest coverage, null if not recorded
+     */
+    private Latest getLatest() {
+	// Get the matrix project
+	MatrixProject matrix = isMatrix();
+	// Check if this is a matrix project
+	if (matrix != null) {
+	    // Get the latest coverage index
+	    CoverageMatrixBuildAction index = CoverageMatrixBuildAction.find(matrix);
+	    // Get the combined coverage
+	    CoverageSummary union = index == null || index.getBuild() == null ? null : index.getUnion();
+	    // Return it if any
+	    return union == null ? null : new Latest(index.getBuild().getNumber(), union.getTotals());
+	}
+	try {
+	    // Get the last row of the history
+	    CoverageHistory last = CoverageHistory.last(CoverageHistory.getDir(project));
+	    // Return it if any
+	    return last == null ? null : new Latest((int) last.get(CoverageHistory.NUMBER, 0), last.getCounts(0));
+	} catch (IOException e) {
+	    // Not available
+	    return null;
+	}
+    }
+
+    /**
+     * Get the number of the latest build whose coverage was recorded.
+     * 
+     * @return The build number, null if not recorded
+     */
+    @Exported(visibility = 2)
+    public Integer getBuild() {
+	// Get the latest coverage
+	Latest latest = getLatest();
+	// Return its build
+	return latest == null ? null : latest.number;
+    }
+
+    /**
+     * Get the covered percentage of the latest build whose coverage was
+     * recorded.
+     * 
+     * @return The percentage, null if not recorded
+     */
+    @Exported(visibility = 2)
+    public Double getPercent() {
+	// Get the latest coverage
+	Latest latest = getLatest();
+	// Return its percentage
+	return latest == null ? null : latest.counts.getPercent();
+    }
+
+    /**
+     * Get the number of statements of the latest build whose coverage was
+     * recorded.
+     * 
+     * @return The number of statements, null if not recorded
+     */
+    @Exported(visibility = 2)
+    public Long getStatements() {
+	// Get the latest coverage
+	Latest latest = getLatest();
+	// Return its statements
+	return latest == null ? null : latest.counts.getStatements();
+    }
+
+    /**
+     * Get the number of statements not executed of the latest build whose
+     * coverage was recorded.
+     * 
+     * @return The number of statements not executed, null if not recorded
+     */
+    @Exported(visibility = 2)
+    public Long getMissing() {
+	// Get the latest coverage
+	Latest latest = getLatest();
+	// Return its missing statements
+	return latest == null ? null : latest.counts.getMissing();
+    }
+
+    /**
+     * Check if the coverage of some builds was recorded, so that a trend can
+     * be drawn.
+     * 
+     * @return True if the trend is available, else false
+     */
+    public boolean hasTrend() {
+	return CoverageHistory.size(CoverageHistory.getDir(project)) > 0;
+    }
+
+    /**
+     * Serve the coverage trend of the project. The image is rendered from the
+     * history of the project, kept in memory and only rendered again when a
+     * build is appended to the history.
+     * 
+     * @param req
+     *            The request
+     * @param rsp
+     *            The response
+     * @throws IOException
+     */
+    public void doTrend(StaplerRequest req, StaplerResponse rsp) throws IOException {
+	// Revalidate the image, unchanged ones are answered with a 304
+	rsp.addHeader("Cache-Control", "no-cache");
+	// Get the image
+	ReportFile image = CoverageTrend.get(CoverageHistory.getDir(project)).getImage();
+	// Check if found
+	if (image == null) {
+	    // If not, return a 404
+	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+	    // No need to go further
+	    return;
+	}
+	// Send the image
+	ReportSender.send(req, rsp, image, CoverageTrend.CONTENT_TYPE);
     }
 
     /**
@@ -107,8 +274,8 @@ public class CoverageProjectAction extends CoverageAction implements ProminentPr
      * @throws ServletException
      */
     public void doDynamic(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
-	// First of all set this flag to avoid cache as this report may change
-	// quickly
+	// First of all set this flag to revalidate the cache as this report may
+	// change quickly, unchanged files are answered with a 304
 	rsp.addHeader("Cache-Control", "no-cache");
 	// Get the path
 	String path = getPath(req);
@@ -118,32 +285,33 @@ public class CoverageProjectAction extends CoverageAction implements ProminentPr
 	if (matrix == null) {
 	    // This is not, get the last successful build
 	    Run<?, ?> run = project.getLastSuccessfulBuild();
+	    // Check if got one
+	    if (run == null) {
+		// If not, return a 404
+		rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+		// No need to go further
+		return;
+	    }
 	    // Serve the report
 	    serve(req, rsp, run.getFullDisplayName(), CoveragePublisher.getHtmlDir(run), path);
 	    // No need to go further
 	    return;
 	}
-	// Store the configurations with reports
-	List<MatrixConfiguration> configurations = new ArrayList<MatrixConfiguration>();
-	// Go threw the active configurations
-	for (MatrixConfiguration configuration : matrix.getActiveConfigurations())
-	    // Check is has some reports
-	    if (hasReports(CoveragePublisher.getHtmlDir(configuration.getLastSuccessfulBuild())))
-		// If has at least one add to the list
-		configurations.add(configuration);
+	// Get the configurations with reports
+	List<Target> targets = getTargets(matrix);
 	// Check that at least one configuration found
-	if (configurations.size() == 0) {
+	if (targets.size() == 0) {
 	    // If non found, return a 404
 	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
 	    // No need to go further
 	    return;
 	}
 	// Check if only one configuration
-	if (configurations.size() == 1) {
-	    // Get the last successful build for this configuration
-	    MatrixRun run = configurations.get(0).getLastSuccessfulBuild();
+	if (targets.size() == 1) {
+	    // Get the reports of this configuration
+	    Target target = targets.get(0);
 	    // Server its report directly
-	    serve(req, rsp, run.getFullDisplayName(), CoveragePublisher.getHtmlDir(run), path);
+	    serve(req, rsp, target.title, target.base, path);
 	    // No need to go further
 	    return;
 	}
@@ -152,20 +320,16 @@ public class CoverageProjectAction extends CoverageAction implements ProminentPr
 	    // Store the index entries
 	    List<Entry> entries = new ArrayList<Entry>();
 	    // Go threw the configurations
-	    for (MatrixConfiguration configuration : configurations) {
-		// Get the last successful build for this configuration
-		MatrixRun run = configuration.getLastSuccessfulBuild();
+	    for (Target target : targets) {
 		// Create an entry for this configuration
-		Entry entry = new Entry(run.getFullDisplayName(), configuration.getCombination().toString() + "/");
-		// Get its base report folder
-		File base = CoveragePublisher.getHtmlDir(run);
+		Entry entry = new Entry(target.title, target.combination + "/");
 		// If this base report is not a report folder, create a sub item
 		// for each report
-		if (!isReport(base))
+		if (!target.isSingle())
 		    // Go threw the reports
-		    for (String dir : getReports(base))
+		    for (String dir : target.reports)
 			// Add a child item
-			entry.children.add(new Entry(dir, configuration.getCombination().toString() + "/" + dir + "/"));
+			entry.children.add(new Entry(dir, target.combination + "/" + dir + "/"));
 		// Add the entry to the list
 		entries.add(entry);
 	    }
@@ -182,8 +346,18 @@ public class CoverageProjectAction extends CoverageAction implements ProminentPr
 	String[] parts = path.split("/", 3);
 	// Get the configuration from the first part of the URL
 	MatrixConfiguration configuration = matrix.getItem(parts[1]);
+	// Look for its reports
+	Target target = null;
 	// Check if found a configuration
-	if (configuration == null) {
+	if (configuration != null)
+	    // Go threw the configurations with reports
+	    for (Target candidate : targets)
+		// Check if this is the requested one
+		if (candidate.combination.equals(configuration.getCombination().toString()))
+		    // Found it
+		    target = candidate;
+	// Check if found the reports
+	if (target == null) {
 	    // If not, return a 404
 	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
 	    // No need to go further
@@ -191,9 +365,100 @@ public class CoverageProjectAction extends CoverageAction implements ProminentPr
 	}
 	// Get the remaining path without the configuration prefix
 	path = parts.length <= 2 ? "/" : "/" + parts[2];
-	// Get the last successful build for this configuration
-	MatrixRun run = configuration.getLastSuccessfulBuild();
 	// Serve the file
-	serve(req, rsp, run.getFullDisplayName(), CoveragePublisher.getHtmlDir(run), path);
+	serve(req, rsp, target.title, target.base, path);
+    }
+
+    /**
+     * The latest coverage reports of a configuration.
+     */
+    private static class Target {
+
+	/**
+	 * The combination of the configuration.
+	 */
+	private final String combination;
+
+	/**
+	 * The title of the reports.
+	 */
+	private final String title;
+
+	/**
+	 * The archived reports folder.
+	 */
+	private final File base;
+
+	/**
+	 * The relative paths to the reports.
+	 */
+	private final List<String> reports;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param combination
+	 *            The combination of the configuration
+	 * @param title
+	 *            The title of the reports
+	 * @param base
+	 *            The archived reports folder
+	 * @param reports
+	 *            The relative paths to the reports
+	 */
+	private Target(String combination, String title, File base, List<String> reports) {
+	    // Call super
+	    super();
+	    // Store the combination
+	    this.combination = combination;
+	    // Store the title
+	    this.title = title;
+	    // Store the folder
+	    this.base = base;
+	    // Store the reports
+	    this.reports = reports;
+	}
+
+	/**
+	 * Check if the archived reports folder is itself a report.
+	 * 
+	 * @return True if this is a single report, else false
+	 */
+	private boolean isSingle() {
+	    return reports.size() == 1 && reports.get(0).length() == 0;
+	}
+    }
+
+    /**
+     * The latest recorded coverage.
+     */
+    private static class Latest {
+
+	/**
+	 * The build number.
+	 */
+	private final int number;
+
+	/**
+	 * The counts.
+	 */
+	private final CoverageCounts counts;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param number
+	 *            The build number
+	 * @param counts
+	 *            The counts
+	 */
+	private Latest(int number, CoverageCounts counts) {
+	    // Call super
+	    super();
+	    // Store the build number
+	    this.number = number;
+	    // Store the counts
+	    this.counts = counts;
+	}
     }
-}
\ No newline at end of file
+}
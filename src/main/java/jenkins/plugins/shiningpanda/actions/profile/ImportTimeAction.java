@@ -0,0 +1,343 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.actions.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.model.RunAction2;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.profile.ImportTimes;
+
+@ExportedBean
+public class ImportTimeAction implements RunAction2 {
+
+    /**
+     * URL of the action.
+     */
+    public static final String URL_NAME = "shiningpanda-imports";
+
+    /**
+     * Name of the file of a build storing the import times of all its
+     * modules.
+     */
+    public static final String FILENAME = "shiningpanda-importtime.txt";
+
+    /**
+     * Number of slowest modules kept in the action.
+     */
+    public static final int TOP = Integer.getInteger(ImportTimeAction.class.getName() + ".top", 20);
+
+    /**
+     * Number of builds in the trend.
+     */
+    public static final int TREND = Integer.getInteger(ImportTimeAction.class.getName() + ".trend", 10);
+
+    /**
+     * Maximal number of previous builds looked up for the trend.
+     */
+    private static final int LOOKUP = 50;
+
+    /**
+     * The total import time in microseconds.
+     */
+    private long total;
+
+    /**
+     * The number of imported modules.
+     */
+    private int modules;
+
+    /**
+     * The slowest modules.
+     */
+    private List<ImportTimes.Module> slowest = new ArrayList<ImportTimes.Module>();
+
+    /**
+     * The import times of all the modules, read on demand.
+     */
+    private transient ImportTimes times;
+
+    /**
+     * The build.
+     */
+    private transient Run<?, ?> build;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onAttached(hudson.model.Run)
+     */
+    public void onAttached(Run<?, ?> r) {
+	build = r;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onLoad(hudson.model.Run)
+     */
+    public void onLoad(Run<?, ?> r) {
+	build = r;
+    }
+
+    /**
+     * Get the build.
+     * 
+     * @return The build
+     */
+    public Run<?, ?> getBuild() {
+	return build;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getDisplayName()
+     */
+    public String getDisplayName() {
+	return Messages.ImportTimeAction_DisplayName();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getUrlName()
+     */
+    public String getUrlName() {
+	return URL_NAME;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getIconFileName()
+     */
+    public synchronized String getIconFileName() {
+	return modules == 0 ? null : "package.png";
+    }
+
+    /**
+     * Get the total import time, the sum of the cumulative times of the top
+     * level imports of all the steps.
+     * 
+     * @return The time in microseconds
+     */
+    @Exported
+    public synchronized long getTotal() {
+	return total;
+    }
+
+    /**
+     * Get the number of imported modules.
+     * 
+     * @return The number of modules
+     */
+    @Exported
+    public synchronized int getModules() {
+	return modules;
+    }
+
+    /**
+     * Get the slowest modules to import.
+     * 
+     * @return The modules, by decreasing cumulative time
+     */
+    @Exported(inline = true)
+    public synchronized List<ImportTimes.Module> getSlowest() {
+	return Collections.unmodifiableList(new ArrayList<ImportTimes.Module>(slowest));
+    }
+
+    /**
+     * Get the cumulative import time of a module.
+     * 
+     * @param module
+     *            The name of the module
+     * @return The time in microseconds, null if not imported or unknown
+     */
+    public synchronized Long getCumulative(String module) {
+	// Check if the times are in memory
+	if (times == null) {
+	    // Get the file
+	    File file = getFile(build);
+	    try {
+		// Read it if exists
+		times = file.isFile() ? ImportTimes.load(file) : new ImportTimes();
+	    } catch (IOException e) {
+		// Unknown
+		times = new ImportTimes();
+	    }
+	}
+	// Get the module
+	ImportTimes.Module found = times.get(module);
+	// Return its time
+	return found == null ? null : found.getCumulative();
+    }
+
+    /**
+     * Get the import times of this build and of the previous builds that
+     * recorded them.
+     * 
+     * @return The actions, this build first
+     */
+    public List<ImportTimeAction> getTrend() {
+	// Store the actions
+	List<ImportTimeAction> trend = new ArrayList<ImportTimeAction>();
+	// Start with this build
+	trend.add(this);
+	// Go threw the previous builds
+	Run<?, ?> run = build == null ? null : build.getPreviousBuild();
+	for (int i = 0; run != null && i < LOOKUP && trend.size() < TREND; i++, run = run.getPreviousBuild()) {
+	    // Get the action
+	    ImportTimeAction action = run.getAction(ImportTimeAction.class);
+	    // Check if found
+	    if (action != null)
+		// Add it
+		trend.add(action);
+	}
+	// Return the actions
+	return trend;
+    }
+
+    /**
+     * Get the width of the bar of a total import time in the trend.
+     * 
+     * @param value
+     *            The time in microseconds
+     * @return The width as a CSS percentage
+     */
+    public String getWidth(long value) {
+	// Store the longest time
+	long max = 0;
+	// Go threw the trend
+	for (ImportTimeAction action : getTrend())
+	    // Keep the longest
+	    max = Math.max(max, action.getTotal());
+	// Return the percentage
+	return String.format(Locale.ENGLISH, "%.2f%%", max == 0 ? 0. : 100. * value / max);
+    }
+
+    /**
+     * Store the import times of all the modules.
+     * 
+     * @param times
+     *            The import times
+     */
+    private synchronized void update(ImportTimes times) {
+	// Store the total
+	this.total = times.getTotal();
+	// Store the number of modules
+	this.modules = times.size();
+	// Store the slowest modules
+	this.slowest = times.getSlowest(TOP);
+	// Keep the times in memory
+	this.times = times;
+    }
+
+    /**
+     * Get the import times file of a build.
+     * 
+     * @param build
+     *            The build
+     * @return The file
+     */
+    public static File getFile(Run<?, ?> build) {
+	return new File(build.getRootDir(), FILENAME);
+    }
+
+    /**
+     * Get the import times action of a build, creating it if required.
+     * 
+     * @param build
+     *            The build
+     * @return The action
+     */
+    public static ImportTimeAction get(AbstractBuild<?, ?> build) {
+	// Only one action per build
+	synchronized (ImportTimeAction.class) {
+	    // Get the action
+	    ImportTimeAction action = build.getAction(ImportTimeAction.class);
+	    // Check if exists
+	    if (action == null) {
+		// Create it
+		action = new ImportTimeAction();
+		// Register it
+		build.addAction(action);
+	    }
+	    // Return the action
+	    return action;
+	}
+    }
+
+    /**
+     * Add the import times of a step to its build. The times of all the
+     * modules are kept in a file of the build, and the slowest ones in the
+     * action. A missing or invalid record is logged but does not fail the
+     * build.
+     * 
+     * @param build
+     *            The build
+     * @param times
+     *            The import times of the step
+     * @param listener
+     *            The listener
+     */
+    public static void record(AbstractBuild<?, ?> build, ImportTimes times, TaskListener listener) {
+	// Check if the import times were written
+	if (times.size() == 0) {
+	    // Log
+	    listener.getLogger().println(Messages.ImportTimeAction_Missing());
+	    // No need to go further
+	    return;
+	}
+	try {
+	    // Steps of a build may run concurrently
+	    synchronized (ImportTimeAction.class) {
+		// Get the file of the build
+		File file = getFile(build);
+		// Get the times of the previous steps
+		ImportTimes all = file.isFile() ? ImportTimes.load(file) : new ImportTimes();
+		// Add the times of this step
+		all.add(times);
+		// Store them
+		all.save(file);
+		// Update the action
+		get(build).update(all);
+	    }
+	    // Log
+	    listener.getLogger().println(Messages.ImportTimeAction_Recorded(times.size(), times.getTotal() / 1000.));
+	} catch (IOException e) {
+	    // Log
+	    listener.error(Messages.ImportTimeAction_Failed(e.getMessage()));
+	}
+    }
+}
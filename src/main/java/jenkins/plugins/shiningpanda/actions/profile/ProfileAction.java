@@ -0,0 +1,301 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.actions.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.FileUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.model.RunAction2;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.coverage.FolderStore;
+import jenkins.plugins.shiningpanda.coverage.ReportFile;
+import jenkins.plugins.shiningpanda.coverage.ReportSender;
+import jenkins.plugins.shiningpanda.profile.FlameGraph;
+import jenkins.plugins.shiningpanda.profile.ProfileStats;
+
+@ExportedBean
+public class ProfileAction implements RunAction2 {
+
+    /**
+     * URL of the action.
+     */
+    public static final String URL_NAME = "shiningpanda-profile";
+
+    /**
+     * Name of the profiles folder of a build.
+     */
+    public static final String DIRNAME = "shiningpanda-profile";
+
+    /**
+     * Extension of the statistics dumped by the profiler.
+     */
+    public static final String STATS = ".pstats";
+
+    /**
+     * Extension of the collapsed stacks.
+     */
+    public static final String COLLAPSED = ".collapsed";
+
+    /**
+     * Extension of the flame graphs.
+     */
+    public static final String GRAPH = ".svg";
+
+    /**
+     * The profiled steps.
+     */
+    private final List<ProfileStep> steps = new ArrayList<ProfileStep>();
+
+    /**
+     * The identifier of the last profile.
+     */
+    private int last;
+
+    /**
+     * The build.
+     */
+    private transient Run<?, ?> build;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onAttached(hudson.model.Run)
+     */
+    public void onAttached(Run<?, ?> r) {
+	build = r;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onLoad(hudson.model.Run)
+     */
+    public void onLoad(Run<?, ?> r) {
+	build = r;
+    }
+
+    /**
+     * Get the build.
+     * 
+     * @return The build
+     */
+    public Run<?, ?> getBuild() {
+	return build;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getDisplayName()
+     */
+    public String getDisplayName() {
+	return Messages.ProfileAction_DisplayName();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getUrlName()
+     */
+    public String getUrlName() {
+	return URL_NAME;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getIconFileName()
+     */
+    public synchronized String getIconFileName() {
+	// Only display the link if a step was profiled
+	return steps.isEmpty() ? null : "monitor.png";
+    }
+
+    /**
+     * Get the identifier of the next profile.
+     * 
+     * @return The identifier
+     */
+    private synchronized int next() {
+	return ++last;
+    }
+
+    /**
+     * Record a profiled step.
+     * 
+     * @param step
+     *            The step
+     */
+    public synchronized void add(ProfileStep step) {
+	steps.add(step);
+    }
+
+    /**
+     * Get the profiled steps.
+     * 
+     * @return The steps
+     */
+    @Exported(inline = true)
+    public synchronized List<ProfileStep> getSteps() {
+	return Collections.unmodifiableList(new ArrayList<ProfileStep>(steps));
+    }
+
+    /**
+     * Serve the flame graphs, the collapsed stacks and the statistics of the
+     * profiled steps.
+     * 
+     * @param req
+     *            The request
+     * @param rsp
+     *            The response
+     * @throws IOException
+     */
+    public void doDynamic(StaplerRequest req, StaplerResponse rsp) throws IOException {
+	// Get the name of the file
+	String name = req.getRestOfPath().replaceFirst("^/+", "");
+	// Only serve the files of the profiles
+	ReportFile file = name.matches("[0-9]+\\.(svg|collapsed|pstats)") ? new FolderStore(getDir(build))
+		.getFile(name) : null;
+	// Check if found
+	if (file == null) {
+	    // If not, return a 404
+	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+	    // No need to go further
+	    return;
+	}
+	// Get the content type
+	String contentType = name.endsWith(GRAPH) ? FlameGraph.CONTENT_TYPE
+		: name.endsWith(COLLAPSED) ? "text/plain;charset=UTF-8" : "application/octet-stream";
+	// Send the file
+	ReportSender.send(req, rsp, file, contentType);
+    }
+
+    /**
+     * Get the profiles folder of a build.
+     * 
+     * @param build
+     *            The build
+     * @return The folder
+     */
+    public static File getDir(Run<?, ?> build) {
+	return new File(build.getRootDir(), DIRNAME);
+    }
+
+    /**
+     * Get the profile action of a build, creating it if required.
+     * 
+     * @param build
+     *            The build
+     * @return The action
+     */
+    public static ProfileAction get(AbstractBuild<?, ?> build) {
+	// Only one action per build
+	synchronized (ProfileAction.class) {
+	    // Get the action
+	    ProfileAction action = build.getAction(ProfileAction.class);
+	    // Check if exists
+	    if (action == null) {
+		// Create it
+		action = new ProfileAction();
+		// Register it
+		build.addAction(action);
+	    }
+	    // Return the action
+	    return action;
+	}
+    }
+
+    /**
+     * Record the profile of a step: the statistics dumped on the executor are
+     * copied in the build, then converted on the master to collapsed stacks
+     * and rendered as a flame graph. A missing or invalid profile is logged
+     * but does not fail the build.
+     * 
+     * @param build
+     *            The build
+     * @param name
+     *            The name of the step
+     * @param stats
+     *            The statistics dumped on the executor
+     * @param listener
+     *            The listener
+     * @throws InterruptedException
+     */
+    public static void record(AbstractBuild<?, ?> build, String name, FilePath stats, TaskListener listener)
+	    throws InterruptedException {
+	try {
+	    // Check if the statistics were dumped
+	    if (!stats.exists() || stats.length() == 0) {
+		// Log
+		listener.getLogger().println(Messages.ProfileAction_Missing());
+		// No need to go further
+		return;
+	    }
+	    // Get the action of the build
+	    ProfileAction action = get(build);
+	    // Get the identifier of the profile
+	    int id = action.next();
+	    // Get the profiles folder
+	    File dir = getDir(build);
+	    // Create it
+	    dir.mkdirs();
+	    // Get the statistics file in the build
+	    File dump = new File(dir, id + STATS);
+	    // Copy the statistics on the master
+	    stats.copyTo(new FilePath(dump));
+	    // Read them
+	    ProfileStats profile = ProfileStats.load(dump);
+	    // Convert them to collapsed stacks
+	    SortedMap<String, Long> stacks = profile.collapse();
+	    // Archive the stacks
+	    FlameGraph.save(stacks, new File(dir, id + COLLAPSED));
+	    // Render the flame graph once for all
+	    FileUtils.writeStringToFile(new File(dir, id + GRAPH),
+		    FlameGraph.render(stacks, build.getFullDisplayName() + " - " + name), "UTF-8");
+	    // Get the total time in microseconds
+	    long duration = Math.round(profile.getTotal() * 1000000);
+	    // Record the step
+	    action.add(new ProfileStep(id, name, profile.size(), duration));
+	    // Log
+	    listener.getLogger().println(Messages.ProfileAction_Recorded(profile.size(), duration / 1000.));
+	} catch (IOException e) {
+	    // Log
+	    listener.error(Messages.ProfileAction_Failed(e.getMessage()));
+	}
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.actions.profile;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+@ExportedBean(defaultVisibility = 2)
+public class ProfileStep {
+
+    /**
+     * The identifier of the profile in the build.
+     */
+    private final int id;
+
+    /**
+     * The name of the step.
+     */
+    private final String name;
+
+    /**
+     * The number of profiled functions.
+     */
+    private final int functions;
+
+    /**
+     * The total profiled time in microseconds.
+     */
+    private final long duration;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param id
+     *            The identifier of the profile in the build
+     * @param name
+     *            The name of the step
+     * @param functions
+     *            The number of profiled functions
+     * @param duration
+     *            The total profiled time in microseconds
+     */
+    public ProfileStep(int id, String name, int functions, long duration) {
+	// Call super
+	super();
+	// Store the identifier
+	this.id = id;
+	// Store the name
+	this.name = name;
+	// Store the number of functions
+	this.functions = functions;
+	// Store the duration
+	this.duration = duration;
+    }
+
+    /**
+     * Get the identifier of the profile in the build.
+     * 
+     * @return The identifier
+     */
+    @Exported
+    public int getId() {
+	return id;
+    }
+
+    /**
+     * Get the name of the step.
+     * 
+     * @return The name
+     */
+    @Exported
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Get the number of profiled functions.
+     * 
+     * @return The number of functions
+     */
+    @Exported
+    public int getFunctions() {
+	return functions;
+    }
+
+    /**
+     * Get the total profiled time.
+     * 
+     * @return The time in microseconds
+     */
+    @Exported
+    public long getDuration() {
+	return duration;
+    }
+}
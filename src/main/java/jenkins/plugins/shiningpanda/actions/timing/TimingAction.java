@@ -0,0 +1,182 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.actions.timing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import jenkins.plugins.shiningpanda.Messages;
+
+@ExportedBean
+public class TimingAction implements RunAction2 {
+
+    /**
+     * URL of the action.
+     */
+    public static final String URL_NAME = "shiningpanda-timing";
+
+    /**
+     * The timed steps.
+     */
+    private final List<TimingStep> steps = new ArrayList<TimingStep>();
+
+    /**
+     * The build.
+     */
+    private transient Run<?, ?> build;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onAttached(hudson.model.Run)
+     */
+    public void onAttached(Run<?, ?> r) {
+	build = r;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.model.RunAction2#onLoad(hudson.model.Run)
+     */
+    public void onLoad(Run<?, ?> r) {
+	build = r;
+    }
+
+    /**
+     * Get the build.
+     * 
+     * @return The build
+     */
+    public Run<?, ?> getBuild() {
+	return build;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getDisplayName()
+     */
+    public String getDisplayName() {
+	return Messages.TimingAction_DisplayName();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getUrlName()
+     */
+    public String getUrlName() {
+	return URL_NAME;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getIconFileName()
+     */
+    public String getIconFileName() {
+	return "clock.png";
+    }
+
+    /**
+     * Record a step.
+     * 
+     * @param step
+     *            The step
+     */
+    public synchronized void add(TimingStep step) {
+	steps.add(step);
+    }
+
+    /**
+     * Get the timed steps.
+     * 
+     * @return The steps
+     */
+    @Exported(inline = true)
+    public synchronized List<TimingStep> getSteps() {
+	return Collections.unmodifiableList(new ArrayList<TimingStep>(steps));
+    }
+
+    /**
+     * Get the end of the last step, used as time scale for the timeline.
+     * 
+     * @return The end in milliseconds since the start of the build
+     */
+    public synchronized long getEnd() {
+	// Store the end
+	long end = 0;
+	// Go threw the steps
+	for (TimingStep step : steps)
+	    // Keep the latest end
+	    end = Math.max(end, step.getStart() + step.getDuration());
+	// Return the end
+	return end;
+    }
+
+    /**
+     * Get the position of a time on the timeline.
+     * 
+     * @param time
+     *            The time in milliseconds since the start of the build
+     * @return The position as a CSS percentage
+     */
+    public String getPosition(long time) {
+	// Get the scale
+	long end = getEnd();
+	// Return the percentage
+	return String.format(Locale.ENGLISH, "%.2f%%", end == 0 ? 0. : 100. * time / end);
+    }
+
+    /**
+     * Get the timing action of a build, creating it if required.
+     * 
+     * @param build
+     *            The build
+     * @return The action
+     */
+    public static TimingAction get(AbstractBuild<?, ?> build) {
+	// Only one action per build
+	synchronized (TimingAction.class) {
+	    // Get the action
+	    TimingAction action = build.getAction(TimingAction.class);
+	    // Check if exists
+	    if (action == null) {
+		// Create it
+		action = new TimingAction();
+		// Register it
+		build.addAction(action);
+	    }
+	    // Return the action
+	    return action;
+	}
+    }
+}
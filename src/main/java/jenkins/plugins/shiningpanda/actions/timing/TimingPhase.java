@@ -0,0 +1,155 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.actions.timing;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+@ExportedBean(defaultVisibility = 3)
+public class TimingPhase {
+
+    /**
+     * The name of the phase.
+     */
+    private final String name;
+
+    /**
+     * Start of the phase in milliseconds since the start of the build.
+     */
+    private final long start;
+
+    /**
+     * Duration of the phase in milliseconds.
+     */
+    private final long duration;
+
+    /**
+     * Number of remote calls made during the phase.
+     */
+    private final long remoteCalls;
+
+    /**
+     * Number of bytes transferred by the remote calls made during the phase.
+     */
+    private final long remoteBytes;
+
+    /**
+     * Time spent in the remote calls made during the phase in milliseconds.
+     */
+    private final long remoteTime;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param name
+     *            The name of the phase
+     * @param start
+     *            Start of the phase in milliseconds since the start of the
+     *            build
+     * @param duration
+     *            Duration of the phase in milliseconds
+     * @param remoteCalls
+     *            Number of remote calls made during the phase
+     * @param remoteBytes
+     *            Number of bytes transferred by the remote calls
+     * @param remoteTime
+     *            Time spent in the remote calls in milliseconds
+     */
+    public TimingPhase(String name, long start, long duration, long remoteCalls, long remoteBytes,
+	    long remoteTime) {
+	// Call super
+	super();
+	// Store the name
+	this.name = name;
+	// Store the start
+	this.start = start;
+	// Store the duration
+	this.duration = duration;
+	// Store the number of remote calls
+	this.remoteCalls = remoteCalls;
+	// Store the number of transferred bytes
+	this.remoteBytes = remoteBytes;
+	// Store the time spent in remote calls
+	this.remoteTime = remoteTime;
+    }
+
+    /**
+     * Get the name of the phase.
+     * 
+     * @return The name
+     */
+    @Exported
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Get the start of the phase.
+     * 
+     * @return The start in milliseconds since the start of the build
+     */
+    @Exported
+    public long getStart() {
+	return start;
+    }
+
+    /**
+     * Get the duration of the phase.
+     * 
+     * @return The duration in milliseconds
+     */
+    @Exported
+    public long getDuration() {
+	return duration;
+    }
+
+    /**
+     * Get the number of remote calls made during the phase.
+     * 
+     * @return The number of remote calls
+     */
+    @Exported
+    public long getRemoteCalls() {
+	return remoteCalls;
+    }
+
+    /**
+     * Get the number of bytes transferred by the remote calls made during the
+     * phase.
+     * 
+     * @return The number of bytes
+     */
+    @Exported
+    public long getRemoteBytes() {
+	return remoteBytes;
+    }
+
+    /**
+     * Get the time spent in the remote calls made during the phase.
+     * 
+     * @return The time in milliseconds
+     */
+    @Exported
+    public long getRemoteTime() {
+	return remoteTime;
+    }
+}
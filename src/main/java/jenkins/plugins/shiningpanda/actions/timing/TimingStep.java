@@ -0,0 +1,170 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.actions.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+@ExportedBean(defaultVisibility = 2)
+public class TimingStep {
+
+    /**
+     * The name of the step.
+     */
+    private final String name;
+
+    /**
+     * Start of the step in milliseconds since the start of the build.
+     */
+    private final long start;
+
+    /**
+     * Duration of the step in milliseconds.
+     */
+    private final long duration;
+
+    /**
+     * The phases of the step.
+     */
+    private final List<TimingPhase> phases;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param name
+     *            The name of the step
+     * @param start
+     *            Start of the step in milliseconds since the start of the
+     *            build
+     * @param duration
+     *            Duration of the step in milliseconds
+     * @param phases
+     *            The phases of the step
+     */
+    public TimingStep(String name, long start, long duration, List<TimingPhase> phases) {
+	// Call super
+	super();
+	// Store the name
+	this.name = name;
+	// Store the start
+	this.start = start;
+	// Store the duration
+	this.duration = duration;
+	// Store a copy of the phases
+	this.phases = new ArrayList<TimingPhase>(phases);
+    }
+
+    /**
+     * Get the name of the step.
+     * 
+     * @return The name
+     */
+    @Exported
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Get the start of the step.
+     * 
+     * @return The start in milliseconds since the start of the build
+     */
+    @Exported
+    public long getStart() {
+	return start;
+    }
+
+    /**
+     * Get the duration of the step.
+     * 
+     * @return The duration in milliseconds
+     */
+    @Exported
+    public long getDuration() {
+	return duration;
+    }
+
+    /**
+     * Get the number of remote calls made during the step.
+     * 
+     * @return The number of remote calls
+     */
+    @Exported
+    public long getRemoteCalls() {
+	// Store the total
+	long calls = 0;
+	// Go threw the phases
+	for (TimingPhase phase : phases)
+	    // Add the calls of the phase
+	    calls += phase.getRemoteCalls();
+	// Return the total
+	return calls;
+    }
+
+    /**
+     * Get the number of bytes transferred by the remote calls made during the
+     * step.
+     * 
+     * @return The number of bytes
+     */
+    @Exported
+    public long getRemoteBytes() {
+	// Store the total
+	long bytes = 0;
+	// Go threw the phases
+	for (TimingPhase phase : phases)
+	    // Add the bytes of the phase
+	    bytes += phase.getRemoteBytes();
+	// Return the total
+	return bytes;
+    }
+
+    /**
+     * Get the time spent in the remote calls made during the step.
+     * 
+     * @return The time in milliseconds
+     */
+    @Exported
+    public long getRemoteTime() {
+	// Store the total
+	long time = 0;
+	// Go threw the phases
+	for (TimingPhase phase : phases)
+	    // Add the time of the phase
+	    time += phase.getRemoteTime();
+	// Return the total
+	return time;
+    }
+
+    /**
+     * Get the phases of the step.
+     * 
+     * @return The phases
+     */
+    @Exported
+    public List<TimingPhase> getPhases() {
+	return phases;
+    }
+}
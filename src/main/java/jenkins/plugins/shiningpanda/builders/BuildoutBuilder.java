@@ -47,6 +47,8 @@ import jenkins.plugins.shiningpanda.interpreters.Python;
 import jenkins.plugins.shiningpanda.interpreters.Virtualenv;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
 import jenkins.plugins.shiningpanda.utils.BuilderUtil;
+import jenkins.plugins.shiningpanda.utils.PhaseTimer;
+import jenkins.plugins.shiningpanda.utils.TimedStep;
 import jenkins.plugins.shiningpanda.workspace.Workspace;
 
 public class BuildoutBuilder extends Builder implements Serializable {
@@ -127,6 +129,38 @@ public class BuildoutBuilder extends Builder implements Serializable {
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
 	    throws InterruptedException, IOException {
+	// Time the phases of this step
+	return BuilderUtil.perform(getDescriptor().getDisplayName(), build, launcher, listener, new TimedStep() {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.utils.TimedStep#execute(hudson.
+	     * model.AbstractBuild, hudson.Launcher, hudson.model.BuildListener)
+	     */
+	    public boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+		    throws InterruptedException, IOException {
+		// Delegate
+		return BuildoutBuilder.this.execute(build, launcher, listener);
+	    }
+	});
+    }
+
+    /**
+     * Perform the build step.
+     * 
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @return true if successful, else false
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+	    throws InterruptedException, IOException {
 	// Get the workspace
 	Workspace workspace = Workspace.fromBuild(build);
 	// Get the environment variables for this build
@@ -135,6 +169,8 @@ public class BuildoutBuilder extends Builder implements Serializable {
 	if (environment == null)
 	    // Invalid, no need to go further
 	    return false;
+	// Enter the interpreter lookup phase
+	PhaseTimer.enter(PhaseTimer.INTERPRETER);
 	// Get the PYTHON installation to use
 	PythonInstallation installation = BuilderUtil.getInstallation(build, listener, environment, pythonName);
 	// Check if an installation was found
@@ -142,7 +178,7 @@ public class BuildoutBuilder extends Builder implements Serializable {
 	    // If not installation found, do not continue the build
 	    return false;
 	// Get the PYTHON
-	Python interpreter = BuilderUtil.getInterpreter(launcher, listener, installation.getHome());
+	Python interpreter = BuilderUtil.getInterpreter(launcher, listener, installation);
 	// Check if found an interpreter
 	if (interpreter == null)
 	    // If no interpreter found, no need to continue
@@ -157,18 +193,24 @@ public class BuildoutBuilder extends Builder implements Serializable {
 	FilePath pwd = build.getWorkspace();
 	// Does VIRTUALENV use system site packages
 	boolean vSystemSitePackages = false;
+	// Enter the signature check phase
+	PhaseTimer.enter(PhaseTimer.SIGNATURE);
 	// Check if clean required or if configuration changed
 	if (virtualenv.isOutdated(workspace, interpreter, vSystemSitePackages))
 	    // A new environment is required
 	    if (!virtualenv.create(launcher, listener, workspace, pwd, environment, interpreter, vSystemSitePackages))
 		// Failed to create the environment, do not continue
 		return false;
+	// Enter the BUILDOUT bootstrap phase
+	PhaseTimer.enter(PhaseTimer.BOOTSTRAP);
 	// Bootstrap
 	if (!virtualenv.buildout(launcher, listener, workspace, pwd, environment, buildoutCfg))
 	    // Failed to bootstrap, no need to continue
 	    return false;
 	// Get the final environment by adding the binary folder in the path
 	environment.override("PATH+", pwd.child(buildoutCfg).getParent().child("bin").getRemote());
+	// Enter the user command phase
+	PhaseTimer.enter(PhaseTimer.COMMAND);
 	// Launch script
 	return BuilderUtil.launch(launcher, listener, pwd, environment, virtualenv, nature, command, ignoreExitCode);
     }
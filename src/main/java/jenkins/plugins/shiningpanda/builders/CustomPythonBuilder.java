@@ -27,6 +27,7 @@ import java.util.List;
 
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import hudson.EnvVars;
@@ -44,6 +45,7 @@ import jenkins.plugins.shiningpanda.Messages;
 import jenkins.plugins.shiningpanda.command.CommandNature;
 import jenkins.plugins.shiningpanda.interpreters.Python;
 import jenkins.plugins.shiningpanda.utils.BuilderUtil;
+import jenkins.plugins.shiningpanda.utils.LaunchOptions;
 import jenkins.plugins.shiningpanda.utils.FormValidationUtil;
 
 public class CustomPythonBuilder extends Builder implements Serializable {
@@ -69,6 +71,16 @@ public class CustomPythonBuilder extends Builder implements Serializable {
      */
     public final boolean ignoreExitCode;
 
+    /**
+     * Run the PYTHON scripts under the profiler and record their profile.
+     */
+    public boolean profile;
+
+    /**
+     * Run the PYTHON scripts with the import times enabled and record them.
+     */
+    public boolean importTime;
+
     /**
      * Constructor using fields
      * 
@@ -96,6 +108,28 @@ public class CustomPythonBuilder extends Builder implements Serializable {
 	this.ignoreExitCode = ignoreExitCode;
     }
 
+    /**
+     * Run the PYTHON scripts under the profiler and record their profile.
+     * 
+     * @param profile
+     *            true to profile the scripts, else false
+     */
+    @DataBoundSetter
+    public void setProfile(boolean profile) {
+	this.profile = profile;
+    }
+
+    /**
+     * Run the PYTHON scripts with the import times enabled and record them.
+     * 
+     * @param importTime
+     *            true to record the import times, else false
+     */
+    @DataBoundSetter
+    public void setImportTime(boolean importTime) {
+	this.importTime = importTime;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -118,8 +152,8 @@ public class CustomPythonBuilder extends Builder implements Serializable {
 	    // Failed to get the interpreter, no need to go further
 	    return false;
 	// Launch script
-	return BuilderUtil.launch(launcher, listener, build.getWorkspace(), environment, interpreter, nature, command,
-		ignoreExitCode);
+	return BuilderUtil.launch(build, launcher, listener, build.getWorkspace(), environment, interpreter, nature,
+		command, ignoreExitCode, new LaunchOptions(false, profile, importTime));
     }
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,468 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.builders;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.command.CommandNature;
+import jenkins.plugins.shiningpanda.interpreters.Python;
+import jenkins.plugins.shiningpanda.tools.PythonInstallation;
+import jenkins.plugins.shiningpanda.utils.BuilderUtil;
+import jenkins.plugins.shiningpanda.utils.PrefixedOutputStream;
+import jenkins.plugins.shiningpanda.utils.StringUtil;
+
+public class ParallelPythonBuilder extends Builder implements Serializable {
+
+    /**
+     * Maximum number of seconds to wait for the interrupted commands to stop.
+     */
+    private static final long TERMINATION_TIMEOUT = Long
+	    .getLong(ParallelPythonBuilder.class.getName() + ".terminationTimeout", 30);
+
+    /**
+     * Names of the PYTHON installations to invoke
+     */
+    public final String[] pythonNames;
+
+    /**
+     * The nature of the command: PYTHON, shell, X shell
+     */
+    public final String nature;
+
+    /**
+     * The command to execute in each PYTHON environment
+     */
+    public final String command;
+
+    /**
+     * Do not consider the build as a failure if any of the commands exits with
+     * a non-zero exit code.
+     */
+    public final boolean ignoreExitCode;
+
+    /**
+     * Maximum number of commands running at the same time, blank or zero for
+     * one per installation.
+     */
+    public final String maxParallel;
+
+    /**
+     * Constructor using fields
+     * 
+     * @param pythonNames
+     *            The names of the PYTHON installations
+     * @param nature
+     *            The nature of the command: PYTHON, shell, X shell
+     * @param command
+     *            The command to execute in each PYTHON environment
+     * @param ignoreExitCode
+     *            Do not consider the build as a failure if any of the commands
+     *            exits with a non-zero exit code
+     * @param maxParallel
+     *            Maximum number of commands running at the same time
+     */
+    @DataBoundConstructor
+    public ParallelPythonBuilder(String[] pythonNames, String nature, String command, boolean ignoreExitCode,
+	    String maxParallel) {
+	// Call super
+	super();
+	// Store the names of the PYTHON to invoke
+	this.pythonNames = StringUtil.fixNull(pythonNames);
+	// Store the nature of the command
+	this.nature = nature;
+	// Normalize and store the command
+	this.command = command;
+	// Store the ignore flag
+	this.ignoreExitCode = ignoreExitCode;
+	// Store the parallelism
+	this.maxParallel = Util.fixEmptyAndTrim(maxParallel);
+    }
+
+    /**
+     * Check if the provided installation is selected.
+     * 
+     * @param pythonName
+     *            The name of the installation
+     * @return true if selected, else false
+     */
+    public boolean isSelected(String pythonName) {
+	return Arrays.asList(pythonNames).contains(pythonName);
+    }
+
+    /**
+     * Get the size of the thread pool.
+     * 
+     * @param count
+     *            The number of commands to run
+     * @return The number of threads
+     */
+    private int getPoolSize(int count) {
+	// Get the configured value
+	int value = parseMaxParallel(maxParallel);
+	// If not set, run all the commands at once, else bound the pool
+	return value <= 0 ? count : Math.min(value, count);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.tasks.BuildStepCompatibilityLayer#perform(hudson.model.
+     * AbstractBuild , hudson.Launcher, hudson.model.BuildListener)
+     */
+    @Override
+    public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+	    throws InterruptedException, IOException {
+	// Get the environment variables for this build
+	EnvVars environment = BuilderUtil.getEnvironment(build, listener);
+	// Check if this is a valid environment
+	if (environment == null)
+	    // Invalid, no need to go further
+	    return false;
+	// Check that at least one installation is selected
+	if (pythonNames.length == 0) {
+	    // Log
+	    listener.fatalError(Messages.ParallelPythonBuilder_PythonNames_Required());
+	    // Do not continue the build
+	    return false;
+	}
+	// Resolve the interpreters on the executor thread as installations are
+	// translated for the current computer
+	Map<String, Python> interpreters = new LinkedHashMap<String, Python>();
+	// Go threw the selected installations
+	for (String pythonName : pythonNames) {
+	    // Get the installation from its name
+	    PythonInstallation installation = PythonInstallation.fromName(pythonName);
+	    // Check if found an installation
+	    if (installation == null) {
+		// Log
+		listener.fatalError(Messages.BuilderUtil_Installation_NotFound(pythonName));
+		// Failed to find the installation, do not continue
+		return false;
+	    }
+	    // Get the interpreter for this build
+	    Python interpreter = BuilderUtil.getInterpreter(launcher, listener,
+		    installation.forBuild(listener, environment));
+	    // Check if got an interpreter
+	    if (interpreter == null)
+		// If no interpreter found, do not continue the build
+		return false;
+	    // Register the interpreter
+	    interpreters.put(pythonName, interpreter);
+	}
+	// Get the working directory
+	FilePath pwd = build.getWorkspace();
+	// Get a bounded pool
+	ExecutorService executor = Executors.newFixedThreadPool(getPoolSize(interpreters.size()),
+		new NamingThreadFactory(new DaemonThreadFactory(), "ShiningPanda " + build.getFullDisplayName()));
+	// Store the pending results
+	Map<String, Future<Boolean>> futures = new LinkedHashMap<String, Future<Boolean>>();
+	// Store the final results
+	Map<String, Boolean> results = new LinkedHashMap<String, Boolean>();
+	// Be able to stop all the commands on interruption
+	try {
+	    // Submit a launch for each interpreter
+	    for (Map.Entry<String, Python> entry : interpreters.entrySet())
+		// Submit
+		futures.put(entry.getKey(), executor.submit(new Launch(launcher, listener, build, pwd,
+			new EnvVars(environment), entry.getKey(), entry.getValue())));
+	    // Wait for all the launches in submission order
+	    for (Map.Entry<String, Future<Boolean>> entry : futures.entrySet()) {
+		// Store the result of this launch
+		boolean success;
+		// Catch execution errors
+		try {
+		    // Wait
+		    success = entry.getValue().get().booleanValue();
+		} catch (ExecutionException e) {
+		    // Log the error
+		    e.getCause().printStackTrace(
+			    listener.error(Messages.ParallelPythonBuilder_Failed(entry.getKey())));
+		    // This launch failed
+		    success = false;
+		}
+		// Store the result
+		results.put(entry.getKey(), success);
+	    }
+	} finally {
+	    // Interrupt the remaining launches if any
+	    executor.shutdownNow();
+	    // Wait for them to stop so that nothing is logged once returned
+	    if (!executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS))
+		// Log
+		listener.error(Messages.ParallelPythonBuilder_NotTerminated(TERMINATION_TIMEOUT));
+	}
+	// Get the list of failing installations
+	List<String> failures = new ArrayList<String>();
+	// Go threw the results to log them
+	for (Map.Entry<String, Boolean> entry : results.entrySet()) {
+	    // Check if successful
+	    if (entry.getValue().booleanValue())
+		// Log the success
+		listener.getLogger().println(Messages.ParallelPythonBuilder_Success(entry.getKey()));
+	    // The command failed
+	    else {
+		// Log the failure
+		listener.getLogger().println(Messages.ParallelPythonBuilder_Failure(entry.getKey()));
+		// Register the failure
+		failures.add(entry.getKey());
+	    }
+	}
+	// Successful only if all the commands are
+	return failures.isEmpty();
+    }
+
+    /**
+     * Launch the command for one interpreter.
+     */
+    private final class Launch implements Callable<Boolean> {
+
+	/**
+	 * The launcher.
+	 */
+	private final Launcher launcher;
+
+	/**
+	 * The build listener.
+	 */
+	private final BuildListener listener;
+
+	/**
+	 * The build.
+	 */
+	private final AbstractBuild<?, ?> build;
+
+	/**
+	 * The working directory.
+	 */
+	private final FilePath pwd;
+
+	/**
+	 * The environment dedicated to this launch.
+	 */
+	private final EnvVars environment;
+
+	/**
+	 * The name of the installation.
+	 */
+	private final String pythonName;
+
+	/**
+	 * The interpreter.
+	 */
+	private final Python interpreter;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param launcher
+	 *            The launcher
+	 * @param listener
+	 *            The build listener
+	 * @param build
+	 *            The build
+	 * @param pwd
+	 *            The working directory
+	 * @param environment
+	 *            The environment dedicated to this launch
+	 * @param pythonName
+	 *            The name of the installation
+	 * @param interpreter
+	 *            The interpreter
+	 */
+	private Launch(Launcher launcher, BuildListener listener, AbstractBuild<?, ?> build, FilePath pwd,
+		EnvVars environment, String pythonName, Python interpreter) {
+	    // Call super
+	    super();
+	    // Store the launcher
+	    this.launcher = launcher;
+	    // Store the listener
+	    this.listener = listener;
+	    // Store the build
+	    this.build = build;
+	    // Store the working directory
+	    this.pwd = pwd;
+	    // Store the environment
+	    this.environment = environment;
+	    // Store the name
+	    this.pythonName = pythonName;
+	    // Store the interpreter
+	    this.interpreter = interpreter;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Callable#call()
+	 */
+	public Boolean call() throws IOException, InterruptedException {
+	    // Get a stream prefixing all lines with the installation name
+	    PrefixedOutputStream out = new PrefixedOutputStream(listener.getLogger(), "[" + pythonName + "] ",
+		    build.getCharset());
+	    // Be able to flush the last line in all cases
+	    try {
+		// Get a listener on this stream
+		TaskListener prefixed = new StreamTaskListener(out, build.getCharset());
+		// Launch the process
+		return BuilderUtil.launch(launcher, prefixed, pwd, environment, interpreter, nature, command,
+			ignoreExitCode);
+	    } finally {
+		// Flush
+		out.close();
+	    }
+	}
+    }
+
+    /**
+     * Parse the maximum number of parallel commands.
+     * 
+     * @param value
+     *            The raw value
+     * @return The value, or zero if not set or invalid
+     */
+    private static int parseMaxParallel(String value) {
+	// Check if set
+	if (Util.fixEmptyAndTrim(value) == null)
+	    // Not set
+	    return 0;
+	// Catch invalid values
+	try {
+	    // Parse
+	    return Integer.parseInt(value.trim());
+	} catch (NumberFormatException e) {
+	    // Invalid value
+	    return 0;
+	}
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Descriptor for this builder
+     */
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see hudson.model.Descriptor#getDisplayName()
+	 */
+	@Override
+	public String getDisplayName() {
+	    return Messages.ParallelPythonBuilder_DisplayName();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see hudson.model.Descriptor#getHelpFile()
+	 */
+	@Override
+	public String getHelpFile() {
+	    return Functions.getResourcePath() + "/plugin/shiningpanda/help/builders/ParallelPythonBuilder/help.html";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see hudson.tasks.BuildStepDescriptor#isApplicable(java.lang.Class)
+	 */
+	@Override
+	public boolean isApplicable(@SuppressWarnings("rawtypes") Class<? extends AbstractProject> jobType) {
+	    // If there's no PYTHON configured, there's no point in PYTHON
+	    // builders
+	    return !PythonInstallation.isEmpty();
+	}
+
+	/**
+	 * Get the PYTHON installations.
+	 * 
+	 * @return The list of installations
+	 */
+	public PythonInstallation[] getInstallations() {
+	    // Delegate
+	    return PythonInstallation.list();
+	}
+
+	/**
+	 * Get the list of the available command natures.
+	 * 
+	 * @return The list of natures
+	 */
+	public List<CommandNature> getNatures() {
+	    return CommandNature.ALL;
+	}
+
+	/**
+	 * Check that the maximum number of parallel commands is a positive
+	 * integer.
+	 * 
+	 * @param value
+	 *            The value to check
+	 * @return The validation result
+	 */
+	public FormValidation doCheckMaxParallel(@QueryParameter String value) {
+	    // Blank means one thread per installation
+	    if (Util.fixEmptyAndTrim(value) == null)
+		// Fine
+		return FormValidation.ok();
+	    // Check that this is a positive integer
+	    if (parseMaxParallel(value) <= 0)
+		// Invalid value
+		return FormValidation.error(Messages.ParallelPythonBuilder_MaxParallel_Invalid());
+	    // Seems fine
+	    return FormValidation.ok();
+	}
+    }
+}
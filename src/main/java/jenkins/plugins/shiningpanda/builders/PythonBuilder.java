@@ -26,6 +26,7 @@ import java.io.Serializable;
 import java.util.List;
 
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import hudson.EnvVars;
 import hudson.Extension;
@@ -42,6 +43,9 @@ import jenkins.plugins.shiningpanda.command.CommandNature;
 import jenkins.plugins.shiningpanda.interpreters.Python;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
 import jenkins.plugins.shiningpanda.utils.BuilderUtil;
+import jenkins.plugins.shiningpanda.utils.LaunchOptions;
+import jenkins.plugins.shiningpanda.utils.PhaseTimer;
+import jenkins.plugins.shiningpanda.utils.TimedStep;
 
 public class PythonBuilder extends Builder implements Serializable {
 
@@ -66,6 +70,22 @@ public class PythonBuilder extends Builder implements Serializable {
      */
     public final boolean ignoreExitCode;
 
+    /**
+     * Run the PYTHON scripts in a persistent interpreter shared by the steps of
+     * the build.
+     */
+    public boolean persistent;
+
+    /**
+     * Run the PYTHON scripts under the profiler and record their profile.
+     */
+    public boolean profile;
+
+    /**
+     * Run the PYTHON scripts with the import times enabled and record them.
+     */
+    public boolean importTime;
+
     /**
      * Constructor using fields
      * 
@@ -93,6 +113,40 @@ public class PythonBuilder extends Builder implements Serializable {
 	this.ignoreExitCode = ignoreExitCode;
     }
 
+    /**
+     * Run the PYTHON scripts in a persistent interpreter shared by the steps of
+     * the build.
+     * 
+     * @param persistent
+     *            true to reuse the interpreter, else false
+     */
+    @DataBoundSetter
+    public void setPersistent(boolean persistent) {
+	this.persistent = persistent;
+    }
+
+    /**
+     * Run the PYTHON scripts under the profiler and record their profile.
+     * 
+     * @param profile
+     *            true to profile the scripts, else false
+     */
+    @DataBoundSetter
+    public void setProfile(boolean profile) {
+	this.profile = profile;
+    }
+
+    /**
+     * Run the PYTHON scripts with the import times enabled and record them.
+     * 
+     * @param importTime
+     *            true to record the import times, else false
+     */
+    @DataBoundSetter
+    public void setImportTime(boolean importTime) {
+	this.importTime = importTime;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -102,12 +156,46 @@ public class PythonBuilder extends Builder implements Serializable {
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
 	    throws InterruptedException, IOException {
+	// Time the phases of this step
+	return BuilderUtil.perform(getDescriptor().getDisplayName(), build, launcher, listener, new TimedStep() {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.utils.TimedStep#execute(hudson.
+	     * model.AbstractBuild, hudson.Launcher, hudson.model.BuildListener)
+	     */
+	    public boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+		    throws InterruptedException, IOException {
+		// Delegate
+		return PythonBuilder.this.execute(build, launcher, listener);
+	    }
+	});
+    }
+
+    /**
+     * Perform the build step.
+     * 
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @return true if successful, else false
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+	    throws InterruptedException, IOException {
 	// Get the environment variables for this build
 	EnvVars environment = BuilderUtil.getEnvironment(build, listener);
 	// Check if this is a valid environment
 	if (environment == null)
 	    // Invalid, no need to go further
 	    return false;
+	// Enter the interpreter lookup phase
+	PhaseTimer.enter(PhaseTimer.INTERPRETER);
 	// Get the PYTHON installation to use
 	PythonInstallation installation = BuilderUtil.getInstallation(build, listener, environment, pythonName);
 	// Check if an installation was found
@@ -115,14 +203,16 @@ public class PythonBuilder extends Builder implements Serializable {
 	    // If not installation found, do not continue the build
 	    return false;
 	// Get the interpreter
-	Python interpreter = BuilderUtil.getInterpreter(launcher, listener, installation.getHome());
+	Python interpreter = BuilderUtil.getInterpreter(launcher, listener, installation);
 	// Check if got an interpreter
 	if (interpreter == null)
 	    // If no interpreter found, do not continue the build
 	    return false;
+	// Enter the user command phase
+	PhaseTimer.enter(PhaseTimer.COMMAND);
 	// Launch the process
-	return BuilderUtil.launch(launcher, listener, build.getWorkspace(), environment, interpreter, nature, command,
-		ignoreExitCode);
+	return BuilderUtil.launch(build, launcher, listener, build.getWorkspace(), environment, interpreter, nature,
+		command, ignoreExitCode, new LaunchOptions(persistent, profile, importTime));
     }
 
     private static final long serialVersionUID = 1L;
@@ -48,6 +48,8 @@ import jenkins.plugins.shiningpanda.interpreters.Virtualenv;
 import jenkins.plugins.shiningpanda.matrix.ToxAxis;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
 import jenkins.plugins.shiningpanda.utils.BuilderUtil;
+import jenkins.plugins.shiningpanda.utils.PhaseTimer;
+import jenkins.plugins.shiningpanda.utils.TimedStep;
 import jenkins.plugins.shiningpanda.utils.FilePathUtil;
 import jenkins.plugins.shiningpanda.utils.UnixVariableResolver;
 import jenkins.plugins.shiningpanda.workspace.Workspace;
@@ -100,6 +102,38 @@ public class ToxBuilder extends Builder implements Serializable {
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
 	    throws InterruptedException, IOException {
+	// Time the phases of this step
+	return BuilderUtil.perform(getDescriptor().getDisplayName(), build, launcher, listener, new TimedStep() {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.utils.TimedStep#execute(hudson.
+	     * model.AbstractBuild, hudson.Launcher, hudson.model.BuildListener)
+	     */
+	    public boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+		    throws InterruptedException, IOException {
+		// Delegate
+		return ToxBuilder.this.execute(build, launcher, listener);
+	    }
+	});
+    }
+
+    /**
+     * Perform the build step.
+     * 
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @return true if successful, else false
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+	    throws InterruptedException, IOException {
 	// Get the workspace
 	Workspace workspace = Workspace.fromBuild(build);
 	// Get the environment variables for this build
@@ -148,6 +182,8 @@ public class ToxBuilder extends Builder implements Serializable {
 	if (virtualenv == null)
 	    // Invalid, no need to go further
 	    return false;
+	// Enter the interpreter lookup phase
+	PhaseTimer.enter(PhaseTimer.INTERPRETER);
 	// Get an interpreter to potentially be able to create the VIRTUALENV
 	Python interpreter = BuilderUtil.getInterpreter(launcher, listener, environment);
 	// Check if found one
@@ -158,12 +194,16 @@ public class ToxBuilder extends Builder implements Serializable {
 	FilePath pwd = build.getWorkspace();
 	// Creation flag for system packages
 	boolean systemSitePackages = false;
+	// Enter the signature check phase
+	PhaseTimer.enter(PhaseTimer.SIGNATURE);
 	// Check if out of date to be able to create a new one
 	if (virtualenv.isOutdated(workspace, interpreter, systemSitePackages))
 	    // Create the VIRTUALENV
 	    if (!virtualenv.create(launcher, listener, workspace, pwd, environment, interpreter, systemSitePackages))
 		// Failed to create the VIRTUALENV, do not continue
 		return false;
+	// Enter the PIP installation phase
+	PhaseTimer.enter(PhaseTimer.PIP);
 	// Install or upgrade TOX
 	if (!virtualenv.pipInstall(launcher, listener, workspace, pwd, environment, "tox"))
 	    // Failed to install TOX, do not continue
@@ -181,6 +221,8 @@ public class ToxBuilder extends Builder implements Serializable {
 		// Add the environment without the home variables
 		environment.overrideAll(contributor.getEnvironment(false));
 	}
+	// Enter the user command phase
+	PhaseTimer.enter(PhaseTimer.COMMAND);
 	// Launch TOX
 	return virtualenv.tox(launcher, listener, pwd, environment, toxIni, recreate);
     }
@@ -26,6 +26,7 @@ import java.io.Serializable;
 import java.util.List;
 
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import hudson.EnvVars;
 import hudson.Extension;
@@ -44,6 +45,9 @@ import jenkins.plugins.shiningpanda.interpreters.Python;
 import jenkins.plugins.shiningpanda.interpreters.Virtualenv;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
 import jenkins.plugins.shiningpanda.utils.BuilderUtil;
+import jenkins.plugins.shiningpanda.utils.LaunchOptions;
+import jenkins.plugins.shiningpanda.utils.PhaseTimer;
+import jenkins.plugins.shiningpanda.utils.TimedStep;
 import jenkins.plugins.shiningpanda.workspace.Workspace;
 
 public class VirtualenvBuilder extends Builder implements Serializable {
@@ -100,6 +104,22 @@ public class VirtualenvBuilder extends Builder implements Serializable {
      */
     public final boolean ignoreExitCode;
 
+    /**
+     * Run the PYTHON scripts in a persistent interpreter shared by the steps of
+     * the build.
+     */
+    public boolean persistent;
+
+    /**
+     * Run the PYTHON scripts under the profiler and record their profile.
+     */
+    public boolean profile;
+
+    /**
+     * Run the PYTHON scripts with the import times enabled and record them.
+     */
+    public boolean importTime;
+
     /**
      * Constructor using fields
      * 
@@ -141,6 +161,40 @@ public class VirtualenvBuilder extends Builder implements Serializable {
 	this.ignoreExitCode = ignoreExitCode;
     }
 
+    /**
+     * Run the PYTHON scripts in a persistent interpreter shared by the steps of
+     * the build.
+     * 
+     * @param persistent
+     *            true to reuse the interpreter, else false
+     */
+    @DataBoundSetter
+    public void setPersistent(boolean persistent) {
+	this.persistent = persistent;
+    }
+
+    /**
+     * Run the PYTHON scripts under the profiler and record their profile.
+     * 
+     * @param profile
+     *            true to profile the scripts, else false
+     */
+    @DataBoundSetter
+    public void setProfile(boolean profile) {
+	this.profile = profile;
+    }
+
+    /**
+     * Run the PYTHON scripts with the import times enabled and record them.
+     * 
+     * @param importTime
+     *            true to record the import times, else false
+     */
+    @DataBoundSetter
+    public void setImportTime(boolean importTime) {
+	this.importTime = importTime;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -150,6 +204,38 @@ public class VirtualenvBuilder extends Builder implements Serializable {
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
 	    throws InterruptedException, IOException {
+	// Time the phases of this step
+	return BuilderUtil.perform(getDescriptor().getDisplayName(), build, launcher, listener, new TimedStep() {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.utils.TimedStep#execute(hudson.
+	     * model.AbstractBuild, hudson.Launcher, hudson.model.BuildListener)
+	     */
+	    public boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+		    throws InterruptedException, IOException {
+		// Delegate
+		return VirtualenvBuilder.this.execute(build, launcher, listener);
+	    }
+	});
+    }
+
+    /**
+     * Perform the build step.
+     * 
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @return true if successful, else false
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private boolean execute(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+	    throws InterruptedException, IOException {
 	// Get the workspace
 	Workspace workspace = Workspace.fromBuild(build);
 	// Get the environment variables for this build
@@ -158,6 +244,8 @@ public class VirtualenvBuilder extends Builder implements Serializable {
 	if (environment == null)
 	    // Invalid, no need to go further
 	    return false;
+	// Enter the interpreter lookup phase
+	PhaseTimer.enter(PhaseTimer.INTERPRETER);
 	// Get the PYTHON installation to use
 	PythonInstallation installation = BuilderUtil.getInstallation(build, listener, environment, pythonName);
 	// Check if an installation was found
@@ -165,7 +253,7 @@ public class VirtualenvBuilder extends Builder implements Serializable {
 	    // If not installation found, do not continue the build
 	    return false;
 	// Get the PYTHON
-	Python interpreter = BuilderUtil.getInterpreter(launcher, listener, installation.getHome());
+	Python interpreter = BuilderUtil.getInterpreter(launcher, listener, installation);
 	// Check if found an interpreter
 	if (interpreter == null)
 	    // If no interpreter found, no need to continue
@@ -178,14 +266,19 @@ public class VirtualenvBuilder extends Builder implements Serializable {
 	    return false;
 	// Get the working directory
 	FilePath pwd = build.getWorkspace();
+	// Enter the signature check phase
+	PhaseTimer.enter(PhaseTimer.SIGNATURE);
 	// Check if clean required or if configuration changed
 	if (clear || virtualenv.isOutdated(workspace, interpreter, systemSitePackages))
 	    // A new environment is required
 	    if (!virtualenv.create(launcher, listener, workspace, pwd, environment, interpreter, systemSitePackages))
 		// Failed to create the environment, do not continue
 		return false;
+	// Enter the user command phase
+	PhaseTimer.enter(PhaseTimer.COMMAND);
 	// Launch script
-	return BuilderUtil.launch(launcher, listener, pwd, environment, virtualenv, nature, command, ignoreExitCode);
+	return BuilderUtil.launch(build, launcher, listener, pwd, environment, virtualenv, nature, command,
+		ignoreExitCode, new LaunchOptions(persistent, profile, importTime));
     }
 
     /**
@@ -27,9 +27,11 @@ import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
+import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.Messages;
 import hudson.util.ArgumentListBuilder;
+import jenkins.plugins.shiningpanda.utils.RemotingStats;
 
 public abstract class Command {
 
@@ -147,6 +149,32 @@ public abstract class Command {
 	return dir.createTextTempFile("shiningpanda", getExtension(), getContents(), false);
     }
 
+    /**
+     * Execute the script file.
+     * 
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param environment
+     *            The environment
+     * @param pwd
+     *            The current directory
+     * @param script
+     *            The script file
+     * @return The exit code
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    protected int execute(Launcher launcher, TaskListener listener, EnvVars environment, FilePath pwd,
+	    FilePath script) throws IOException, InterruptedException {
+	// Count the call
+	RemotingStats.count(pwd);
+	// Launch the script
+	return launcher.launch().cmds(getArguments(script)).envs(getEnvironment(pwd, environment)).stdout(listener)
+		.pwd(pwd).join();
+    }
+
     /**
      * Launch the command.
      * 
@@ -184,8 +212,7 @@ public abstract class Command {
 	    // Be able to catch execution errors
 	    try {
 		// Execute the script
-		int exitCode = launcher.launch().cmds(getArguments(script)).envs(getEnvironment(pwd, environment))
-			.stdout(listener).pwd(pwd).join();
+		int exitCode = execute(launcher, listener, environment, pwd, script);
 		// Check if continue or not depending on the exit code ignore
 		// flag
 		return isExitCodeIgnored() ? true : exitCode == 0;
@@ -244,4 +271,112 @@ public abstract class Command {
 	return (isUnix ? new UnixCommand(command, ignoreExitCode, convert)
 		: new WindowsCommand(command, ignoreExitCode, convert));
     }
+
+    /**
+     * Get the right command executor, running PYTHON scripts in a persistent
+     * worker interpreter shared by all the steps of the build.
+     * 
+     * @param isUnix
+     *            Target execution platform
+     * @param executable
+     *            The PYTHON executable
+     * @param nature
+     *            The nature of the command: PYTHON, shell, X shell
+     * @param command
+     *            The content of the script to execute
+     * @param ignoreExitCode
+     *            Is exit code ignored?
+     * @param run
+     *            The build owning the worker
+     * @param workerPy
+     *            The worker module on the executor
+     * @return The command object
+     */
+    public static Command get(boolean isUnix, String executable, CommandNature nature, String command,
+	    boolean ignoreExitCode, Run<?, ?> run, FilePath workerPy) {
+	// Check if this is a PYTHON script
+	if (nature == CommandNature.PYTHON)
+	    // Create a new PYTHON command executed by the worker
+	    return new PythonWorkerCommand(isUnix, executable, command, ignoreExitCode, run, workerPy);
+	// Other natures are not handled by the worker
+	return get(isUnix, executable, nature, command, ignoreExitCode);
+    }
+
+    /**
+     * Get the right command executor, running PYTHON scripts in the JYTHON
+     * daemon of the executor.
+     * 
+     * @param isUnix
+     *            Target execution platform
+     * @param executable
+     *            The JYTHON executable
+     * @param nature
+     *            The nature of the command: PYTHON, shell, X shell
+     * @param command
+     *            The content of the script to execute
+     * @param ignoreExitCode
+     *            Is exit code ignored?
+     * @param workerPy
+     *            The worker module in the daemons folder of the executor
+     * @return The command object
+     */
+    public static Command getDaemon(boolean isUnix, String executable, CommandNature nature, String command,
+	    boolean ignoreExitCode, FilePath workerPy) {
+	// Check if this is a PYTHON script
+	if (nature == CommandNature.PYTHON)
+	    // Create a new PYTHON command executed by the daemon
+	    return new JythonDaemonCommand(isUnix, executable, command, ignoreExitCode, workerPy);
+	// Other natures are not handled by the daemon
+	return get(isUnix, executable, nature, command, ignoreExitCode);
+    }
+
+    /**
+     * Get the right command executor, running PYTHON scripts under the
+     * cProfile module.
+     * 
+     * @param isUnix
+     *            Target execution platform
+     * @param executable
+     *            The PYTHON executable
+     * @param nature
+     *            The nature of the command: PYTHON, shell, X shell
+     * @param command
+     *            The content of the script to execute
+     * @param ignoreExitCode
+     *            Is exit code ignored?
+     * @param stats
+     *            The file receiving the profile statistics
+     * @return The command object
+     */
+    public static Command getProfiled(boolean isUnix, String executable, CommandNature nature, String command,
+	    boolean ignoreExitCode, FilePath stats) {
+	// Check if this is a PYTHON script
+	if (nature == CommandNature.PYTHON)
+	    // Create a new profiled PYTHON command
+	    return new ProfiledPythonCommand(isUnix, executable, command, ignoreExitCode, stats);
+	// Other natures are not profiled
+	return get(isUnix, executable, nature, command, ignoreExitCode);
+    }
+
+    /**
+     * Get a PYTHON command executor recording the import times of the
+     * script, optionally under the cProfile module.
+     * 
+     * @param isUnix
+     *            Target execution platform
+     * @param executable
+     *            The PYTHON executable
+     * @param command
+     *            The content of the script to execute
+     * @param ignoreExitCode
+     *            Is exit code ignored?
+     * @param stats
+     *            The file receiving the profile statistics, null if not
+     *            profiled
+     * @return The command object
+     */
+    public static ImportTimePythonCommand getImportTime(boolean isUnix, String executable, String command,
+	    boolean ignoreExitCode, FilePath stats) {
+	return new ImportTimePythonCommand(isUnix, executable, command, ignoreExitCode, stats);
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.command;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+import jenkins.plugins.shiningpanda.profile.ImportTimes;
+import jenkins.plugins.shiningpanda.utils.FilePathUtil;
+import jenkins.plugins.shiningpanda.utils.ImportTimeOutputStream;
+import jenkins.plugins.shiningpanda.utils.RemotingStats;
+
+public class ImportTimePythonCommand extends PythonCommand {
+
+    /**
+     * First version of PYTHON supporting the -X importtime option, as major
+     * version * 100 + minor version.
+     */
+    public static final int MINIMUM_VERSION = 307;
+
+    /**
+     * The versions of the interpreters used by each running build, by
+     * executable.
+     */
+    private static final Map<Run<?, ?>, Map<String, Integer>> VERSIONS = new HashMap<Run<?, ?>, Map<String, Integer>>();
+
+    /**
+     * The file receiving the profile statistics, null if not profiled.
+     */
+    private FilePath stats;
+
+    /**
+     * The import times of the last execution.
+     */
+    private ImportTimes times = new ImportTimes();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param isUnix
+     *            Is this on UNIX?
+     * @param executable
+     *            The PYTHON executable
+     * @param command
+     *            The content of the execution script
+     * @param ignoreExitCode
+     *            Is exit code ignored?
+     * @param stats
+     *            The file receiving the profile statistics, null if not
+     *            profiled
+     */
+    protected ImportTimePythonCommand(boolean isUnix, String executable, String command, boolean ignoreExitCode,
+	    FilePath stats) {
+	// Call super
+	super(isUnix, executable, command, ignoreExitCode);
+	// Store the statistics file
+	this.stats = stats;
+    }
+
+    /**
+     * Get the import times of the last execution.
+     * 
+     * @return The import times
+     */
+    public ImportTimes getTimes() {
+	return times;
+    }
+
+    /**
+     * Get the version of an interpreter used by a build, only launching it
+     * the first time.
+     * 
+     * @param run
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener to log the errors to
+     * @param environment
+     *            The environment of the interpreter
+     * @param pwd
+     *            The working directory
+     * @param executable
+     *            The PYTHON executable
+     * @return The version as major version * 100 + minor version, -1 if
+     *         unknown
+     * @throws InterruptedException
+     */
+    public static int getVersion(Run<?, ?> run, Launcher launcher, TaskListener listener, EnvVars environment,
+	    FilePath pwd, String executable) throws InterruptedException {
+	// Store the versions of this build
+	Map<String, Integer> versions;
+	// Synchronize the access to the registry
+	synchronized (VERSIONS) {
+	    // Get the versions of this build
+	    versions = VERSIONS.get(run);
+	    // Check if exists
+	    if (versions == null) {
+		// Create
+		versions = new HashMap<String, Integer>();
+		// Register
+		VERSIONS.put(run, versions);
+	    }
+	}
+	// Only launch the interpreter once
+	synchronized (versions) {
+	    // Get the version
+	    Integer version = versions.get(executable);
+	    // Check if unknown
+	    if (version == null) {
+		// Launch the interpreter
+		version = getVersion(launcher, listener, environment, pwd, executable);
+		// Store it
+		versions.put(executable, version);
+	    }
+	    // Return the version
+	    return version;
+	}
+    }
+
+    /**
+     * Forget the versions of the interpreters used by a build, once completed.
+     * 
+     * @param run
+     *            The build
+     */
+    public static void release(Run<?, ?> run) {
+	// Synchronize the access to the registry
+	synchronized (VERSIONS) {
+	    // Unregister the versions
+	    VERSIONS.remove(run);
+	}
+    }
+
+    /**
+     * Get the version of an interpreter, to check that it supports the -X
+     * importtime option: older versions, as PYTHON 2.7, refuse to start.
+     * 
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener to log the errors to
+     * @param environment
+     *            The environment of the interpreter
+     * @param pwd
+     *            The working directory
+     * @param executable
+     *            The PYTHON executable
+     * @return The version as major version * 100 + minor version, -1 if
+     *         unknown
+     * @throws InterruptedException
+     */
+    public static int getVersion(Launcher launcher, TaskListener listener, EnvVars environment, FilePath pwd,
+	    String executable) throws InterruptedException {
+	// Count the call
+	RemotingStats.count(pwd);
+	// Get the arguments, without quotes nor percent signs to be safe on
+	// Windows
+	ArgumentListBuilder args = new ArgumentListBuilder(executable, "-c",
+		"import sys; print(sys.version_info[0] * 100 + sys.version_info[1])");
+	// Store the output
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	try {
+	    // Launch the interpreter
+	    if (launcher.launch().cmds(FilePathUtil.isUnix(pwd) ? args : args.toWindowsCommand()).envs(environment)
+		    .stdout(out).stderr(listener.getLogger()).pwd(pwd).quiet(true).join() != 0)
+		// Unknown version
+		return -1;
+	    // Parse the version
+	    return Integer.parseInt(out.toString("UTF-8").trim());
+	} catch (IOException e) {
+	    // Unknown version
+	    return -1;
+	} catch (NumberFormatException e) {
+	    // Unknown version
+	    return -1;
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.command.PythonCommand#getArguments(hudson.
+     * FilePath)
+     */
+    @Override
+    protected ArgumentListBuilder getArguments(FilePath script) {
+	// Ask the interpreter to write the import times on the error stream
+	ArgumentListBuilder args = new ArgumentListBuilder(getExecutable(), "-X", "importtime");
+	// Check if profiled
+	if (stats != null)
+	    // Run the script under the profiler, dumping the statistics on exit
+	    args.add("-m", "cProfile", "-o", stats.getRemote());
+	// Add the script
+	args.add(script.getRemote());
+	// Check if on UNIX to return the right command
+	return isUnix() ? args : args.toWindowsCommand();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.command.Command#execute(hudson.Launcher,
+     * hudson.model.TaskListener, hudson.EnvVars, hudson.FilePath,
+     * hudson.FilePath)
+     */
+    @Override
+    protected int execute(Launcher launcher, TaskListener listener, EnvVars environment, FilePath pwd,
+	    FilePath script) throws IOException, InterruptedException {
+	// Count the call
+	RemotingStats.count(pwd);
+	// Capture the import times of the error stream, the other lines go to
+	// the log
+	ImportTimeOutputStream stderr = new ImportTimeOutputStream(listener.getLogger());
+	try {
+	    // Launch the script
+	    return launcher.launch().cmds(getArguments(script)).envs(getEnvironment(pwd, environment))
+		    .stdout(listener).stderr(stderr).pwd(pwd).join();
+	} finally {
+	    // Flush the last line
+	    stderr.close();
+	    // Keep the import times
+	    times = stderr.getTimes();
+	}
+    }
+}
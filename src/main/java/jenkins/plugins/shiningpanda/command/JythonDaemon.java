@@ -0,0 +1,419 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.command;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.remoting.Callable;
+import hudson.remoting.RemoteOutputStream;
+import hudson.util.ArgumentListBuilder;
+import jenkins.plugins.shiningpanda.Messages;
+
+public class JythonDaemon {
+
+    /**
+     * Number of seconds without request after which a daemon exits.
+     */
+    public static int IDLE_TIMEOUT = Integer.getInteger(JythonDaemon.class.getName() + ".idleTimeout", 600);
+
+    /**
+     * Maximum number of seconds to wait for a daemon to be ready.
+     */
+    public static int START_TIMEOUT = Integer.getInteger(JythonDaemon.class.getName() + ".startTimeout", 120);
+
+    /**
+     * Lock used to start only one daemon at a time.
+     */
+    private static final Object LOCK = new Object();
+
+    /**
+     * Prefix of the variables describing the build.
+     */
+    private static final String BUILD_PREFIX = "BUILD_";
+
+    /**
+     * Other variables changing at each build.
+     */
+    private static final List<String> VOLATILE = Arrays.asList("EXECUTOR_NUMBER", "JENKINS_NODE_COOKIE",
+	    "HUDSON_COOKIE", "RUN_DISPLAY_URL", "RUN_CHANGES_DISPLAY_URL", "GIT_COMMIT", "GIT_PREVIOUS_COMMIT",
+	    "GIT_PREVIOUS_SUCCESSFUL_COMMIT", "SVN_REVISION");
+
+    /**
+     * Input of a socket, checking for interruptions while waiting for data.
+     * The socket must have a read timeout.
+     */
+    private static final class SocketInputStream extends FilterInputStream {
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param in
+	 *            The input of the socket
+	 */
+	private SocketInputStream(InputStream in) {
+	    // Call super
+	    super(in);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+	    // Store the byte
+	    byte[] b = new byte[1];
+	    // Read it
+	    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+	    // Wait for data
+	    while (true) {
+		try {
+		    // Read
+		    return super.read(b, off, len);
+		} catch (SocketTimeoutException e) {
+		    // Check if the build was aborted
+		    if (Thread.interrupted())
+			// Stop waiting, closing the connection stops the daemon
+			throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Send a request to a daemon and forward the output of the script.
+     */
+    private static final class Request implements Callable<Integer, IOException> {
+
+	/**
+	 * The file containing the port and the token of the daemon.
+	 */
+	private String portFile;
+
+	/**
+	 * The script to run, null to only check that the daemon is running.
+	 */
+	private String script;
+
+	/**
+	 * The working directory.
+	 */
+	private String pwd;
+
+	/**
+	 * The environment.
+	 */
+	private Map<String, String> environment;
+
+	/**
+	 * The stream receiving the output of the script.
+	 */
+	private OutputStream out;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param portFile
+	 *            The file containing the port and the token of the daemon
+	 * @param script
+	 *            The script to run, null to only check that the daemon is
+	 *            running
+	 * @param pwd
+	 *            The working directory
+	 * @param environment
+	 *            The environment
+	 * @param out
+	 *            The stream receiving the output of the script
+	 */
+	public Request(FilePath portFile, FilePath script, FilePath pwd, Map<String, String> environment,
+		OutputStream out) {
+	    // Call super
+	    super();
+	    // Store the port file
+	    this.portFile = portFile.getRemote();
+	    // Store the script
+	    this.script = script == null ? null : script.getRemote();
+	    // Store the working directory
+	    this.pwd = pwd == null ? null : pwd.getRemote();
+	    // Store the environment
+	    this.environment = environment;
+	    // Store the output
+	    this.out = out == null ? null : new RemoteOutputStream(out);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see hudson.remoting.Callable#call()
+	 */
+	public Integer call() throws IOException {
+	    // Get the port file
+	    File file = new File(portFile);
+	    // Check if a daemon is running
+	    if (!file.isFile())
+		// No daemon
+		return null;
+	    // Get the port and the token
+	    String[] lines = FileUtils.readFileToString(file, "UTF-8").split("\n");
+	    // Check if the daemon is ready
+	    if (lines.length < 2)
+		// Not ready
+		return null;
+	    // Store the socket
+	    Socket socket;
+	    // The daemon may have exited since the port file was read
+	    try {
+		// Connect to the daemon
+		socket = new Socket(InetAddress.getByName("127.0.0.1"), Integer.parseInt(lines[0].trim()));
+	    } catch (ConnectException e) {
+		// No daemon
+		return null;
+	    }
+	    try {
+		// Get the token
+		String token = lines[1].trim();
+		// Check if only have to check that the daemon is running
+		if (script == null)
+		    // The daemon is running
+		    return Integer.valueOf(0);
+		// Build the request
+		StringBuilder request = new StringBuilder();
+		// Add the token, the script and the working directory
+		request.append(token).append('\n').append(script).append('\n').append(pwd).append('\n');
+		// Go threw the environment
+		for (Map.Entry<String, String> entry : environment.entrySet())
+		    // Multi-line values can not be sent
+		    if (entry.getValue().indexOf('\n') == -1 && entry.getValue().indexOf('\r') == -1)
+			// Add the variable
+			request.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		// End of the environment
+		request.append('\n');
+		// Send the request
+		socket.getOutputStream().write(request.toString().getBytes("UTF-8"));
+		// Do not wait for the buffer to be full
+		socket.getOutputStream().flush();
+		// Check for interruptions while waiting for the output
+		socket.setSoTimeout(PythonWorker.POLL);
+		// Get the output of the daemon
+		InputStream in = new BufferedInputStream(new SocketInputStream(socket.getInputStream()));
+		// Forward the output of the script until the end of script marker
+		Integer code = PythonWorker.forward(in, out, PythonWorker.MARKER + token + ":");
+		// Check if the daemon stopped during the execution
+		if (code == null)
+		    // The script did not complete
+		    throw new IOException(Messages.JythonDaemon_Died());
+		// Return the exit code
+		return code;
+	    } finally {
+		// Close the connection
+		socket.close();
+	    }
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.jenkinsci.remoting.RoleSensitive#checkRoles(org.jenkinsci.
+	 * remoting.RoleChecker)
+	 */
+	@Override
+	public void checkRoles(RoleChecker arg0) throws SecurityException {
+	    // nothing to do
+	}
+
+	private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Start a daemon if none is running for this interpreter.
+     * 
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param workerPy
+     *            The worker module in the daemons folder of the executor
+     * @param portFile
+     *            The file containing the port and the token of the daemon
+     * @param executable
+     *            The JYTHON executable
+     * @param isUnix
+     *            Is this on UNIX?
+     * @param environment
+     *            The environment
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static void start(Launcher launcher, TaskListener listener, FilePath workerPy, FilePath portFile,
+	    String executable, boolean isUnix, EnvVars environment) throws IOException, InterruptedException {
+	// Only one daemon start at a time
+	synchronized (LOCK) {
+	    // Check if an other build started the daemon in the meantime
+	    if (portFile.act(new Request(portFile, null, null, null, null)) != null)
+		// Nothing to do
+		return;
+	    // Remove the port file of a dead daemon
+	    portFile.delete();
+	    // The port files give the right to run scripts, only the owner of
+	    // the daemons can read them
+	    portFile.getParent().chmod(0700);
+	    // Get the arguments
+	    ArgumentListBuilder args = new ArgumentListBuilder(executable, workerPy.getRemote(),
+		    UUID.randomUUID().toString().replace("-", ""), "--daemon", portFile.getRemote(),
+		    String.valueOf(IDLE_TIMEOUT));
+	    // The daemon must survive the build, do not give it the variables of
+	    // this build
+	    EnvVars daemonEnvironment = getDaemonEnvironment(environment);
+	    // Do not let the process tree killer stop the daemon
+	    daemonEnvironment.put("BUILD_ID", "dontKillMe");
+	    // Same for recent versions of the process tree killer
+	    daemonEnvironment.put("JENKINS_NODE_COOKIE", "dontKillMe");
+	    // Log
+	    listener.getLogger().println(Messages.JythonDaemon_Start(executable));
+	    // Start the daemon, its output is only used while serving requests
+	    Proc proc = launcher.launch().cmds(isUnix ? args : args.toWindowsCommand()).envs(daemonEnvironment)
+		    .pwd(workerPy.getParent()).stdout(new NullOutputStream()).start();
+	    // Wait for the port file
+	    for (int i = 0; i < START_TIMEOUT * 10; i++) {
+		// Check if ready
+		if (portFile.exists())
+		    // Ready
+		    return;
+		// Check if the daemon failed to start
+		if (!proc.isAlive())
+		    // Stop waiting
+		    break;
+		// Wait a little bit
+		Thread.sleep(100);
+	    }
+	    // The daemon did not start
+	    throw new IOException(Messages.JythonDaemon_StartFailed(executable));
+	}
+    }
+
+    /**
+     * Get the environment of a daemon: the environment of the build without
+     * the variables changing at each build.
+     * 
+     * @param environment
+     *            The environment of the build
+     * @return The environment of the daemon
+     */
+    protected static EnvVars getDaemonEnvironment(EnvVars environment) {
+	// Store the environment of the daemon
+	EnvVars daemonEnvironment = new EnvVars();
+	// Go threw the variables
+	for (Map.Entry<String, String> entry : environment.entrySet())
+	    // Check if the variable is stable between the builds
+	    if (!entry.getKey().startsWith(BUILD_PREFIX) && !VOLATILE.contains(entry.getKey()))
+		// Keep it
+		daemonEnvironment.put(entry.getKey(), entry.getValue());
+	// Return the environment
+	return daemonEnvironment;
+    }
+
+    /**
+     * Run a script in the daemon of the provided interpreter, starting it if
+     * required. A daemon is dedicated to an interpreter and an environment, so
+     * that the jobs with different environments do not share a daemon.
+     * 
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param workerPy
+     *            The worker module in the daemons folder of the executor
+     * @param executable
+     *            The JYTHON executable
+     * @param isUnix
+     *            Is this on UNIX?
+     * @param environment
+     *            The environment
+     * @param pwd
+     *            The working directory
+     * @param script
+     *            The script to run
+     * @return The exit code of the script
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static int execute(Launcher launcher, TaskListener listener, FilePath workerPy, String executable,
+	    boolean isUnix, EnvVars environment, FilePath pwd, FilePath script)
+		    throws IOException, InterruptedException {
+	// Get the key of the daemon
+	String key = Util.getDigestOf(executable + "\n" + getDaemonEnvironment(environment).toString());
+	// Get the file containing the port and the token of the daemon
+	FilePath portFile = workerPy.getParent().child(key.substring(0, 16) + ".port");
+	// Get the request
+	Request request = new Request(portFile, script, pwd, environment, listener.getLogger());
+	// Try to use a running daemon
+	Integer code = pwd.act(request);
+	// Check if a daemon was running
+	if (code != null)
+	    // Return the exit code
+	    return code.intValue();
+	// Start the daemon
+	start(launcher, listener, workerPy, portFile, executable, isUnix, environment);
+	// Send the request to the new daemon
+	code = pwd.act(request);
+	// Check if the daemon ran the script
+	if (code == null)
+	    // The daemon is not reachable
+	    throw new IOException(Messages.JythonDaemon_Unreachable(executable));
+	// Return the exit code
+	return code.intValue();
+    }
+}
@@ -58,6 +58,24 @@ public class PythonCommand extends Command {
 	this.executable = executable;
     }
 
+    /**
+     * Is this on UNIX?
+     * 
+     * @return true if on UNIX, else false
+     */
+    protected boolean isUnix() {
+	return isUnix;
+    }
+
+    /**
+     * Get the PYTHON executable.
+     * 
+     * @return The executable
+     */
+    protected String getExecutable() {
+	return executable;
+    }
+
     /*
      * (non-Javadoc)
      * 
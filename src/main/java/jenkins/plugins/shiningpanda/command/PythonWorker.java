@@ -0,0 +1,457 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.command;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+import jenkins.plugins.shiningpanda.Messages;
+
+public class PythonWorker {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PythonWorker.class.getName());
+
+    /**
+     * Prefix of the line written by the worker at the end of each script.
+     */
+    protected static final String MARKER = "shiningpanda-worker-";
+
+    /**
+     * Number of milliseconds between two checks of an interruption while
+     * waiting for the output of a script.
+     */
+    protected static final int POLL = 100;
+
+    /**
+     * The running workers of each build, by interpreter and environment.
+     */
+    private static final Map<Run<?, ?>, Map<String, PythonWorker>> WORKERS =
+	    new HashMap<Run<?, ?>, Map<String, PythonWorker>>();
+
+    /**
+     * The worker process.
+     */
+    private final Proc proc;
+
+    /**
+     * The stream used to send the scripts to run.
+     */
+    private final OutputStream requests;
+
+    /**
+     * The output of the worker.
+     */
+    private final InputStream output;
+
+    /**
+     * The end of script marker for this worker.
+     */
+    private final String marker;
+
+    /**
+     * Lock used to run one script at a time.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Output of a worker process, waiting for data in an interruptible way.
+     */
+    private static final class ProcInputStream extends FilterInputStream {
+
+	/**
+	 * The worker process.
+	 */
+	private final Proc proc;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param proc
+	 *            The worker process
+	 */
+	private ProcInputStream(Proc proc) {
+	    // Call super
+	    super(proc.getStdout());
+	    // Store the process
+	    this.proc = proc;
+	}
+
+	/**
+	 * Wait until some data is available or the process exited.
+	 * 
+	 * @throws IOException
+	 */
+	private void await() throws IOException {
+	    try {
+		// Wait for data or for the end of the process
+		while (in.available() == 0 && proc.isAlive())
+		    // Wait a little bit, throws if the build is aborted
+		    Thread.sleep(POLL);
+	    } catch (InterruptedException e) {
+		// Propagate
+		throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+	    }
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+	    // Wait for data
+	    await();
+	    // Read
+	    return super.read();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+	    // Wait for data
+	    await();
+	    // Read
+	    return super.read(b, off, len);
+	}
+    }
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param proc
+     *            The worker process
+     * @param token
+     *            The token used to build the end of script marker
+     */
+    private PythonWorker(Proc proc, String token) {
+	// Call super
+	super();
+	// Store the process
+	this.proc = proc;
+	// Get the request stream
+	this.requests = proc.getStdin();
+	// Get the output stream
+	this.output = new BufferedInputStream(new ProcInputStream(proc));
+	// Compute the marker
+	this.marker = MARKER + token + ":";
+    }
+
+    /**
+     * Check if the worker process is still running.
+     * 
+     * @return true if running, else false
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean isAlive() throws IOException, InterruptedException {
+	return proc.isAlive();
+    }
+
+    /**
+     * Run a script in this worker.
+     * 
+     * @param listener
+     *            The listener receiving the output of the script
+     * @param script
+     *            The script to run
+     * @param pwd
+     *            The working directory
+     * @return The exit code of the script
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public int execute(TaskListener listener, FilePath script, FilePath pwd)
+	    throws IOException, InterruptedException {
+	// Wait for the previous script, the build may be aborted meanwhile
+	lock.lockInterruptibly();
+	try {
+	    // Send the request
+	    requests.write((script.getRemote() + "\n" + pwd.getRemote() + "\n").getBytes("UTF-8"));
+	    // Do not wait for the buffer to be full
+	    requests.flush();
+	    // Store the exit code
+	    Integer code;
+	    try {
+		// Forward the output of the script until the end of script marker
+		code = forward(output, listener.getLogger(), marker);
+	    } catch (InterruptedIOException e) {
+		// The script is still running, stop the worker
+		close();
+		// Propagate
+		throw (InterruptedException) new InterruptedException().initCause(e);
+	    }
+	    // Check if the worker exited
+	    if (code == null)
+		// The script did not complete
+		throw new IOException(Messages.PythonWorker_Died());
+	    // Return the exit code
+	    return code.intValue();
+	} finally {
+	    // Let the next script run
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Forward the output of a worker until its end of script marker.
+     * 
+     * @param in
+     *            The output of the worker
+     * @param out
+     *            The stream receiving the output of the script
+     * @param marker
+     *            The end of script marker
+     * @return The exit code of the script, or null if the output ended before
+     *         the marker
+     * @throws IOException
+     *             An InterruptedIOException if the output was interrupted
+     */
+    public static Integer forward(InputStream in, OutputStream out, String marker) throws IOException {
+	// Store the current line
+	ByteArrayOutputStream line = new ByteArrayOutputStream();
+	// Read the output until the end of script marker
+	while (true) {
+	    // Read the next byte
+	    int b = in.read();
+	    // Check if the output ended
+	    if (b == -1) {
+		// Write the remaining output
+		line.writeTo(out);
+		// The script did not complete
+		return null;
+	    }
+	    // Store the byte
+	    line.write(b);
+	    // Wait for the end of the line
+	    if (b != '\n')
+		// Not the end of the line
+		continue;
+	    // Get the line with a one byte per char encoding to look for the
+	    // marker
+	    String text = line.toString("ISO-8859-1");
+	    // Look for the marker
+	    int index = text.indexOf(marker);
+	    // Check if this is a standard line
+	    if (index == -1) {
+		// Forward the line
+		line.writeTo(out);
+		// Prepare the next line
+		line.reset();
+		// Go on
+		continue;
+	    }
+	    // Check if the script output was not terminated by a new line
+	    if (index > 0) {
+		// Forward the end of the output
+		out.write(line.toByteArray(), 0, index);
+		// Terminate the line
+		out.write('\n');
+	    }
+	    // Flush the output
+	    out.flush();
+	    // Return the exit code
+	    return Integer.valueOf(text.substring(index + marker.length()).trim());
+	}
+    }
+
+    /**
+     * Stop this worker without throwing exceptions on error.
+     */
+    private void close() {
+	// Closing the request stream asks the worker to exit
+	try {
+	    // Close
+	    requests.close();
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.FINE, "Failed to close worker input", e);
+	}
+	// Make sure that the worker is gone
+	try {
+	    // Kill it
+	    proc.kill();
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "Failed to stop worker", e);
+	} catch (InterruptedException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "Interrupted while stopping worker", e);
+	}
+    }
+
+    /**
+     * Start a new worker.
+     * 
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param workerPy
+     *            The worker module on the executor
+     * @param executable
+     *            The PYTHON executable
+     * @param isUnix
+     *            Is this on UNIX?
+     * @param environment
+     *            The environment
+     * @param pwd
+     *            The working directory
+     * @return The worker
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static PythonWorker start(Launcher launcher, TaskListener listener, FilePath workerPy,
+	    String executable, boolean isUnix, EnvVars environment, FilePath pwd)
+		    throws IOException, InterruptedException {
+	// Get a token to identify the end of the scripts
+	String token = UUID.randomUUID().toString().replace("-", "");
+	// Get the arguments
+	ArgumentListBuilder args = new ArgumentListBuilder(executable, workerPy.getRemote(), token);
+	// Log
+	listener.getLogger().println(Messages.PythonWorker_Start(executable));
+	// Start the worker, its error stream is merged in its output
+	Proc proc = launcher.launch().cmds(isUnix ? args : args.toWindowsCommand()).envs(environment).pwd(pwd)
+		.readStdout().writeStdin().start();
+	// Return the worker
+	return new PythonWorker(proc, token);
+    }
+
+    /**
+     * Get the worker of the build for the provided interpreter and
+     * environment, starting it if required.
+     * 
+     * @param run
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param workerPy
+     *            The worker module on the executor
+     * @param executable
+     *            The PYTHON executable
+     * @param isUnix
+     *            Is this on UNIX?
+     * @param environment
+     *            The environment
+     * @param pwd
+     *            The working directory
+     * @return The worker
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static PythonWorker get(Run<?, ?> run, Launcher launcher, TaskListener listener, FilePath workerPy,
+	    String executable, boolean isUnix, EnvVars environment, FilePath pwd)
+		    throws IOException, InterruptedException {
+	// Store the workers of this build
+	Map<String, PythonWorker> workers;
+	// Synchronize the access to the registry
+	synchronized (WORKERS) {
+	    // Get the workers of this build
+	    workers = WORKERS.get(run);
+	    // Check if exists
+	    if (workers == null) {
+		// Create
+		workers = new HashMap<String, PythonWorker>();
+		// Register
+		WORKERS.put(run, workers);
+	    }
+	}
+	// A worker is dedicated to an interpreter and an environment
+	String key = executable + "\n" + Util.getDigestOf(environment.toString());
+	// Only start one worker per key
+	synchronized (workers) {
+	    // Get the worker
+	    PythonWorker worker = workers.get(key);
+	    // Check if running
+	    if (worker != null && worker.isAlive())
+		// Reuse it
+		return worker;
+	    // Check if the worker died
+	    if (worker != null)
+		// Cleanup
+		worker.close();
+	    // Start a new worker
+	    worker = start(launcher, listener, workerPy, executable, isUnix, environment, pwd);
+	    // Register it
+	    workers.put(key, worker);
+	    // Return the worker
+	    return worker;
+	}
+    }
+
+    /**
+     * Stop all the workers of the provided build.
+     * 
+     * @param run
+     *            The build
+     */
+    public static void release(Run<?, ?> run) {
+	// Store the workers of this build
+	Map<String, PythonWorker> workers;
+	// Synchronize the access to the registry
+	synchronized (WORKERS) {
+	    // Unregister the workers
+	    workers = WORKERS.remove(run);
+	}
+	// Check if this build started some workers
+	if (workers == null)
+	    // Nothing to do
+	    return;
+	// Wait for pending starts
+	synchronized (workers) {
+	    // Go threw the workers
+	    for (PythonWorker worker : workers.values())
+		// Stop them
+		worker.close();
+	    // Cleanup
+	    workers.clear();
+	}
+    }
+}
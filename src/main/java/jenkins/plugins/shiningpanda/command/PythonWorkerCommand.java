@@ -0,0 +1,85 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.command;
+
+import java.io.IOException;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+public class PythonWorkerCommand extends PythonCommand {
+
+    /**
+     * The build owning the worker.
+     */
+    private Run<?, ?> run;
+
+    /**
+     * The worker module on the executor.
+     */
+    private FilePath workerPy;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param isUnix
+     *            Is this on UNIX?
+     * @param executable
+     *            The PYTHON executable
+     * @param command
+     *            The content of the execution script
+     * @param ignoreExitCode
+     *            Is exit code ignored?
+     * @param run
+     *            The build owning the worker
+     * @param workerPy
+     *            The worker module on the executor
+     */
+    protected PythonWorkerCommand(boolean isUnix, String executable, String command, boolean ignoreExitCode,
+	    Run<?, ?> run, FilePath workerPy) {
+	// Call super
+	super(isUnix, executable, command, ignoreExitCode);
+	// Store the build
+	this.run = run;
+	// Store the worker module
+	this.workerPy = workerPy;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.command.Command#execute(hudson.Launcher,
+     * hudson.model.TaskListener, hudson.EnvVars, hudson.FilePath,
+     * hudson.FilePath)
+     */
+    @Override
+    protected int execute(Launcher launcher, TaskListener listener, EnvVars environment, FilePath pwd,
+	    FilePath script) throws IOException, InterruptedException {
+	// Get the worker for this build, interpreter and environment, and
+	// delegate the execution
+	return PythonWorker.get(run, launcher, listener, workerPy, getExecutable(), isUnix(), environment, pwd)
+		.execute(listener, script, pwd);
+    }
+}
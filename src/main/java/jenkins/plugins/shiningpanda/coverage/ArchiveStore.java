@@ -0,0 +1,534 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+public class ArchiveStore extends ReportStore {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ArchiveStore.class.getName());
+
+    /**
+     * Signature of the end of central directory record.
+     */
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    /**
+     * Signature of a central directory file header.
+     */
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    /**
+     * Signature of a local file header.
+     */
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+    /**
+     * Size of the end of central directory record, without comment.
+     */
+    private static final int END_SIZE = 22;
+
+    /**
+     * Size of a local file header, without name and extra field.
+     */
+    private static final int LOCAL_SIZE = 30;
+
+    /**
+     * Header of a gzip stream of deflated data, without name nor time.
+     */
+    private static final byte[] GZIP_HEADER = new byte[] { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /**
+     * Maximum number of archive directories kept in memory.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(ArchiveStore.class.getName() + ".cacheSize", 100);
+
+    /**
+     * The archive directories in memory.
+     */
+    private static final Map<File, ArchiveStore> CACHE = Collections
+	    .synchronizedMap(new LinkedHashMap<File, ArchiveStore>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, ArchiveStore> eldest) {
+		    return size() > CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The archive.
+     */
+    private final File archive;
+
+    /**
+     * The last modification time of the archive when its directory was read.
+     */
+    private final long lastModified;
+
+    /**
+     * The size of the archive when its directory was read.
+     */
+    private final long length;
+
+    /**
+     * The entries of the archive, by path.
+     */
+    private final SortedMap<String, Entry> entries = new TreeMap<String, Entry>();
+
+    /**
+     * Constructor using fields, read the central directory of the archive.
+     * 
+     * @param archive
+     *            The archive
+     * @throws IOException
+     */
+    protected ArchiveStore(File archive) throws IOException {
+	// Call super
+	super();
+	// Store the archive
+	this.archive = archive;
+	// Store the modification time
+	this.lastModified = archive.lastModified();
+	// Store the size
+	this.length = archive.length();
+	// Open the archive
+	RandomAccessFile file = new RandomAccessFile(archive, "r");
+	try {
+	    // Read the directory
+	    readDirectory(file.getChannel());
+	} finally {
+	    // Close the archive
+	    file.close();
+	}
+    }
+
+    /**
+     * Read the central directory of the archive. It is read with a positional
+     * read rather than mapped, so that the archive can be deleted with its
+     * build on Windows.
+     * 
+     * @param channel
+     *            The channel on the archive
+     * @throws IOException
+     */
+    private void readDirectory(FileChannel channel) throws IOException {
+	// Get the size of the end of the archive containing the end of central
+	// directory record and its comment
+	int tail = (int) Math.min(channel.size(), END_SIZE + 0xffff);
+	// Read the end of the archive
+	ByteBuffer buffer = read(channel, channel.size() - tail, tail);
+	// Look for the end of central directory record from the end
+	int end = tail - END_SIZE;
+	// Go back until found
+	while (end >= 0 && buffer.getInt(end) != END_SIGNATURE)
+	    // Previous byte
+	    end--;
+	// Check if found
+	if (end < 0)
+	    // Not an archive
+	    throw new IOException("invalid archive: " + archive);
+	// Get the size of the central directory
+	long size = buffer.getInt(end + 12) & 0xffffffffL;
+	// Get the offset of the central directory
+	long offset = buffer.getInt(end + 16) & 0xffffffffL;
+	// Read the central directory
+	buffer = read(channel, offset, (int) size);
+	// Go threw the file headers
+	for (int position = 0; position + 46 <= size;) {
+	    // Check the signature
+	    if (buffer.getInt(position) != CENTRAL_SIGNATURE)
+		// Corrupted
+		throw new IOException("invalid central directory: " + archive);
+	    // Get the length of the name
+	    int nameLength = buffer.getShort(position + 28) & 0xffff;
+	    // Get the length of the extra field
+	    int extraLength = buffer.getShort(position + 30) & 0xffff;
+	    // Get the length of the comment
+	    int commentLength = buffer.getShort(position + 32) & 0xffff;
+	    // Get the name
+	    byte[] name = new byte[nameLength];
+	    // Read it
+	    for (int i = 0; i < nameLength; i++)
+		// Read a byte
+		name[i] = buffer.get(position + 46 + i);
+	    // Get the path, the entries are written in UTF-8 by the publisher
+	    String path = new String(name, "UTF-8");
+	    // Do not index folders
+	    if (!path.endsWith("/"))
+		// Index the file
+		entries.put(path,
+			new Entry(buffer.getShort(position + 10) & 0xffff, buffer.getInt(position + 16),
+				buffer.getInt(position + 20) & 0xffffffffL, buffer.getInt(position + 24) & 0xffffffffL,
+				buffer.getInt(position + 42) & 0xffffffffL));
+	    // Next header
+	    position += 46 + nameLength + extraLength + commentLength;
+	}
+    }
+
+    /**
+     * Read a part of a file.
+     * 
+     * @param channel
+     *            The channel on the file
+     * @param position
+     *            The position in the file
+     * @param size
+     *            The number of bytes to read
+     * @return The buffer, in little endian order
+     * @throws IOException
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+	// Get the buffer
+	ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	// Read until full
+	while (buffer.hasRemaining())
+	    // Read some bytes
+	    if (channel.read(buffer, position + buffer.position()) < 0)
+		// Truncated file
+		throw new EOFException();
+	// Return the buffer
+	return buffer;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#exists(java.lang.
+     * String)
+     */
+    @Override
+    public boolean exists(String path) {
+	return entries.containsKey(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.coverage.ReportStore#isDirectory(java.lang.
+     * String)
+     */
+    @Override
+    public boolean isDirectory(String path) {
+	return isDirectory(entries, path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#getFile(java.lang.
+     * String)
+     */
+    @Override
+    public ReportFile getFile(String path) throws IOException {
+	// Get the entry
+	final Entry entry = entries.get(path);
+	// Check if found
+	if (entry == null)
+	    // Not found
+	    return null;
+	// Return the file
+	return new ReportFile(path.substring(path.lastIndexOf('/') + 1), lastModified, entry.size) {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#open()
+	     */
+	    @Override
+	    public InputStream open() throws IOException {
+		return ArchiveStore.this.open(entry);
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getETag()
+	     */
+	    @Override
+	    public String getETag() {
+		// The checksum and the size of the entry identify its content
+		return Integer.toHexString(entry.crc) + "-" + Long.toHexString(entry.size);
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getGzip()
+	     */
+	    @Override
+	    public ReportFile getGzip() throws IOException {
+		// Check if the entry is compressed
+		if (entry.method != ZipEntry.DEFLATED)
+		    // No variant
+		    return null;
+		// The deflated data of the entry is wrapped in a gzip header and
+		// trailer, without being compressed again
+		return new ReportFile(getName(), lastModified(), GZIP_HEADER.length + entry.compressedSize + 8) {
+
+		    /*
+		     * (non-Javadoc)
+		     * 
+		     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#open()
+		     */
+		    @Override
+		    public InputStream open() throws IOException {
+			// Get the trailer
+			ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			// Add the checksum
+			trailer.putInt(entry.crc);
+			// Add the uncompressed size, modulo 2^32
+			trailer.putInt((int) entry.size);
+			// Return the header, the deflated data and the trailer
+			return new SequenceInputStream(new ByteArrayInputStream(GZIP_HEADER),
+				new SequenceInputStream(openRaw(entry), new ByteArrayInputStream(trailer.array())));
+		    }
+		};
+	    }
+	};
+    }
+
+    /**
+     * Open the raw data of an entry of the archive.
+     * 
+     * @param entry
+     *            The entry
+     * @return The data of the entry, as stored in the archive
+     * @throws IOException
+     */
+    private InputStream openRaw(Entry entry) throws IOException {
+	// Open the archive
+	RandomAccessFile file = new RandomAccessFile(archive, "r");
+	try {
+	    // Get the channel
+	    FileChannel channel = file.getChannel();
+	    // Read the local file header
+	    ByteBuffer header = read(channel, entry.offset, LOCAL_SIZE);
+	    // Check its signature
+	    if (header.getInt(0) != LOCAL_SIGNATURE)
+		// Corrupted
+		throw new IOException("invalid local header in " + archive);
+	    // Move to the data, after the name and the extra field
+	    channel.position(entry.offset + LOCAL_SIZE + (header.getShort(26) & 0xffff)
+		    + (header.getShort(28) & 0xffff));
+	    // Read the compressed data only, closing the stream closes the
+	    // archive
+	    return new BoundedInputStream(new BufferedInputStream(Channels.newInputStream(channel)),
+		    entry.compressedSize);
+	} catch (IOException e) {
+	    // Close the archive
+	    file.close();
+	    // Propagate
+	    throw e;
+	} catch (RuntimeException e) {
+	    // Close the archive
+	    file.close();
+	    // Propagate
+	    throw e;
+	}
+    }
+
+    /**
+     * Open an entry of the archive.
+     * 
+     * @param entry
+     *            The entry
+     * @return The uncompressed content of the entry
+     * @throws IOException
+     */
+    private InputStream open(Entry entry) throws IOException {
+	// Read the compressed data only, closing the stream closes the archive
+	InputStream in = openRaw(entry);
+	try {
+	    // Check if stored
+	    if (entry.method == ZipEntry.STORED)
+		// Return the raw data
+		return in;
+	    // Get an inflater for raw deflated data
+	    final Inflater inflater = new Inflater(true);
+	    // The inflater requires an extra dummy byte at the end of the data
+	    return new InflaterInputStream(new SequenceInputStream(in, new ByteArrayInputStream(new byte[1])),
+		    inflater) {
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.zip.InflaterInputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+		    try {
+			// Close the archive
+			super.close();
+		    } finally {
+			// Release the inflater
+			inflater.end();
+		    }
+		}
+	    };
+	} catch (RuntimeException e) {
+	    // Close the archive
+	    in.close();
+	    // Propagate
+	    throw e;
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#find(java.lang.
+     * String)
+     */
+    @Override
+    protected List<String> find(String name) {
+	return find(entries, name);
+    }
+
+    /**
+     * Get the store of an archive. The central directory of the archive is
+     * read once and kept in memory until the archive changes.
+     * 
+     * @param archive
+     *            The archive
+     * @return The store, null if the archive cannot be read
+     */
+    public static ArchiveStore get(File archive) {
+	// Look for the store in memory
+	ArchiveStore store = CACHE.get(archive);
+	// Check if still valid
+	if (store != null && store.lastModified == archive.lastModified() && store.length == archive.length())
+	    // Return it
+	    return store;
+	try {
+	    // Read the archive
+	    store = new ArchiveStore(archive);
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to read coverage archive " + archive, e);
+	    // No store
+	    return null;
+	}
+	// Keep it in memory
+	CACHE.put(archive, store);
+	// Return the store
+	return store;
+    }
+
+    /**
+     * An entry of the archive.
+     */
+    private static class Entry {
+
+	/**
+	 * The compression method.
+	 */
+	private final int method;
+
+	/**
+	 * The checksum of the uncompressed data.
+	 */
+	private final int crc;
+
+	/**
+	 * The compressed size.
+	 */
+	private final long compressedSize;
+
+	/**
+	 * The uncompressed size.
+	 */
+	private final long size;
+
+	/**
+	 * The offset of the local file header.
+	 */
+	private final long offset;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param method
+	 *            The compression method
+	 * @param crc
+	 *            The checksum of the uncompressed data
+	 * @param compressedSize
+	 *            The compressed size
+	 * @param size
+	 *            The uncompressed size
+	 * @param offset
+	 *            The offset of the local file header
+	 */
+	private Entry(int method, int crc, long compressedSize, long size, long offset) {
+	    // Call super
+	    super();
+	    // Store the method
+	    this.method = method;
+	    // Store the checksum
+	    this.crc = crc;
+	    // Store the compressed size
+	    this.compressedSize = compressedSize;
+	    // Store the uncompressed size
+	    this.size = size;
+	    // Store the offset
+	    this.offset = offset;
+	}
+    }
+}
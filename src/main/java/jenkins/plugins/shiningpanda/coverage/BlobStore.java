@@ -0,0 +1,643 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.TeeInputStream;
+
+import hudson.Util;
+import hudson.model.Job;
+import hudson.util.AtomicFileWriter;
+import jenkins.model.Jenkins;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+import jenkins.plugins.shiningpanda.workspace.Workspace;
+
+public class BlobStore {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(BlobStore.class.getName());
+
+    /**
+     * Name of the folder containing the blobs.
+     */
+    public static final String BLOBS = "blobs";
+
+    /**
+     * Name of the file storing the reference counts: a snapshot of the counts
+     * followed by a journal of their changes.
+     */
+    public static final String REFERENCES = "references";
+
+    /**
+     * Minimal number of journal lines before the reference counts are
+     * rewritten as a snapshot.
+     */
+    private static final int COMPACT_THRESHOLD = Integer.getInteger(BlobStore.class.getName() + ".compactThreshold",
+	    1000);
+
+    /**
+     * The store of the current Jenkins instance.
+     */
+    private static BlobStore instance;
+
+    /**
+     * The root folder of the store.
+     */
+    private final File root;
+
+    /**
+     * The number of builds referencing each blob, loaded on first use.
+     */
+    private Map<String, Integer> references;
+
+    /**
+     * The number of journal lines written since the last snapshot.
+     */
+    private int journal;
+
+    /**
+     * Check if the reference counts are known. If they could neither be read
+     * nor rebuilt, the blobs are never deleted.
+     */
+    private boolean trusted = true;
+
+    /**
+     * The number of references acquired by the builds still storing their
+     * blobs, not yet found in their manifest or data file by a collection.
+     */
+    private final Map<String, Integer> pending = new HashMap<String, Integer>();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param root
+     *            The root folder of the store
+     */
+    protected BlobStore(File root) {
+	// Call super
+	super();
+	// Store the root folder
+	this.root = root;
+    }
+
+    /**
+     * Get the root folder of the store.
+     * 
+     * @return The root folder
+     */
+    public File getRoot() {
+	return root;
+    }
+
+    /**
+     * Get the file of a blob. Blobs are spread in sub-folders named after the
+     * two first characters of their digest.
+     * 
+     * @param hash
+     *            The digest of the blob
+     * @return The file
+     */
+    public File getFile(String hash) {
+	return new File(new File(new File(root, BLOBS), hash.substring(0, 2)), hash);
+    }
+
+    /**
+     * Check if a blob is stored.
+     * 
+     * @param hash
+     *            The digest of the blob
+     * @return True if stored, else false
+     */
+    public boolean contains(String hash) {
+	return getFile(hash).isFile();
+    }
+
+    /**
+     * Store a blob if not already stored. The content is checked against its
+     * digest before being made visible.
+     * 
+     * @param hash
+     *            The digest of the blob
+     * @param in
+     *            The content, not closed
+     * @return The number of bytes written, 0 if already stored
+     * @throws IOException
+     */
+    public long put(String hash, InputStream in) throws IOException {
+	// Get the file
+	File file = getFile(hash);
+	// Check if already stored
+	if (file.isFile())
+	    // Nothing to write
+	    return 0;
+	// Create the folder
+	file.getParentFile().mkdirs();
+	// Write in a temporary file so that a blob is never read partially
+	File tmp = File.createTempFile(hash, ".tmp", file.getParentFile());
+	try {
+	    // Open it
+	    OutputStream out = new FileOutputStream(tmp);
+	    // Store the digest of the written content
+	    String digest;
+	    try {
+		// Copy the content while computing its digest
+		digest = Manifest.digest(new TeeInputStream(in, out));
+	    } finally {
+		// Close the file
+		out.close();
+	    }
+	    // Check the content
+	    if (!hash.equals(digest))
+		// Corrupted
+		throw new IOException("content of blob " + hash + " has digest " + digest);
+	    // Get the number of written bytes
+	    long bytes = tmp.length();
+	    // Make the blob visible, it may have been stored concurrently
+	    if (!tmp.renameTo(file) && !file.isFile())
+		// Failed to store
+		throw new IOException("failed to rename " + tmp + " to " + file);
+	    try {
+		// Prepare the compressed variant served to browsers
+		Precompressor.compress(file);
+	    } catch (IOException e) {
+		// Log, the blob is served uncompressed
+		LOGGER.log(Level.WARNING, "failed to compress coverage blob " + file, e);
+	    }
+	    // Return the number of written bytes
+	    return bytes;
+	} finally {
+	    // Cleanup if not renamed
+	    tmp.delete();
+	}
+    }
+
+    /**
+     * Add a reference to some blobs, before storing them so that they cannot
+     * be released concurrently.
+     * 
+     * @param hashes
+     *            The digests of the blobs, each one listed once
+     */
+    public synchronized void acquire(Collection<String> hashes) {
+	// Get the reference counts
+	Map<String, Integer> references = getReferences();
+	// Store the changes to journal
+	StringBuilder changes = new StringBuilder();
+	// Go threw the blobs
+	for (String hash : hashes) {
+	    // Get the current count
+	    Integer count = references.get(hash);
+	    // Increment it
+	    references.put(hash, count == null ? 1 : count + 1);
+	    // Get the pending count
+	    Integer acquired = pending.get(hash);
+	    // Protect the blob from the collections until settled
+	    pending.put(hash, acquired == null ? 1 : acquired + 1);
+	    // Journal the change
+	    changes.append(hash).append(" +1\n");
+	}
+	// Save the changes
+	saveReferences(changes, hashes.size());
+    }
+
+    /**
+     * Settle the references acquired to some blobs, once the manifest or the
+     * data file referencing them is written, or once they are released.
+     * 
+     * @param hashes
+     *            The digests of the blobs, as acquired
+     */
+    public synchronized void settle(Collection<String> hashes) {
+	// Go threw the blobs
+	for (String hash : hashes) {
+	    // Get the pending count
+	    Integer acquired = pending.get(hash);
+	    // Check if still pending
+	    if (acquired != null && acquired > 1)
+		// Decrement it
+		pending.put(hash, acquired - 1);
+	    // Else settled
+	    else
+		// Forget it
+		pending.remove(hash);
+	}
+    }
+
+    /**
+     * Collect the blobs no more referenced: the reference counts are rebuilt
+     * from the manifests and the data files of all the builds, and the blobs
+     * they do not reference are deleted. This reclaims the blobs of the builds
+     * deleted with their job, whose references are never released. The store
+     * is locked during the collection so that no build stores its blobs
+     * meanwhile.
+     * 
+     * @return The number of deleted blobs
+     * @throws IOException
+     */
+    public synchronized int collect() throws IOException {
+	// Rebuild the counts, fails if a file cannot be read
+	Map<String, Integer> references = rebuildReferences();
+	// Go threw the blobs of the builds storing them
+	for (Map.Entry<String, Integer> acquired : pending.entrySet()) {
+	    // Get the current count
+	    Integer count = references.get(acquired.getKey());
+	    // Add the pending references
+	    references.put(acquired.getKey(), (count == null ? 0 : count) + acquired.getValue());
+	}
+	// Store the number of deleted blobs
+	int deleted = 0;
+	// Get the sub-folders of the blobs
+	File[] dirs = new File(root, BLOBS).listFiles();
+	// Go threw them
+	for (int i = 0; dirs != null && i < dirs.length; i++) {
+	    // Get the files
+	    File[] files = dirs[i].listFiles();
+	    // Go threw them
+	    for (int j = 0; files != null && j < files.length; j++) {
+		// Get the name of the file
+		String name = files[j].getName();
+		// Check if this is a referenced blob, a variant or a blob being
+		// stored
+		if (references.containsKey(name) || name.endsWith(Precompressor.GZ) || name.endsWith(".tmp"))
+		    // Keep it
+		    continue;
+		// Delete its compressed variant
+		Precompressor.getVariant(files[j]).delete();
+		// Delete it
+		if (files[j].delete())
+		    // Count it
+		    deleted++;
+	    }
+	}
+	// Use the rebuilt counts
+	this.references = references;
+	// The counts are known again
+	trusted = true;
+	// Write them as a snapshot
+	compactReferences();
+	// Return the number of deleted blobs
+	return deleted;
+    }
+
+    /**
+     * Remove a reference to some blobs, deleting the ones no more referenced.
+     * 
+     * @param hashes
+     *            The digests of the blobs, each one listed once
+     * @return The number of deleted blobs
+     */
+    public synchronized int release(Collection<String> hashes) {
+	// Store the number of deleted blobs
+	int deleted = 0;
+	// Get the reference counts
+	Map<String, Integer> references = getReferences();
+	// Store the changes to journal
+	StringBuilder changes = new StringBuilder();
+	// Go threw the blobs
+	for (String hash : hashes) {
+	    // Get the current count
+	    Integer count = references.get(hash);
+	    // Journal the change
+	    changes.append(hash).append(" -1\n");
+	    // Check if still referenced
+	    if (count != null && count > 1) {
+		// Decrement it
+		references.put(hash, count - 1);
+		// Next
+		continue;
+	    }
+	    // Forget the blob
+	    references.remove(hash);
+	    // Check if the counts are known
+	    if (!trusted)
+		// Keep the blob, it may still be referenced
+		continue;
+	    // Delete its compressed variant
+	    Precompressor.getVariant(getFile(hash)).delete();
+	    // Delete it
+	    if (getFile(hash).delete())
+		// Count it
+		deleted++;
+	}
+	// Save the changes
+	saveReferences(changes, hashes.size());
+	// Return the number of deleted blobs
+	return deleted;
+    }
+
+    /**
+     * Get the number of builds referencing a blob.
+     * 
+     * @param hash
+     *            The digest of the blob
+     * @return The number of builds
+     */
+    public synchronized int getReferences(String hash) {
+	// Get the count
+	Integer count = getReferences().get(hash);
+	// Return it
+	return count == null ? 0 : count;
+    }
+
+    /**
+     * Get the reference counts, reading them on first use. If they cannot be
+     * read, they are rebuilt from the manifests and the data files of all
+     * the builds.
+     * 
+     * @return The reference counts
+     */
+    private Map<String, Integer> getReferences() {
+	// Check if already read
+	if (references != null)
+	    // Return them
+	    return references;
+	// Get the file
+	File file = new File(root, REFERENCES);
+	try {
+	    // Read the counts
+	    references = readReferences(file);
+	    // Return them
+	    return references;
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to read coverage blob references " + file + ", rebuilding them", e);
+	}
+	try {
+	    // Rebuild the counts
+	    references = rebuildReferences();
+	    // Write them as a snapshot
+	    compactReferences();
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.SEVERE, "failed to rebuild coverage blob references, blobs are no more deleted", e);
+	    // Start empty, but never delete a blob
+	    references = new HashMap<String, Integer>();
+	    // Do not trust the counts
+	    trusted = false;
+	}
+	// Return the reference counts
+	return references;
+    }
+
+    /**
+     * Read the reference counts: the snapshot lines set a count, the journal
+     * lines add to it. An incomplete last line, interrupted while written, is
+     * ignored.
+     * 
+     * @param file
+     *            The file
+     * @return The reference counts
+     * @throws IOException
+     */
+    protected Map<String, Integer> readReferences(File file) throws IOException {
+	// Store the reference counts
+	Map<String, Integer> references = new HashMap<String, Integer>();
+	// Reset the journal
+	journal = 0;
+	// Check if exists
+	if (!file.isFile())
+	    // No reference
+	    return references;
+	// Read the file
+	String content = FileUtils.readFileToString(file, "UTF-8");
+	// Get the end of the last complete line
+	int end = content.lastIndexOf('\n') + 1;
+	// Go threw the complete lines
+	for (String line : content.substring(0, end).split("\n")) {
+	    // Check if blank
+	    if (line.length() == 0)
+		// Next line
+		continue;
+	    // Split the digest and the count
+	    String[] fields = line.split(" ");
+	    // Check the format
+	    if (fields.length != 2 || fields[1].length() == 0)
+		// Corrupted
+		throw new IOException("invalid line in coverage blob references: " + line);
+	    try {
+		// Check if this is a journal line
+		if (fields[1].charAt(0) == '+' || fields[1].charAt(0) == '-') {
+		    // Get the change
+		    int delta = Integer.parseInt(fields[1].substring(1));
+		    // Get the current count
+		    Integer count = references.get(fields[0]);
+		    // Apply the change
+		    int value = (count == null ? 0 : count) + (fields[1].charAt(0) == '+' ? delta : -delta);
+		    // Check if still referenced
+		    if (value > 0)
+			// Store the count
+			references.put(fields[0], value);
+		    // Else no more referenced
+		    else
+			// Forget it
+			references.remove(fields[0]);
+		    // Count the journal line
+		    journal++;
+		}
+		// Else this is a snapshot line
+		else
+		    // Set the count
+		    references.put(fields[0], Integer.valueOf(fields[1]));
+	    } catch (NumberFormatException e) {
+		// Corrupted
+		throw new IOException("invalid count in coverage blob references: " + line, e);
+	    }
+	}
+	// Return the reference counts
+	return references;
+    }
+
+    /**
+     * Rebuild the reference counts from the manifests and the data files of
+     * all the builds.
+     * 
+     * @return The reference counts
+     * @throws IOException
+     */
+    protected Map<String, Integer> rebuildReferences() throws IOException {
+	// Store the reference counts
+	Map<String, Integer> references = new HashMap<String, Integer>();
+	// Go threw the files referencing blobs
+	for (File file : getReferencingFiles()) {
+	    // Check if this is a manifest
+	    boolean manifest = file.getName().endsWith(ReportStore.MANIFEST);
+	    // Go threw the referenced blobs, each one listed once per build
+	    for (String hash : manifest ? Manifest.load(file).getHashes() : CoverageData.load(file).getHashes()) {
+		// Get the current count
+		Integer count = references.get(hash);
+		// Increment it
+		references.put(hash, count == null ? 1 : count + 1);
+	    }
+	}
+	// Return the reference counts
+	return references;
+    }
+
+    /**
+     * Get the manifests and the data files of all the builds, without loading
+     * the builds.
+     * 
+     * @return The files
+     */
+    protected List<File> getReferencingFiles() {
+	// Store the files
+	List<File> files = new ArrayList<File>();
+	// Go threw the jobs, including the configurations of matrix projects
+	for (Job<?, ?> job : Jenkins.getInstance().getAllItems(Job.class)) {
+	    // Get the build folders
+	    File[] dirs = job.getBuildDir().listFiles();
+	    // Go threw them
+	    for (int i = 0; dirs != null && i < dirs.length; i++) {
+		// Check if this is a build folder, not a link to one
+		if (!dirs[i].isDirectory() || Util.isSymlink(dirs[i]))
+		    // Next folder
+		    continue;
+		// Get the archived reports folder
+		File base = new File(dirs[i], CoveragePublisher.BASENAME);
+		// Go threw the files referencing blobs
+		for (File file : new File[] { ReportStore.getManifest(base), ReportStore.getData(base) })
+		    // Check if exists
+		    if (file.isFile())
+			// Add it
+			files.add(file);
+	    }
+	}
+	// Return the files
+	return files;
+    }
+
+    /**
+     * Journal some changes of the reference counts, appended to the file.
+     * The counts are rewritten as a snapshot once the journal is longer than
+     * the snapshot.
+     * 
+     * @param changes
+     *            The journal lines
+     * @param lines
+     *            The number of journal lines
+     */
+    private void saveReferences(StringBuilder changes, int lines) {
+	// Check if there is something to journal and if the counts are known,
+	// unknown counts must not replace the unreadable ones
+	if (lines == 0 || !trusted)
+	    // Nothing to write
+	    return;
+	// Check if the journal is long enough to be compacted
+	if (journal + lines > Math.max(COMPACT_THRESHOLD, references.size())) {
+	    try {
+		// Write the snapshot
+		compactReferences();
+	    } catch (IOException e) {
+		// Log
+		LOGGER.log(Level.WARNING, "failed to write coverage blob references " + new File(root, REFERENCES), e);
+	    }
+	    // Done
+	    return;
+	}
+	// Get the file
+	File file = new File(root, REFERENCES);
+	try {
+	    // Create the root folder
+	    root.mkdirs();
+	    // Open the file for append
+	    OutputStream out = new FileOutputStream(file, true);
+	    try {
+		// Write the changes in a single write
+		out.write(changes.toString().getBytes("UTF-8"));
+	    } finally {
+		// Close the file
+		out.close();
+	    }
+	    // Count the journal lines
+	    journal += lines;
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to journal coverage blob references " + file, e);
+	    try {
+		// Try to write the full counts instead
+		compactReferences();
+	    } catch (IOException e2) {
+		// Log
+		LOGGER.log(Level.WARNING, "failed to write coverage blob references " + file, e2);
+	    }
+	}
+    }
+
+    /**
+     * Write the reference counts as a snapshot, replacing the journal.
+     * 
+     * @throws IOException
+     */
+    private void compactReferences() throws IOException {
+	// Get the file
+	File file = new File(root, REFERENCES);
+	// Create the root folder
+	root.mkdirs();
+	// Get a writer replacing the file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Go threw the blobs
+	    for (Map.Entry<String, Integer> reference : references.entrySet())
+		// Write the count
+		writer.write(reference.getKey() + " " + reference.getValue() + "\n");
+	    // Replace the file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+	// The journal is empty
+	journal = 0;
+    }
+
+    /**
+     * Get the store of the current Jenkins instance, located in the
+     * ShiningPanda folder of JENKINS_HOME.
+     * 
+     * @return The store
+     */
+    public static synchronized BlobStore get() {
+	// Get the root folder
+	File root = new File(new File(Jenkins.getInstance().getRootDir(), Workspace.BASENAME), "coverage");
+	// Check if the store is the one of this instance
+	if (instance == null || !instance.root.equals(root))
+	    // Create it
+	    instance = new BlobStore(root);
+	// Return the store
+	return instance;
+    }
+}
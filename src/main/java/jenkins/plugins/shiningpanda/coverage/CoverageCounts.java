@@ -0,0 +1,266 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.Serializable;
+
+public class CoverageCounts implements Serializable {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of counts, see {@link #format()}.
+     */
+    public static final int FIELDS = 6;
+
+    /**
+     * The number of statements.
+     */
+    private long statements;
+
+    /**
+     * The number of statements not executed.
+     */
+    private long missing;
+
+    /**
+     * The number of excluded statements.
+     */
+    private long excluded;
+
+    /**
+     * The number of branches.
+     */
+    private long branches;
+
+    /**
+     * The number of partially executed branches.
+     */
+    private long partialBranches;
+
+    /**
+     * The number of branches not executed.
+     */
+    private long missingBranches;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param statements
+     *            The number of statements
+     * @param missing
+     *            The number of statements not executed
+     * @param excluded
+     *            The number of excluded statements
+     * @param branches
+     *            The number of branches
+     * @param partialBranches
+     *            The number of partially executed branches
+     * @param missingBranches
+     *            The number of branches not executed
+     */
+    public CoverageCounts(long statements, long missing, long excluded, long branches, long partialBranches,
+	    long missingBranches) {
+	// Call super
+	super();
+	// Store the statements
+	this.statements = statements;
+	// Store the missing statements
+	this.missing = missing;
+	// Store the excluded statements
+	this.excluded = excluded;
+	// Store the branches
+	this.branches = branches;
+	// Store the partial branches
+	this.partialBranches = partialBranches;
+	// Store the missing branches
+	this.missingBranches = missingBranches;
+    }
+
+    /**
+     * Constructor for empty counts.
+     */
+    public CoverageCounts() {
+	this(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Add other counts to these ones.
+     * 
+     * @param counts
+     *            The other counts
+     */
+    public void add(CoverageCounts counts) {
+	// Add the statements
+	statements += counts.statements;
+	// Add the missing statements
+	missing += counts.missing;
+	// Add the excluded statements
+	excluded += counts.excluded;
+	// Add the branches
+	branches += counts.branches;
+	// Add the partial branches
+	partialBranches += counts.partialBranches;
+	// Add the missing branches
+	missingBranches += counts.missingBranches;
+    }
+
+    /**
+     * Get the number of statements.
+     * 
+     * @return The number of statements
+     */
+    public long getStatements() {
+	return statements;
+    }
+
+    /**
+     * Get the number of statements not executed.
+     * 
+     * @return The number of missing statements
+     */
+    public long getMissing() {
+	return missing;
+    }
+
+    /**
+     * Get the number of excluded statements.
+     * 
+     * @return The number of excluded statements
+     */
+    public long getExcluded() {
+	return excluded;
+    }
+
+    /**
+     * Get the number of branches.
+     * 
+     * @return The number of branches
+     */
+    public long getBranches() {
+	return branches;
+    }
+
+    /**
+     * Get the number of partially executed branches.
+     * 
+     * @return The number of partial branches
+     */
+    public long getPartialBranches() {
+	return partialBranches;
+    }
+
+    /**
+     * Get the number of branches not executed.
+     * 
+     * @return The number of missing branches
+     */
+    public long getMissingBranches() {
+	return missingBranches;
+    }
+
+    /**
+     * Get the covered percentage, computed as coverage.py does from the
+     * executed statements and branches.
+     * 
+     * @return The percentage, 100 if there is nothing to cover
+     */
+    public double getPercent() {
+	// Get the number of statements and branches to cover
+	long total = statements + branches;
+	// Check if there is something to cover
+	if (total == 0)
+	    // Fully covered
+	    return 100.0;
+	// Return the covered part
+	return 100.0 * (statements - missing + branches - missingBranches) / total;
+    }
+
+    /**
+     * Get the number of statements and branches not executed.
+     * 
+     * @return The number of missing statements and branches
+     */
+    public long getUncovered() {
+	return missing + missingBranches;
+    }
+
+    /**
+     * Write the counts as text, see {@link #parse(String[], int)}.
+     * 
+     * @return The counts separated by spaces
+     */
+    public String format() {
+	return statements + " " + missing + " " + excluded + " " + branches + " " + partialBranches + " "
+		+ missingBranches;
+    }
+
+    /**
+     * Read counts written by {@link #format()}.
+     * 
+     * @param fields
+     *            The fields of a line split on spaces
+     * @param offset
+     *            The index of the first count in the fields
+     * @return The counts
+     * @throws NumberFormatException
+     *             If the counts are not valid
+     */
+    public static CoverageCounts parse(String[] fields, int offset) {
+	// Check the format
+	if (fields.length < offset + FIELDS)
+	    // Not valid
+	    throw new NumberFormatException("missing coverage counts");
+	// Return the counts
+	return new CoverageCounts(Long.parseLong(fields[offset]), Long.parseLong(fields[offset + 1]),
+		Long.parseLong(fields[offset + 2]), Long.parseLong(fields[offset + 3]),
+		Long.parseLong(fields[offset + 4]), Long.parseLong(fields[offset + 5]));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+	// Check the type
+	if (!(obj instanceof CoverageCounts))
+	    // Not equal
+	    return false;
+	// Compare the counts
+	return format().equals(((CoverageCounts) obj).format());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+	return format().hashCode();
+    }
+}
@@ -0,0 +1,478 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.util.AtomicFileWriter;
+
+public class CoverageData implements Serializable {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * State of a line that is not a statement.
+     */
+    public static final char PLAIN = '.';
+
+    /**
+     * State of an executed statement.
+     */
+    public static final char RUN = 'r';
+
+    /**
+     * State of a statement not executed.
+     */
+    public static final char MISSING = 'm';
+
+    /**
+     * State of a statement with branches not taken.
+     */
+    public static final char PARTIAL = 'p';
+
+    /**
+     * State of an excluded statement.
+     */
+    public static final char EXCLUDED = 'x';
+
+    /**
+     * Separator of the fields of a line of the data file.
+     */
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * Type of the lines declaring a report.
+     */
+    private static final String REPORT = "R";
+
+    /**
+     * Type of the lines declaring a page.
+     */
+    private static final String PAGE = "P";
+
+    /**
+     * The relative paths of the reports, blank for a report at the root.
+     */
+    private final SortedSet<String> reports = new TreeSet<String>();
+
+    /**
+     * The pages, by path in the store.
+     */
+    private final SortedMap<String, Page> pages = new TreeMap<String, Page>();
+
+    /**
+     * Add a report.
+     * 
+     * @param report
+     *            The relative path of the report, blank for a report at the
+     *            root
+     */
+    public void addReport(String report) {
+	reports.add(report);
+    }
+
+    /**
+     * Add a page, and its report if not already added.
+     * 
+     * @param page
+     *            The page
+     */
+    public void addPage(Page page) {
+	// Add the report
+	addReport(page.report);
+	// Add the page
+	pages.put(page.getStorePath(), page);
+    }
+
+    /**
+     * Get the reports.
+     * 
+     * @return The relative paths of the reports, blank for a report at the
+     *         root
+     */
+    public SortedSet<String> getReports() {
+	return Collections.unmodifiableSortedSet(reports);
+    }
+
+    /**
+     * Get the pages.
+     * 
+     * @return The pages, by path in the store
+     */
+    public SortedMap<String, Page> getPages() {
+	return Collections.unmodifiableSortedMap(pages);
+    }
+
+    /**
+     * Get the pages of a report, without the ones of its nested reports.
+     * 
+     * @param report
+     *            The relative path of the report
+     * @return The pages
+     */
+    public List<Page> getPages(String report) {
+	// Store the pages
+	List<Page> found = new ArrayList<Page>();
+	// Go threw the pages
+	for (Page page : pages.values())
+	    // Check if the page belongs to this report
+	    if (page.report.equals(report))
+		// Add it
+		found.add(page);
+	// Return the pages
+	return found;
+    }
+
+    /**
+     * Get the distinct digests of the sources of the pages.
+     * 
+     * @return The digests
+     */
+    public Set<String> getHashes() {
+	// Store the digests
+	Set<String> hashes = new LinkedHashSet<String>();
+	// Go threw the pages
+	for (Page page : pages.values())
+	    // Add the digest of the source
+	    hashes.add(page.hash);
+	// Return the digests
+	return hashes;
+    }
+
+    /**
+     * Write the data, one line per report followed by one line per page of
+     * this report.
+     * 
+     * @param file
+     *            The data file, replaced once complete
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+	// Get a writer replacing the data file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Go threw the reports
+	    for (String report : reports) {
+		// Write the report
+		writer.write(REPORT + SEPARATOR + report + "\n");
+		// Go threw its pages
+		for (Page page : getPages(report))
+		    // Write the page
+		    writer.write(PAGE + SEPARATOR + page.hash + SEPARATOR + page.states + SEPARATOR + page.name
+			    + SEPARATOR + page.path + "\n");
+	    }
+	    // Replace the data file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+    }
+
+    /**
+     * Read a data file.
+     * 
+     * @param file
+     *            The data file
+     * @return The data
+     * @throws IOException
+     */
+    public static CoverageData load(File file) throws IOException {
+	// Get the data
+	CoverageData data = new CoverageData();
+	// Store the current report
+	String report = null;
+	// Go threw the lines
+	for (String line : FileUtils.readLines(file, "UTF-8")) {
+	    // Split the fields
+	    String[] fields = line.split(SEPARATOR, -1);
+	    // Check if this is a report
+	    if (fields.length == 2 && REPORT.equals(fields[0])) {
+		// Store the current report
+		report = fields[1];
+		// Add it
+		data.addReport(report);
+	    }
+	    // Check if this is a page of the current report
+	    else if (fields.length == 5 && PAGE.equals(fields[0]) && report != null)
+		// Add the page
+		data.addPage(new Page(report, fields[3], fields[4], fields[2], fields[1]));
+	    // Check that this is a blank line
+	    else if (line.length() != 0)
+		// Corrupted
+		throw new IOException("invalid line in " + file + ": " + line);
+	}
+	// Return the data
+	return data;
+    }
+
+    /**
+     * Encode the states of the lines of a source file, each state followed
+     * by the number of consecutive lines in this state when more than one.
+     * 
+     * @param states
+     *            The states of the lines
+     * @return The encoded states
+     */
+    public static String encode(char[] states) {
+	// Store the encoded states
+	StringBuilder sb = new StringBuilder();
+	// Go threw the lines
+	for (int i = 0; i < states.length;) {
+	    // Look for the end of the run of lines in this state
+	    int j = i + 1;
+	    // Go threw the lines in the same state
+	    while (j < states.length && states[j] == states[i])
+		// Next line
+		j++;
+	    // Write the state
+	    sb.append(states[i]);
+	    // Check if more than one line
+	    if (j - i > 1)
+		// Write the number of lines
+		sb.append(j - i);
+	    // Go on with the next run
+	    i = j;
+	}
+	// Return the encoded states
+	return sb.toString();
+    }
+
+    /**
+     * Decode states encoded by {@link #encode(char[])}.
+     * 
+     * @param encoded
+     *            The encoded states
+     * @return The states of the lines
+     * @throws IllegalArgumentException
+     *             If the states are not valid
+     */
+    public static char[] decode(String encoded) {
+	// Store the states
+	StringBuilder sb = new StringBuilder();
+	// Go threw the encoded states
+	for (int i = 0; i < encoded.length();) {
+	    // Get the state
+	    char state = encoded.charAt(i++);
+	    // Check that this is a state
+	    if (Character.isDigit(state))
+		// Corrupted
+		throw new IllegalArgumentException("invalid states: " + encoded);
+	    // Look for the end of the number of lines
+	    int j = i;
+	    // Go threw the digits
+	    while (j < encoded.length() && Character.isDigit(encoded.charAt(j)))
+		// Next digit
+		j++;
+	    // Get the number of lines
+	    int count = j == i ? 1 : Integer.parseInt(encoded.substring(i, j));
+	    // Go threw the lines
+	    for (int k = 0; k < count; k++)
+		// Add the state
+		sb.append(state);
+	    // Go on with the next state
+	    i = j;
+	}
+	// Return the states
+	return sb.toString().toCharArray();
+    }
+
+    /**
+     * Count the statements from the states of the lines of a source file.
+     * Branches are not known, partial lines are counted as executed
+     * statements.
+     * 
+     * @param states
+     *            The states of the lines
+     * @return The counts
+     */
+    public static CoverageCounts count(char[] states) {
+	// Store the number of statements
+	long statements = 0;
+	// Store the number of statements not executed
+	long missing = 0;
+	// Store the number of excluded statements
+	long excluded = 0;
+	// Go threw the lines
+	for (char state : states) {
+	    // Check if this is a statement
+	    if (state == RUN || state == MISSING || state == PARTIAL)
+		// Count it
+		statements++;
+	    // Check if not executed
+	    if (state == MISSING)
+		// Count it
+		missing++;
+	    // Check if excluded
+	    if (state == EXCLUDED)
+		// Count it
+		excluded++;
+	}
+	// Return the counts
+	return new CoverageCounts(statements, missing, excluded, 0, 0, 0);
+    }
+
+    /**
+     * A page of a report, showing the coverage of a source file.
+     */
+    public static class Page implements Serializable {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The relative path of the report, blank for a report at the root.
+	 */
+	private final String report;
+
+	/**
+	 * The name of the page in the report.
+	 */
+	private final String name;
+
+	/**
+	 * The path of the source file.
+	 */
+	private final String path;
+
+	/**
+	 * The encoded states of the lines.
+	 */
+	private final String states;
+
+	/**
+	 * The digest of the highlighted source.
+	 */
+	private final String hash;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param report
+	 *            The relative path of the report, blank for a report at the
+	 *            root
+	 * @param name
+	 *            The name of the page in the report
+	 * @param path
+	 *            The path of the source file
+	 * @param states
+	 *            The encoded states of the lines
+	 * @param hash
+	 *            The digest of the highlighted source
+	 */
+	public Page(String report, String name, String path, String states, String hash) {
+	    // Call super
+	    super();
+	    // Store the report
+	    this.report = report;
+	    // Store the name
+	    this.name = name;
+	    // Store the path of the source
+	    this.path = path;
+	    // Store the states
+	    this.states = states;
+	    // Store the digest
+	    this.hash = hash;
+	}
+
+	/**
+	 * Get the relative path of the report.
+	 * 
+	 * @return The path, blank for a report at the root
+	 */
+	public String getReport() {
+	    return report;
+	}
+
+	/**
+	 * Get the name of the page in the report.
+	 * 
+	 * @return The name
+	 */
+	public String getName() {
+	    return name;
+	}
+
+	/**
+	 * Get the path of the page in the store.
+	 * 
+	 * @return The path
+	 */
+	public String getStorePath() {
+	    return report.length() == 0 ? name : report + "/" + name;
+	}
+
+	/**
+	 * Get the path of the source file.
+	 * 
+	 * @return The path
+	 */
+	public String getPath() {
+	    return path;
+	}
+
+	/**
+	 * Get the states of the lines.
+	 * 
+	 * @return The states, one per line
+	 */
+	public char[] getStates() {
+	    return decode(states);
+	}
+
+	/**
+	 * Get the digest of the highlighted source.
+	 * 
+	 * @return The digest
+	 */
+	public String getHash() {
+	    return hash;
+	}
+
+	/**
+	 * Count the statements from the states of the lines.
+	 * 
+	 * @return The counts
+	 */
+	public CoverageCounts getCounts() {
+	    return count(getStates());
+	}
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.util.AtomicFileWriter;
+
+public class CoverageDiff {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CoverageDiff.class.getName());
+
+    /**
+     * Name of the diff file, stored next to the archived reports folder.
+     */
+    public static final String FILENAME = "coveragepy.diff";
+
+    /**
+     * Written instead of the counts of a file missing in a build.
+     */
+    private static final String ABSENT = "-";
+
+    /**
+     * Sort the changes by uncovered lines gained, the worst first, then by
+     * path.
+     */
+    private static final Comparator<Change> COMPARATOR = new Comparator<Change>() {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+	 */
+	public int compare(Change c1, Change c2) {
+	    // Compare the uncovered lines gained
+	    int result = Long.valueOf(c2.getUncoveredDelta()).compareTo(c1.getUncoveredDelta());
+	    // Check if equal
+	    if (result != 0)
+		// Return the comparison
+		return result;
+	    // Compare the paths
+	    return c1.getPath().compareTo(c2.getPath());
+	}
+    };
+
+    /**
+     * The number of the build compared to.
+     */
+    private final int previous;
+
+    /**
+     * The changed files.
+     */
+    private final List<Change> changes;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param previous
+     *            The number of the build compared to
+     * @param changes
+     *            The changed files
+     */
+    private CoverageDiff(int previous, List<Change> changes) {
+	// Call super
+	super();
+	// Store the build compared to
+	this.previous = previous;
+	// Store the changes
+	this.changes = changes;
+    }
+
+    /**
+     * Get the number of the build compared to.
+     * 
+     * @return The build number
+     */
+    public int getPrevious() {
+	return previous;
+    }
+
+    /**
+     * Get the changed files, the ones that gained the most uncovered lines
+     * first.
+     * 
+     * @return The changes
+     */
+    public List<Change> getChanges() {
+	return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Compare the coverage of two builds, file by file. Only the files whose
+     * counts changed are kept.
+     * 
+     * @param previous
+     *            The number of the build compared to
+     * @param before
+     *            The summary of the build compared to
+     * @param after
+     *            The summary of the build
+     * @return The diff
+     */
+    public static CoverageDiff compute(int previous, CoverageSummary before, CoverageSummary after) {
+	// Get the paths of both builds
+	SortedSet<String> paths = new TreeSet<String>(before.getFiles().keySet());
+	// Add the files of the build
+	paths.addAll(after.getFiles().keySet());
+	// Store the changes
+	List<Change> changes = new ArrayList<Change>();
+	// Go threw the paths
+	for (String path : paths) {
+	    // Get the counts before
+	    CoverageCounts c1 = before.getFiles().get(path);
+	    // Get the counts after
+	    CoverageCounts c2 = after.getFiles().get(path);
+	    // Check if changed
+	    if (c1 == null || !c1.equals(c2))
+		// Add the change
+		changes.add(new Change(path, c1, c2));
+	}
+	// Sort the changes
+	Collections.sort(changes, COMPARATOR);
+	// Return the diff
+	return new CoverageDiff(previous, changes);
+    }
+
+    /**
+     * Write the diff, the number of the build compared to on the first line,
+     * then one line per change with the counts before, the counts after and
+     * the path.
+     * 
+     * @param file
+     *            The diff file, replaced once complete
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+	// Get a writer replacing the diff file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Write the build compared to
+	    writer.write(previous + "\n");
+	    // Go threw the changes
+	    for (Change change : changes)
+		// Write the change
+		writer.write(format(change.before) + " " + format(change.after) + " " + change.path + "\n");
+	    // Replace the diff file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+    }
+
+    /**
+     * Write counts, or placeholders if missing.
+     * 
+     * @param counts
+     *            The counts, can be null
+     * @return The counts as text
+     */
+    private static String format(CoverageCounts counts) {
+	// Check if got counts
+	if (counts != null)
+	    // Write them
+	    return counts.format();
+	// Store the placeholders
+	StringBuilder sb = new StringBuilder(ABSENT);
+	// Go threw the other counts
+	for (int i = 1; i < CoverageCounts.FIELDS; i++)
+	    // Add a placeholder
+	    sb.append(' ').append(ABSENT);
+	// Return the placeholders
+	return sb.toString();
+    }
+
+    /**
+     * Read counts, see {@link #format(CoverageCounts)}.
+     * 
+     * @param fields
+     *            The fields of a line split on spaces
+     * @param offset
+     *            The index of the first count in the fields
+     * @return The counts, null if missing
+     */
+    private static CoverageCounts parse(String[] fields, int offset) {
+	return ABSENT.equals(fields[offset]) ? null : CoverageCounts.parse(fields, offset);
+    }
+
+    /**
+     * Read a diff file.
+     * 
+     * @param file
+     *            The diff file
+     * @return The diff
+     * @throws IOException
+     */
+    public static CoverageDiff load(File file) throws IOException {
+	// Read the lines
+	List<String> lines = FileUtils.readLines(file, "UTF-8");
+	// Check that the build compared to is there
+	if (lines.isEmpty())
+	    // Corrupted
+	    throw new IOException("empty diff file: " + file);
+	// Store the changes
+	List<Change> changes = new ArrayList<Change>();
+	try {
+	    // Go threw the lines of the changes
+	    for (String line : lines.subList(1, lines.size())) {
+		// Split the counts and the path, that may contain spaces
+		String[] fields = line.split(" ", 2 * CoverageCounts.FIELDS + 1);
+		// Check the format
+		if (fields.length != 2 * CoverageCounts.FIELDS + 1)
+		    // Ignore blank lines
+		    continue;
+		// Add the change
+		changes.add(new Change(fields[2 * CoverageCounts.FIELDS], parse(fields, 0),
+			parse(fields, CoverageCounts.FIELDS)));
+	    }
+	    // Return the diff
+	    return new CoverageDiff(Integer.parseInt(lines.get(0).trim()), changes);
+	} catch (NumberFormatException e) {
+	    // Corrupted
+	    throw new IOException("invalid diff file " + file + ": " + e.getMessage());
+	}
+    }
+
+    /**
+     * Get the diff file of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The diff file
+     */
+    public static File getFile(File base) {
+	return new File(base.getParentFile(), FILENAME);
+    }
+
+    /**
+     * Get the diff of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder, can be null
+     * @return The diff, null if the build was not compared
+     */
+    public static CoverageDiff get(File base) {
+	// Check if got a folder
+	if (base == null)
+	    // No diff
+	    return null;
+	// Get the diff file
+	File file = getFile(base);
+	// Check if exists
+	if (!file.isFile())
+	    // Not compared
+	    return null;
+	try {
+	    // Read it
+	    return load(file);
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to read coverage diff " + file, e);
+	    // No diff
+	    return null;
+	}
+    }
+
+    /**
+     * The change of coverage of a file.
+     */
+    public static class Change {
+
+	/**
+	 * The path of the file.
+	 */
+	private final String path;
+
+	/**
+	 * The counts before, null if the file was added.
+	 */
+	private final CoverageCounts before;
+
+	/**
+	 * The counts after, null if the file was removed.
+	 */
+	private final CoverageCounts after;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param path
+	 *            The path of the file
+	 * @param before
+	 *            The counts before, null if the file was added
+	 * @param after
+	 *            The counts after, null if the file was removed
+	 */
+	private Change(String path, CoverageCounts before, CoverageCounts after) {
+	    // Call super
+	    super();
+	    // Store the path
+	    this.path = path;
+	    // Store the counts before
+	    this.before = before;
+	    // Store the counts after
+	    this.after = after;
+	}
+
+	/**
+	 * Get the path of the file.
+	 * 
+	 * @return The path
+	 */
+	public String getPath() {
+	    return path;
+	}
+
+	/**
+	 * Get the counts before.
+	 * 
+	 * @return The counts, null if the file was added
+	 */
+	public CoverageCounts getBefore() {
+	    return before;
+	}
+
+	/**
+	 * Get the counts after.
+	 * 
+	 * @return The counts, null if the file was removed
+	 */
+	public CoverageCounts getAfter() {
+	    return after;
+	}
+
+	/**
+	 * Get the number of uncovered statements and branches gained.
+	 * 
+	 * @return The number, negative if some were lost
+	 */
+	public long getUncoveredDelta() {
+	    return (after == null ? 0 : after.getUncovered()) - (before == null ? 0 : before.getUncovered());
+	}
+
+	/**
+	 * Get the change of the covered percentage, only if the file exists in
+	 * both builds.
+	 * 
+	 * @return The change, null if the file was added or removed
+	 */
+	public Double getPercentDelta() {
+	    // Check if the file exists in both builds
+	    if (before == null || after == null)
+		// No change
+		return null;
+	    // Return the change
+	    return after.getPercent() - before.getPercent();
+	}
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class CoverageGate {
+
+    /**
+     * The minimum covered percentage of all the files, null if not checked.
+     */
+    private final Double minimum;
+
+    /**
+     * The minimum covered percentage of each file, null if not checked.
+     */
+    private final Double fileMinimum;
+
+    /**
+     * The maximum drop of the covered percentage of all the files versus the
+     * reference build, in percentage points, null if not checked.
+     */
+    private final Double maximumDrop;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param minimum
+     *            The minimum covered percentage of all the files, null if
+     *            not checked
+     * @param fileMinimum
+     *            The minimum covered percentage of each file, null if not
+     *            checked
+     * @param maximumDrop
+     *            The maximum drop of the covered percentage versus the
+     *            reference build, null if not checked
+     */
+    public CoverageGate(Double minimum, Double fileMinimum, Double maximumDrop) {
+	// Call super
+	super();
+	// Store the minimum
+	this.minimum = minimum;
+	// Store the minimum of each file
+	this.fileMinimum = fileMinimum;
+	// Store the maximum drop
+	this.maximumDrop = maximumDrop;
+    }
+
+    /**
+     * Check if a threshold is set.
+     * 
+     * @return True if something is checked, else false
+     */
+    public boolean isEnabled() {
+	return minimum != null || fileMinimum != null || maximumDrop != null;
+    }
+
+    /**
+     * Check if the coverage of all the files is below the minimum.
+     * 
+     * @param summary
+     *            The summary of the build
+     * @return True if below, false if above or not checked
+     */
+    public boolean isBelow(CoverageSummary summary) {
+	return minimum != null && summary.getTotals().getPercent() < minimum;
+    }
+
+    /**
+     * Get the drop of the coverage of all the files versus the reference
+     * build.
+     * 
+     * @param summary
+     *            The summary of the build
+     * @param reference
+     *            The summary of the reference build, can be null
+     * @return The drop in percentage points, negative if the coverage rose,
+     *         null if there is no reference build
+     */
+    public static Double getDrop(CoverageSummary summary, CoverageSummary reference) {
+	return reference == null ? null : reference.getTotals().getPercent() - summary.getTotals().getPercent();
+    }
+
+    /**
+     * Check if the coverage of all the files dropped too much versus the
+     * reference build.
+     * 
+     * @param summary
+     *            The summary of the build
+     * @param reference
+     *            The summary of the reference build, can be null
+     * @return True if dropped too much, false if not, if not checked or if
+     *         there is no reference build
+     */
+    public boolean isDropped(CoverageSummary summary, CoverageSummary reference) {
+	// Get the drop
+	Double drop = getDrop(summary, reference);
+	// Check it
+	return maximumDrop != null && drop != null && drop > maximumDrop;
+    }
+
+    /**
+     * Get the files whose coverage is below the minimum of each file. Files
+     * without statement nor branch are never below.
+     * 
+     * @param summary
+     *            The summary of the build
+     * @return The counts of the files below the minimum, by path, empty if
+     *         not checked
+     */
+    public SortedMap<String, CoverageCounts> getFilesBelow(CoverageSummary summary) {
+	// Store the files
+	SortedMap<String, CoverageCounts> below = new TreeMap<String, CoverageCounts>();
+	// Check if checked
+	if (fileMinimum == null)
+	    // No file
+	    return below;
+	// Go threw the files
+	for (Map.Entry<String, CoverageCounts> entry : summary.getFiles().entrySet())
+	    // Check if below the minimum
+	    if (entry.getValue().getPercent() < fileMinimum)
+		// Add it
+		below.put(entry.getKey(), entry.getValue());
+	// Return the files
+	return below;
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import hudson.model.Job;
+
+public class CoverageHistory {
+
+    /**
+     * Name of the history folder of a job.
+     */
+    public static final String DIRNAME = "coveragepy-history";
+
+    /**
+     * Extension of the column files.
+     */
+    private static final String EXTENSION = ".col";
+
+    /**
+     * Size of a value in a column file.
+     */
+    private static final int SIZE = 8;
+
+    /**
+     * Column of the build numbers.
+     */
+    public static final String NUMBER = "number";
+
+    /**
+     * Column of the build times.
+     */
+    public static final String TIMESTAMP = "timestamp";
+
+    /**
+     * Column of the number of files.
+     */
+    public static final String FILES = "files";
+
+    /**
+     * Column of the number of statements.
+     */
+    public static final String STATEMENTS = "statements";
+
+    /**
+     * Column of the number of statements not executed.
+     */
+    public static final String MISSING = "missing";
+
+    /**
+     * Column of the number of excluded statements.
+     */
+    public static final String EXCLUDED = "excluded";
+
+    /**
+     * Column of the number of branches.
+     */
+    public static final String BRANCHES = "branches";
+
+    /**
+     * Column of the number of partially executed branches.
+     */
+    public static final String PARTIAL_BRANCHES = "partial_branches";
+
+    /**
+     * Column of the number of branches not executed.
+     */
+    public static final String MISSING_BRANCHES = "missing_branches";
+
+    /**
+     * Column of the size of the archived reports.
+     */
+    public static final String BYTES = "bytes";
+
+    /**
+     * All the columns.
+     */
+    public static final List<String> COLUMNS = Arrays.asList(NUMBER, TIMESTAMP, FILES, STATEMENTS, MISSING,
+	    EXCLUDED, BRANCHES, PARTIAL_BRANCHES, MISSING_BRANCHES, BYTES);
+
+    /**
+     * Maximum number of last rows kept in memory.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(CoverageHistory.class.getName() + ".cacheSize", 500);
+
+    /**
+     * The last rows in memory, by history folder.
+     */
+    private static final Map<File, CoverageHistory> LAST = Collections
+	    .synchronizedMap(new LinkedHashMap<File, CoverageHistory>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CoverageHistory> eldest) {
+		    return size() > CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The index of the first row read.
+     */
+    private final int first;
+
+    /**
+     * The number of rows read.
+     */
+    private final int size;
+
+    /**
+     * The values, by column.
+     */
+    private final Map<String, long[]> columns;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param first
+     *            The index of the first row read
+     * @param size
+     *            The number of rows read
+     * @param columns
+     *            The values, by column
+     */
+    private CoverageHistory(int first, int size, Map<String, long[]> columns) {
+	// Call super
+	super();
+	// Store the first row
+	this.first = first;
+	// Store the number of rows
+	this.size = size;
+	// Store the columns
+	this.columns = columns;
+    }
+
+    /**
+     * Get the index of the first row read in the history.
+     * 
+     * @return The index
+     */
+    public int getFirst() {
+	return first;
+    }
+
+    /**
+     * Get the number of rows read.
+     * 
+     * @return The number of rows
+     */
+    public int size() {
+	return size;
+    }
+
+    /**
+     * Get a value.
+     * 
+     * @param column
+     *            The column
+     * @param row
+     *            The row, relative to the first row read
+     * @return The value
+     */
+    public long get(String column, int row) {
+	return columns.get(column)[row];
+    }
+
+    /**
+     * Get the counts of a row.
+     * 
+     * @param row
+     *            The row, relative to the first row read
+     * @return The counts
+     */
+    public CoverageCounts getCounts(int row) {
+	return new CoverageCounts(get(STATEMENTS, row), get(MISSING, row), get(EXCLUDED, row), get(BRANCHES, row),
+		get(PARTIAL_BRANCHES, row), get(MISSING_BRANCHES, row));
+    }
+
+    /**
+     * Get the history folder of a job.
+     * 
+     * @param job
+     *            The job
+     * @return The history folder
+     */
+    public static File getDir(Job<?, ?> job) {
+	return new File(job.getRootDir(), DIRNAME);
+    }
+
+    /**
+     * Get the file of a column.
+     * 
+     * @param dir
+     *            The history folder
+     * @param column
+     *            The column
+     * @return The column file
+     */
+    private static File getFile(File dir, String column) {
+	return new File(dir, column + EXTENSION);
+    }
+
+    /**
+     * Get the number of complete rows of a history. A row is complete once
+     * written in all the columns.
+     * 
+     * @param dir
+     *            The history folder
+     * @return The number of rows
+     */
+    public static int size(File dir) {
+	// Store the number of rows
+	long rows = Long.MAX_VALUE;
+	// Go threw the columns
+	for (String column : COLUMNS)
+	    // Keep the smallest column
+	    rows = Math.min(rows, getFile(dir, column).length() / SIZE);
+	// Return the number of rows
+	return (int) rows;
+    }
+
+    /**
+     * Append a build to the history of its job. The values are appended at
+     * the end of each column file, so that the history is never rewritten.
+     * 
+     * @param dir
+     *            The history folder
+     * @param number
+     *            The build number
+     * @param timestamp
+     *            The build time
+     * @param summary
+     *            The summary of the coverage of the build
+     * @param bytes
+     *            The size of the archived reports
+     * @return True if appended, false if the build is already in the history
+     * @throws IOException
+     */
+    public static synchronized boolean append(File dir, long number, long timestamp, CoverageSummary summary,
+	    long bytes) throws IOException {
+	// Create the folder
+	dir.mkdirs();
+	// Get the number of complete rows
+	int rows = size(dir);
+	// Check if the build is already in the history
+	if (rows > 0 && read(dir, rows - 1).get(NUMBER, 0) >= number)
+	    // Nothing to append
+	    return false;
+	// Get the totals
+	CoverageCounts totals = summary.getTotals();
+	// Get the values of the row
+	Map<String, Long> values = new HashMap<String, Long>();
+	// Add the build number
+	values.put(NUMBER, number);
+	// Add the build time
+	values.put(TIMESTAMP, timestamp);
+	// Add the number of files
+	values.put(FILES, (long) summary.getFiles().size());
+	// Add the number of statements
+	values.put(STATEMENTS, totals.getStatements());
+	// Add the number of missing statements
+	values.put(MISSING, totals.getMissing());
+	// Add the number of excluded statements
+	values.put(EXCLUDED, totals.getExcluded());
+	// Add the number of branches
+	values.put(BRANCHES, totals.getBranches());
+	// Add the number of partial branches
+	values.put(PARTIAL_BRANCHES, totals.getPartialBranches());
+	// Add the number of missing branches
+	values.put(MISSING_BRANCHES, totals.getMissingBranches());
+	// Add the size of the reports
+	values.put(BYTES, bytes);
+	// Go threw the columns
+	for (String column : COLUMNS) {
+	    // Get the column file
+	    File file = getFile(dir, column);
+	    // Drop the values of an incomplete row
+	    if (file.length() > (long) rows * SIZE) {
+		// Open the column
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+		    // Truncate it
+		    raf.setLength((long) rows * SIZE);
+		} finally {
+		    // Close the column
+		    raf.close();
+		}
+	    }
+	    // Open the column for append
+	    DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true));
+	    try {
+		// Write the value
+		out.writeLong(values.get(column));
+	    } finally {
+		// Close the column
+		out.close();
+	    }
+	}
+	// Appended
+	return true;
+    }
+
+    /**
+     * Get the last row of a history. The row is read once and kept in memory
+     * until a build is appended.
+     * 
+     * @param dir
+     *            The history folder
+     * @return The last row, null if the history is empty
+     * @throws IOException
+     */
+    public static CoverageHistory last(File dir) throws IOException {
+	// Get the number of complete rows
+	int rows = size(dir);
+	// Check if there is a row
+	if (rows == 0)
+	    // Empty history
+	    return null;
+	// Look for the last row in memory
+	CoverageHistory last = LAST.get(dir);
+	// Check if still the last one
+	if (last != null && last.first == rows - 1)
+	    // Return it
+	    return last;
+	// Read it
+	last = read(dir, rows - 1);
+	// Keep it in memory
+	LAST.put(dir, last);
+	// Return it
+	return last;
+    }
+
+    /**
+     * Read the end of a history.
+     * 
+     * @param dir
+     *            The history folder
+     * @param from
+     *            The index of the first row to read
+     * @return The rows from the provided one to the end
+     * @throws IOException
+     */
+    public static CoverageHistory read(File dir, int from) throws IOException {
+	// Get the number of complete rows
+	int rows = size(dir);
+	// Get the first row
+	int first = Math.max(0, Math.min(from, rows));
+	// Get the number of rows to read
+	int size = rows - first;
+	// Store the columns
+	Map<String, long[]> columns = new HashMap<String, long[]>();
+	// Go threw the columns
+	for (String column : COLUMNS) {
+	    // Store the values
+	    long[] values = new long[size];
+	    // Check if there is something to read
+	    if (size > 0) {
+		// Open the column
+		RandomAccessFile raf = new RandomAccessFile(getFile(dir, column), "r");
+		try {
+		    // Move to the first row
+		    raf.seek((long) first * SIZE);
+		    // Get the buffer
+		    byte[] buffer = new byte[size * SIZE];
+		    // Read the values
+		    raf.readFully(buffer);
+		    // Decode them
+		    ByteBuffer.wrap(buffer).asLongBuffer().get(values);
+		} finally {
+		    // Close the column
+		    raf.close();
+		}
+	    }
+	    // Add the column
+	    columns.put(column, values);
+	}
+	// Return the history
+	return new CoverageHistory(first, size, columns);
+    }
+}
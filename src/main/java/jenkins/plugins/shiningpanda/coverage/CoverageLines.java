@@ -0,0 +1,229 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.util.AtomicFileWriter;
+
+public class CoverageLines {
+
+    /**
+     * Name of the lines file, stored next to the archived reports folder.
+     */
+    public static final String FILENAME = "coveragepy.lines";
+
+    /**
+     * Separator of the states and the path of a line of the lines file.
+     */
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * The states of a line, from the weakest to the strongest: a line takes
+     * the strongest of its states when merged.
+     */
+    private static final String RANKS = new String(new char[] { CoverageData.PLAIN, CoverageData.EXCLUDED,
+	    CoverageData.MISSING, CoverageData.PARTIAL, CoverageData.RUN });
+
+    /**
+     * The states of the lines, by path of source file.
+     */
+    private final SortedMap<String, char[]> files = new TreeMap<String, char[]>();
+
+    /**
+     * Merge the states of the lines of a source file.
+     * 
+     * @param path
+     *            The path of the source file
+     * @param states
+     *            The states of its lines
+     */
+    public void merge(String path, char[] states) {
+	// Get the current states
+	char[] current = files.get(path);
+	// Check if already merged
+	if (current == null) {
+	    // Store a copy
+	    files.put(path, states.clone());
+	    // Nothing to merge
+	    return;
+	}
+	// Get the merged states, lines missing in a source being plain
+	char[] merged = new char[Math.max(current.length, states.length)];
+	// Go threw the lines
+	for (int i = 0; i < merged.length; i++)
+	    // Keep the strongest state
+	    merged[i] = merge(i < current.length ? current[i] : CoverageData.PLAIN,
+		    i < states.length ? states[i] : CoverageData.PLAIN);
+	// Store the merged states
+	files.put(path, merged);
+    }
+
+    /**
+     * Merge the states of the lines of all the source files of other lines.
+     * 
+     * @param other
+     *            The lines to merge
+     */
+    public void merge(CoverageLines other) {
+	// Go threw the source files
+	for (Map.Entry<String, char[]> entry : other.files.entrySet())
+	    // Merge their lines
+	    merge(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Merge the states of a line: executed wins over partial, partial over
+     * not executed, not executed over excluded and excluded over plain.
+     * 
+     * @param a
+     *            A state
+     * @param b
+     *            Another state
+     * @return The strongest state
+     */
+    public static char merge(char a, char b) {
+	return RANKS.indexOf(a) >= RANKS.indexOf(b) ? a : b;
+    }
+
+    /**
+     * Get the states of the lines.
+     * 
+     * @return The states, by path of source file
+     */
+    public SortedMap<String, char[]> getFiles() {
+	return Collections.unmodifiableSortedMap(files);
+    }
+
+    /**
+     * Count the statements of each source file.
+     * 
+     * @return The summary, branches not being known
+     */
+    public CoverageSummary getSummary() {
+	// Store the counts
+	Map<String, CoverageCounts> counts = new HashMap<String, CoverageCounts>();
+	// Go threw the source files
+	for (Map.Entry<String, char[]> entry : files.entrySet())
+	    // Count its statements
+	    counts.put(entry.getKey(), CoverageData.count(entry.getValue()));
+	// Get the summary
+	CoverageSummary summary = new CoverageSummary();
+	// Add the files at the root
+	summary.add("", counts);
+	// Return the summary
+	return summary;
+    }
+
+    /**
+     * Get the lines of the pages of coverage data. The pages of the same
+     * source file in several reports are merged.
+     * 
+     * @param data
+     *            The coverage data
+     * @return The lines
+     */
+    public static CoverageLines of(CoverageData data) {
+	// Get the lines
+	CoverageLines lines = new CoverageLines();
+	// Go threw the pages
+	for (CoverageData.Page page : data.getPages().values())
+	    // Merge the lines of its source file
+	    lines.merge(page.getPath(), page.getStates());
+	// Return the lines
+	return lines;
+    }
+
+    /**
+     * Write the lines, one line per source file with its encoded states and
+     * its path.
+     * 
+     * @param file
+     *            The lines file, replaced once complete
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+	// Get a writer replacing the lines file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Go threw the source files
+	    for (Map.Entry<String, char[]> entry : files.entrySet())
+		// Write its states and its path
+		writer.write(CoverageData.encode(entry.getValue()) + SEPARATOR + entry.getKey() + "\n");
+	    // Replace the lines file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+    }
+
+    /**
+     * Read a lines file.
+     * 
+     * @param file
+     *            The lines file
+     * @return The lines
+     * @throws IOException
+     */
+    public static CoverageLines load(File file) throws IOException {
+	// Get the lines
+	CoverageLines lines = new CoverageLines();
+	// Go threw the lines
+	for (String line : FileUtils.readLines(file, "UTF-8")) {
+	    // Split the states and the path, that may contain tabulations
+	    String[] fields = line.split(SEPARATOR, 2);
+	    // Check the format
+	    if (fields.length != 2)
+		// Ignore blank lines
+		continue;
+	    try {
+		// Add the source file
+		lines.files.put(fields[1], CoverageData.decode(fields[0]));
+	    } catch (IllegalArgumentException e) {
+		// Corrupted
+		throw new IOException("invalid line in " + file + ": " + line);
+	    }
+	}
+	// Return the lines
+	return lines;
+    }
+
+    /**
+     * Get the lines file of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The lines file
+     */
+    public static File getFile(File base) {
+	return new File(base.getParentFile(), FILENAME);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.util.Arrays;
+import java.util.List;
+
+import hudson.Util;
+import jenkins.plugins.shiningpanda.Messages;
+
+public class CoverageStorage {
+
+    /**
+     * Store the report files in a folder.
+     */
+    public final static CoverageStorage FILES = new CoverageStorage("files",
+	    Messages.CoverageStorage_Files_DisplayName());
+
+    /**
+     * Store the report files in a single ZIP archive.
+     */
+    public final static CoverageStorage ARCHIVE = new CoverageStorage("archive",
+	    Messages.CoverageStorage_Archive_DisplayName());
+
+    /**
+     * Store the content of the report files once for all builds.
+     */
+    public final static CoverageStorage DEDUPLICATED = new CoverageStorage("deduplicated",
+	    Messages.CoverageStorage_Deduplicated_DisplayName());
+
+    /**
+     * Store only the coverage data, the reports being rendered on demand.
+     */
+    public final static CoverageStorage DATA = new CoverageStorage("data",
+	    Messages.CoverageStorage_Data_DisplayName());
+
+    /**
+     * All storages
+     */
+    public final static List<CoverageStorage> ALL = Arrays.asList(FILES, ARCHIVE, DEDUPLICATED, DATA);
+
+    /**
+     * The key
+     */
+    private String key;
+
+    /**
+     * The name
+     */
+    private String name;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param key
+     *            The key
+     * @param name
+     *            The name
+     */
+    private CoverageStorage(String key, String name) {
+	// Call super
+	super();
+	// Store the key
+	this.key = key;
+	// Store the name
+	this.name = name;
+    }
+
+    /**
+     * Get the storage key.
+     * 
+     * @return The key
+     */
+    public String getKey() {
+	return key;
+    }
+
+    /**
+     * Get the storage name.
+     * 
+     * @return The name
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Get the storage object.
+     * 
+     * @param raw
+     *            The storage key
+     * @return The storage object
+     */
+    public static CoverageStorage get(String raw) {
+	// Get the formated value
+	String storage = Util.fixEmptyAndTrim(raw);
+	// Go threw the storages
+	for (CoverageStorage candidate : ALL)
+	    // Check if this is the requested one
+	    if (candidate.getKey().equalsIgnoreCase(storage))
+		// Return it
+		return candidate;
+	// By default store files
+	return FILES;
+    }
+
+}
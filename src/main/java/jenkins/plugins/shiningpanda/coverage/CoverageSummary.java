@@ -0,0 +1,308 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.util.AtomicFileWriter;
+
+public class CoverageSummary implements Serializable {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CoverageSummary.class.getName());
+
+    /**
+     * Name of the summary file, stored next to the archived reports folder.
+     */
+    public static final String FILENAME = "coveragepy.summary";
+
+    /**
+     * Maximum number of summaries kept in memory.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(CoverageSummary.class.getName() + ".cacheSize", 100);
+
+    /**
+     * The summaries in memory, by archived reports folder.
+     */
+    private static final Map<File, CoverageSummary> CACHE = Collections
+	    .synchronizedMap(new LinkedHashMap<File, CoverageSummary>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CoverageSummary> eldest) {
+		    return size() > CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The counts of the files, by path.
+     */
+    private final SortedMap<String, CoverageCounts> files = new TreeMap<String, CoverageCounts>();
+
+    /**
+     * The reports that could not be read.
+     */
+    private final List<String> warnings = new ArrayList<String>();
+
+    /**
+     * The last modification time of the summary file when it was read.
+     */
+    private transient long timestamp;
+
+    /**
+     * Add the files of a report.
+     * 
+     * @param report
+     *            The relative path of the report, blank for a report at the
+     *            root
+     * @param counts
+     *            The counts of the files of the report, by name
+     */
+    public void add(String report, Map<String, CoverageCounts> counts) {
+	// Go threw the files
+	for (Map.Entry<String, CoverageCounts> entry : counts.entrySet())
+	    // Add the file, prefixed by its report if not at the root
+	    files.put(report.length() == 0 ? entry.getKey() : report + "/" + entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Record a report that could not be read.
+     * 
+     * @param warning
+     *            The reason
+     */
+    public void addWarning(String warning) {
+	warnings.add(warning);
+    }
+
+    /**
+     * Get the reports that could not be read.
+     * 
+     * @return The reasons
+     */
+    public List<String> getWarnings() {
+	return Collections.unmodifiableList(warnings);
+    }
+
+    /**
+     * Get the counts of the files.
+     * 
+     * @return The counts, by path
+     */
+    public SortedMap<String, CoverageCounts> getFiles() {
+	return Collections.unmodifiableSortedMap(files);
+    }
+
+    /**
+     * Get the counts of all the files.
+     * 
+     * @return The totals
+     */
+    public CoverageCounts getTotals() {
+	// Get the totals
+	CoverageCounts totals = new CoverageCounts();
+	// Go threw the files
+	for (CoverageCounts counts : files.values())
+	    // Add their counts
+	    totals.add(counts);
+	// Return the totals
+	return totals;
+    }
+
+    /**
+     * Split the summary by report, each file going to the deepest report
+     * containing it. Files outside of the reports are ignored.
+     * 
+     * @param reports
+     *            The relative paths of the reports, blank for a report at
+     *            the root
+     * @return The summaries of the reports, with paths relative to them
+     */
+    public SortedMap<String, CoverageSummary> split(Collection<String> reports) {
+	// Store the summaries
+	SortedMap<String, CoverageSummary> split = new TreeMap<String, CoverageSummary>();
+	// Go threw the reports
+	for (String report : reports)
+	    // Add an empty summary
+	    split.put(report, new CoverageSummary());
+	// Go threw the files
+	for (Map.Entry<String, CoverageCounts> entry : files.entrySet()) {
+	    // Store the deepest report containing the file
+	    String found = null;
+	    // Go threw the reports
+	    for (String report : reports)
+		// Check if the file is in this report and if deeper
+		if ((report.length() == 0 || entry.getKey().startsWith(report + "/"))
+			&& (found == null || report.length() > found.length()))
+		    // Keep it
+		    found = report;
+	    // Check if found
+	    if (found != null)
+		// Add the file, relative to its report
+		split.get(found).files.put(
+			found.length() == 0 ? entry.getKey() : entry.getKey().substring(found.length() + 1),
+			entry.getValue());
+	}
+	// Return the summaries
+	return split;
+    }
+
+    /**
+     * Write the summary, one line per file with its counts and its path.
+     * 
+     * @param file
+     *            The summary file, replaced once complete
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+	// Get a writer replacing the summary file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Go threw the files
+	    for (Map.Entry<String, CoverageCounts> entry : files.entrySet())
+		// Write its counts and its path
+		writer.write(entry.getValue().format() + " " + entry.getKey() + "\n");
+	    // Replace the summary file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+    }
+
+    /**
+     * Read a summary file.
+     * 
+     * @param file
+     *            The summary file
+     * @return The summary
+     * @throws IOException
+     */
+    public static CoverageSummary load(File file) throws IOException {
+	// Get the summary
+	CoverageSummary summary = new CoverageSummary();
+	// Go threw the lines
+	for (String line : FileUtils.readLines(file, "UTF-8")) {
+	    // Split the counts and the path, that may contain spaces
+	    String[] fields = line.split(" ", CoverageCounts.FIELDS + 1);
+	    // Check the format
+	    if (fields.length != CoverageCounts.FIELDS + 1)
+		// Ignore blank lines
+		continue;
+	    try {
+		// Add the file
+		summary.files.put(fields[CoverageCounts.FIELDS], CoverageCounts.parse(fields, 0));
+	    } catch (NumberFormatException e) {
+		// Corrupted
+		throw new IOException("invalid line in " + file + ": " + line);
+	    }
+	}
+	// Return the summary
+	return summary;
+    }
+
+    /**
+     * Get the summary file of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The summary file
+     */
+    public static File getFile(File base) {
+	return new File(base.getParentFile(), FILENAME);
+    }
+
+    /**
+     * Get the summary of an archived reports folder. The summary file is read
+     * once and kept in memory until it changes.
+     * 
+     * @param base
+     *            The archived reports folder, can be null
+     * @return The summary, null if the reports were not summarized
+     */
+    public static CoverageSummary get(File base) {
+	// Check if got a folder
+	if (base == null)
+	    // No summary
+	    return null;
+	// Get the summary file
+	File file = getFile(base);
+	// Get its modification time, 0 if it does not exist
+	long timestamp = file.lastModified();
+	// Check if exists
+	if (timestamp == 0)
+	    // Not summarized
+	    return null;
+	// Look for the summary in memory
+	CoverageSummary summary = CACHE.get(base);
+	// Check if still valid
+	if (summary != null && summary.timestamp == timestamp)
+	    // Return it
+	    return summary;
+	try {
+	    // Read it
+	    summary = load(file);
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to read coverage summary " + file, e);
+	    // No summary
+	    return null;
+	}
+	// Store its modification time
+	summary.timestamp = timestamp;
+	// Keep it in memory
+	CACHE.put(base, summary);
+	// Return the summary
+	return summary;
+    }
+}
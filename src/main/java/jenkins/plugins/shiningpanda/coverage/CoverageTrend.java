@@ -0,0 +1,339 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+
+public class CoverageTrend {
+
+    /**
+     * Name of the rendered image.
+     */
+    public static final String FILENAME = "trend.svg";
+
+    /**
+     * Content type of the rendered image.
+     */
+    public static final String CONTENT_TYPE = "image/svg+xml";
+
+    /**
+     * Maximum number of builds drawn, the most recent ones.
+     */
+    public static final int POINTS = Integer.getInteger(CoverageTrend.class.getName() + ".points", 100);
+
+    /**
+     * Width of the image.
+     */
+    private static final int WIDTH = 500;
+
+    /**
+     * Height of the image.
+     */
+    private static final int HEIGHT = 200;
+
+    /**
+     * Space on the left of the plot, for the percent labels.
+     */
+    private static final int LEFT = 40;
+
+    /**
+     * Space on the right of the plot.
+     */
+    private static final int RIGHT = 10;
+
+    /**
+     * Space above the plot.
+     */
+    private static final int TOP = 10;
+
+    /**
+     * Space under the plot, for the build labels.
+     */
+    private static final int BOTTOM = 25;
+
+    /**
+     * Maximum number of trends kept in memory.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(CoverageTrend.class.getName() + ".cacheSize", 100);
+
+    /**
+     * The trends in memory, by history folder.
+     */
+    private static final Map<File, CoverageTrend> CACHE = Collections
+	    .synchronizedMap(new LinkedHashMap<File, CoverageTrend>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CoverageTrend> eldest) {
+		    return size() > CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The history folder.
+     */
+    private final File dir;
+
+    /**
+     * The drawn builds, at most the last POINTS ones.
+     */
+    private final LinkedList<Point> points = new LinkedList<Point>();
+
+    /**
+     * The number of rows of the history already read.
+     */
+    private int size;
+
+    /**
+     * The rendered image, null if not rendered yet for the current points.
+     */
+    private MemoryFile image;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param dir
+     *            The history folder
+     */
+    private CoverageTrend(File dir) {
+	// Call super
+	super();
+	// Store the folder
+	this.dir = dir;
+    }
+
+    /**
+     * Read the rows appended to the history since the last update. Only the
+     * new rows are read, and the image is only dropped if some were found.
+     * 
+     * @throws IOException
+     */
+    private void update() throws IOException {
+	// Get the number of rows of the history
+	int rows = CoverageHistory.size(dir);
+	// Check if something changed
+	if (rows == size)
+	    // Up to date
+	    return;
+	// Check if the history was rewritten
+	if (rows < size) {
+	    // Forget everything
+	    points.clear();
+	    // Read it again
+	    size = 0;
+	}
+	// Read the new rows, only the drawn ones
+	CoverageHistory history = CoverageHistory.read(dir, Math.max(size, rows - POINTS));
+	// Go threw the new rows
+	for (int row = 0; row < history.size(); row++) {
+	    // Get the counts of the build
+	    CoverageCounts counts = new CoverageCounts(history.get(CoverageHistory.STATEMENTS, row),
+		    history.get(CoverageHistory.MISSING, row), history.get(CoverageHistory.EXCLUDED, row),
+		    history.get(CoverageHistory.BRANCHES, row), history.get(CoverageHistory.PARTIAL_BRANCHES, row),
+		    history.get(CoverageHistory.MISSING_BRANCHES, row));
+	    // Add the point
+	    points.add(new Point(history.get(CoverageHistory.NUMBER, row), counts.getPercent()));
+	}
+	// Go threw the points that are too old
+	while (points.size() > POINTS)
+	    // Drop them
+	    points.removeFirst();
+	// Store the number of rows read
+	size = history.getFirst() + history.size();
+	// The image has to be rendered again
+	image = null;
+    }
+
+    /**
+     * Get the rendered trend, brought up to date with the history. The image
+     * is only rendered again when some builds were appended to the history.
+     * 
+     * @return The image, null if the history is empty
+     * @throws IOException
+     */
+    public synchronized ReportFile getImage() throws IOException {
+	// Read the new rows
+	update();
+	// Check if there is something to draw
+	if (points.isEmpty())
+	    // No image
+	    return null;
+	// Check if already rendered
+	if (image == null)
+	    // Render it
+	    image = new MemoryFile(FILENAME, System.currentTimeMillis(), size + "-" + points.getLast().number,
+		    render(points).getBytes("UTF-8"));
+	// Return the image
+	return image;
+    }
+
+    /**
+     * Render the coverage of builds as a line chart.
+     * 
+     * @param points
+     *            The builds
+     * @return The SVG document
+     */
+    static String render(LinkedList<Point> points) {
+	// Get the size of the plot
+	int width = WIDTH - LEFT - RIGHT;
+	int height = HEIGHT - TOP - BOTTOM;
+	// Store the document
+	StringBuilder svg = new StringBuilder();
+	// Open the document
+	svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(WIDTH).append("\" height=\"")
+		.append(HEIGHT).append("\" font-family=\"sans-serif\" font-size=\"10\">");
+	// Draw the background
+	svg.append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>");
+	// Go threw the percent levels
+	for (int percent = 0; percent <= 100; percent += 25) {
+	    // Get the position of the level
+	    int y = TOP + height - height * percent / 100;
+	    // Draw the grid line
+	    svg.append("<line x1=\"").append(LEFT).append("\" y1=\"").append(y).append("\" x2=\"")
+		    .append(LEFT + width).append("\" y2=\"").append(y).append("\" stroke=\"#ddd\"/>");
+	    // Draw the label
+	    svg.append("<text x=\"").append(LEFT - 5).append("\" y=\"").append(y + 3)
+		    .append("\" text-anchor=\"end\">").append(percent).append("%</text>");
+	}
+	// Store the line
+	StringBuilder line = new StringBuilder();
+	// Store the markers
+	StringBuilder markers = new StringBuilder();
+	// Store the index of the point
+	int index = 0;
+	// Go threw the points
+	for (Point point : points) {
+	    // Get the horizontal position, centered if alone
+	    String x = format(LEFT + (points.size() == 1 ? width / 2.0 : width * index / (points.size() - 1.0)));
+	    // Get the vertical position
+	    String y = format(TOP + height - height * point.percent / 100);
+	    // Add the point to the line
+	    line.append(index == 0 ? "" : " ").append(x).append(',').append(y);
+	    // Add a marker with the details of the build
+	    markers.append("<circle cx=\"").append(x).append("\" cy=\"").append(y)
+		    .append("\" r=\"2\" fill=\"#3465a4\"><title>#").append(point.number).append(": ")
+		    .append(format(point.percent)).append("%</title></circle>");
+	    // Next point
+	    index++;
+	}
+	// Draw the line
+	svg.append("<polyline points=\"").append(line).append("\" fill=\"none\" stroke=\"#729fcf\" stroke-width=\"2\"/>");
+	// Draw the markers
+	svg.append(markers);
+	// Draw the label of the first build
+	svg.append("<text x=\"").append(LEFT).append("\" y=\"").append(HEIGHT - 8).append("\">#")
+		.append(points.getFirst().number).append("</text>");
+	// Draw the label of the last build
+	svg.append("<text x=\"").append(LEFT + width).append("\" y=\"").append(HEIGHT - 8)
+		.append("\" text-anchor=\"end\">#").append(points.getLast().number).append("</text>");
+	// Close the document
+	svg.append("</svg>");
+	// Return the document
+	return svg.toString();
+    }
+
+    /**
+     * Format a coordinate or a percent.
+     * 
+     * @param value
+     *            The value
+     * @return The value with one decimal
+     */
+    private static String format(double value) {
+	return String.format(Locale.ENGLISH, "%.1f", value);
+    }
+
+    /**
+     * Get the trend of a history. The trend is kept in memory, so that only
+     * the builds appended since the last request are read.
+     * 
+     * @param dir
+     *            The history folder
+     * @return The trend
+     */
+    public static CoverageTrend get(File dir) {
+	// Synchronize on the cache, so that a single trend exists per folder
+	synchronized (CACHE) {
+	    // Look for the trend in memory
+	    CoverageTrend trend = CACHE.get(dir);
+	    // Check if found
+	    if (trend == null) {
+		// Create it
+		trend = new CoverageTrend(dir);
+		// Keep it in memory
+		CACHE.put(dir, trend);
+	    }
+	    // Return the trend
+	    return trend;
+	}
+    }
+
+    /**
+     * The coverage of a build.
+     */
+    static class Point {
+
+	/**
+	 * The build number.
+	 */
+	private final long number;
+
+	/**
+	 * The covered percent.
+	 */
+	private final double percent;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param number
+	 *            The build number
+	 * @param percent
+	 *            The covered percent
+	 */
+	Point(long number, double percent) {
+	    // Call super
+	    super();
+	    // Store the build number
+	    this.number = number;
+	    // Store the percent
+	    this.percent = percent;
+	}
+    }
+}
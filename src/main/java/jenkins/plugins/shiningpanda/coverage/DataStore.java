@@ -0,0 +1,360 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class DataStore extends ReportStore {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DataStore.class.getName());
+
+    /**
+     * Maximum number of data files kept in memory.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(DataStore.class.getName() + ".cacheSize", 100);
+
+    /**
+     * Maximum number of rendered pages kept in memory.
+     */
+    private static final int PAGE_CACHE_SIZE = Integer.getInteger(DataStore.class.getName() + ".pageCacheSize", 50);
+
+    /**
+     * The data files in memory.
+     */
+    private static final Map<File, DataStore> CACHE = Collections
+	    .synchronizedMap(new LinkedHashMap<File, DataStore>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, DataStore> eldest) {
+		    return size() > CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The rendered pages in memory, by data file, modification time and path.
+     */
+    private static final Map<String, MemoryFile> PAGES = Collections
+	    .synchronizedMap(new LinkedHashMap<String, MemoryFile>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, MemoryFile> eldest) {
+		    return size() > PAGE_CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The data file.
+     */
+    private final File file;
+
+    /**
+     * The last modification time of the data file when it was read.
+     */
+    private final long lastModified;
+
+    /**
+     * The data.
+     */
+    private final CoverageData data;
+
+    /**
+     * The store holding the sources.
+     */
+    private final BlobStore blobs;
+
+    /**
+     * The pages that can be rendered, by path: the indexes of the reports
+     * and the pages of the source files.
+     */
+    private final SortedMap<String, CoverageData.Page> files = new TreeMap<String, CoverageData.Page>();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param file
+     *            The data file
+     * @param lastModified
+     *            The last modification time of the data file
+     * @param data
+     *            The data
+     * @param blobs
+     *            The store holding the sources
+     */
+    protected DataStore(File file, long lastModified, CoverageData data, BlobStore blobs) {
+	// Call super
+	super();
+	// Store the file
+	this.file = file;
+	// Store its modification time
+	this.lastModified = lastModified;
+	// Store the data
+	this.data = data;
+	// Store the sources
+	this.blobs = blobs;
+	// Go threw the reports
+	for (String report : data.getReports())
+	    // Add the index, without page
+	    files.put(getIndex(report), null);
+	// Add the pages of the source files
+	files.putAll(data.getPages());
+    }
+
+    /**
+     * Get the path of the index of a report.
+     * 
+     * @param report
+     *            The relative path of the report
+     * @return The path of the index
+     */
+    private static String getIndex(String report) {
+	return report.length() == 0 ? CoveragePublisher.INDEX : report + "/" + CoveragePublisher.INDEX;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#exists(java.lang.
+     * String)
+     */
+    @Override
+    public boolean exists(String path) {
+	return files.containsKey(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.coverage.ReportStore#isDirectory(java.lang.
+     * String)
+     */
+    @Override
+    public boolean isDirectory(String path) {
+	return isDirectory(files, path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#find(java.lang.
+     * String)
+     */
+    @Override
+    protected List<String> find(String name) {
+	return find(files, name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#scan()
+     */
+    @Override
+    public List<String> scan() {
+	return new ArrayList<String>(data.getReports());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.coverage.ReportStore#isReport(java.lang.
+     * String)
+     */
+    @Override
+    public boolean isReport(String dir) {
+	return data.getReports().contains(dir);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#getFile(java.lang.
+     * String)
+     */
+    @Override
+    public ReportFile getFile(String path) throws IOException {
+	// Check if the page exists
+	if (!exists(path))
+	    // Not found
+	    return null;
+	// Get the key of the page in memory
+	String key = file.getPath() + ":" + lastModified + ":" + path;
+	// Look for the rendered page
+	MemoryFile page = PAGES.get(key);
+	// Check if found
+	if (page != null)
+	    // Return it
+	    return page;
+	// Get the page of the source file, null for an index
+	CoverageData.Page source = files.get(path);
+	// Render the page
+	String html = source == null ? renderIndex(path.substring(0, Math.max(0, path.lastIndexOf('/'))))
+		: renderPage(source);
+	// Get the page
+	page = new MemoryFile(path.substring(path.lastIndexOf('/') + 1), lastModified,
+		Long.toHexString(lastModified) + "-" + Integer.toHexString(path.hashCode()), html.getBytes("UTF-8"));
+	// Keep it in memory
+	PAGES.put(key, page);
+	// Return the page
+	return page;
+    }
+
+    /**
+     * Get the counts of a source file, from the summary of the build if
+     * available as it knows the branches, else from the states of the lines.
+     * 
+     * @param summary
+     *            The summary of the build, can be null
+     * @param page
+     *            The page of the source file
+     * @return The counts
+     */
+    private CoverageCounts getCounts(CoverageSummary summary, CoverageData.Page page) {
+	// Get the path of the file in the summary
+	String path = page.getReport().length() == 0 ? page.getPath() : page.getReport() + "/" + page.getPath();
+	// Look for its counts
+	CoverageCounts counts = summary == null ? null : summary.getFiles().get(path);
+	// Return the counts
+	return counts == null ? page.getCounts() : counts;
+    }
+
+    /**
+     * Get the summary of the build.
+     * 
+     * @return The summary, null if not available
+     */
+    private CoverageSummary getSummary() {
+	return CoverageSummary.get(new File(file.getPath().substring(0, file.getPath().length() - DATA.length())));
+    }
+
+    /**
+     * Render the page of a source file.
+     * 
+     * @param page
+     *            The page
+     * @return The HTML
+     * @throws IOException
+     */
+    private String renderPage(CoverageData.Page page) throws IOException {
+	// Get the file of the source
+	File blob = blobs.getFile(page.getHash());
+	// Check that the source is stored
+	if (!blob.isFile())
+	    // Deleted
+	    throw new IOException("missing source " + page.getHash() + " of " + page.getStorePath());
+	// Render the page
+	return ReportRenderer.renderPage(page.getPath(), page.getStates(), FileUtils.readFileToString(blob, "UTF-8"),
+		getCounts(getSummary(), page));
+    }
+
+    /**
+     * Render the index of a report.
+     * 
+     * @param report
+     *            The relative path of the report
+     * @return The HTML
+     */
+    private String renderIndex(String report) {
+	// Get the summary
+	CoverageSummary summary = getSummary();
+	// Store the rows
+	List<ReportRenderer.Row> rows = new ArrayList<ReportRenderer.Row>();
+	// Go threw the pages of the report
+	for (CoverageData.Page page : data.getPages(report))
+	    // Add a row
+	    rows.add(new ReportRenderer.Row(page.getName(), page.getPath(), getCounts(summary, page)));
+	// Render the index
+	return ReportRenderer.renderIndex("Coverage report" + (report.length() == 0 ? "" : " " + report), rows);
+    }
+
+    /**
+     * Get the store of a data file. The data file is read once and kept in
+     * memory until it changes.
+     * 
+     * @param file
+     *            The data file
+     * @return The store, null if the data file cannot be read
+     */
+    public static DataStore get(File file) {
+	// Look for the store in memory
+	DataStore store = CACHE.get(file);
+	// Check if still valid
+	if (store != null && store.lastModified == file.lastModified() && store.blobs == BlobStore.get())
+	    // Return it
+	    return store;
+	// Get the modification time before reading
+	long lastModified = file.lastModified();
+	try {
+	    // Read the data file
+	    store = new DataStore(file, lastModified, CoverageData.load(file), BlobStore.get());
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to read coverage data " + file, e);
+	    // No store
+	    return null;
+	}
+	// Keep it in memory
+	CACHE.put(file, store);
+	// Return the store
+	return store;
+    }
+}
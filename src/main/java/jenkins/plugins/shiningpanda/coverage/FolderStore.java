@@ -0,0 +1,198 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+
+import hudson.Util;
+
+public class FolderStore extends ReportStore {
+
+    /**
+     * The folder.
+     */
+    private final File base;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param base
+     *            The folder
+     */
+    public FolderStore(File base) {
+	// Call super
+	super();
+	// Store the folder
+	this.base = base;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#exists(java.lang.
+     * String)
+     */
+    @Override
+    public boolean exists(String path) {
+	return new File(base, path).isFile();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.coverage.ReportStore#isDirectory(java.lang.
+     * String)
+     */
+    @Override
+    public boolean isDirectory(String path) {
+	return new File(base, path).isDirectory();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#getFile(java.lang.
+     * String)
+     */
+    @Override
+    public ReportFile getFile(String path) throws IOException {
+	// Get the file
+	final File file = new File(base, path);
+	// Check if exists
+	if (!file.isFile())
+	    // Not found
+	    return null;
+	// Return the file
+	return new ReportFile(file.getName(), file.lastModified(), file.length()) {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#open()
+	     */
+	    @Override
+	    public InputStream open() throws IOException {
+		return new FileInputStream(file);
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getETag()
+	     */
+	    @Override
+	    public String getETag() {
+		// Archived files never change, so their time and size identify
+		// their content
+		return Long.toHexString(lastModified()) + "-" + Long.toHexString(length());
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getFile()
+	     */
+	    @Override
+	    public File getFile() {
+		return file;
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getGzip()
+	     */
+	    @Override
+	    public ReportFile getGzip() throws IOException {
+		// Get the compressed variant
+		File gz = Precompressor.getValidVariant(file);
+		// Check if exists
+		return gz == null ? null : getPlainFile(gz);
+	    }
+	};
+    }
+
+    /**
+     * Get a file of the disk, without variant.
+     * 
+     * @param file
+     *            The file
+     * @return The report file
+     */
+    protected static ReportFile getPlainFile(final File file) {
+	// Return the file
+	return new ReportFile(file.getName(), file.lastModified(), file.length()) {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#open()
+	     */
+	    @Override
+	    public InputStream open() throws IOException {
+		return new FileInputStream(file);
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getFile()
+	     */
+	    @Override
+	    public File getFile() {
+		return file;
+	    }
+	};
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#find(java.lang.
+     * String)
+     */
+    @Override
+    protected List<String> find(String name) {
+	// Store the files
+	List<String> files = new ArrayList<String>();
+	// Get the file set to search the files
+	FileSet fs = Util.createFileSet(base, "**/" + name, null);
+	// Get a scanner
+	DirectoryScanner ds = fs.getDirectoryScanner(new Project());
+	// Go threw the found files
+	for (String file : ds.getIncludedFiles())
+	    // Add the file with a portable path
+	    files.add(file.replace(File.separatorChar, '/'));
+	// Return the files
+	return files;
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JsonReader {
+
+    /**
+     * The underlying reader.
+     */
+    private final Reader in;
+
+    /**
+     * The next character, -2 if not read yet.
+     */
+    private int next = -2;
+
+    /**
+     * For each opened object or array, true until its first element is
+     * read.
+     */
+    private final List<Boolean> first = new ArrayList<Boolean>();
+
+    /**
+     * True if an element was announced by {@link #hasNext()} but not read
+     * yet.
+     */
+    private boolean pending;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param in
+     *            The underlying reader, should be buffered
+     */
+    public JsonReader(Reader in) {
+	// Call super
+	super();
+	// Store the reader
+	this.in = in;
+    }
+
+    /**
+     * Get the next character without consuming it, skipping the white
+     * spaces.
+     * 
+     * @return The next character
+     * @throws IOException
+     */
+    private int peek() throws IOException {
+	// Skip the white spaces
+	while (true) {
+	    // Check if the next character is already read
+	    if (next == -2)
+		// Read it
+		next = in.read();
+	    // Check if the end is reached
+	    if (next == -1)
+		// Truncated document
+		throw new EOFException("truncated JSON document");
+	    // Check if this is a white space
+	    if (!Character.isWhitespace(next))
+		// Return it
+		return next;
+	    // Consume it
+	    next = -2;
+	}
+    }
+
+    /**
+     * Consume the next character.
+     * 
+     * @return The character
+     * @throws IOException
+     */
+    private int read() throws IOException {
+	// Check if the next character is already read
+	int c = next == -2 ? in.read() : next;
+	// Consume it
+	next = -2;
+	// Check if the end is reached
+	if (c == -1)
+	    // Truncated document
+	    throw new EOFException("truncated JSON document");
+	// Return the character
+	return c;
+    }
+
+    /**
+     * Consume an expected character, skipping the white spaces.
+     * 
+     * @param expected
+     *            The expected character
+     * @throws IOException
+     */
+    private void expect(char expected) throws IOException {
+	// Check the next character
+	if (peek() != expected)
+	    // Unexpected
+	    throw new IOException("expected '" + expected + "' but got '" + (char) peek() + "'");
+	// Consume it
+	read();
+	// The element was read
+	pending = false;
+    }
+
+    /**
+     * Begin an object.
+     * 
+     * @throws IOException
+     */
+    public void beginObject() throws IOException {
+	// Consume the brace
+	expect('{');
+	// Open the object
+	first.add(Boolean.TRUE);
+    }
+
+    /**
+     * End an object.
+     * 
+     * @throws IOException
+     */
+    public void endObject() throws IOException {
+	// Consume the brace
+	expect('}');
+	// Close the object
+	first.remove(first.size() - 1);
+    }
+
+    /**
+     * Begin an array.
+     * 
+     * @throws IOException
+     */
+    public void beginArray() throws IOException {
+	// Consume the bracket
+	expect('[');
+	// Open the array
+	first.add(Boolean.TRUE);
+    }
+
+    /**
+     * End an array.
+     * 
+     * @throws IOException
+     */
+    public void endArray() throws IOException {
+	// Consume the bracket
+	expect(']');
+	// Close the array
+	first.remove(first.size() - 1);
+    }
+
+    /**
+     * Check if the current object or array has another element.
+     * 
+     * @return True if there is another element, else false
+     * @throws IOException
+     */
+    public boolean hasNext() throws IOException {
+	// Check if already announced
+	if (pending)
+	    // Still there
+	    return true;
+	// Get the next character
+	int c = peek();
+	// Check if this is the end of the object or of the array
+	if (c == '}' || c == ']')
+	    // No more element
+	    return false;
+	// Check if this is the first element
+	if (!first.get(first.size() - 1))
+	    // Consume the separator
+	    expect(',');
+	// Next elements are separated
+	first.set(first.size() - 1, Boolean.FALSE);
+	// Announce the element
+	pending = true;
+	// Got an element
+	return true;
+    }
+
+    /**
+     * Read the name of the next member of the current object.
+     * 
+     * @return The name
+     * @throws IOException
+     */
+    public String nextName() throws IOException {
+	// Check that there is a member
+	if (!hasNext())
+	    // No more member
+	    throw new IOException("no more member in JSON object");
+	// Read the name
+	String name = nextString();
+	// Consume the separator
+	expect(':');
+	// Return the name
+	return name;
+    }
+
+    /**
+     * Check if the next value is null.
+     * 
+     * @return True if null, else false
+     * @throws IOException
+     */
+    public boolean isNull() throws IOException {
+	return peek() == 'n';
+    }
+
+    /**
+     * Check if the next value is an array.
+     * 
+     * @return True if an array, else false
+     * @throws IOException
+     */
+    public boolean isArray() throws IOException {
+	return peek() == '[';
+    }
+
+    /**
+     * Read a string.
+     * 
+     * @return The string
+     * @throws IOException
+     */
+    public String nextString() throws IOException {
+	// Consume the quote
+	expect('"');
+	// Store the string
+	StringBuilder sb = new StringBuilder();
+	// Read until the closing quote
+	for (int c = read(); c != '"'; c = read()) {
+	    // Check if this is an escaped character
+	    if (c != '\\') {
+		// Add the character
+		sb.append((char) c);
+		// Next
+		continue;
+	    }
+	    // Get the escaped character
+	    c = read();
+	    // Check if this is a unicode escape
+	    if (c == 'u') {
+		// Read the four hexadecimal digits
+		char[] digits = new char[] { (char) read(), (char) read(), (char) read(), (char) read() };
+		try {
+		    // Add the character
+		    sb.append((char) Integer.parseInt(new String(digits), 16));
+		} catch (NumberFormatException e) {
+		    // Invalid escape
+		    throw new IOException("invalid unicode escape in JSON string: " + new String(digits));
+		}
+	    }
+	    // Else this is a simple escape
+	    else
+		// Add the character
+		sb.append(c == 'n' ? '\n' : c == 't' ? '\t' : c == 'r' ? '\r' : c == 'b' ? '\b' : c == 'f' ? '\f'
+			: (char) c);
+	}
+	// Return the string
+	return sb.toString();
+    }
+
+    /**
+     * Read a number, a boolean or null.
+     * 
+     * @return The literal
+     * @throws IOException
+     */
+    private String nextLiteral() throws IOException {
+	// The element is read
+	pending = false;
+	// Store the literal
+	StringBuilder sb = new StringBuilder();
+	// Read the characters of the literal
+	for (int c = peek(); Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.'; c = peekRaw())
+	    // Add the character
+	    sb.append((char) read());
+	// Check if something was read
+	if (sb.length() == 0)
+	    // Unexpected character
+	    throw new IOException("unexpected '" + (char) peek() + "' in JSON document");
+	// Return the literal
+	return sb.toString();
+    }
+
+    /**
+     * Get the next character without consuming it nor skipping the white
+     * spaces.
+     * 
+     * @return The next character, -1 at the end of the document
+     * @throws IOException
+     */
+    private int peekRaw() throws IOException {
+	// Check if the next character is already read
+	if (next == -2)
+	    // Read it
+	    next = in.read();
+	// Return it
+	return next;
+    }
+
+    /**
+     * Read a number as a long, truncating the decimals.
+     * 
+     * @return The number
+     * @throws IOException
+     */
+    public long nextLong() throws IOException {
+	// Read the number
+	String literal = nextLiteral();
+	try {
+	    // Parse it
+	    return (long) Double.parseDouble(literal);
+	} catch (NumberFormatException e) {
+	    // Not a number
+	    throw new IOException("invalid JSON number: " + literal);
+	}
+    }
+
+    /**
+     * Skip the next value, with all its members or elements.
+     * 
+     * @throws IOException
+     */
+    public void skipValue() throws IOException {
+	// Get the next character
+	int c = peek();
+	// Check if this is an object
+	if (c == '{') {
+	    // Open the object
+	    beginObject();
+	    // Go threw the members
+	    while (hasNext()) {
+		// Skip the name
+		nextName();
+		// Skip the value
+		skipValue();
+	    }
+	    // Close the object
+	    endObject();
+	}
+	// Check if this is an array
+	else if (c == '[') {
+	    // Open the array
+	    beginArray();
+	    // Go threw the elements
+	    while (hasNext())
+		// Skip the element
+		skipValue();
+	    // Close the array
+	    endArray();
+	}
+	// Check if this is a string
+	else if (c == '"')
+	    // Skip the string
+	    nextString();
+	// Else this is a literal
+	else
+	    // Skip the literal
+	    nextLiteral();
+    }
+}
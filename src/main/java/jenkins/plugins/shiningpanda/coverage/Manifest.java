@@ -0,0 +1,248 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.Util;
+import hudson.util.AtomicFileWriter;
+
+public class Manifest implements Serializable {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Algorithm used to identify the content of the files.
+     */
+    public static final String ALGORITHM = "SHA-1";
+
+    /**
+     * The files, by path.
+     */
+    private final SortedMap<String, Entry> entries = new TreeMap<String, Entry>();
+
+    /**
+     * Add a file.
+     * 
+     * @param path
+     *            The path of the file, relative to the root of the reports
+     * @param hash
+     *            The digest of its content
+     * @param size
+     *            Its size
+     */
+    public void put(String path, String hash, long size) {
+	entries.put(path, new Entry(hash, size));
+    }
+
+    /**
+     * Get a file.
+     * 
+     * @param path
+     *            The path of the file, relative to the root of the reports
+     * @return The file, null if not found
+     */
+    public Entry get(String path) {
+	return entries.get(path);
+    }
+
+    /**
+     * Get the files.
+     * 
+     * @return The files, by path
+     */
+    public SortedMap<String, Entry> getEntries() {
+	return Collections.unmodifiableSortedMap(entries);
+    }
+
+    /**
+     * Get the digests of the files, each one listed once.
+     * 
+     * @return The digests
+     */
+    public Set<String> getHashes() {
+	// Store the digests
+	Set<String> hashes = new LinkedHashSet<String>();
+	// Go threw the files
+	for (Entry entry : entries.values())
+	    // Add the digest
+	    hashes.add(entry.getHash());
+	// Return the digests
+	return hashes;
+    }
+
+    /**
+     * Write the manifest, one line per file with its digest, its size and its
+     * path.
+     * 
+     * @param file
+     *            The manifest file, replaced once complete
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+	// Get a writer replacing the manifest file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Go threw the files
+	    for (Map.Entry<String, Entry> entry : entries.entrySet())
+		// Write the file
+		writer.write(entry.getValue().getHash() + " " + entry.getValue().getSize() + " " + entry.getKey()
+			+ "\n");
+	    // Replace the manifest file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+    }
+
+    /**
+     * Read a manifest file.
+     * 
+     * @param file
+     *            The manifest file
+     * @return The manifest
+     * @throws IOException
+     */
+    public static Manifest load(File file) throws IOException {
+	// Get the manifest
+	Manifest manifest = new Manifest();
+	// Go threw the lines
+	for (String line : FileUtils.readLines(file, "UTF-8")) {
+	    // Split the digest, the size and the path, that may contain spaces
+	    String[] fields = line.split(" ", 3);
+	    // Check the format
+	    if (fields.length != 3)
+		// Ignore blank lines
+		continue;
+	    try {
+		// Add the file
+		manifest.put(fields[2], fields[0], Long.parseLong(fields[1]));
+	    } catch (NumberFormatException e) {
+		// Corrupted
+		throw new IOException("invalid line in " + file + ": " + line);
+	    }
+	}
+	// Return the manifest
+	return manifest;
+    }
+
+    /**
+     * Compute the digest of a content.
+     * 
+     * @param in
+     *            The content, not closed
+     * @return The hexadecimal digest
+     * @throws IOException
+     */
+    public static String digest(InputStream in) throws IOException {
+	// Get the digest
+	MessageDigest digest;
+	try {
+	    // Get the algorithm
+	    digest = MessageDigest.getInstance(ALGORITHM);
+	} catch (NoSuchAlgorithmException e) {
+	    // Always available
+	    throw new IOException(e);
+	}
+	// Get a buffer
+	byte[] buffer = new byte[8192];
+	// Read the content
+	for (int read; (read = in.read(buffer)) != -1;)
+	    // Update the digest
+	    digest.update(buffer, 0, read);
+	// Return the hexadecimal digest
+	return Util.toHexString(digest.digest());
+    }
+
+    /**
+     * A file of the manifest.
+     */
+    public static class Entry implements Serializable {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The digest of the content.
+	 */
+	private final String hash;
+
+	/**
+	 * The size.
+	 */
+	private final long size;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param hash
+	 *            The digest of the content
+	 * @param size
+	 *            The size
+	 */
+	private Entry(String hash, long size) {
+	    // Call super
+	    super();
+	    // Store the digest
+	    this.hash = hash;
+	    // Store the size
+	    this.size = size;
+	}
+
+	/**
+	 * Get the digest of the content.
+	 * 
+	 * @return The hexadecimal digest
+	 */
+	public String getHash() {
+	    return hash;
+	}
+
+	/**
+	 * Get the size.
+	 * 
+	 * @return The size
+	 */
+	public long getSize() {
+	    return size;
+	}
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ManifestStore extends ReportStore {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ManifestStore.class.getName());
+
+    /**
+     * Maximum number of manifests kept in memory.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(ManifestStore.class.getName() + ".cacheSize", 100);
+
+    /**
+     * The manifests in memory.
+     */
+    private static final Map<File, ManifestStore> CACHE = Collections
+	    .synchronizedMap(new LinkedHashMap<File, ManifestStore>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, ManifestStore> eldest) {
+		    return size() > CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The last modification time of the manifest when it was read.
+     */
+    private final long lastModified;
+
+    /**
+     * The manifest.
+     */
+    private final Manifest manifest;
+
+    /**
+     * The store holding the content of the files.
+     */
+    private final BlobStore blobs;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param manifest
+     *            The manifest
+     * @param lastModified
+     *            The last modification time of the manifest
+     * @param blobs
+     *            The store holding the content of the files
+     */
+    protected ManifestStore(Manifest manifest, long lastModified, BlobStore blobs) {
+	// Call super
+	super();
+	// Store the manifest
+	this.manifest = manifest;
+	// Store the modification time
+	this.lastModified = lastModified;
+	// Store the blobs
+	this.blobs = blobs;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#exists(java.lang.
+     * String)
+     */
+    @Override
+    public boolean exists(String path) {
+	return manifest.get(path) != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.coverage.ReportStore#isDirectory(java.lang.
+     * String)
+     */
+    @Override
+    public boolean isDirectory(String path) {
+	return isDirectory(manifest.getEntries(), path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#getFile(java.lang.
+     * String)
+     */
+    @Override
+    public ReportFile getFile(String path) throws IOException {
+	// Get the entry
+	Manifest.Entry entry = manifest.get(path);
+	// Check if found
+	if (entry == null)
+	    // Not found
+	    return null;
+	// Get the blob
+	final File blob = blobs.getFile(entry.getHash());
+	// Get its digest
+	final String hash = entry.getHash();
+	// Return the file
+	return new ReportFile(path.substring(path.lastIndexOf('/') + 1), lastModified, entry.getSize()) {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#open()
+	     */
+	    @Override
+	    public InputStream open() throws IOException {
+		return new FileInputStream(blob);
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getETag()
+	     */
+	    @Override
+	    public String getETag() {
+		return hash;
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getFile()
+	     */
+	    @Override
+	    public File getFile() {
+		return blob;
+	    }
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getGzip()
+	     */
+	    @Override
+	    public ReportFile getGzip() throws IOException {
+		// Get the compressed variant
+		File gz = Precompressor.getValidVariant(blob);
+		// Check if exists
+		return gz == null ? null : FolderStore.getPlainFile(gz);
+	    }
+	};
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#find(java.lang.
+     * String)
+     */
+    @Override
+    protected List<String> find(String name) {
+	return find(manifest.getEntries(), name);
+    }
+
+    /**
+     * Get the store of a manifest. The manifest is read once and kept in
+     * memory until it changes.
+     * 
+     * @param file
+     *            The manifest file
+     * @return The store, null if the manifest cannot be read
+     */
+    public static ManifestStore get(File file) {
+	// Look for the store in memory
+	ManifestStore store = CACHE.get(file);
+	// Check if still valid
+	if (store != null && store.lastModified == file.lastModified() && store.blobs == BlobStore.get())
+	    // Return it
+	    return store;
+	try {
+	    // Read the manifest
+	    store = new ManifestStore(Manifest.load(file), file.lastModified(), BlobStore.get());
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to read coverage manifest " + file, e);
+	    // No store
+	    return null;
+	}
+	// Keep it in memory
+	CACHE.put(file, store);
+	// Return the store
+	return store;
+    }
+}
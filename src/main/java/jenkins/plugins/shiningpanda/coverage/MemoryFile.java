@@ -0,0 +1,114 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class MemoryFile extends ReportFile {
+
+    /**
+     * The entity tag.
+     */
+    private final String tag;
+
+    /**
+     * The content.
+     */
+    private final byte[] data;
+
+    /**
+     * The compressed variant, created on first use.
+     */
+    private MemoryFile gzip;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param name
+     *            The name of the file
+     * @param lastModified
+     *            The last modification time
+     * @param tag
+     *            The entity tag
+     * @param data
+     *            The content
+     */
+    public MemoryFile(String name, long lastModified, String tag, byte[] data) {
+	// Call super
+	super(name, lastModified, data.length);
+	// Store the tag
+	this.tag = tag;
+	// Store the content
+	this.data = data;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#open()
+     */
+    @Override
+    public InputStream open() throws IOException {
+	return new ByteArrayInputStream(data);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getETag()
+     */
+    @Override
+    public String getETag() {
+	return tag;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportFile#getGzip()
+     */
+    @Override
+    public synchronized ReportFile getGzip() throws IOException {
+	// Check if already compressed
+	if (gzip == null) {
+	    // Store the compressed content
+	    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	    // Get the compression stream
+	    GZIPOutputStream out = new GZIPOutputStream(buffer);
+	    try {
+		// Compress
+		out.write(data);
+	    } finally {
+		// Close the stream
+		out.close();
+	    }
+	    // Keep the compressed variant
+	    gzip = new MemoryFile(getName(), lastModified(), tag, buffer.toByteArray());
+	}
+	// Return the compressed variant
+	return gzip;
+    }
+}
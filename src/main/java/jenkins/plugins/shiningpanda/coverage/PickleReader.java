@@ -0,0 +1,577 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PickleReader {
+
+    /**
+     * Marker pushed on the stack by the MARK opcode.
+     */
+    private static final Object MARK = new Object();
+
+    /**
+     * The pickle stream.
+     */
+    private final InputStream in;
+
+    /**
+     * The stack of the pickle machine.
+     */
+    private final List<Object> stack = new ArrayList<Object>();
+
+    /**
+     * The memo of the pickle machine.
+     */
+    private final Map<Long, Object> memo = new HashMap<Long, Object>();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param in
+     *            The pickle stream, should be buffered
+     */
+    public PickleReader(InputStream in) {
+	// Call super
+	super();
+	// Store the stream
+	this.in = in;
+    }
+
+    /**
+     * Read the pickled value. Dictionaries are read as maps, lists and tuples
+     * as lists, and class instances as the map of their state, so that the
+     * values can be read without the Python classes.
+     * 
+     * @return The value
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    public Object read() throws IOException {
+	// Execute the opcodes
+	while (true) {
+	    // Read the opcode
+	    int opcode = readByte();
+	    // Execute it
+	    switch (opcode) {
+	    case '.': // STOP
+		return pop();
+	    case 0x80: // PROTO
+		readByte();
+		break;
+	    case 0x95: // FRAME
+		readBytes(8);
+		break;
+	    case '(': // MARK
+		push(MARK);
+		break;
+	    case '0': // POP
+		pop();
+		break;
+	    case '1': // POP_MARK
+		popMark();
+		break;
+	    case '2': // DUP
+		push(peek());
+		break;
+	    case 'N': // NONE
+		push(null);
+		break;
+	    case 0x88: // NEWTRUE
+		push(Boolean.TRUE);
+		break;
+	    case 0x89: // NEWFALSE
+		push(Boolean.FALSE);
+		break;
+	    case 'I': { // INT
+		String line = readLine();
+		push("01".equals(line) ? Boolean.TRUE : "00".equals(line) ? Boolean.FALSE : Long.valueOf(line));
+		break;
+	    }
+	    case 'L': { // LONG
+		String line = readLine();
+		push(new BigInteger(line.endsWith("L") ? line.substring(0, line.length() - 1) : line).longValue());
+		break;
+	    }
+	    case 'J': // BININT
+		push((long) readInt(4));
+		break;
+	    case 'K': // BININT1
+		push((long) readByte());
+		break;
+	    case 'M': // BININT2
+		push((long) (readByte() | readByte() << 8));
+		break;
+	    case 0x8a: // LONG1
+		push(readLong(readByte()));
+		break;
+	    case 0x8b: // LONG4
+		push(readLong(readInt(4)));
+		break;
+	    case 'F': // FLOAT
+		push(Double.valueOf(readLine()));
+		break;
+	    case 'G': { // BINFLOAT
+		long bits = 0;
+		for (int i = 0; i < 8; i++)
+		    bits = bits << 8 | readByte();
+		push(Double.longBitsToDouble(bits));
+		break;
+	    }
+	    case 'S': // STRING
+		push(unquote(readLine()));
+		break;
+	    case 'T': // BINSTRING
+	    case 'B': // BINBYTES
+		push(new String(readBytes(readInt(4)), "ISO-8859-1"));
+		break;
+	    case 'U': // SHORT_BINSTRING
+	    case 'C': // SHORT_BINBYTES
+		push(new String(readBytes(readByte()), "ISO-8859-1"));
+		break;
+	    case 0x8e: // BINBYTES8
+		push(new String(readBytes((int) readLong8()), "ISO-8859-1"));
+		break;
+	    case 'V': // UNICODE
+		push(unescape(readLine()));
+		break;
+	    case 'X': // BINUNICODE
+		push(new String(readBytes(readInt(4)), "UTF-8"));
+		break;
+	    case 0x8c: // SHORT_BINUNICODE
+		push(new String(readBytes(readByte()), "UTF-8"));
+		break;
+	    case 0x8d: // BINUNICODE8
+		push(new String(readBytes((int) readLong8()), "UTF-8"));
+		break;
+	    case '}': // EMPTY_DICT
+		push(new LinkedHashMap<Object, Object>());
+		break;
+	    case ']': // EMPTY_LIST
+	    case ')': // EMPTY_TUPLE
+	    case 0x8f: // EMPTY_SET
+		push(new ArrayList<Object>());
+		break;
+	    case 'l': // LIST
+	    case 't': // TUPLE
+	    case 0x91: // FROZENSET
+		push(popMark());
+		break;
+	    case 0x85: // TUPLE1
+		push(popMark(1));
+		break;
+	    case 0x86: // TUPLE2
+		push(popMark(2));
+		break;
+	    case 0x87: // TUPLE3
+		push(popMark(3));
+		break;
+	    case 'd': { // DICT
+		List<Object> items = popMark();
+		Map<Object, Object> dict = new LinkedHashMap<Object, Object>();
+		for (int i = 0; i + 1 < items.size(); i += 2)
+		    dict.put(items.get(i), items.get(i + 1));
+		push(dict);
+		break;
+	    }
+	    case 'a': { // APPEND
+		Object value = pop();
+		((List<Object>) peek()).add(value);
+		break;
+	    }
+	    case 'e': // APPENDS
+	    case 0x90: { // ADDITEMS
+		List<Object> values = popMark();
+		((List<Object>) peek()).addAll(values);
+		break;
+	    }
+	    case 's': { // SETITEM
+		Object value = pop();
+		Object key = pop();
+		((Map<Object, Object>) peek()).put(key, value);
+		break;
+	    }
+	    case 'u': { // SETITEMS
+		List<Object> items = popMark();
+		Map<Object, Object> dict = (Map<Object, Object>) peek();
+		for (int i = 0; i + 1 < items.size(); i += 2)
+		    dict.put(items.get(i), items.get(i + 1));
+		break;
+	    }
+	    case 'c': // GLOBAL
+		push(readLine() + "." + readLine());
+		break;
+	    case 0x93: { // STACK_GLOBAL
+		Object name = pop();
+		push(pop() + "." + name);
+		break;
+	    }
+	    case 'i': // INST
+		readLine();
+		readLine();
+		popMark();
+		push(new LinkedHashMap<Object, Object>());
+		break;
+	    case 'o': // OBJ
+		popMark();
+		push(new LinkedHashMap<Object, Object>());
+		break;
+	    case 0x81: // NEWOBJ
+	    case 'R': // REDUCE
+		pop();
+		pop();
+		push(new LinkedHashMap<Object, Object>());
+		break;
+	    case 0x92: // NEWOBJ_EX
+		pop();
+		pop();
+		pop();
+		push(new LinkedHashMap<Object, Object>());
+		break;
+	    case 'b': { // BUILD
+		Object state = pop();
+		Object instance = peek();
+		// Keep the attributes of the instance, ignoring the slots
+		if (state instanceof List && !((List<Object>) state).isEmpty())
+		    state = ((List<Object>) state).get(0);
+		if (state instanceof Map && instance instanceof Map)
+		    ((Map<Object, Object>) instance).putAll((Map<Object, Object>) state);
+		break;
+	    }
+	    case 'p': // PUT
+		memo.put(Long.valueOf(readLine()), peek());
+		break;
+	    case 'q': // BINPUT
+		memo.put((long) readByte(), peek());
+		break;
+	    case 'r': // LONG_BINPUT
+		memo.put((long) readInt(4), peek());
+		break;
+	    case 0x94: // MEMOIZE
+		memo.put((long) memo.size(), peek());
+		break;
+	    case 'g': // GET
+		push(memo.get(Long.valueOf(readLine())));
+		break;
+	    case 'h': // BINGET
+		push(memo.get((long) readByte()));
+		break;
+	    case 'j': // LONG_BINGET
+		push(memo.get((long) readInt(4)));
+		break;
+	    default:
+		throw new IOException("unsupported pickle opcode: 0x" + Integer.toHexString(opcode));
+	    }
+	}
+    }
+
+    /**
+     * Push a value on the stack.
+     * 
+     * @param value
+     *            The value
+     */
+    private void push(Object value) {
+	stack.add(value);
+    }
+
+    /**
+     * Get the value on the top of the stack.
+     * 
+     * @return The value
+     * @throws IOException
+     */
+    private Object peek() throws IOException {
+	// Check the stack
+	if (stack.isEmpty())
+	    // Corrupted
+	    throw new IOException("pickle stack underflow");
+	// Return the top
+	return stack.get(stack.size() - 1);
+    }
+
+    /**
+     * Pop the value on the top of the stack.
+     * 
+     * @return The value
+     * @throws IOException
+     */
+    private Object pop() throws IOException {
+	// Get the top
+	Object value = peek();
+	// Remove it
+	stack.remove(stack.size() - 1);
+	// Return it
+	return value;
+    }
+
+    /**
+     * Pop the values up to the last mark, and the mark.
+     * 
+     * @return The values
+     * @throws IOException
+     */
+    private List<Object> popMark() throws IOException {
+	// Look for the mark
+	int index = stack.lastIndexOf(MARK);
+	// Check if found
+	if (index == -1)
+	    // Corrupted
+	    throw new IOException("pickle mark not found");
+	// Get the values
+	List<Object> values = new ArrayList<Object>(stack.subList(index + 1, stack.size()));
+	// Remove them with the mark
+	stack.subList(index, stack.size()).clear();
+	// Return the values
+	return values;
+    }
+
+    /**
+     * Pop some values.
+     * 
+     * @param count
+     *            The number of values
+     * @return The values
+     * @throws IOException
+     */
+    private List<Object> popMark(int count) throws IOException {
+	// Check the stack
+	if (stack.size() < count)
+	    // Corrupted
+	    throw new IOException("pickle stack underflow");
+	// Get the values
+	List<Object> values = new ArrayList<Object>(stack.subList(stack.size() - count, stack.size()));
+	// Remove them
+	stack.subList(stack.size() - count, stack.size()).clear();
+	// Return the values
+	return values;
+    }
+
+    /**
+     * Read a byte.
+     * 
+     * @return The byte, unsigned
+     * @throws IOException
+     */
+    private int readByte() throws IOException {
+	// Read the byte
+	int b = in.read();
+	// Check if the end is reached
+	if (b == -1)
+	    // Truncated
+	    throw new EOFException("truncated pickle");
+	// Return the byte
+	return b;
+    }
+
+    /**
+     * Read some bytes.
+     * 
+     * @param count
+     *            The number of bytes
+     * @return The bytes
+     * @throws IOException
+     */
+    private byte[] readBytes(int count) throws IOException {
+	// Check the count
+	if (count < 0)
+	    // Corrupted
+	    throw new IOException("invalid pickle length: " + count);
+	// Get the buffer
+	byte[] bytes = new byte[count];
+	// Read until full
+	for (int offset = 0; offset < count;) {
+	    // Read some bytes
+	    int read = in.read(bytes, offset, count - offset);
+	    // Check if the end is reached
+	    if (read == -1)
+		// Truncated
+		throw new EOFException("truncated pickle");
+	    // Next bytes
+	    offset += read;
+	}
+	// Return the bytes
+	return bytes;
+    }
+
+    /**
+     * Read a little endian signed integer.
+     * 
+     * @param size
+     *            The number of bytes
+     * @return The integer
+     * @throws IOException
+     */
+    private int readInt(int size) throws IOException {
+	// Store the integer
+	int value = 0;
+	// Read the bytes
+	for (int i = 0; i < size; i++)
+	    // Add the byte
+	    value |= readByte() << (8 * i);
+	// Return the integer
+	return value;
+    }
+
+    /**
+     * Read a little endian unsigned 8 bytes length.
+     * 
+     * @return The length
+     * @throws IOException
+     */
+    private long readLong8() throws IOException {
+	// Store the length
+	long value = 0;
+	// Read the bytes
+	for (int i = 0; i < 8; i++)
+	    // Add the byte
+	    value |= (long) readByte() << (8 * i);
+	// Return the length
+	return value;
+    }
+
+    /**
+     * Read a little endian two's complement long.
+     * 
+     * @param size
+     *            The number of bytes
+     * @return The long
+     * @throws IOException
+     */
+    private long readLong(int size) throws IOException {
+	// Read the bytes
+	byte[] bytes = readBytes(size);
+	// Check if this is zero
+	if (size == 0)
+	    // Zero
+	    return 0;
+	// Get them in big endian order
+	byte[] reversed = new byte[size];
+	// Go threw the bytes
+	for (int i = 0; i < size; i++)
+	    // Reverse the byte
+	    reversed[i] = bytes[size - 1 - i];
+	// Return the value
+	return new BigInteger(reversed).longValue();
+    }
+
+    /**
+     * Read a line, without its end.
+     * 
+     * @return The line
+     * @throws IOException
+     */
+    private String readLine() throws IOException {
+	// Store the line
+	ByteArrayOutputStream line = new ByteArrayOutputStream();
+	// Read until the end of the line
+	for (int b = readByte(); b != '\n'; b = readByte())
+	    // Add the byte
+	    line.write(b);
+	// Return the line
+	return line.toString("ISO-8859-1");
+    }
+
+    /**
+     * Get the value of a quoted Python string literal.
+     * 
+     * @param literal
+     *            The literal, with its quotes
+     * @return The value
+     * @throws IOException
+     */
+    private static String unquote(String literal) throws IOException {
+	// Check the quotes
+	if (literal.length() < 2 || literal.charAt(0) != literal.charAt(literal.length() - 1)
+		|| !Arrays.asList('\'', '"').contains(literal.charAt(0)))
+	    // Corrupted
+	    throw new IOException("invalid pickle string: " + literal);
+	// Store the value
+	StringBuilder sb = new StringBuilder();
+	// Go threw the characters between the quotes
+	for (int i = 1; i < literal.length() - 1; i++) {
+	    // Get the character
+	    char c = literal.charAt(i);
+	    // Check if this is an escape
+	    if (c != '\\' || i + 1 >= literal.length() - 1) {
+		// Add the character
+		sb.append(c);
+		// Next
+		continue;
+	    }
+	    // Get the escaped character
+	    c = literal.charAt(++i);
+	    // Check if this is an hexadecimal escape
+	    if (c == 'x' && i + 2 < literal.length()) {
+		// Add the character
+		sb.append((char) Integer.parseInt(literal.substring(i + 1, i + 3), 16));
+		// Skip the digits
+		i += 2;
+	    }
+	    // Else this is a simple escape
+	    else
+		// Add the character
+		sb.append(c == 'n' ? '\n' : c == 't' ? '\t' : c == 'r' ? '\r' : c);
+	}
+	// Return the value
+	return sb.toString();
+    }
+
+    /**
+     * Get the value of a raw unicode escaped string.
+     * 
+     * @param raw
+     *            The escaped string
+     * @return The value
+     */
+    private static String unescape(String raw) {
+	// Store the value
+	StringBuilder sb = new StringBuilder();
+	// Go threw the characters
+	for (int i = 0; i < raw.length(); i++) {
+	    // Check if this is a unicode escape
+	    if (raw.startsWith("\\u", i) && i + 6 <= raw.length()) {
+		// Add the character
+		sb.append((char) Integer.parseInt(raw.substring(i + 2, i + 6), 16));
+		// Skip the digits
+		i += 5;
+	    }
+	    // Else this is a plain character
+	    else
+		// Add it
+		sb.append(raw.charAt(i));
+	}
+	// Return the value
+	return sb.toString();
+    }
+}
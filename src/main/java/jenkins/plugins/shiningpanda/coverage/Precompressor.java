@@ -0,0 +1,156 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+public class Precompressor {
+
+    /**
+     * Extension of the compressed variants.
+     */
+    public static final String GZ = ".gz";
+
+    /**
+     * Minimal size of the files to compress, smaller ones fit in a few
+     * packets anyway.
+     */
+    private static final long MIN_SIZE = Long.getLong(Precompressor.class.getName() + ".minSize", 1024);
+
+    /**
+     * Maximal ratio between the compressed and the original size for the
+     * compressed variant to be kept, images are already compressed.
+     */
+    private static final double MAX_RATIO = 0.9;
+
+    /**
+     * Get the compressed variant of a file.
+     * 
+     * @param file
+     *            The file
+     * @return The compressed variant
+     */
+    public static File getVariant(File file) {
+	return new File(file.getPath() + GZ);
+    }
+
+    /**
+     * Get the compressed variant of a file if it exists and is up to date.
+     * 
+     * @param file
+     *            The file
+     * @return The compressed variant, null if not available
+     */
+    public static File getValidVariant(File file) {
+	// Get the variant
+	File gz = getVariant(file);
+	// Check that it was written after the file
+	return gz.isFile() && gz.lastModified() >= file.lastModified() ? gz : null;
+    }
+
+    /**
+     * Write the compressed variant of a file if it is worth it.
+     * 
+     * @param file
+     *            The file
+     * @return True if written, else false
+     * @throws IOException
+     */
+    public static boolean compress(File file) throws IOException {
+	// Check the size of the file
+	if (file.length() < MIN_SIZE || file.getName().endsWith(GZ))
+	    // Not worth it
+	    return false;
+	// Get the variant
+	File gz = getVariant(file);
+	// Write in a temporary file so that a variant is never read partially
+	File tmp = new File(gz.getPath() + ".tmp");
+	try {
+	    // Open the file
+	    InputStream in = new FileInputStream(file);
+	    try {
+		// Open the temporary file
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp));
+		try {
+		    // Compress
+		    IOUtils.copy(in, out);
+		} finally {
+		    // Close the temporary file
+		    out.close();
+		}
+	    } finally {
+		// Close the file
+		in.close();
+	    }
+	    // Check the gain
+	    if (tmp.length() > file.length() * MAX_RATIO)
+		// Not worth it
+		return false;
+	    // Replace the variant
+	    gz.delete();
+	    // Make it visible
+	    return tmp.renameTo(gz);
+	} finally {
+	    // Cleanup if not renamed
+	    tmp.delete();
+	}
+    }
+
+    /**
+     * Write the compressed variants of the files of a folder, recursively.
+     * 
+     * @param dir
+     *            The folder
+     * @return The number of compressed files
+     * @throws IOException
+     */
+    public static int compressAll(File dir) throws IOException {
+	// Store the number of compressed files
+	int count = 0;
+	// List the files
+	File[] files = dir.listFiles();
+	// Check if this is a folder
+	if (files == null)
+	    // Nothing to compress
+	    return count;
+	// Go threw the files
+	for (File file : files)
+	    // Check if this is a folder
+	    if (file.isDirectory())
+		// Compress its files
+		count += compressAll(file);
+	    // Else compress the file
+	    else if (compress(file))
+		// Count it
+		count++;
+	// Return the number of compressed files
+	return count;
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import jenkins.plugins.shiningpanda.Messages;
+
+public class ReportArchiver {
+
+    /**
+     * The report folders.
+     */
+    private final List<File> dirs = new ArrayList<File>();
+
+    /**
+     * The paths of the report folders in the archive.
+     */
+    private final List<String> targets = new ArrayList<String>();
+
+    /**
+     * Add a report folder. A folder nested in a folder already added is
+     * ignored, as its files are already archived.
+     * 
+     * @param dir
+     *            The report folder
+     * @param target
+     *            The path of the folder in the archive, blank for the root
+     * @return True if added, else false
+     */
+    public boolean add(File dir, String target) {
+	// Go threw the added folders
+	for (String added : targets)
+	    // Check if included in this folder
+	    if (added.length() == 0 || target.equals(added) || target.startsWith(added + "/"))
+		// Already archived
+		return false;
+	// Add the folder
+	dirs.add(dir);
+	// Add its path
+	targets.add(target);
+	// Added
+	return true;
+    }
+
+    /**
+     * List the files of the report folders.
+     * 
+     * @return The files, by path in the archive
+     */
+    public SortedMap<String, File> list() {
+	// Store the files
+	SortedMap<String, File> files = new TreeMap<String, File>();
+	// Go threw the folders
+	for (int i = 0; i < dirs.size(); i++)
+	    // List the files of the folder
+	    list(files, dirs.get(i), targets.get(i).length() == 0 ? "" : targets.get(i) + "/");
+	// Return the files
+	return files;
+    }
+
+    /**
+     * List the files of a folder.
+     * 
+     * @param files
+     *            The files, by path in the archive
+     * @param dir
+     *            The folder
+     * @param prefix
+     *            The prefix of the files in the archive
+     */
+    private static void list(SortedMap<String, File> files, File dir, String prefix) {
+	// List the files
+	File[] children = dir.listFiles();
+	// Check if this is a folder
+	if (children == null)
+	    // Nothing to list
+	    return;
+	// Go threw the files
+	for (File child : children)
+	    // Check if this is a folder
+	    if (child.isDirectory())
+		// List its files
+		list(files, child, prefix + child.getName() + "/");
+	    // Else this is a file
+	    else
+		// Add it
+		files.put(prefix + child.getName(), child);
+    }
+
+    /**
+     * Compute the manifest of the report folders.
+     * 
+     * @return The manifest
+     * @throws IOException
+     */
+    public Manifest digest() throws IOException {
+	// Get the manifest
+	Manifest manifest = new Manifest();
+	// Go threw the files
+	for (Map.Entry<String, File> file : list().entrySet()) {
+	    // Open the file
+	    InputStream in = new FileInputStream(file.getValue());
+	    try {
+		// Add its digest
+		manifest.put(file.getKey(), Manifest.digest(in), file.getValue().length());
+	    } finally {
+		// Close the file
+		in.close();
+	    }
+	}
+	// Return the manifest
+	return manifest;
+    }
+
+    /**
+     * Write the archive.
+     * 
+     * @param out
+     *            The stream to write the archive to, closed when done
+     * @return The number of archived files
+     * @throws IOException
+     */
+    public int write(OutputStream out) throws IOException {
+	return write(out, null, null);
+    }
+
+    /**
+     * Write an archive of some files of the report folders.
+     * 
+     * @param out
+     *            The stream to write the archive to, closed when done
+     * @param paths
+     *            The paths of the files to archive
+     * @return The number of archived files
+     * @throws IOException
+     */
+    public int write(OutputStream out, Collection<String> paths) throws IOException {
+	return write(out, paths, null);
+    }
+
+    /**
+     * Write an archive of some files of the report folders, folder by folder,
+     * logging each folder when its first file is written.
+     * 
+     * @param out
+     *            The stream to write the archive to, closed when done
+     * @param paths
+     *            The paths of the files to archive, null for all
+     * @param logger
+     *            The logger, null to log nothing
+     * @return The number of archived files
+     * @throws IOException
+     */
+    public int write(OutputStream out, Collection<String> paths, PrintStream logger) throws IOException {
+	// Get the files to archive, null for all
+	Set<String> selected = paths == null ? null : new HashSet<String>(paths);
+	// Store the number of files
+	int count = 0;
+	// Get the archive stream
+	ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out));
+	try {
+	    // Go threw the folders
+	    for (int i = 0; i < dirs.size(); i++) {
+		// Store the files of the folder
+		SortedMap<String, File> files = new TreeMap<String, File>();
+		// List them
+		list(files, dirs.get(i), targets.get(i).length() == 0 ? "" : targets.get(i) + "/");
+		// Check if the folder was logged
+		boolean logged = false;
+		// Go threw the files
+		for (Map.Entry<String, File> file : files.entrySet()) {
+		    // Check if archived
+		    if (selected != null && !selected.contains(file.getKey()))
+			// Next file
+			continue;
+		    // Check if the folder must be logged
+		    if (logger != null && !logged) {
+			// Log the progress
+			logger.println(Messages.CoverageArchiver_Archiving(dirs.get(i).getPath()));
+			// Logged
+			logged = true;
+		    }
+		    // Create the entry
+		    ZipEntry entry = new ZipEntry(file.getKey());
+		    // Keep the modification time
+		    entry.setTime(file.getValue().lastModified());
+		    // Add the entry
+		    zip.putNextEntry(entry);
+		    // Open the file
+		    InputStream in = new FileInputStream(file.getValue());
+		    try {
+			// Copy its content
+			IOUtils.copy(in, zip);
+		    } finally {
+			// Close the file
+			in.close();
+		    }
+		    // Close the entry
+		    zip.closeEntry();
+		    // Count the file
+		    count++;
+		}
+	    }
+	} finally {
+	    // Close the archive
+	    zip.close();
+	}
+	// Return the number of files
+	return count;
+    }
+
+    /**
+     * Extract an archive of report folders.
+     * 
+     * @param in
+     *            The archive stream, not closed
+     * @param dir
+     *            The folder to extract the archive to
+     * @return The number of extracted bytes
+     * @throws IOException
+     */
+    public static long extract(InputStream in, File dir) throws IOException {
+	// Store the number of bytes
+	long bytes = 0;
+	// Get the canonical path of the folder
+	String root = dir.getCanonicalPath() + File.separator;
+	// Read the archive
+	ZipInputStream zip = new ZipInputStream(in);
+	// Go threw the entries
+	for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+	    // Check if this is a folder
+	    if (entry.isDirectory())
+		// Folders are created with their files
+		continue;
+	    // Get the file
+	    File file = new File(dir, entry.getName());
+	    // Check that the file is in the folder
+	    if (!file.getCanonicalPath().startsWith(root))
+		// Corrupted
+		throw new IOException("invalid entry in coverage archive: " + entry.getName());
+	    // Create its folder
+	    file.getParentFile().mkdirs();
+	    // Open the file
+	    OutputStream out = new FileOutputStream(file);
+	    try {
+		// Copy the content of the entry, counting its bytes
+		bytes += IOUtils.copyLarge(zip, out);
+	    } finally {
+		// Close the file
+		out.close();
+	    }
+	    // Keep the modification time
+	    if (entry.getTime() != -1)
+		// Set it
+		file.setLastModified(entry.getTime());
+	}
+	// Return the number of bytes
+	return bytes;
+    }
+}
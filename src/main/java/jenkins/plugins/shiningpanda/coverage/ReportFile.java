@@ -0,0 +1,130 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+public abstract class ReportFile {
+
+    /**
+     * The name of the file.
+     */
+    private final String name;
+
+    /**
+     * The last modification time.
+     */
+    private final long lastModified;
+
+    /**
+     * The size of the file.
+     */
+    private final long length;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param name
+     *            The name of the file
+     * @param lastModified
+     *            The last modification time
+     * @param length
+     *            The size of the file
+     */
+    protected ReportFile(String name, long lastModified, long length) {
+	// Call super
+	super();
+	// Store the name
+	this.name = name;
+	// Store the modification time
+	this.lastModified = lastModified;
+	// Store the size
+	this.length = length;
+    }
+
+    /**
+     * Get the name of the file, without its folder.
+     * 
+     * @return The name
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Get the last modification time.
+     * 
+     * @return The time in milliseconds
+     */
+    public long lastModified() {
+	return lastModified;
+    }
+
+    /**
+     * Get the size of the file.
+     * 
+     * @return The size in bytes
+     */
+    public long length() {
+	return length;
+    }
+
+    /**
+     * Open the file.
+     * 
+     * @return The content of the file
+     * @throws IOException
+     */
+    public abstract InputStream open() throws IOException;
+
+    /**
+     * Get a strong entity tag identifying the content of the file.
+     * 
+     * @return The tag, without quotes, null if unknown
+     */
+    public String getETag() {
+	return null;
+    }
+
+    /**
+     * Get the file on disk holding the content as is, so that it can be
+     * transferred without being decoded.
+     * 
+     * @return The file, null if the content has to be decoded
+     */
+    public File getFile() {
+	return null;
+    }
+
+    /**
+     * Get the content compressed with gzip, prepared when the reports were
+     * archived.
+     * 
+     * @return The compressed content, null if not available
+     * @throws IOException
+     */
+    public ReportFile getGzip() throws IOException {
+	return null;
+    }
+}
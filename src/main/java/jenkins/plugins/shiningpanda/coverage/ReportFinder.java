@@ -0,0 +1,152 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+
+import hudson.Util;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class ReportFinder {
+
+    /**
+     * Maximal depth of the folders walked threw.
+     */
+    private static final int MAX_DEPTH = Integer.getInteger(ReportFinder.class.getName() + ".maxDepth", 30);
+
+    /**
+     * Folders never containing reports: version control metadata and caches.
+     */
+    private static final Set<String> PRUNED = new HashSet<String>(
+	    Arrays.asList(".git", ".hg", ".svn", ".bzr", "CVS", "_darcs", "node_modules", "__pycache__"));
+
+    /**
+     * Look for the reports of a workspace.
+     * 
+     * @param root
+     *            The workspace
+     * @param pattern
+     *            The Ant pattern of the report folders, null to look in the
+     *            whole workspace
+     * @return The paths of the report folders, sorted
+     * @throws IOException
+     */
+    public static List<String> find(File root, String pattern) throws IOException {
+	// Store the reports
+	List<String> dirs = new ArrayList<String>();
+	// Check if a pattern is provided
+	if (pattern != null) {
+	    // Get a scanner
+	    DirectoryScanner ds = Util.createFileSet(root, pattern + "/" + CoveragePublisher.JS)
+		    .getDirectoryScanner(new Project());
+	    // Go threw the script files
+	    for (String js : ds.getIncludedFiles()) {
+		// Get the folder
+		File dir = new File(root, js).getParentFile();
+		// Check that this is a report
+		if (isReport(dir))
+		    // Add it
+		    dirs.add(dir.getPath());
+	    }
+	}
+	// Else look in the whole workspace
+	else
+	    // Walk threw the workspace
+	    walk(root, 0, dirs);
+	// Sort the reports
+	Collections.sort(dirs);
+	// Return the reports
+	return dirs;
+    }
+
+    /**
+     * Look for the reports of a folder, recursively.
+     * 
+     * @param dir
+     *            The folder
+     * @param depth
+     *            The depth of the folder in the workspace
+     * @param dirs
+     *            The paths of the report folders
+     * @throws IOException
+     */
+    private static void walk(File dir, int depth, List<String> dirs) throws IOException {
+	// Check if this is a report, nested reports are also looked for
+	if (isReport(dir))
+	    // Add it
+	    dirs.add(dir.getPath());
+	// Check if the maximal depth is reached
+	if (depth >= MAX_DEPTH)
+	    // Do not go deeper
+	    return;
+	// List the files
+	File[] children = dir.listFiles();
+	// Check if this is a folder
+	if (children == null)
+	    // Nothing to walk threw
+	    return;
+	// Go threw the files
+	for (File child : children)
+	    // Check if this folder may contain reports
+	    if (child.isDirectory() && !isPruned(child))
+		// Walk threw it
+		walk(child, depth + 1, dirs);
+    }
+
+    /**
+     * Check if a folder can not contain reports: version control metadata,
+     * caches, virtual environments or links that may create cycles.
+     * 
+     * @param dir
+     *            The folder
+     * @return True if the folder is ignored, else false
+     * @throws IOException
+     */
+    public static boolean isPruned(File dir) throws IOException {
+	return PRUNED.contains(dir.getName()) || new File(dir, "pyvenv.cfg").isFile()
+		|| new File(dir, "bin/activate").isFile() || new File(dir, "Scripts/activate.bat").isFile()
+		|| Util.isSymlink(dir);
+    }
+
+    /**
+     * Check if a folder is a report.
+     * 
+     * @param dir
+     *            The folder
+     * @return True if this is a report, else false
+     */
+    public static boolean isReport(File dir) {
+	return new File(dir, CoveragePublisher.JS).isFile() && new File(dir, CoveragePublisher.INDEX).isFile()
+		&& (new File(dir, CoveragePublisher.STATUS).isFile()
+			|| new File(dir, CoveragePublisher.STATUS_LTE_3).isFile());
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.util.AtomicFileWriter;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class ReportIndex {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ReportIndex.class.getName());
+
+    /**
+     * Name of the index file, stored next to the archived reports folder.
+     */
+    public static final String FILENAME = CoveragePublisher.BASENAME + ".reports";
+
+    /**
+     * Line used for a report stored at the root of the archived reports
+     * folder.
+     */
+    private static final String ROOT = ".";
+
+    /**
+     * Maximum number of indexes kept in memory.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(ReportIndex.class.getName() + ".cacheSize", 1000);
+
+    /**
+     * The indexes in memory by archived reports folder.
+     */
+    private static final Map<File, ReportIndex> CACHE = Collections
+	    .synchronizedMap(new LinkedHashMap<File, ReportIndex>(16, 0.75f, true) {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.
+		 * Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, ReportIndex> eldest) {
+		    return size() > CACHE_SIZE;
+		}
+	    });
+
+    /**
+     * The relative paths to the reports, blank for a report at the root of
+     * the archived reports folder.
+     */
+    private final List<String> reports;
+
+    /**
+     * Last modification time of the index file when it was read, 0 if it did
+     * not exist.
+     */
+    private final long timestamp;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param reports
+     *            The relative paths to the reports
+     * @param timestamp
+     *            The last modification time of the index file
+     */
+    private ReportIndex(List<String> reports, long timestamp) {
+	// Call super
+	super();
+	// Store the reports
+	this.reports = Collections.unmodifiableList(reports);
+	// Store the timestamp
+	this.timestamp = timestamp;
+    }
+
+    /**
+     * Get the relative paths to the reports.
+     * 
+     * @return The list of relative paths, blank for a report at the root
+     */
+    public List<String> getReports() {
+	return reports;
+    }
+
+    /**
+     * Check if the index contains at least one report.
+     * 
+     * @return True if contains reports, else false
+     */
+    public boolean hasReports() {
+	return !reports.isEmpty();
+    }
+
+    /**
+     * Check if the archived reports folder is itself a report.
+     * 
+     * @return True if this is a single report, else false
+     */
+    public boolean isSingle() {
+	return reports.size() == 1 && reports.get(0).length() == 0;
+    }
+
+    /**
+     * Get the index file of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The index file
+     */
+    public static File getFile(File base) {
+	return new File(base.getParentFile(), FILENAME);
+    }
+
+    /**
+     * Get the index of an archived reports folder. The index file is read
+     * once and kept in memory until it changes. Builds archived before the
+     * index existed are scanned and indexed on first access.
+     * 
+     * @param base
+     *            The archived reports folder, can be null
+     * @return The index
+     */
+    public static ReportIndex get(File base) {
+	// Check if got a folder
+	if (base == null)
+	    // No report
+	    return new ReportIndex(new ArrayList<String>(), 0);
+	// Get the index file
+	File file = getFile(base);
+	// Get its modification time, 0 if it does not exist
+	long timestamp = file.lastModified();
+	// Look for the index in memory
+	ReportIndex index = CACHE.get(base);
+	// Check if still valid
+	if (index != null && index.timestamp == timestamp)
+	    // Return it
+	    return index;
+	// Check if the index file exists
+	if (timestamp != 0) {
+	    try {
+		// Read it
+		index = load(file);
+	    } catch (IOException e) {
+		// Log
+		LOGGER.log(Level.WARNING, "failed to read coverage report index " + file, e);
+		// Fallback on a scan
+		index = new ReportIndex(scan(base), timestamp);
+	    }
+	}
+	// Check if there is something to index
+	else if (ReportStore.isArchived(base))
+	    // Index the reports of this old build
+	    index = save(base, scan(base));
+	// Nothing archived
+	else
+	    // Remember that there is no report
+	    index = new ReportIndex(new ArrayList<String>(), 0);
+	// Keep it in memory
+	CACHE.put(base, index);
+	// Return the index
+	return index;
+    }
+
+    /**
+     * Write the index of an archived reports folder and keep it in memory.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @param reports
+     *            The relative paths to the reports
+     * @return The index
+     */
+    public static ReportIndex save(File base, List<String> reports) {
+	// Get the index file
+	File file = getFile(base);
+	try {
+	    // Get a writer replacing the index file once complete
+	    AtomicFileWriter writer = new AtomicFileWriter(file);
+	    try {
+		// Go threw the reports
+		for (String report : reports)
+		    // Write the report path
+		    writer.write((report.length() == 0 ? ROOT : report) + "\n");
+		// Replace the index file
+		writer.commit();
+	    } finally {
+		// Cleanup if not committed
+		writer.abort();
+	    }
+	} catch (IOException e) {
+	    // Log, the reports will be scanned again
+	    LOGGER.log(Level.WARNING, "failed to write coverage report index " + file, e);
+	}
+	// Create the index
+	ReportIndex index = new ReportIndex(new ArrayList<String>(reports), file.lastModified());
+	// Keep it in memory
+	CACHE.put(base, index);
+	// Return the index
+	return index;
+    }
+
+    /**
+     * Read an index file.
+     * 
+     * @param file
+     *            The index file
+     * @return The index
+     * @throws IOException
+     */
+    static ReportIndex load(File file) throws IOException {
+	// Get the timestamp before reading
+	long timestamp = file.lastModified();
+	// Store the reports
+	List<String> reports = new ArrayList<String>();
+	// Go threw the lines
+	for (String line : FileUtils.readLines(file, "UTF-8"))
+	    // Check that not blank
+	    if (line.length() != 0)
+		// Add the report
+		reports.add(ROOT.equals(line) ? "" : line);
+	// Return the index
+	return new ReportIndex(reports, timestamp);
+    }
+
+    /**
+     * Look for the reports of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The list of relative paths to reports
+     */
+    public static List<String> scan(File base) {
+	// Get the store of the reports
+	ReportStore store = ReportStore.get(base);
+	// Look for the reports if archived
+	return store == null ? new ArrayList<String>() : store.scan();
+    }
+
+    /**
+     * Check if the provided folder is a report folder.
+     * 
+     * @param base
+     *            The folder to check
+     * @return True if this is a report, else false
+     */
+    public static boolean isReport(File base) {
+	// Check that not null and that the three file exists
+	return base != null && new File(base, CoveragePublisher.INDEX).exists()
+		&& new File(base, CoveragePublisher.JS).exists()
+		&& (new File(base, CoveragePublisher.STATUS_LTE_3).exists()
+			|| new File(base, CoveragePublisher.STATUS).exists());
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class ReportParser {
+
+    /**
+     * Extension of the pages.
+     */
+    private static final String HTML = ".html";
+
+    /**
+     * The title of a page showing the coverage of a source file.
+     */
+    private static final Pattern TITLE = Pattern.compile("<title>\\s*Coverage for (.*?):\\s*\\d+%\\s*</title>",
+	    Pattern.DOTALL);
+
+    /**
+     * A line of source, written on a single line by all the versions of
+     * coverage.py.
+     */
+    private static final Pattern LINE = Pattern.compile("^<p(?: id=\"\\w+\")? class=\"([^\"]*)\">(.*)</p>$");
+
+    /**
+     * The number of a line of source, on the paragraph up to coverage.py 5
+     * and on the anchor of the number after.
+     */
+    private static final Pattern NUMBER = Pattern.compile("id=\"t(\\d+)\"");
+
+    /**
+     * The annotations of partial branches, inlined in the source up to
+     * coverage.py 4.
+     */
+    private static final Pattern ANNOTATE = Pattern.compile("<span class=\"annotate[^\"]*\"[^>]*>.*?</span>");
+
+    /**
+     * The trailing space of the source up to coverage.py 4.
+     */
+    private static final String STRUT = "<span class=\"strut\">&nbsp;</span>";
+
+    /**
+     * The start of the number of a line since coverage.py 5.
+     */
+    private static final String NUMBER_SPAN = "<span class=\"n\">";
+
+    /**
+     * The start of the source of a line since coverage.py 5.
+     */
+    private static final String TEXT_SPAN = "<span class=\"t\">";
+
+    /**
+     * The end of the source of a line since coverage.py 5, followed by the
+     * annotations.
+     */
+    private static final String TEXT_END = "</span><span class=\"r\">";
+
+    /**
+     * The non-breaking space ending the source of the lines.
+     */
+    private static final String NBSP = "&nbsp;";
+
+    /**
+     * List the pages of a report that may show the coverage of a source
+     * file.
+     * 
+     * @param dir
+     *            The report folder
+     * @return The pages, sorted by name
+     */
+    public static List<File> getPages(File dir) {
+	// Get the pages
+	File[] files = dir.listFiles(new FileFilter() {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see java.io.FileFilter#accept(java.io.File)
+	     */
+	    public boolean accept(File file) {
+		return file.isFile() && file.getName().endsWith(HTML)
+			&& !CoveragePublisher.INDEX.equals(file.getName());
+	    }
+	});
+	// Check if listed
+	if (files == null)
+	    // No page
+	    return new ArrayList<File>();
+	// Sort them
+	Arrays.sort(files);
+	// Return the pages
+	return Arrays.asList(files);
+    }
+
+    /**
+     * Read a page of a report.
+     * 
+     * @param file
+     *            The page
+     * @return The source, null if this page does not show the coverage of a
+     *         source file
+     * @throws IOException
+     */
+    public static Source parse(File file) throws IOException {
+	return parse(FileUtils.readFileToString(file, "UTF-8"));
+    }
+
+    /**
+     * Read a page of a report.
+     * 
+     * @param html
+     *            The content of the page
+     * @return The source, null if this page does not show the coverage of a
+     *         source file
+     */
+    public static Source parse(String html) {
+	// Look for the title
+	Matcher title = TITLE.matcher(html);
+	// Check if this page shows a source file
+	if (!title.find())
+	    // Not a source page
+	    return null;
+	// Store the lines by number
+	SortedMap<Integer, String[]> lines = new TreeMap<Integer, String[]>();
+	// Go threw the lines of the page
+	for (String raw : html.split("\n")) {
+	    // Check if this is a line of source
+	    Matcher line = LINE.matcher(raw.trim());
+	    // Check if matches
+	    if (!line.matches())
+		// Next line
+		continue;
+	    // Look for the number of the line
+	    Matcher number = NUMBER.matcher(raw);
+	    // Check if found
+	    if (!number.find())
+		// Line numbers column of coverage.py up to 4
+		continue;
+	    // Get the line
+	    lines.put(Integer.parseInt(number.group(1)),
+		    new String[] { String.valueOf(getState(line.group(1))), getText(line.group(2)) });
+	}
+	// Check if some lines were found
+	if (lines.isEmpty())
+	    // Not a source page
+	    return null;
+	// Get the number of lines
+	int size = lines.lastKey();
+	// Store the states
+	char[] states = new char[size];
+	// Store the source lines
+	String[] text = new String[size];
+	// Go threw the lines
+	for (int i = 0; i < size; i++) {
+	    // Get the line
+	    String[] line = lines.get(i + 1);
+	    // Store its state, lines not found are plain
+	    states[i] = line == null ? CoverageData.PLAIN : line[0].charAt(0);
+	    // Store its source
+	    text[i] = line == null ? "" : line[1];
+	}
+	// Return the source
+	return new Source(unescape(title.group(1)), states, StringUtils.join(text, "\n"));
+    }
+
+    /**
+     * Get the state of a line from its classes.
+     * 
+     * @param classes
+     *            The classes of the line
+     * @return The state
+     */
+    private static char getState(String classes) {
+	// Get the classes
+	List<String> names = Arrays.asList(classes.split("\\s+"));
+	// Check if not executed
+	if (names.contains("mis"))
+	    // Missing
+	    return CoverageData.MISSING;
+	// Check if some branches were not taken
+	if (names.contains("par"))
+	    // Partial
+	    return CoverageData.PARTIAL;
+	// Check if excluded
+	if (names.contains("exc"))
+	    // Excluded
+	    return CoverageData.EXCLUDED;
+	// Check if executed
+	if (names.contains("run"))
+	    // Run
+	    return CoverageData.RUN;
+	// Not a statement
+	return CoverageData.PLAIN;
+    }
+
+    /**
+     * Get the highlighted source of a line, without its number, its
+     * annotations and its trailing space.
+     * 
+     * @param body
+     *            The content of the paragraph of the line
+     * @return The source
+     */
+    private static String getText(String body) {
+	// Store the source
+	String text;
+	// Check if this is the layout of coverage.py 5 and later
+	if (body.startsWith(NUMBER_SPAN) && body.contains(TEXT_SPAN)) {
+	    // Get the start of the source
+	    int start = body.indexOf(TEXT_SPAN) + TEXT_SPAN.length();
+	    // Get the end of the source
+	    int end = body.lastIndexOf(TEXT_END);
+	    // Check if annotations follow
+	    if (end < start)
+		// The source ends with the paragraph
+		end = body.lastIndexOf("</span>");
+	    // Get the source
+	    text = end < start ? body.substring(start) : body.substring(start, end);
+	}
+	// Else this is the layout of coverage.py 4 and before
+	else
+	    // Remove the annotations and the trailing space
+	    text = ANNOTATE.matcher(body).replaceAll("").replace(STRUT, "");
+	// Remove the trailing non-breaking spaces
+	while (text.endsWith(NBSP))
+	    // Remove one
+	    text = text.substring(0, text.length() - NBSP.length());
+	// Return the source
+	return text;
+    }
+
+    /**
+     * Decode the entities of a text.
+     * 
+     * @param text
+     *            The text
+     * @return The decoded text
+     */
+    static String unescape(String text) {
+	// Store the decoded text
+	StringBuilder sb = new StringBuilder();
+	// Go threw the characters
+	for (int i = 0; i < text.length(); i++) {
+	    // Get the character
+	    char c = text.charAt(i);
+	    // Look for the end of an entity
+	    int end = c == '&' ? text.indexOf(';', i) : -1;
+	    // Check if this is an entity
+	    if (end == -1) {
+		// Keep the character
+		sb.append(c);
+		// Next character
+		continue;
+	    }
+	    // Get the entity
+	    String entity = text.substring(i + 1, end);
+	    // Store the decoded character
+	    String decoded = null;
+	    // Check for the named entities
+	    if ("amp".equals(entity))
+		// Ampersand
+		decoded = "&";
+	    else if ("lt".equals(entity))
+		// Less than
+		decoded = "<";
+	    else if ("gt".equals(entity))
+		// Greater than
+		decoded = ">";
+	    else if ("quot".equals(entity))
+		// Double quote
+		decoded = "\"";
+	    else if ("apos".equals(entity))
+		// Single quote
+		decoded = "'";
+	    // Check for the decimal entities
+	    else if (entity.matches("#[0-9]{1,7}"))
+		// Decode the code point
+		decoded = toString(Integer.parseInt(entity.substring(1)));
+	    // Check for the hexadecimal entities
+	    else if (entity.matches("#[xX][0-9a-fA-F]{1,6}"))
+		// Decode the code point
+		decoded = toString(Integer.parseInt(entity.substring(2), 16));
+	    // Check if decoded
+	    if (decoded == null)
+		// Keep the character
+		sb.append(c);
+	    // Else add the decoded character
+	    else {
+		// Add it
+		sb.append(decoded);
+		// Skip the entity
+		i = end;
+	    }
+	}
+	// Return the decoded text
+	return sb.toString();
+    }
+
+    /**
+     * Get the character of a code point.
+     * 
+     * @param codePoint
+     *            The code point
+     * @return The character, null if the code point is not valid
+     */
+    private static String toString(int codePoint) {
+	return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+    }
+
+    /**
+     * The coverage of a source file read from a page.
+     */
+    public static class Source {
+
+	/**
+	 * The path of the source file.
+	 */
+	private final String path;
+
+	/**
+	 * The states of the lines.
+	 */
+	private final char[] states;
+
+	/**
+	 * The highlighted source, one line per line of source.
+	 */
+	private final String text;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param path
+	 *            The path of the source file
+	 * @param states
+	 *            The states of the lines
+	 * @param text
+	 *            The highlighted source, one line per line of source
+	 */
+	private Source(String path, char[] states, String text) {
+	    // Call super
+	    super();
+	    // Store the path
+	    this.path = path;
+	    // Store the states
+	    this.states = states;
+	    // Store the source
+	    this.text = text;
+	}
+
+	/**
+	 * Get the path of the source file.
+	 * 
+	 * @return The path
+	 */
+	public String getPath() {
+	    return path;
+	}
+
+	/**
+	 * Get the states of the lines.
+	 * 
+	 * @return The states
+	 */
+	public char[] getStates() {
+	    return states;
+	}
+
+	/**
+	 * Get the highlighted source.
+	 * 
+	 * @return The source, one line per line of source
+	 */
+	public String getText() {
+	    return text;
+	}
+    }
+}
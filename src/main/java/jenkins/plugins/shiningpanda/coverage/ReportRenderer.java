@@ -0,0 +1,269 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.util.List;
+import java.util.Locale;
+
+import hudson.Util;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class ReportRenderer {
+
+    /**
+     * The style of the pages, inlined so that a report needs no other file.
+     */
+    private static final String STYLE = "body{font-family:sans-serif;font-size:13px;margin:1em}"
+	    + "h1{font-size:18px}p.stats span{margin-right:1em}"
+	    + "table.index{border-collapse:collapse}table.index td,table.index th{padding:2px 8px;text-align:right}"
+	    + "table.index td.name,table.index th.name{text-align:left}table.index tr.total{font-weight:bold}"
+	    + "table.index th{border-bottom:1px solid #ccc}table.index tr.total td{border-top:1px solid #ccc}"
+	    + "table.source{border-collapse:collapse;font-family:monospace;white-space:pre;width:100%}"
+	    + "table.source td{padding:0 8px}td.n{width:1%;text-align:right;color:#999;border-right:3px solid #fff}"
+	    + "td.n a{color:inherit;text-decoration:none}tr.run td.n{border-right-color:#9d9}"
+	    + "tr.mis td.n{border-right-color:#e88}tr.mis td.t{background:#fdd}"
+	    + "tr.par td.n{border-right-color:#dd6}tr.par td.t{background:#ffc}tr.exc td.t{color:#999}"
+	    + ".key{font-weight:bold}.str{color:#036}.com{color:#888;font-style:italic}.num{color:#033}";
+
+    /**
+     * Render the page of a source file.
+     * 
+     * @param path
+     *            The path of the source file
+     * @param states
+     *            The states of the lines
+     * @param source
+     *            The highlighted source, one line per line of source
+     * @param counts
+     *            The counts of the file
+     * @return The page
+     */
+    public static String renderPage(String path, char[] states, String source, CoverageCounts counts) {
+	// Get the lines of the source
+	String[] lines = source.split("\n", -1);
+	// Get the title
+	String title = "Coverage for " + Util.xmlEscape(path) + ": " + percent(counts) + "%";
+	// Store the page
+	StringBuilder html = new StringBuilder();
+	// Write the header
+	header(html, title);
+	// Write the statistics
+	html.append("<p class=\"stats\"><span>").append(counts.getStatements()).append(" statements</span><span>")
+		.append(counts.getStatements() - counts.getMissing()).append(" run</span><span>")
+		.append(counts.getMissing()).append(" missing</span><span>").append(counts.getExcluded())
+		.append(" excluded</span>");
+	// Check if branches were measured
+	if (counts.getBranches() != 0)
+	    // Write the partial branches
+	    html.append("<span>").append(counts.getPartialBranches()).append(" partial</span>");
+	// Write the link to the index
+	html.append("<a href=\"").append(CoveragePublisher.INDEX).append("\">&laquo; index</a></p>");
+	// Open the table of the lines
+	html.append("<table class=\"source\">");
+	// Go threw the lines
+	for (int i = 0; i < states.length; i++)
+	    // Write the line
+	    html.append("<tr id=\"t").append(i + 1).append("\" class=\"").append(getClass(states[i]))
+		    .append("\"><td class=\"n\"><a href=\"#t").append(i + 1).append("\">").append(i + 1)
+		    .append("</a></td><td class=\"t\">").append(i < lines.length ? lines[i] : "")
+		    .append("</td></tr>");
+	// Close the table
+	html.append("</table>");
+	// Write the footer
+	footer(html);
+	// Return the page
+	return html.toString();
+    }
+
+    /**
+     * Render the index of a report.
+     * 
+     * @param title
+     *            The title of the report
+     * @param rows
+     *            The files of the report
+     * @return The page
+     */
+    public static String renderIndex(String title, List<Row> rows) {
+	// Store the page
+	StringBuilder html = new StringBuilder();
+	// Get the totals
+	CoverageCounts totals = new CoverageCounts();
+	// Go threw the files
+	for (Row row : rows)
+	    // Add their counts
+	    totals.add(row.counts);
+	// Write the header
+	header(html, Util.xmlEscape(title) + ": " + percent(totals) + "%");
+	// Open the table of the files
+	html.append("<table class=\"index\"><tr><th class=\"name\">Module</th><th>statements</th>")
+		.append("<th>missing</th><th>excluded</th><th>branches</th><th>partial</th><th>coverage</th></tr>");
+	// Go threw the files
+	for (Row row : rows)
+	    // Write the file, linked to its page if any
+	    row(html, row.name == null ? Util.xmlEscape(row.path)
+		    : "<a href=\"" + Util.rawEncode(row.name) + "\">" + Util.xmlEscape(row.path) + "</a>", "",
+		    row.counts);
+	// Write the totals
+	row(html, "Total", " class=\"total\"", totals);
+	// Close the table
+	html.append("</table>");
+	// Write the footer
+	footer(html);
+	// Return the page
+	return html.toString();
+    }
+
+    /**
+     * Write a row of the index.
+     * 
+     * @param html
+     *            The page
+     * @param name
+     *            The content of the name cell
+     * @param attributes
+     *            The attributes of the row
+     * @param counts
+     *            The counts of the row
+     */
+    private static void row(StringBuilder html, String name, String attributes, CoverageCounts counts) {
+	// Write the cells
+	html.append("<tr").append(attributes).append("><td class=\"name\">").append(name).append("</td><td>")
+		.append(counts.getStatements()).append("</td><td>").append(counts.getMissing()).append("</td><td>")
+		.append(counts.getExcluded()).append("</td><td>").append(counts.getBranches()).append("</td><td>")
+		.append(counts.getPartialBranches()).append("</td><td>").append(percent(counts))
+		.append("%</td></tr>");
+    }
+
+    /**
+     * Write the start of a page.
+     * 
+     * @param html
+     *            The page
+     * @param title
+     *            The escaped title
+     */
+    private static void header(StringBuilder html, String title) {
+	// Write the head and the title
+	html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>").append(title)
+		.append("</title><style>").append(STYLE).append("</style></head><body><h1>").append(title)
+		.append("</h1>");
+    }
+
+    /**
+     * Write the end of a page.
+     * 
+     * @param html
+     *            The page
+     */
+    private static void footer(StringBuilder html) {
+	html.append("</body></html>\n");
+    }
+
+    /**
+     * Get the class of a line.
+     * 
+     * @param state
+     *            The state of the line
+     * @return The class
+     */
+    private static String getClass(char state) {
+	// Get the class of the state
+	switch (state) {
+	case CoverageData.RUN:
+	    return "run";
+	case CoverageData.MISSING:
+	    return "mis";
+	case CoverageData.PARTIAL:
+	    return "par";
+	case CoverageData.EXCLUDED:
+	    return "exc";
+	default:
+	    return "pln";
+	}
+    }
+
+    /**
+     * Format the covered percentage as coverage.py does, never showing 0 or
+     * 100 unless exact.
+     * 
+     * @param counts
+     *            The counts
+     * @return The percentage without decimals
+     */
+    static String percent(CoverageCounts counts) {
+	// Get the percentage
+	double percent = counts.getPercent();
+	// Check if not fully covered but rounded to 100
+	if (percent > 99 && percent < 100)
+	    // Show 99
+	    return "99";
+	// Check if not fully uncovered but rounded to 0
+	if (percent > 0 && percent < 1)
+	    // Show 1
+	    return "1";
+	// Round
+	return String.format(Locale.ENGLISH, "%.0f", percent);
+    }
+
+    /**
+     * A file of the index of a report.
+     */
+    public static class Row {
+
+	/**
+	 * The name of the page of the file.
+	 */
+	private final String name;
+
+	/**
+	 * The path of the file.
+	 */
+	private final String path;
+
+	/**
+	 * The counts of the file.
+	 */
+	private final CoverageCounts counts;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param name
+	 *            The name of the page of the file, null if there is no page
+	 * @param path
+	 *            The path of the file
+	 * @param counts
+	 *            The counts of the file
+	 */
+	public Row(String name, String path, CoverageCounts counts) {
+	    // Call super
+	    super();
+	    // Store the name of the page
+	    this.name = name;
+	    // Store the path
+	    this.path = path;
+	    // Store the counts
+	    this.counts = counts;
+	}
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+
+public class ReportSender {
+
+    /**
+     * Minimal size of the content sent by a file channel transfer rather
+     * than by a copy threw a buffer.
+     */
+    private static final long TRANSFER_THRESHOLD = Long.getLong(ReportSender.class.getName() + ".transferThreshold",
+	    64 * 1024);
+
+    /**
+     * Range returned when the requested range cannot be satisfied.
+     */
+    static final long[] UNSATISFIABLE = new long[0];
+
+    /**
+     * Send a report file, handling the conditional requests, the byte ranges
+     * and the compressed variant of the file.
+     * 
+     * @param req
+     *            The request
+     * @param rsp
+     *            The response
+     * @param file
+     *            The file
+     * @param contentType
+     *            The content type of the file, null if unknown
+     * @return The status of the response
+     * @throws IOException
+     */
+    public static int send(HttpServletRequest req, HttpServletResponse rsp, ReportFile file, String contentType)
+	    throws IOException {
+	// Get the compressed variant if the client accepts it
+	ReportFile gzip = acceptsGzip(req.getHeader("Accept-Encoding")) ? file.getGzip() : null;
+	// Get the content to send
+	ReportFile content = gzip == null ? file : gzip;
+	// Get the entity tag, distinct for the compressed variant
+	String tag = file.getETag() == null ? null : "\"" + file.getETag() + (gzip == null ? "" : "-gzip") + "\"";
+	// The content depends on the accepted encodings
+	rsp.setHeader("Vary", "Accept-Encoding");
+	// Check if the entity tag is known
+	if (tag != null)
+	    // Send it
+	    rsp.setHeader("ETag", tag);
+	// Send the modification time
+	rsp.setDateHeader("Last-Modified", file.lastModified());
+	// Check if the client already has this content
+	if (isNotModified(req, tag, file.lastModified())) {
+	    // Nothing to send
+	    rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+	    // Not modified
+	    return HttpServletResponse.SC_NOT_MODIFIED;
+	}
+	// Set the content type
+	rsp.setContentType(contentType == null ? "application/octet-stream" : contentType);
+	// Check if compressed
+	if (gzip != null)
+	    // Announce it
+	    rsp.setHeader("Content-Encoding", "gzip");
+	// Announce the support of byte ranges
+	rsp.setHeader("Accept-Ranges", "bytes");
+	// Get the size of the content
+	long length = content.length();
+	// Get the requested range, the full content by default
+	long[] range = null;
+	// Check if a range is requested and still applies
+	if (req.getHeader("Range") != null && isRangeValid(req, tag, file.lastModified()))
+	    // Read the range
+	    range = parseRange(req.getHeader("Range"), length);
+	// Check if the range is out of the content
+	if (range == UNSATISFIABLE) {
+	    // Send the size of the content
+	    rsp.setHeader("Content-Range", "bytes */" + length);
+	    // Send the error
+	    rsp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+	    // Not satisfiable
+	    return HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+	}
+	// Store the status
+	int status = HttpServletResponse.SC_OK;
+	// Check if a range is sent
+	if (range != null) {
+	    // Partial content
+	    status = HttpServletResponse.SC_PARTIAL_CONTENT;
+	    // Set the status
+	    rsp.setStatus(status);
+	    // Send the range
+	    rsp.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+	}
+	// Get the first byte to send
+	long start = range == null ? 0 : range[0];
+	// Get the number of bytes to send
+	long count = range == null ? length : range[1] - range[0] + 1;
+	// Send the size of the body
+	rsp.setHeader("Content-Length", Long.toString(count));
+	// Check if the body is requested
+	if ("HEAD".equals(req.getMethod()))
+	    // Headers only
+	    return status;
+	// Get the output stream
+	OutputStream out = rsp.getOutputStream();
+	// Check if the content can be sent from a file as is
+	if (content.getFile() != null && count >= TRANSFER_THRESHOLD)
+	    // Transfer the file
+	    transfer(content.getFile(), start, count, out);
+	// Else read the content
+	else {
+	    // Open the content
+	    InputStream in = content.open();
+	    try {
+		// Copy the requested bytes
+		IOUtils.copyLarge(in, out, start, count);
+	    } finally {
+		// Close the content
+		in.close();
+	    }
+	}
+	// Return the status
+	return status;
+    }
+
+    /**
+     * Send a part of a file by a file channel transfer.
+     * 
+     * @param file
+     *            The file
+     * @param start
+     *            The first byte to send
+     * @param count
+     *            The number of bytes to send
+     * @param out
+     *            The output stream
+     * @throws IOException
+     */
+    private static void transfer(File file, long start, long count, OutputStream out) throws IOException {
+	// Open the file
+	FileInputStream in = new FileInputStream(file);
+	try {
+	    // Get the channel of the file
+	    FileChannel channel = in.getChannel();
+	    // Get a channel on the output stream, not closed to keep the
+	    // response open
+	    WritableByteChannel target = Channels.newChannel(out);
+	    // Go threw the bytes to send
+	    for (long position = start; position < start + count;) {
+		// Transfer some bytes
+		long sent = channel.transferTo(position, start + count - position, target);
+		// Check if the file was truncated
+		if (sent <= 0)
+		    // Truncated
+		    throw new EOFException(file.getPath());
+		// Next bytes
+		position += sent;
+	    }
+	} finally {
+	    // Close the file
+	    in.close();
+	}
+    }
+
+    /**
+     * Check if a client accepts gzip compressed content.
+     * 
+     * @param header
+     *            The Accept-Encoding header, can be null
+     * @return True if gzip is accepted, else false
+     */
+    static boolean acceptsGzip(String header) {
+	// Check if there is a header
+	if (header == null)
+	    // Not accepted
+	    return false;
+	// Go threw the encodings
+	for (String encoding : header.split(",")) {
+	    // Split the name and the parameters
+	    String[] fields = encoding.trim().split(";");
+	    // Check the name
+	    if (!"gzip".equalsIgnoreCase(fields[0].trim()))
+		// Next
+		continue;
+	    // Go threw the parameters
+	    for (int i = 1; i < fields.length; i++)
+		// Check if explicitly refused
+		if (fields[i].trim().replace(" ", "").matches("q=0(\\.0*)?"))
+		    // Not accepted
+		    return false;
+	    // Accepted
+	    return true;
+	}
+	// Not accepted
+	return false;
+    }
+
+    /**
+     * Check if the content the client already has is still valid.
+     * 
+     * @param req
+     *            The request
+     * @param tag
+     *            The entity tag of the content, null if unknown
+     * @param lastModified
+     *            The modification time of the content
+     * @return True if not modified, else false
+     */
+    private static boolean isNotModified(HttpServletRequest req, String tag, long lastModified) {
+	// Get the entity tags of the client
+	String match = req.getHeader("If-None-Match");
+	// Check if provided, they take precedence over the time
+	if (match != null)
+	    // Check if one of them matches
+	    return tag != null && matches(match, tag);
+	try {
+	    // Get the time of the content of the client
+	    long since = req.getDateHeader("If-Modified-Since");
+	    // Check if not modified since, dates are in seconds
+	    return since != -1 && lastModified / 1000 <= since / 1000;
+	} catch (IllegalArgumentException e) {
+	    // Invalid date, send the content
+	    return false;
+	}
+    }
+
+    /**
+     * Check if a list of entity tags matches an entity tag, using the weak
+     * comparison.
+     * 
+     * @param header
+     *            The list of entity tags, or a wildcard
+     * @param tag
+     *            The entity tag, with its quotes
+     * @return True if matches, else false
+     */
+    static boolean matches(String header, String tag) {
+	// Check if any content matches
+	if ("*".equals(header.trim()))
+	    // Matches
+	    return true;
+	// Go threw the entity tags
+	for (String candidate : header.split(",")) {
+	    // Remove the spaces
+	    candidate = candidate.trim();
+	    // Remove the weak indicator
+	    if (candidate.startsWith("W/"))
+		// Compare the opaque tag only
+		candidate = candidate.substring(2);
+	    // Check if equal
+	    if (candidate.equals(tag))
+		// Matches
+		return true;
+	}
+	// No match
+	return false;
+    }
+
+    /**
+     * Check if the range requested by a client still applies to the content,
+     * as the client may have a previous version of the content.
+     * 
+     * @param req
+     *            The request
+     * @param tag
+     *            The entity tag of the content, null if unknown
+     * @param lastModified
+     *            The modification time of the content
+     * @return True if the range applies, else false
+     */
+    private static boolean isRangeValid(HttpServletRequest req, String tag, long lastModified) {
+	// Get the condition
+	String condition = req.getHeader("If-Range");
+	// Check if there is one
+	if (condition == null)
+	    // The range always applies
+	    return true;
+	// Check if this is an entity tag, that requires a strong comparison
+	if (condition.trim().startsWith("\"") || condition.trim().startsWith("W/"))
+	    // Check if equal
+	    return condition.trim().equals(tag);
+	try {
+	    // Compare the dates, in seconds
+	    return req.getDateHeader("If-Range") / 1000 == lastModified / 1000;
+	} catch (IllegalArgumentException e) {
+	    // Invalid condition, send the whole content
+	    return false;
+	}
+    }
+
+    /**
+     * Read a single byte range.
+     * 
+     * @param header
+     *            The Range header
+     * @param length
+     *            The size of the content
+     * @return The first and the last byte of the range, null to send the
+     *         whole content or {@link #UNSATISFIABLE} if out of the content
+     */
+    static long[] parseRange(String header, long length) {
+	// Check the unit
+	if (!header.startsWith("bytes="))
+	    // Ignore unknown units
+	    return null;
+	// Get the range
+	String spec = header.substring("bytes=".length()).trim();
+	// Check if multiple ranges are requested
+	if (spec.indexOf(',') != -1)
+	    // Send the whole content, this is allowed
+	    return null;
+	// Get the separator
+	int index = spec.indexOf('-');
+	// Check if found
+	if (index == -1)
+	    // Invalid range
+	    return null;
+	try {
+	    // Check if this is a suffix range
+	    if (index == 0) {
+		// Get the number of bytes
+		long suffix = Long.parseLong(spec.substring(1).trim());
+		// Check if there is something to send
+		if (suffix <= 0 || length == 0)
+		    // Out of the content
+		    return UNSATISFIABLE;
+		// Return the last bytes
+		return new long[] { Math.max(0, length - suffix), length - 1 };
+	    }
+	    // Get the first byte
+	    long first = Long.parseLong(spec.substring(0, index).trim());
+	    // Get the last byte, the end of the content if not provided
+	    long last = index == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(index + 1).trim());
+	    // Check the order
+	    if (first < 0 || last < first)
+		// Invalid range
+		return null;
+	    // Check if in the content
+	    if (first >= length)
+		// Out of the content
+		return UNSATISFIABLE;
+	    // Return the range, truncated to the content
+	    return new long[] { first, Math.min(last, length - 1) };
+	} catch (NumberFormatException e) {
+	    // Invalid range
+	    return null;
+	}
+    }
+}
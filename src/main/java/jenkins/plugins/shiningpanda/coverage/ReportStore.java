@@ -0,0 +1,255 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public abstract class ReportStore {
+
+    /**
+     * Extension of the archive of the reports.
+     */
+    public static final String ZIP = ".zip";
+
+    /**
+     * Extension of the manifest of the deduplicated reports.
+     */
+    public static final String MANIFEST = ".manifest";
+
+    /**
+     * Extension of the coverage data from which the reports are rendered.
+     */
+    public static final String DATA = ".data";
+
+    /**
+     * Check if a file exists.
+     * 
+     * @param path
+     *            The path of the file, relative to the root of the store
+     * @return True if the file exists, else false
+     */
+    public abstract boolean exists(String path);
+
+    /**
+     * Check if a folder exists.
+     * 
+     * @param path
+     *            The path of the folder, relative to the root of the store
+     *            and blank for the root
+     * @return True if the folder exists, else false
+     */
+    public abstract boolean isDirectory(String path);
+
+    /**
+     * Get a file.
+     * 
+     * @param path
+     *            The path of the file, relative to the root of the store
+     * @return The file, null if it does not exist
+     * @throws IOException
+     */
+    public abstract ReportFile getFile(String path) throws IOException;
+
+    /**
+     * Look for the files with the provided name.
+     * 
+     * @param name
+     *            The name of the files
+     * @return The relative paths of the files
+     */
+    protected abstract List<String> find(String name);
+
+    /**
+     * Check if a folder exists in a listing of the files of a store.
+     * 
+     * @param files
+     *            The files, by relative path
+     * @param path
+     *            The path of the folder, blank for the root
+     * @return True if the folder exists, else false
+     */
+    protected static boolean isDirectory(SortedMap<String, ?> files, String path) {
+	// Get the prefix of the files of the folder
+	String prefix = path.length() == 0 ? "" : path + "/";
+	// Check if a file starts with this prefix
+	return !files.tailMap(prefix).isEmpty() && files.tailMap(prefix).firstKey().startsWith(prefix);
+    }
+
+    /**
+     * Look for the files with the provided name in a listing of the files of
+     * a store.
+     * 
+     * @param files
+     *            The files, by relative path
+     * @param name
+     *            The name of the files
+     * @return The relative paths of the files
+     */
+    protected static List<String> find(SortedMap<String, ?> files, String name) {
+	// Store the files
+	List<String> found = new ArrayList<String>();
+	// Go threw the files
+	for (String path : files.keySet())
+	    // Check the name of the file
+	    if (path.equals(name) || path.endsWith("/" + name))
+		// Add the file
+		found.add(path);
+	// Return the files
+	return found;
+    }
+
+    /**
+     * Look for the reports of the store.
+     * 
+     * @return The list of relative paths to reports, blank for a report at
+     *         the root
+     */
+    public List<String> scan() {
+	// Store reports
+	List<String> dirs = new ArrayList<String>();
+	// Check if the root is itself a report
+	if (isReport(""))
+	    // If yes, return it
+	    dirs.add("");
+	// Else look for multiple reports
+	else
+	    // Go threw the script files
+	    for (String file : find(CoveragePublisher.JS)) {
+		// Get the folder of the script
+		int index = file.lastIndexOf('/');
+		// Check that the folder is a report
+		if (index != -1 && isReport(file.substring(0, index)))
+		    // If this is one, add to the list
+		    dirs.add(file.substring(0, index));
+	    }
+	// Return the list of relative paths to reports
+	return dirs;
+    }
+
+    /**
+     * Check if a folder of the store is a report.
+     * 
+     * @param dir
+     *            The relative path of the folder, blank for the root
+     * @return True if this is a report, else false
+     */
+    public boolean isReport(String dir) {
+	// Get the prefix of the files
+	String prefix = dir.length() == 0 ? "" : dir + "/";
+	// Check that the three file exists
+	return exists(prefix + CoveragePublisher.INDEX) && exists(prefix + CoveragePublisher.JS)
+		&& (exists(prefix + CoveragePublisher.STATUS_LTE_3) || exists(prefix + CoveragePublisher.STATUS));
+    }
+
+    /**
+     * Get the archive storing the reports of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The archive
+     */
+    public static File getArchive(File base) {
+	return new File(base.getPath() + ZIP);
+    }
+
+    /**
+     * Get the manifest listing the deduplicated reports of an archived
+     * reports folder.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The manifest file
+     */
+    public static File getManifest(File base) {
+	return new File(base.getPath() + MANIFEST);
+    }
+
+    /**
+     * Get the coverage data from which the reports of an archived reports
+     * folder are rendered.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The data file
+     */
+    public static File getData(File base) {
+	return new File(base.getPath() + DATA);
+    }
+
+    /**
+     * Check if some reports were archived.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return True if archived as files, as an archive, as deduplicated files
+     *         or as coverage data, else false
+     */
+    public static boolean isArchived(File base) {
+	return base != null && (base.isDirectory() || getArchive(base).isFile() || getManifest(base).isFile()
+		|| getData(base).isFile());
+    }
+
+    /**
+     * Get the store of an archived reports folder.
+     * 
+     * @param base
+     *            The archived reports folder, can be null
+     * @return The store, only serving the summary if the full reports were
+     *         compacted, null if no report was archived
+     */
+    public static ReportStore get(File base) {
+	// Check if got a folder
+	if (base == null)
+	    // No store
+	    return null;
+	// Check if stored as files
+	if (base.isDirectory())
+	    // Read the files
+	    return new FolderStore(base);
+	// Get the archive
+	File archive = getArchive(base);
+	// Check if stored as an archive
+	if (archive.isFile())
+	    // Read the archive
+	    return ArchiveStore.get(archive);
+	// Get the manifest
+	File manifest = getManifest(base);
+	// Check if stored as deduplicated files
+	if (manifest.isFile())
+	    // Read the manifest
+	    return ManifestStore.get(manifest);
+	// Get the coverage data
+	File data = getData(base);
+	// Check if stored as coverage data
+	if (data.isFile())
+	    // Read the coverage data
+	    return DataStore.get(data);
+	// Serve the summary of compacted reports, if any
+	return SummaryStore.get(base);
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class StatusParser {
+
+    /**
+     * Number of counts in the "nums" of a file, without the leading precision
+     * of recent coverage.py versions and the number of files.
+     */
+    private static final int NUMS = 6;
+
+    /**
+     * Read the counts of the files of a report.
+     * 
+     * @param dir
+     *            The report folder
+     * @return The counts, by file name
+     * @throws IOException
+     */
+    public static SortedMap<String, CoverageCounts> parse(File dir) throws IOException {
+	// Get the status file of coverage >= 4
+	File json = new File(dir, CoveragePublisher.STATUS);
+	// Check if exists
+	if (json.isFile()) {
+	    // Open it
+	    InputStream in = new FileInputStream(json);
+	    try {
+		// Read it
+		return parseJson(in);
+	    } finally {
+		// Close it
+		in.close();
+	    }
+	}
+	// Open the status file of coverage <= 3
+	InputStream in = new FileInputStream(new File(dir, CoveragePublisher.STATUS_LTE_3));
+	try {
+	    // Read it
+	    return parsePickle(in);
+	} finally {
+	    // Close it
+	    in.close();
+	}
+    }
+
+    /**
+     * Read the counts of the files from a status.json file, without loading
+     * the whole document in memory.
+     * 
+     * @param in
+     *            The content of the file, not closed
+     * @return The counts, by file name
+     * @throws IOException
+     */
+    public static SortedMap<String, CoverageCounts> parseJson(InputStream in) throws IOException {
+	// Store the counts
+	SortedMap<String, CoverageCounts> files = new TreeMap<String, CoverageCounts>();
+	// Get the reader
+	JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(in, "UTF-8")));
+	// Open the document
+	reader.beginObject();
+	// Go threw the members
+	while (reader.hasNext())
+	    // Check if this is the files
+	    if ("files".equals(reader.nextName())) {
+		// Open the files
+		reader.beginObject();
+		// Go threw the files
+		while (reader.hasNext())
+		    // Read the file
+		    parseJsonFile(reader, reader.nextName(), files);
+		// Close the files
+		reader.endObject();
+	    }
+	    // Else ignore the member
+	    else
+		// Skip it
+		reader.skipValue();
+	// Return the counts
+	return files;
+    }
+
+    /**
+     * Read a file of a status.json file.
+     * 
+     * @param reader
+     *            The reader, on the file
+     * @param key
+     *            The key of the file
+     * @param files
+     *            The counts, by file name
+     * @throws IOException
+     */
+    private static void parseJsonFile(JsonReader reader, String key, SortedMap<String, CoverageCounts> files)
+	    throws IOException {
+	// Store the name of the file
+	String name = null;
+	// Store the counts
+	long[] nums = null;
+	// Open the file
+	reader.beginObject();
+	// Go threw the members
+	while (reader.hasNext()) {
+	    // Check if this is the index
+	    if (!"index".equals(reader.nextName())) {
+		// Skip it
+		reader.skipValue();
+		// Next
+		continue;
+	    }
+	    // Open the index
+	    reader.beginObject();
+	    // Go threw the members
+	    while (reader.hasNext()) {
+		// Get the name of the member
+		String member = reader.nextName();
+		// Check if this is the counts
+		if ("nums".equals(member) && reader.isArray()) {
+		    // Store the counts
+		    long[] values = new long[NUMS + 2];
+		    // Store the number of counts
+		    int count = 0;
+		    // Open the counts
+		    reader.beginArray();
+		    // Go threw the counts
+		    while (reader.hasNext())
+			// Check if there is room for it
+			if (count < values.length)
+			    // Read the count
+			    values[count++] = reader.nextLong();
+			// Else ignore it
+			else
+			    // Skip it
+			    reader.skipValue();
+		    // Close the counts
+		    reader.endArray();
+		    // Keep the last counts, skipping the number of files
+		    nums = last(values, count);
+		}
+		// Check if this is the name of the file
+		else if (("relative_filename".equals(member) || ("name".equals(member) && name == null))
+			&& !reader.isNull())
+		    // Read the name
+		    name = reader.nextString();
+		// Else ignore the member
+		else
+		    // Skip it
+		    reader.skipValue();
+	    }
+	    // Close the index
+	    reader.endObject();
+	}
+	// Close the file
+	reader.endObject();
+	// Check if the counts were found
+	if (nums != null)
+	    // Add the file
+	    files.put(name == null ? key : name.replace('\\', '/'),
+		    new CoverageCounts(nums[0], nums[2], nums[1], nums[3], nums[4], nums[5]));
+    }
+
+    /**
+     * Read the counts of the files from a pickled status.dat file.
+     * 
+     * @param in
+     *            The content of the file, not closed
+     * @return The counts, by file name
+     * @throws IOException
+     */
+    public static SortedMap<String, CoverageCounts> parsePickle(InputStream in) throws IOException {
+	// Store the counts
+	SortedMap<String, CoverageCounts> files = new TreeMap<String, CoverageCounts>();
+	// Read the status
+	Object status = new PickleReader(new BufferedInputStream(in)).read();
+	// Get the files
+	Object entries = status instanceof Map ? ((Map<?, ?>) status).get("files") : null;
+	// Check if found
+	if (!(entries instanceof Map))
+	    // No file
+	    return files;
+	// Go threw the files
+	for (Map.Entry<?, ?> entry : ((Map<?, ?>) entries).entrySet()) {
+	    // Get the index of the file
+	    Object index = entry.getValue() instanceof Map ? ((Map<?, ?>) entry.getValue()).get("index") : null;
+	    // Check if found
+	    if (!(index instanceof Map))
+		// Next
+		continue;
+	    // Get the counts
+	    Object nums = ((Map<?, ?>) index).get("nums");
+	    // Get the name
+	    Object name = ((Map<?, ?>) index).get("name");
+	    // Check if the counts are the state of a Numbers instance
+	    if (nums instanceof Map) {
+		// Get the state
+		Map<?, ?> state = (Map<?, ?>) nums;
+		// Add the file
+		files.put(name == null ? String.valueOf(entry.getKey()) : name.toString().replace('\\', '/'),
+			new CoverageCounts(get(state, "n_statements"), get(state, "n_missing"),
+				get(state, "n_excluded"), get(state, "n_branches"), get(state, "n_partial_branches"),
+				get(state, "n_missing_branches")));
+	    }
+	    // Check if the counts are a list
+	    else if (nums instanceof List) {
+		// Get the counts
+		List<?> list = (List<?>) nums;
+		// Store the values
+		long[] values = new long[Math.min(list.size(), NUMS + 2)];
+		// Go threw the values
+		for (int i = 0; i < values.length; i++)
+		    // Get the value
+		    values[i] = list.get(i) instanceof Number ? ((Number) list.get(i)).longValue() : 0;
+		// Get the last counts
+		long[] counts = last(values, values.length);
+		// Add the file
+		files.put(name == null ? String.valueOf(entry.getKey()) : name.toString().replace('\\', '/'),
+			new CoverageCounts(counts[0], counts[2], counts[1], counts[3], counts[4], counts[5]));
+	    }
+	}
+	// Return the counts
+	return files;
+    }
+
+    /**
+     * Get the counts of a file from its "nums": the number of files, then the
+     * statements, the excluded, the missing, the branches, the partial and
+     * the missing branches, maybe preceded by a precision.
+     * 
+     * @param values
+     *            The values
+     * @param count
+     *            The number of values
+     * @return The statements, the excluded, the missing, the branches, the
+     *         partial and the missing branches
+     */
+    private static long[] last(long[] values, int count) {
+	// Store the counts
+	long[] nums = new long[NUMS];
+	// Get the offset of the statements, after the number of files
+	int offset = Math.max(1, count - NUMS);
+	// Go threw the counts
+	for (int i = 0; i < NUMS && offset + i < count; i++)
+	    // Get the count
+	    nums[i] = values[offset + i];
+	// Return the counts
+	return nums;
+    }
+
+    /**
+     * Get a count of the state of a Numbers instance.
+     * 
+     * @param state
+     *            The state
+     * @param name
+     *            The name of the count
+     * @return The count, 0 if not found
+     */
+    private static long get(Map<?, ?> state, String name) {
+	// Get the value
+	Object value = state.get(name);
+	// Return it
+	return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
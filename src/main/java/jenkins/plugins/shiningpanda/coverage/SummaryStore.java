@@ -0,0 +1,198 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class SummaryStore extends ReportStore {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SummaryStore.class.getName());
+
+    /**
+     * The summary of the build.
+     */
+    private final CoverageSummary summary;
+
+    /**
+     * The last modification time of the index of the reports.
+     */
+    private final long lastModified;
+
+    /**
+     * The reports, by path of their index.
+     */
+    private final SortedMap<String, String> files = new TreeMap<String, String>();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param summary
+     *            The summary of the build
+     * @param reports
+     *            The relative paths of the reports
+     * @param lastModified
+     *            The last modification time of the index of the reports
+     */
+    protected SummaryStore(CoverageSummary summary, List<String> reports, long lastModified) {
+	// Call super
+	super();
+	// Store the summary
+	this.summary = summary;
+	// Store the modification time
+	this.lastModified = lastModified;
+	// Go threw the reports
+	for (String report : reports)
+	    // Add its index
+	    files.put(report.length() == 0 ? CoveragePublisher.INDEX : report + "/" + CoveragePublisher.INDEX, report);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#exists(java.lang.
+     * String)
+     */
+    @Override
+    public boolean exists(String path) {
+	return files.containsKey(path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.coverage.ReportStore#isDirectory(java.lang.
+     * String)
+     */
+    @Override
+    public boolean isDirectory(String path) {
+	return isDirectory(files, path);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#find(java.lang.
+     * String)
+     */
+    @Override
+    protected List<String> find(String name) {
+	return find(files, name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#scan()
+     */
+    @Override
+    public List<String> scan() {
+	return new ArrayList<String>(files.values());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * jenkins.plugins.shiningpanda.coverage.ReportStore#isReport(java.lang.
+     * String)
+     */
+    @Override
+    public boolean isReport(String dir) {
+	return files.containsValue(dir);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.coverage.ReportStore#getFile(java.lang.
+     * String)
+     */
+    @Override
+    public ReportFile getFile(String path) throws IOException {
+	// Get the report of the index
+	String report = files.get(path);
+	// Check if exists
+	if (report == null)
+	    // Not found
+	    return null;
+	// Get the summary of the report
+	CoverageSummary split = summary.split(files.values()).get(report);
+	// Store the rows
+	List<ReportRenderer.Row> rows = new ArrayList<ReportRenderer.Row>();
+	// Go threw the files of the report
+	for (Map.Entry<String, CoverageCounts> entry : split.getFiles().entrySet())
+	    // Add a row, without page
+	    rows.add(new ReportRenderer.Row(null, entry.getKey(), entry.getValue()));
+	// Render the index
+	String html = ReportRenderer.renderIndex("Coverage summary" + (report.length() == 0 ? "" : " " + report),
+		rows);
+	// Return the page
+	return new MemoryFile(CoveragePublisher.INDEX, lastModified,
+		Long.toHexString(lastModified) + "-" + Integer.toHexString(path.hashCode()), html.getBytes("UTF-8"));
+    }
+
+    /**
+     * Get the store of an archived reports folder whose full reports were
+     * compacted, serving the index of each report from the summary.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return The store, null if the summary or the index are missing
+     */
+    public static SummaryStore get(File base) {
+	// Get the index file
+	File index = ReportIndex.getFile(base);
+	// Check if exists, without scanning the reports
+	if (!index.isFile())
+	    // No index
+	    return null;
+	// Get the summary
+	CoverageSummary summary = CoverageSummary.get(base);
+	// Check if exists
+	if (summary == null)
+	    // No summary
+	    return null;
+	try {
+	    // Read the index, without falling back on a scan of the store
+	    return new SummaryStore(summary, ReportIndex.load(index).getReports(), index.lastModified());
+	} catch (IOException e) {
+	    // Log
+	    LOGGER.log(Level.WARNING, "failed to read coverage report index " + index, e);
+	    // No store
+	    return null;
+	}
+    }
+}
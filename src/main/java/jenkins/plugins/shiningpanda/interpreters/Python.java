@@ -34,6 +34,11 @@ public abstract class Python {
      */
     private FilePath home;
 
+    /**
+     * Name of the PYTHON installation this interpreter was resolved from.
+     */
+    private String installation;
+
     /**
      * Constructor using fields
      * 
@@ -68,6 +73,28 @@ public abstract class Python {
 	this.home = home;
     }
 
+    /**
+     * Get the name of the PYTHON installation this interpreter was resolved
+     * from.
+     * 
+     * @return The name of the installation, null if not resolved from an
+     *         installation
+     */
+    public String getInstallation() {
+	return installation;
+    }
+
+    /**
+     * Set the name of the PYTHON installation this interpreter was resolved
+     * from.
+     * 
+     * @param installation
+     *            The name of the installation
+     */
+    public void setInstallation(String installation) {
+	this.installation = installation;
+    }
+
     /**
      * Is this a CPython implementation?
      * 
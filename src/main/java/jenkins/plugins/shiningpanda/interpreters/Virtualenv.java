@@ -21,6 +21,7 @@
  */
 package jenkins.plugins.shiningpanda.interpreters;
 
+import java.io.FileFilter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
@@ -32,9 +33,12 @@ import hudson.Launcher;
 import hudson.Util;
 import hudson.model.TaskListener;
 import hudson.util.ArgumentListBuilder;
+import jenkins.plugins.shiningpanda.metrics.FlightEvent;
+import jenkins.plugins.shiningpanda.metrics.Metrics;
 import jenkins.plugins.shiningpanda.utils.EnvVarsUtil;
 import jenkins.plugins.shiningpanda.utils.FilePathUtil;
 import jenkins.plugins.shiningpanda.utils.LauncherUtil;
+import jenkins.plugins.shiningpanda.utils.PhaseTimer;
 import jenkins.plugins.shiningpanda.workspace.Workspace;
 
 public class Virtualenv extends Python {
@@ -109,7 +113,7 @@ public class Virtualenv extends Python {
 	// Check if on Windows
 	if (isWindows()) {
 	    // Check if activation script is in a bin folder or in a scripts one
-	    if (getHome().child("bin").child("activate.bat").exists())
+	    if (FilePathUtil.exists(getHome().child("bin").child("activate.bat")))
 		// In bin folder, add this folder to the PATH
 		environment.put("PATH+", getHome().child("bin").getRemote());
 	    // In a scripts one
@@ -170,10 +174,18 @@ public class Virtualenv extends Python {
      */
     public boolean isOutdated(Workspace workspace, Python interpreter, boolean systemSitePackages)
 	    throws IOException, InterruptedException {
+	// Begin the flight recorder event
+	FlightEvent event = FlightEvent.begin(FlightEvent.SIGNATURE);
 	// Out dated if invalid, or if no signature file, or if signatures
 	// differ
-	return !isValid() || !getSignatureFile().exists() || !FilePathUtil.read(getSignatureFile(), "UTF-8")
-		.equals(getSignature(workspace, interpreter, systemSitePackages));
+	boolean outdated = !isValid() || !FilePathUtil.exists(getSignatureFile()) || !FilePathUtil
+		.read(getSignatureFile(), "UTF-8").equals(getSignature(workspace, interpreter, systemSitePackages));
+	// Count the signature hit or miss
+	Metrics.inc(outdated ? Metrics.SIGNATURE_MISS : Metrics.SIGNATURE_HIT, Metrics.installation(interpreter));
+	// Commit the flight recorder event
+	event.commit(Metrics.node(), getHome().getRemote(), Metrics.installation(interpreter), outdated);
+	// Return the flag
+	return outdated;
     }
 
     /**
@@ -192,7 +204,7 @@ public class Virtualenv extends Python {
      * @throws InterruptedException
      */
     public void delete() throws IOException, InterruptedException {
-	getHome().deleteRecursive();
+	FilePathUtil.deleteRecursive(getHome());
     }
 
     /**
@@ -219,6 +231,53 @@ public class Virtualenv extends Python {
     public boolean create(Launcher launcher, TaskListener listener, Workspace workspace, FilePath pwd,
 	    EnvVars environment, Python interpreter, boolean systemSitePackages)
 		    throws InterruptedException, IOException {
+	// Enter the VIRTUALENV creation phase
+	PhaseTimer.enter(PhaseTimer.VIRTUALENV);
+	// Begin the flight recorder event
+	FlightEvent event = FlightEvent.begin(FlightEvent.VIRTUALENV_CREATION);
+	// Get the start time
+	long start = System.nanoTime();
+	// Store the creation status
+	boolean success = false;
+	try {
+	    // Create the VIRTUALENV
+	    success = doCreate(launcher, listener, workspace, pwd, environment, interpreter, systemSitePackages);
+	    // Return the creation status
+	    return success;
+	} finally {
+	    // Record the creation time
+	    Metrics.time(Metrics.VIRTUALENV_CREATION, Metrics.installation(interpreter), start);
+	    // Commit the flight recorder event
+	    event.commit(Metrics.node(), getHome().getRemote(), Metrics.installation(interpreter), success);
+	}
+    }
+
+    /**
+     * Create this VIRTUALENV, see
+     * {@link #create(Launcher, TaskListener, Workspace, FilePath, EnvVars, Python, boolean)}
+     * .
+     *
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param workspace
+     *            The workspace
+     * @param pwd
+     *            The working directory
+     * @param environment
+     *            The environment
+     * @param interpreter
+     *            The interpreter
+     * @param systemSitePackages
+     *            Give access to the global site-packages directory
+     * @return true if creation was successful, else false
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private boolean doCreate(Launcher launcher, TaskListener listener, Workspace workspace, FilePath pwd,
+	    EnvVars environment, Python interpreter, boolean systemSitePackages)
+		    throws InterruptedException, IOException {
 	// Cleanup
 	delete();
 	// Get the arguments for the command line
@@ -231,8 +290,12 @@ public class Virtualenv extends Python {
 	if (systemSitePackages)
 	    // Add the flag
 	    args.add("--system-site-packages");
+	// Enter the packages synchronization phase
+	PhaseTimer.enter(PhaseTimer.PACKAGES);
 	// Get the folder where packages can be found (PIP, ...)
 	FilePath extraSearchDir = workspace.getPackagesDir();
+	// Back to the VIRTUALENV creation phase
+	PhaseTimer.enter(PhaseTimer.VIRTUALENV);
 	// If this folder exists, add as search directory
 	if (extraSearchDir != null)
 	    // Add search folders
@@ -255,13 +318,13 @@ public class Virtualenv extends Python {
 		// Get the VIRTUALENV library folder
 		FilePath libDir = getHome().child("lib");
 		// Create it if required
-		libDir.mkdirs();
+		FilePathUtil.mkdirs(libDir);
 		// Go threw the libraries and create links
 		for (FilePath lib : libs) {
 		    // Get the link path
 		    FilePath link = libDir.child(lib.getName());
 		    // Check that not already exists
-		    if (!link.exists())
+		    if (!FilePathUtil.exists(link))
 			// Create the link
 			if (!LauncherUtil.createSymlink(launcher, listener, lib, link))
 			    // Failed to create link
@@ -272,7 +335,7 @@ public class Virtualenv extends Python {
 	// Check if was successful
 	if (success)
 	    // Write down the virtual environment signature
-	    getSignatureFile().write(getSignature(workspace, interpreter, systemSitePackages), "UTF-8");
+	    FilePathUtil.write(getSignatureFile(), getSignature(workspace, interpreter, systemSitePackages), "UTF-8");
 	// Return success flag
 	return success;
     }
@@ -307,8 +370,12 @@ public class Virtualenv extends Python {
 	args.add("pip");
 	// Require an installation
 	args.add("install");
+	// Enter the packages synchronization phase
+	String phase = PhaseTimer.enter(PhaseTimer.PACKAGES);
 	// Get the folder where packages can be found (PIP, ...)
 	FilePath extraSearchDir = workspace.getPackagesDir();
+	// Back to the previous phase
+	PhaseTimer.restore(phase);
 	// If this folder exists, add as find link
 	if (extraSearchDir != null)
 	    // Add flag
@@ -317,8 +384,16 @@ public class Virtualenv extends Python {
 	args.add("--upgrade");
 	// The package to install
 	args.add(packageName);
-	// Start the process and return status
-	return LauncherUtil.launch(launcher, listener, pwd, EnvVarsUtil.override(environment, getEnvironment()), args);
+	// Get the start time
+	long start = System.nanoTime();
+	try {
+	    // Start the process and return status
+	    return LauncherUtil.launch(launcher, listener, pwd, EnvVarsUtil.override(environment, getEnvironment()),
+		    args);
+	} finally {
+	    // Record the installation time
+	    Metrics.time(Metrics.PIP_INSTALL, Metrics.installation(this), start);
+	}
     }
 
     /**
@@ -356,8 +431,16 @@ public class Virtualenv extends Python {
 	if (recreate)
 	    // Add the flag
 	    args.add("--recreate");
-	// Start the process and return status
-	return LauncherUtil.launch(launcher, listener, pwd, EnvVarsUtil.override(environment, getEnvironment()), args);
+	// Get the start time
+	long start = System.nanoTime();
+	try {
+	    // Start the process and return status
+	    return LauncherUtil.launch(launcher, listener, pwd, EnvVarsUtil.override(environment, getEnvironment()),
+		    args);
+	} finally {
+	    // Record the TOX time
+	    Metrics.time(Metrics.TOX, Metrics.installation(this), start);
+	}
     }
 
     /**
@@ -421,7 +504,7 @@ public class Virtualenv extends Python {
 	// Add the path to executable
 	sb.append(executable.getRemote()).append("\n");
 	// Add the executable MD5
-	sb.append(executable.digest()).append("\n");
+	sb.append(FilePathUtil.digest(executable)).append("\n");
 	// Get the VIRTUALENV script digest
 	sb.append(Util.getDigestOf(workspace.getVirtualenvPyContent())).append("\n");
 	// Add the systemSitePackages flag
@@ -431,7 +514,7 @@ public class Virtualenv extends Python {
 	// Check if this folder exists
 	if (packageDir != null)
 	    // If exists, list the packages
-	    for (FilePath bn : packageDir.list())
+	    for (FilePath bn : FilePathUtil.list(packageDir, (FileFilter) null))
 		// Add their names
 		sb.append(bn.getName()).append("\n");
 	// Go threw the shared libraries
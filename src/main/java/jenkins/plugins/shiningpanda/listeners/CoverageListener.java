@@ -0,0 +1,56 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.listeners;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+@Extension
+public class CoverageListener extends RunListener<Run<?, ?>> {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CoverageListener.class.getName());
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.listeners.RunListener#onDeleted(hudson.model.Run)
+     */
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+	try {
+	    // Release the deduplicated coverage files of the build
+	    CoveragePublisher.release(run);
+	} catch (IOException e) {
+	    // Log, the content is kept until collected
+	    LOGGER.log(Level.WARNING, "failed to release the coverage files of " + run, e);
+	}
+    }
+}
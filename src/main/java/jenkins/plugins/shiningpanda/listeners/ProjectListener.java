@@ -24,6 +24,7 @@ package jenkins.plugins.shiningpanda.listeners;
 import hudson.Extension;
 import hudson.model.Item;
 import hudson.model.listeners.ItemListener;
+import jenkins.plugins.shiningpanda.publishers.BlobCollector;
 import jenkins.plugins.shiningpanda.workspace.Workspace;
 
 @Extension
@@ -38,6 +39,9 @@ public class ProjectListener extends ItemListener {
     public void onDeleted(Item item) {
 	// Delegate
 	Workspace.delete(item);
+	// Reclaim the coverage blobs of its builds, deleted without releasing
+	// them
+	BlobCollector.schedule();
     }
 
     /*
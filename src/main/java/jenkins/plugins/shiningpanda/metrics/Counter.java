@@ -0,0 +1,82 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Counter extends Metric {
+
+    /**
+     * The value.
+     */
+    private final AtomicLong value = new AtomicLong();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param name
+     *            The name of the metric
+     * @param node
+     *            The node tag
+     * @param installation
+     *            The installation tag
+     */
+    protected Counter(String name, String node, String installation) {
+	super(name, node, installation);
+    }
+
+    /**
+     * Increment the counter.
+     */
+    public void inc() {
+	value.incrementAndGet();
+    }
+
+    /**
+     * Add a value to the counter.
+     * 
+     * @param delta
+     *            The value to add
+     */
+    public void add(long delta) {
+	value.addAndGet(delta);
+    }
+
+    /**
+     * Get the value of the counter.
+     * 
+     * @return The value
+     */
+    public long getValue() {
+	return value.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.metrics.Metric#getType()
+     */
+    @Override
+    public String getType() {
+	return "counter";
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.metrics;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Java Flight Recorder event. The event types are defined at runtime with
+ * jdk.jfr.EventFactory so that the plug-in still runs on JVM without JFR: the
+ * events are then silently dropped.
+ */
+public class FlightEvent {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(FlightEvent.class.getName());
+
+    /**
+     * VIRTUALENV creation.
+     */
+    public static final Type VIRTUALENV_CREATION = new Type("VirtualenvCreation", "Virtualenv Creation",
+	    Field.string("node"), Field.string("virtualenv"), Field.string("installation"), Field.flag("success"));
+
+    /**
+     * VIRTUALENV signature evaluation.
+     */
+    public static final Type SIGNATURE = new Type("SignatureEvaluation", "Virtualenv Signature Evaluation",
+	    Field.string("node"), Field.string("virtualenv"), Field.string("installation"), Field.flag("outdated"));
+
+    /**
+     * Synchronization of the packages folder of the master on a node.
+     */
+    public static final Type PACKAGES_SYNC = new Type("PackagesSync", "Packages Synchronization",
+	    Field.string("node"), Field.string("directory"), Field.number("bytes"));
+
+    /**
+     * Archiving of the coverage reports of a build.
+     */
+    public static final Type COVERAGE_ARCHIVE = new Type("CoverageArchive", "Coverage Archiving",
+	    Field.string("build"), Field.number("reports"), Field.number("bytes"));
+
+    /**
+     * Serving of a coverage report file.
+     */
+    public static final Type COVERAGE_SERVE = new Type("CoverageServe", "Coverage Serving", Field.string("base"),
+	    Field.string("path"), Field.number("status"));
+
+    /**
+     * Method to begin an event.
+     */
+    private static final Method BEGIN;
+
+    /**
+     * Method to check if the events of a type are recorded.
+     */
+    private static final Method IS_ENABLED;
+
+    /**
+     * Method to set a field of an event.
+     */
+    private static final Method SET;
+
+    /**
+     * Method to end and commit an event.
+     */
+    private static final Method COMMIT;
+
+    static {
+	// Store the methods
+	Method begin = null, isEnabled = null, set = null, commit = null;
+	try {
+	    // Get the event class
+	    Class<?> event = Class.forName("jdk.jfr.Event");
+	    // Get the begin method
+	    begin = event.getMethod("begin");
+	    // Get the enabled check method
+	    isEnabled = event.getMethod("isEnabled");
+	    // Get the set method
+	    set = event.getMethod("set", int.class, Object.class);
+	    // Get the commit method
+	    commit = event.getMethod("commit");
+	} catch (Exception e) {
+	    // No flight recorder on this JVM
+	    LOGGER.log(Level.FINE, "flight recorder not available", e);
+	}
+	// Store the begin method
+	BEGIN = begin;
+	// Store the enabled check method
+	IS_ENABLED = isEnabled;
+	// Store the set method
+	SET = set;
+	// Store the commit method
+	COMMIT = commit;
+    }
+
+    /**
+     * The type of the event.
+     */
+    private final Type type;
+
+    /**
+     * The JFR event, null if not available or not recorded.
+     */
+    private final Object event;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param type
+     *            The type of the event
+     * @param event
+     *            The JFR event
+     */
+    private FlightEvent(Type type, Object event) {
+	// Call super
+	super();
+	// Store the type
+	this.type = type;
+	// Store the event
+	this.event = event;
+    }
+
+    /**
+     * Begin an event.
+     * 
+     * @param type
+     *            The type of event
+     * @return The event
+     */
+    public static FlightEvent begin(Type type) {
+	// Create the event
+	Object event = type.newEvent();
+	// Check if got one
+	if (event != null) {
+	    try {
+		// Check if the events of this type are recorded
+		if (Boolean.TRUE.equals(IS_ENABLED.invoke(event)))
+		    // Start the timing
+		    BEGIN.invoke(event);
+		// Else nothing to record
+		else
+		    // Drop the event
+		    event = null;
+	    } catch (Exception e) {
+		// Log
+		LOGGER.log(Level.FINE, "failed to begin flight recorder event", e);
+		// Drop the event
+		event = null;
+	    }
+	}
+	// Return the event
+	return new FlightEvent(type, event);
+    }
+
+    /**
+     * Check if the event is recorded.
+     * 
+     * @return True if the flight recorder is available and records the
+     *         events of this type, else false
+     */
+    public boolean isEnabled() {
+	return event != null;
+    }
+
+    /**
+     * End and commit the event.
+     * 
+     * @param values
+     *            The values of the fields, in the order of the type
+     *            definition, the extra values are ignored
+     */
+    public void commit(Object... values) {
+	// Check if the event is recorded
+	if (!isEnabled())
+	    // Nothing to do
+	    return;
+	try {
+	    // Go threw the declared fields
+	    for (int i = 0; i < Math.min(values.length, type.fields.length); i++)
+		// Set the field, converted to its declared type
+		SET.invoke(event, i, type.fields[i].toValue(values[i]));
+	    // End the timing and commit the event
+	    COMMIT.invoke(event);
+	} catch (Exception e) {
+	    // Log
+	    LOGGER.log(Level.FINE, "failed to commit flight recorder event", e);
+	}
+    }
+
+    /**
+     * A field of a type of event.
+     */
+    public static class Field {
+
+	/**
+	 * The name of the field.
+	 */
+	private final String name;
+
+	/**
+	 * The type of the field: long, boolean or string, the only ones
+	 * recorded by JFR here.
+	 */
+	private final Class<?> type;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param name
+	 *            The name of the field
+	 * @param type
+	 *            The type of the field
+	 */
+	private Field(String name, Class<?> type) {
+	    // Call super
+	    super();
+	    // Store the name
+	    this.name = name;
+	    // Store the type
+	    this.type = type;
+	}
+
+	/**
+	 * Get a string field.
+	 * 
+	 * @param name
+	 *            The name of the field
+	 * @return The field
+	 */
+	public static Field string(String name) {
+	    return new Field(name, String.class);
+	}
+
+	/**
+	 * Get a number field, recorded as a long.
+	 * 
+	 * @param name
+	 *            The name of the field
+	 * @return The field
+	 */
+	public static Field number(String name) {
+	    return new Field(name, long.class);
+	}
+
+	/**
+	 * Get a flag field.
+	 * 
+	 * @param name
+	 *            The name of the field
+	 * @return The field
+	 */
+	public static Field flag(String name) {
+	    return new Field(name, boolean.class);
+	}
+
+	/**
+	 * Convert a value to the type of this field.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The converted value
+	 */
+	private Object toValue(Object value) {
+	    // Check if this is a number field
+	    if (type == long.class)
+		// Record zero when not a number
+		return value instanceof Number ? ((Number) value).longValue() : 0L;
+	    // Check if this is a flag field
+	    if (type == boolean.class)
+		// Record false when not a flag
+		return Boolean.TRUE.equals(value);
+	    // Else record a string
+	    return value == null ? null : value.toString();
+	}
+    }
+
+    /**
+     * A type of event.
+     */
+    public static class Type {
+
+	/**
+	 * The fields, in the order of the values of the events.
+	 */
+	private final Field[] fields;
+
+	/**
+	 * The event factory, null if not available.
+	 */
+	private final Object factory;
+
+	/**
+	 * The method to create an event.
+	 */
+	private final Method newEvent;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param name
+	 *            The name of the type, prefixed by the plug-in package
+	 * @param label
+	 *            The label of the type
+	 * @param fields
+	 *            The fields, with their names and types
+	 */
+	protected Type(String name, String label, Field... fields) {
+	    // Call super
+	    super();
+	    // Store the fields
+	    this.fields = fields;
+	    // Store the factory
+	    Object factory = null;
+	    // Store the method to create the events
+	    Method newEvent = null;
+	    try {
+		// Get the annotation element class
+		Class<?> element = Class.forName("jdk.jfr.AnnotationElement");
+		// Get its constructor
+		Constructor<?> elementConstructor = element.getConstructor(Class.class, Object.class);
+		// Store the annotations
+		List<Object> annotations = new ArrayList<Object>();
+		// Add the name
+		annotations.add(elementConstructor.newInstance(Class.forName("jdk.jfr.Name"),
+			"jenkins.plugins.shiningpanda." + name));
+		// Add the label
+		annotations.add(elementConstructor.newInstance(Class.forName("jdk.jfr.Label"), label));
+		// Get the category
+		Object category = Array.newInstance(String.class, 2);
+		// Set the first level
+		Array.set(category, 0, "Jenkins");
+		// Set the second level
+		Array.set(category, 1, "ShiningPanda");
+		// Add the category
+		annotations.add(elementConstructor.newInstance(Class.forName("jdk.jfr.Category"), category));
+		// Get the value descriptor constructor
+		Constructor<?> descriptorConstructor = Class.forName("jdk.jfr.ValueDescriptor")
+			.getConstructor(Class.class, String.class);
+		// Store the fields
+		List<Object> descriptors = new ArrayList<Object>();
+		// Go threw the fields
+		for (Field field : fields)
+		    // Add the descriptor
+		    descriptors.add(descriptorConstructor.newInstance(field.type, field.name));
+		// Create the factory
+		factory = Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class)
+			.invoke(null, annotations, descriptors);
+		// Get the method to create the events
+		newEvent = factory.getClass().getMethod("newEvent");
+	    } catch (Exception e) {
+		// No flight recorder on this JVM
+		LOGGER.log(Level.FINE, "flight recorder not available", e);
+		// Do not record anything
+		factory = null;
+	    }
+	    // Store the factory
+	    this.factory = factory;
+	    // Store the method
+	    this.newEvent = newEvent;
+	}
+
+	/**
+	 * Create a new event of this type.
+	 * 
+	 * @return The event, null if the flight recorder is not available
+	 */
+	protected Object newEvent() {
+	    // Check if got a factory
+	    if (factory == null)
+		// No flight recorder
+		return null;
+	    try {
+		// Create the event
+		return newEvent.invoke(factory);
+	    } catch (Exception e) {
+		// Log
+		LOGGER.log(Level.FINE, "failed to create flight recorder event", e);
+		// No event
+		return null;
+	    }
+	}
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.metrics;
+
+public class Histogram extends Metric {
+
+    /**
+     * Number of buckets, bucket i counts the values lower than 2^i.
+     */
+    private static final int BUCKETS = 48;
+
+    /**
+     * The buckets.
+     */
+    private final long[] buckets = new long[BUCKETS];
+
+    /**
+     * Number of values.
+     */
+    private long count;
+
+    /**
+     * Sum of the values.
+     */
+    private long sum;
+
+    /**
+     * Minimum value.
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * Maximum value.
+     */
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param name
+     *            The name of the metric
+     * @param node
+     *            The node tag
+     * @param installation
+     *            The installation tag
+     */
+    protected Histogram(String name, String node, String installation) {
+	super(name, node, installation);
+    }
+
+    /**
+     * Record a value.
+     * 
+     * @param value
+     *            The value
+     */
+    public synchronized void update(long value) {
+	// Count the value
+	count++;
+	// Add it to the sum
+	sum += value;
+	// Update the minimum
+	min = Math.min(min, value);
+	// Update the maximum
+	max = Math.max(max, value);
+	// Get the bucket of the value
+	int bucket = value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+	// Count the value in its bucket
+	buckets[Math.min(bucket, BUCKETS - 1)]++;
+    }
+
+    /**
+     * Get the number of values.
+     * 
+     * @return The number of values
+     */
+    public synchronized long getCount() {
+	return count;
+    }
+
+    /**
+     * Get the sum of the values.
+     * 
+     * @return The sum
+     */
+    public synchronized long getSum() {
+	return sum;
+    }
+
+    /**
+     * Get the minimum value.
+     * 
+     * @return The minimum, 0 if no value
+     */
+    public synchronized long getMin() {
+	return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Get the maximum value.
+     * 
+     * @return The maximum, 0 if no value
+     */
+    public synchronized long getMax() {
+	return count == 0 ? 0 : max;
+    }
+
+    /**
+     * Get the mean value.
+     * 
+     * @return The mean, 0 if no value
+     */
+    public synchronized long getMean() {
+	return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Get an estimation of a percentile, as the upper bound of the bucket
+     * containing it.
+     * 
+     * @param percentile
+     *            The percentile between 0 and 1
+     * @return The estimation, 0 if no value
+     */
+    public synchronized long getPercentile(double percentile) {
+	// Check if got values
+	if (count == 0)
+	    // No value
+	    return 0;
+	// Get the rank of the percentile
+	long rank = (long) Math.ceil(percentile * count);
+	// Store the number of values seen
+	long seen = 0;
+	// Go threw the buckets
+	for (int i = 0; i < BUCKETS; i++) {
+	    // Add the values of the bucket
+	    seen += buckets[i];
+	    // Check if the percentile is in this bucket
+	    if (seen >= rank)
+		// Return the upper bound of the bucket, capped by the maximum
+		return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+	}
+	// Return the maximum
+	return max;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see jenkins.plugins.shiningpanda.metrics.Metric#getType()
+     */
+    @Override
+    public String getType() {
+	return "histogram";
+    }
+}
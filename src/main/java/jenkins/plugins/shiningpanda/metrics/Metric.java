@@ -0,0 +1,95 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.metrics;
+
+public abstract class Metric {
+
+    /**
+     * The name of the metric.
+     */
+    private final String name;
+
+    /**
+     * The node tag.
+     */
+    private final String node;
+
+    /**
+     * The installation tag.
+     */
+    private final String installation;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param name
+     *            The name of the metric
+     * @param node
+     *            The node tag
+     * @param installation
+     *            The installation tag
+     */
+    protected Metric(String name, String node, String installation) {
+	// Call super
+	super();
+	// Store the name
+	this.name = name;
+	// Store the node
+	this.node = node;
+	// Store the installation
+	this.installation = installation;
+    }
+
+    /**
+     * Get the name of the metric.
+     * 
+     * @return The name
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Get the node tag.
+     * 
+     * @return The name of the node
+     */
+    public String getNode() {
+	return node;
+    }
+
+    /**
+     * Get the installation tag.
+     * 
+     * @return The name of the installation
+     */
+    public String getInstallation() {
+	return installation;
+    }
+
+    /**
+     * Get the type of the metric.
+     * 
+     * @return The type
+     */
+    public abstract String getType();
+}
@@ -0,0 +1,343 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import hudson.Util;
+import hudson.model.Computer;
+import jenkins.plugins.shiningpanda.interpreters.Python;
+
+public class Metrics {
+
+    /**
+     * Number of VIRTUALENV reused thanks to their signature.
+     */
+    public static final String SIGNATURE_HIT = "virtualenv.signature.hit";
+
+    /**
+     * Number of VIRTUALENV to create because of their signature.
+     */
+    public static final String SIGNATURE_MISS = "virtualenv.signature.miss";
+
+    /**
+     * Time to create a VIRTUALENV in milliseconds.
+     */
+    public static final String VIRTUALENV_CREATION = "virtualenv.creation.ms";
+
+    /**
+     * Time to install a package with PIP in milliseconds.
+     */
+    public static final String PIP_INSTALL = "pip.install.ms";
+
+    /**
+     * Time to run TOX in milliseconds.
+     */
+    public static final String TOX = "tox.ms";
+
+    /**
+     * Number of bytes staged on the nodes (scripts and packages).
+     */
+    public static final String STAGED_BYTES = "workspace.staged.bytes";
+
+    /**
+     * Size of the archived coverage reports in bytes.
+     */
+    public static final String COVERAGE_ARCHIVE = "coverage.archive.bytes";
+
+    /**
+     * Tag of the master node.
+     */
+    public static final String MASTER = "master";
+
+    /**
+     * Tag used when the installation is not relevant or not known.
+     */
+    public static final String NONE = "";
+
+    /**
+     * Tag of all VIRTUALENV, regardless of their location.
+     */
+    public static final String VIRTUALENV = "virtualenv";
+
+    /**
+     * The global registry.
+     */
+    private static final Metrics INSTANCE = new Metrics();
+
+    /**
+     * The metrics by key.
+     */
+    private final Map<String, Metric> metrics = new TreeMap<String, Metric>();
+
+    /**
+     * Get the global registry.
+     * 
+     * @return The registry
+     */
+    public static Metrics get() {
+	return INSTANCE;
+    }
+
+    /**
+     * Get or create a counter.
+     * 
+     * @param name
+     *            The name of the counter
+     * @param node
+     *            The node tag
+     * @param installation
+     *            The installation tag
+     * @return The counter
+     */
+    public synchronized Counter counter(String name, String node, String installation) {
+	// Get the key
+	String key = getKey(name, node, installation);
+	// Look for an existing metric
+	Metric metric = metrics.get(key);
+	// Check if exists
+	if (metric == null) {
+	    // Create the counter
+	    metric = new Counter(name, node, installation);
+	    // Register it
+	    metrics.put(key, metric);
+	}
+	// Return the counter
+	return (Counter) metric;
+    }
+
+    /**
+     * Get or create an histogram.
+     * 
+     * @param name
+     *            The name of the histogram
+     * @param node
+     *            The node tag
+     * @param installation
+     *            The installation tag
+     * @return The histogram
+     */
+    public synchronized Histogram histogram(String name, String node, String installation) {
+	// Get the key
+	String key = getKey(name, node, installation);
+	// Look for an existing metric
+	Metric metric = metrics.get(key);
+	// Check if exists
+	if (metric == null) {
+	    // Create the histogram
+	    metric = new Histogram(name, node, installation);
+	    // Register it
+	    metrics.put(key, metric);
+	}
+	// Return the histogram
+	return (Histogram) metric;
+    }
+
+    /**
+     * Get all the metrics, sorted by name and tags.
+     * 
+     * @return The metrics
+     */
+    public synchronized List<Metric> getMetrics() {
+	return new ArrayList<Metric>(metrics.values());
+    }
+
+    /**
+     * Get the counters.
+     * 
+     * @return The counters
+     */
+    public List<Counter> getCounters() {
+	// Store the counters
+	List<Counter> counters = new ArrayList<Counter>();
+	// Go threw the metrics
+	for (Metric metric : getMetrics())
+	    // Check if this is a counter
+	    if (metric instanceof Counter)
+		// Add it
+		counters.add((Counter) metric);
+	// Return the counters
+	return counters;
+    }
+
+    /**
+     * Get the histograms.
+     * 
+     * @return The histograms
+     */
+    public List<Histogram> getHistograms() {
+	// Store the histograms
+	List<Histogram> histograms = new ArrayList<Histogram>();
+	// Go threw the metrics
+	for (Metric metric : getMetrics())
+	    // Check if this is an histogram
+	    if (metric instanceof Histogram)
+		// Add it
+		histograms.add((Histogram) metric);
+	// Return the histograms
+	return histograms;
+    }
+
+    /**
+     * Forget all the metrics.
+     */
+    public synchronized void clear() {
+	metrics.clear();
+    }
+
+    /**
+     * Get the key of a metric.
+     * 
+     * @param name
+     *            The name of the metric
+     * @param node
+     *            The node tag
+     * @param installation
+     *            The installation tag
+     * @return The key
+     */
+    private static String getKey(String name, String node, String installation) {
+	return name + '\0' + node + '\0' + installation;
+    }
+
+    /**
+     * Increment a counter tagged with the current node.
+     * 
+     * @param name
+     *            The name of the counter
+     * @param installation
+     *            The installation tag
+     */
+    public static void inc(String name, String installation) {
+	get().counter(name, node(), installation).inc();
+    }
+
+    /**
+     * Add a value to a counter tagged with the current node.
+     * 
+     * @param name
+     *            The name of the counter
+     * @param installation
+     *            The installation tag
+     * @param delta
+     *            The value to add
+     */
+    public static void add(String name, String installation, long delta) {
+	get().counter(name, node(), installation).add(delta);
+    }
+
+    /**
+     * Record a value in an histogram tagged with the current node.
+     * 
+     * @param name
+     *            The name of the histogram
+     * @param installation
+     *            The installation tag
+     * @param value
+     *            The value
+     */
+    public static void update(String name, String installation, long value) {
+	get().histogram(name, node(), installation).update(value);
+    }
+
+    /**
+     * Record the time elapsed since a start time in an histogram tagged with
+     * the current node.
+     * 
+     * @param name
+     *            The name of the histogram
+     * @param installation
+     *            The installation tag
+     * @param start
+     *            The start time, as returned by {@link System#nanoTime()}
+     */
+    public static void time(String name, String installation, long start) {
+	update(name, installation, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Get the tag of the node of the current executor.
+     * 
+     * @return The name of the node
+     */
+    public static String node() {
+	// Get the computer of the current executor
+	Computer computer = Computer.currentComputer();
+	// Check if got one
+	if (computer == null)
+	    // Not in an executor, consider this is the master
+	    return MASTER;
+	// Get the name of the node, blank for the master
+	return Util.fixEmpty(computer.getName()) == null ? MASTER : computer.getName();
+    }
+
+    /**
+     * Get the tag of an interpreter: the name of the PYTHON installation it
+     * was resolved from if any, else its home folder. The installation name
+     * is resolved by the builders, as the configured homes are translated for
+     * each node and expanded for each build.
+     * 
+     * @param interpreter
+     *            The interpreter
+     * @return The installation tag
+     */
+    public static String installation(Python interpreter) {
+	// Check if got an interpreter
+	if (interpreter == null)
+	    // No tag
+	    return NONE;
+	// Do not tag VIRTUALENV with their location, too many of them
+	if (interpreter.isVirtualenv() != null)
+	    // Use a generic tag
+	    return VIRTUALENV;
+	// Check if resolved from an installation
+	if (interpreter.getInstallation() != null)
+	    // Use its name
+	    return interpreter.getInstallation();
+	// Use the home folder
+	return normalize(interpreter.getHome().getRemote());
+    }
+
+    /**
+     * Remove the trailing separators of a path.
+     * 
+     * @param path
+     *            The path
+     * @return The normalized path
+     */
+    private static String normalize(String path) {
+	// Check if got a path
+	if (path == null)
+	    // No path
+	    return NONE;
+	// Remove the trailing separators
+	while (path.length() > 1 && (path.endsWith("/") || path.endsWith("\\")))
+	    // Remove the last character
+	    path = path.substring(0, path.length() - 1);
+	// Return the path
+	return path;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import jenkins.model.Jenkins;
+import jenkins.plugins.shiningpanda.Messages;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+@Extension
+public class MetricsLink extends ManagementLink {
+
+    /**
+     * URL of the page.
+     */
+    public static final String URL_NAME = "shiningpanda-metrics";
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.ManagementLink#getIconFileName()
+     */
+    @Override
+    public String getIconFileName() {
+	return "monitor.png";
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.Action#getDisplayName()
+     */
+    public String getDisplayName() {
+	return Messages.MetricsLink_DisplayName();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.ManagementLink#getDescription()
+     */
+    @Override
+    public String getDescription() {
+	return Messages.MetricsLink_Description();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.ManagementLink#getUrlName()
+     */
+    @Override
+    public String getUrlName() {
+	return URL_NAME;
+    }
+
+    /**
+     * Get the counters.
+     * 
+     * @return The counters
+     */
+    public List<Counter> getCounters() {
+	return Metrics.get().getCounters();
+    }
+
+    /**
+     * Get the histograms.
+     * 
+     * @return The histograms
+     */
+    public List<Histogram> getHistograms() {
+	return Metrics.get().getHistograms();
+    }
+
+    /**
+     * Serve the metrics as JSON.
+     * 
+     * @param req
+     *            The request
+     * @param rsp
+     *            The response
+     * @throws IOException
+     */
+    public void doJson(StaplerRequest req, StaplerResponse rsp) throws IOException {
+	// Only administrators can see the metrics
+	Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+	// Store the metrics
+	JSONArray metrics = new JSONArray();
+	// Go threw the counters
+	for (Counter counter : getCounters())
+	    // Add the counter
+	    metrics.add(toJSON(counter).element("value", counter.getValue()));
+	// Go threw the histograms
+	for (Histogram histogram : getHistograms())
+	    // Add the histogram
+	    metrics.add(toJSON(histogram).element("count", histogram.getCount()).element("sum", histogram.getSum())
+		    .element("min", histogram.getMin()).element("max", histogram.getMax())
+		    .element("mean", histogram.getMean()).element("p50", histogram.getPercentile(0.5))
+		    .element("p95", histogram.getPercentile(0.95)).element("p99", histogram.getPercentile(0.99)));
+	// Set the content type
+	rsp.setContentType("application/json;charset=UTF-8");
+	// Write the metrics
+	rsp.getWriter().print(new JSONObject().element("metrics", metrics).toString(2));
+    }
+
+    /**
+     * Serve the metrics as plain text, one value per line.
+     * 
+     * @param req
+     *            The request
+     * @param rsp
+     *            The response
+     * @throws IOException
+     */
+    public void doText(StaplerRequest req, StaplerResponse rsp) throws IOException {
+	// Only administrators can see the metrics
+	Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+	// Set the content type
+	rsp.setContentType("text/plain;charset=UTF-8");
+	// Get the writer
+	PrintWriter writer = rsp.getWriter();
+	// Go threw the counters
+	for (Counter counter : getCounters())
+	    // Write the value
+	    print(writer, counter, "", counter.getValue());
+	// Go threw the histograms
+	for (Histogram histogram : getHistograms()) {
+	    // Write the number of values
+	    print(writer, histogram, ".count", histogram.getCount());
+	    // Write the sum of the values
+	    print(writer, histogram, ".sum", histogram.getSum());
+	    // Write the maximum
+	    print(writer, histogram, ".max", histogram.getMax());
+	    // Write the median
+	    print(writer, histogram, ".p50", histogram.getPercentile(0.5));
+	    // Write the 95th percentile
+	    print(writer, histogram, ".p95", histogram.getPercentile(0.95));
+	    // Write the 99th percentile
+	    print(writer, histogram, ".p99", histogram.getPercentile(0.99));
+	}
+	// Flush
+	writer.flush();
+    }
+
+    /**
+     * Get the JSON representation of the name and tags of a metric.
+     * 
+     * @param metric
+     *            The metric
+     * @return The JSON object
+     */
+    private static JSONObject toJSON(Metric metric) {
+	return new JSONObject().element("name", metric.getName()).element("type", metric.getType())
+		.element("node", metric.getNode()).element("installation", metric.getInstallation());
+    }
+
+    /**
+     * Write a value on a line such as name{node="...",installation="..."}
+     * value.
+     * 
+     * @param writer
+     *            The writer
+     * @param metric
+     *            The metric
+     * @param suffix
+     *            The suffix of the name
+     * @param value
+     *            The value
+     */
+    private static void print(PrintWriter writer, Metric metric, String suffix, long value) {
+	writer.println(metric.getName() + suffix + "{node=\"" + escape(metric.getNode()) + "\",installation=\""
+		+ escape(metric.getInstallation()) + "\"} " + value);
+    }
+
+    /**
+     * Escape a tag value.
+     * 
+     * @param value
+     *            The value
+     * @return The escaped value
+     */
+    private static String escape(String value) {
+	return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.Util;
+import hudson.util.AtomicFileWriter;
+
+public class FlameGraph {
+
+    /**
+     * Content type of the rendered image.
+     */
+    public static final String CONTENT_TYPE = "image/svg+xml";
+
+    /**
+     * Width of the image.
+     */
+    private static final int WIDTH = 1200;
+
+    /**
+     * Height of a frame.
+     */
+    private static final int FRAME = 16;
+
+    /**
+     * Space around the frames.
+     */
+    private static final int PADDING = 10;
+
+    /**
+     * Space above the frames, for the title.
+     */
+    private static final int TOP = 40;
+
+    /**
+     * Estimated width of a character of the labels.
+     */
+    private static final double CHAR_WIDTH = 7;
+
+    /**
+     * Minimal width of a drawn frame.
+     */
+    private static final double MIN_WIDTH = 0.1;
+
+    /**
+     * Script zooming on the clicked frame: the frames out of its range are
+     * hidden, the others are stretched and their labels truncated again.
+     */
+    private static final String SCRIPT = "var W=" + (WIDTH - 2 * PADDING) + ",P=" + PADDING + ",C=" + CHAR_WIDTH
+	    + ";function fit(n,w){var c=Math.floor((w-6)/C);return c<3?'':n.length<=c?n:n.substring(0,c-2)+'..';}"
+	    + "function layout(a,b){var gs=document.getElementsByTagName('g');for(var i=0;i<gs.length;i++){"
+	    + "var g=gs[i],x=+g.getAttribute('data-x'),e=x+ +g.getAttribute('data-w');"
+	    + "if(e<=a||x>=b){g.style.display='none';continue;}g.style.display='';"
+	    + "var l=(Math.max(x,a)-a)/(b-a)*W+P,w=(Math.min(e,b)-Math.max(x,a))/(b-a)*W;"
+	    + "var r=g.getElementsByTagName('rect')[0],t=g.getElementsByTagName('text')[0];"
+	    + "r.setAttribute('x',l);r.setAttribute('width',w);t.setAttribute('x',l+3);"
+	    + "t.textContent=fit(g.getAttribute('data-n'),w);}}"
+	    + "function zoom(g){var x=+g.getAttribute('data-x');layout(x,x+ +g.getAttribute('data-w'));}";
+
+    /**
+     * Write collapsed stacks, one stack and its value by line.
+     * 
+     * @param stacks
+     *            The values, by stack
+     * @param file
+     *            The file
+     * @throws IOException
+     */
+    public static void save(Map<String, Long> stacks, File file) throws IOException {
+	// Get a writer replacing the file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Go threw the stacks
+	    for (Map.Entry<String, Long> entry : stacks.entrySet())
+		// Write the stack and its value
+		writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+	    // Replace the file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+    }
+
+    /**
+     * Read collapsed stacks.
+     * 
+     * @param file
+     *            The file
+     * @return The values, by stack
+     * @throws IOException
+     */
+    public static SortedMap<String, Long> load(File file) throws IOException {
+	// Store the stacks
+	SortedMap<String, Long> stacks = new TreeMap<String, Long>();
+	// Go threw the lines
+	for (String line : FileUtils.readLines(file, "UTF-8")) {
+	    // The value follows the last space, as the names may contain spaces
+	    int index = line.lastIndexOf(' ');
+	    // Check the format
+	    if (index <= 0)
+		// Ignore blank lines
+		continue;
+	    try {
+		// Get the value
+		long value = Long.parseLong(line.substring(index + 1));
+		// Get the stack
+		String stack = line.substring(0, index);
+		// Get the value already read for this stack
+		Long previous = stacks.get(stack);
+		// Add the value
+		stacks.put(stack, previous == null ? value : previous + value);
+	    } catch (NumberFormatException e) {
+		// Corrupted
+		throw new IOException("invalid line in " + file + ": " + line);
+	    }
+	}
+	// Return the stacks
+	return stacks;
+    }
+
+    /**
+     * Render collapsed stacks as an interactive flame graph: each frame is as
+     * wide as the time spent in it, its callees are drawn above it, and a
+     * click on a frame zooms on it.
+     * 
+     * @param stacks
+     *            The time in microseconds, by stack
+     * @param title
+     *            The title of the graph
+     * @return The image
+     */
+    public static String render(Map<String, Long> stacks, String title) {
+	// Get the root of the frames
+	Frame root = new Frame("all");
+	// Go threw the stacks
+	for (Map.Entry<String, Long> entry : stacks.entrySet())
+	    // Add the stack
+	    root.add(entry.getKey().split(";"), entry.getValue());
+	// Get the height of the frames
+	int height = TOP + (root.getDepth() + 1) * FRAME + PADDING;
+	// Store the image
+	StringBuilder svg = new StringBuilder();
+	// Write the header
+	svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(WIDTH).append("\" height=\"")
+		.append(height).append("\" viewBox=\"0 0 ").append(WIDTH).append(" ").append(height)
+		.append("\" font-family=\"monospace\" font-size=\"12\">");
+	// Write the script
+	svg.append("<script type=\"text/ecmascript\"><![CDATA[").append(SCRIPT).append("]]></script>");
+	// Write the background
+	svg.append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>");
+	// Write the title
+	svg.append("<text x=\"").append(WIDTH / 2).append("\" y=\"20\" text-anchor=\"middle\" font-size=\"16\">")
+		.append(Util.xmlEscape(title)).append("</text>");
+	// Write the reset link
+	svg.append("<text x=\"").append(PADDING).append("\" y=\"20\" style=\"cursor:pointer\" onclick=\"layout(0,1)\">")
+		.append("Reset zoom</text>");
+	// Write the frames
+	frame(svg, root, 0, root.value, 0, height);
+	// Write the footer
+	svg.append("</svg>");
+	// Return the image
+	return svg.toString();
+    }
+
+    /**
+     * Write a frame and its callees.
+     * 
+     * @param svg
+     *            The image
+     * @param frame
+     *            The frame
+     * @param start
+     *            The value before the frame on its line
+     * @param total
+     *            The value of the root frame
+     * @param depth
+     *            The depth of the frame
+     * @param height
+     *            The height of the image
+     */
+    private static void frame(StringBuilder svg, Frame frame, long start, long total, int depth, int height) {
+	// Get the width of the frames
+	double scale = total == 0 ? 0 : (double) (WIDTH - 2 * PADDING) / total;
+	// Get the width of this frame
+	double width = frame.value * scale;
+	// Check if visible
+	if (width < MIN_WIDTH)
+	    // Do not draw it, nor its callees
+	    return;
+	// Get the position of the frame
+	double x = PADDING + start * scale;
+	// Get the height of the frame, the root at the bottom
+	int y = height - PADDING - (depth + 1) * FRAME;
+	// Get the name
+	String name = Util.xmlEscape(frame.name);
+	// Write the group of the frame
+	svg.append("<g style=\"cursor:pointer\" onclick=\"zoom(this)\" data-x=\"")
+		.append(format((double) start / total)).append("\" data-w=\"")
+		.append(format((double) frame.value / total)).append("\" data-n=\"").append(name).append("\">");
+	// Write the tooltip
+	svg.append("<title>").append(name).append(" (").append(frame.value).append(" \u00b5s, ")
+		.append(String.format(Locale.ENGLISH, "%.2f", 100. * frame.value / total)).append("%)</title>");
+	// Write the box
+	svg.append("<rect x=\"").append(format(x)).append("\" y=\"").append(y).append("\" width=\"")
+		.append(format(width)).append("\" height=\"").append(FRAME - 1).append("\" rx=\"2\" fill=\"")
+		.append(color(frame.name)).append("\"/>");
+	// Write the label
+	svg.append("<text x=\"").append(format(x + 3)).append("\" y=\"").append(y + FRAME - 4).append("\">")
+		.append(Util.xmlEscape(fit(frame.name, width))).append("</text>");
+	// Close the group
+	svg.append("</g>");
+	// The callees start with the frame
+	long offset = start;
+	// Go threw the callees
+	for (Frame child : frame.children.values()) {
+	    // Write the callee
+	    frame(svg, child, offset, total, depth + 1, height);
+	    // Next callee
+	    offset += child.value;
+	}
+    }
+
+    /**
+     * Truncate a label to the width of its frame.
+     * 
+     * @param name
+     *            The label
+     * @param width
+     *            The width of the frame
+     * @return The truncated label, empty if too narrow
+     */
+    static String fit(String name, double width) {
+	// Get the number of characters
+	int chars = (int) Math.floor((width - 6) / CHAR_WIDTH);
+	// Check if something can be displayed
+	if (chars < 3)
+	    // Too narrow
+	    return "";
+	// Truncate if required
+	return name.length() <= chars ? name : name.substring(0, chars - 2) + "..";
+    }
+
+    /**
+     * Get the color of a frame, derived from its name so that a function
+     * keeps its color between the graphs.
+     * 
+     * @param name
+     *            The name of the frame
+     * @return The color
+     */
+    private static String color(String name) {
+	// Get the hash of the name
+	int hash = name.hashCode();
+	// Return a warm color
+	return "rgb(" + (205 + (hash & 0x7fffffff) % 50) + "," + (80 + ((hash >>> 8) & 0xff) % 150) + ","
+		+ ((hash >>> 16) & 0xff) % 55 + ")";
+    }
+
+    /**
+     * Format a coordinate.
+     * 
+     * @param value
+     *            The coordinate
+     * @return The formatted coordinate
+     */
+    private static String format(double value) {
+	return String.format(Locale.ENGLISH, "%.4f", value);
+    }
+
+    /**
+     * A frame of the graph.
+     */
+    private static class Frame {
+
+	/**
+	 * The name of the function.
+	 */
+	private final String name;
+
+	/**
+	 * The time spent in the function and its callees.
+	 */
+	private long value;
+
+	/**
+	 * The callees, by name.
+	 */
+	private final SortedMap<String, Frame> children = new TreeMap<String, Frame>();
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param name
+	 *            The name of the function
+	 */
+	private Frame(String name) {
+	    // Call super
+	    super();
+	    // Store the name
+	    this.name = name;
+	}
+
+	/**
+	 * Add a stack under this frame.
+	 * 
+	 * @param stack
+	 *            The names of the functions of the stack
+	 * @param value
+	 *            The time spent in the last function
+	 */
+	private void add(String[] stack, long value) {
+	    // Get the current frame
+	    Frame frame = this;
+	    // Add the value to the frame
+	    frame.value += value;
+	    // Go threw the functions
+	    for (String name : stack) {
+		// Get the callee
+		Frame child = frame.children.get(name);
+		// Check if exists
+		if (child == null) {
+		    // Create it
+		    child = new Frame(name);
+		    // Store it
+		    frame.children.put(name, child);
+		}
+		// Add the value to the callee
+		child.value += value;
+		// Next frame
+		frame = child;
+	    }
+	}
+
+	/**
+	 * Get the depth of the deepest callee.
+	 * 
+	 * @return The depth, 0 without callee
+	 */
+	private int getDepth() {
+	    // Store the depth
+	    int depth = 0;
+	    // Go threw the callees
+	    for (Frame child : children.values())
+		// Keep the deepest
+		depth = Math.max(depth, child.getDepth() + 1);
+	    // Return the depth
+	    return depth;
+	}
+    }
+}
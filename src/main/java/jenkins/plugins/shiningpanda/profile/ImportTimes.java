@@ -0,0 +1,332 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.util.AtomicFileWriter;
+
+public class ImportTimes {
+
+    /**
+     * Prefix of the lines written by PYTHON when started with -X importtime.
+     */
+    public static final String PREFIX = "import time:";
+
+    /**
+     * Separator of the fields of a line.
+     */
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * The modules, by name.
+     */
+    private final SortedMap<String, Module> modules = new TreeMap<String, Module>();
+
+    /**
+     * Parse a line written by PYTHON when started with -X importtime, such as
+     * "import time:       236 |        236 |   encodings.aliases", where the
+     * indentation of the module gives the depth of the import.
+     * 
+     * @param line
+     *            The line, without end of line
+     * @return True if this is an import time line, else false
+     */
+    public boolean parse(String line) {
+	// Check the prefix
+	if (!line.startsWith(PREFIX))
+	    // Not an import time line
+	    return false;
+	// Get the fields
+	String[] fields = line.substring(PREFIX.length()).split("\\|", 3);
+	// Check the format
+	if (fields.length != 3)
+	    // Consume it anyway
+	    return true;
+	// Store the times
+	long self, cumulative;
+	try {
+	    // Get the own time
+	    self = Long.parseLong(fields[0].trim());
+	    // Get the cumulative time
+	    cumulative = Long.parseLong(fields[1].trim());
+	} catch (NumberFormatException e) {
+	    // This is the header
+	    return true;
+	}
+	// Get the name
+	String name = fields[2].trim();
+	// Top level imports are indented by a single space
+	boolean root = fields[2].startsWith(" ") && !fields[2].startsWith("  ");
+	// Add the import
+	add(name, self, cumulative, root ? cumulative : 0);
+	// Consumed
+	return true;
+    }
+
+    /**
+     * Add an import.
+     * 
+     * @param name
+     *            The name of the module
+     * @param self
+     *            The time spent in the module itself, in microseconds
+     * @param cumulative
+     *            The time spent in the module and its imports, in
+     *            microseconds
+     * @param root
+     *            The cumulative time if imported at the top level, else 0
+     */
+    private void add(String name, long self, long cumulative, long root) {
+	// Get the module
+	Module module = modules.get(name);
+	// Check if exists
+	if (module == null) {
+	    // Create it
+	    module = new Module(name);
+	    // Store it
+	    modules.put(name, module);
+	}
+	// Add the own time
+	module.self += self;
+	// Add the cumulative time
+	module.cumulative += cumulative;
+	// Add the top level time
+	module.root += root;
+    }
+
+    /**
+     * Add the imports of another run.
+     * 
+     * @param other
+     *            The imports
+     */
+    public void add(ImportTimes other) {
+	// Go threw the modules
+	for (Module module : other.modules.values())
+	    // Add it
+	    add(module.name, module.self, module.cumulative, module.root);
+    }
+
+    /**
+     * Get the number of imported modules.
+     * 
+     * @return The number of modules
+     */
+    public int size() {
+	return modules.size();
+    }
+
+    /**
+     * Get an imported module.
+     * 
+     * @param name
+     *            The name of the module
+     * @return The module, null if not imported
+     */
+    public Module get(String name) {
+	return modules.get(name);
+    }
+
+    /**
+     * Get the total import time, the sum of the cumulative times of the top
+     * level imports.
+     * 
+     * @return The time in microseconds
+     */
+    public long getTotal() {
+	// Store the time
+	long total = 0;
+	// Go threw the modules
+	for (Module module : modules.values())
+	    // Add the top level time
+	    total += module.root;
+	// Return the time
+	return total;
+    }
+
+    /**
+     * Get the slowest modules to import.
+     * 
+     * @param count
+     *            The maximal number of modules
+     * @return The modules, by decreasing cumulative time
+     */
+    public List<Module> getSlowest(int count) {
+	// Get the modules
+	List<Module> slowest = new ArrayList<Module>(modules.values());
+	// Sort them
+	Collections.sort(slowest, new Comparator<Module>() {
+
+	    /*
+	     * (non-Javadoc)
+	     * 
+	     * @see java.util.Comparator#compare(java.lang.Object,
+	     * java.lang.Object)
+	     */
+	    public int compare(Module m1, Module m2) {
+		// Slowest first
+		return m1.cumulative != m2.cumulative ? (m1.cumulative > m2.cumulative ? -1 : 1)
+			: m1.name.compareTo(m2.name);
+	    }
+	});
+	// Keep the first ones
+	return new ArrayList<Module>(slowest.subList(0, Math.min(count, slowest.size())));
+    }
+
+    /**
+     * Write the imports, one module by line.
+     * 
+     * @param file
+     *            The file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+	// Get a writer replacing the file once complete
+	AtomicFileWriter writer = new AtomicFileWriter(file, "UTF-8");
+	try {
+	    // Go threw the modules
+	    for (Module module : modules.values())
+		// Write its times and its name
+		writer.write(module.self + SEPARATOR + module.cumulative + SEPARATOR + module.root + SEPARATOR
+			+ module.name + "\n");
+	    // Replace the file
+	    writer.commit();
+	} finally {
+	    // Cleanup if not committed
+	    writer.abort();
+	}
+    }
+
+    /**
+     * Read the imports.
+     * 
+     * @param file
+     *            The file
+     * @return The imports
+     * @throws IOException
+     */
+    public static ImportTimes load(File file) throws IOException {
+	// Get the imports
+	ImportTimes times = new ImportTimes();
+	// Go threw the lines
+	for (String line : FileUtils.readLines(file, "UTF-8")) {
+	    // Split the fields
+	    String[] fields = line.split(SEPARATOR, 4);
+	    // Check the format
+	    if (fields.length != 4)
+		// Ignore blank lines
+		continue;
+	    try {
+		// Add the module
+		times.add(fields[3], Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+	    } catch (NumberFormatException e) {
+		// Corrupted
+		throw new IOException("invalid line in " + file + ": " + line);
+	    }
+	}
+	// Return the imports
+	return times;
+    }
+
+    /**
+     * The import times of a module.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Module {
+
+	/**
+	 * The name of the module.
+	 */
+	private final String name;
+
+	/**
+	 * The time spent in the module itself, in microseconds.
+	 */
+	private long self;
+
+	/**
+	 * The time spent in the module and its imports, in microseconds.
+	 */
+	private long cumulative;
+
+	/**
+	 * The cumulative time when imported at the top level, in
+	 * microseconds.
+	 */
+	private long root;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param name
+	 *            The name of the module
+	 */
+	private Module(String name) {
+	    // Call super
+	    super();
+	    // Store the name
+	    this.name = name;
+	}
+
+	/**
+	 * Get the name of the module.
+	 * 
+	 * @return The name
+	 */
+	@Exported
+	public String getName() {
+	    return name;
+	}
+
+	/**
+	 * Get the time spent in the module itself.
+	 * 
+	 * @return The time in microseconds
+	 */
+	@Exported
+	public long getSelf() {
+	    return self;
+	}
+
+	/**
+	 * Get the time spent in the module and its imports.
+	 * 
+	 * @return The time in microseconds
+	 */
+	@Exported
+	public long getCumulative() {
+	    return cumulative;
+	}
+    }
+}
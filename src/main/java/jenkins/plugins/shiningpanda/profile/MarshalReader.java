@@ -0,0 +1,291 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.profile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MarshalReader {
+
+    /**
+     * Flag of the types whose value can be referenced later in the stream.
+     */
+    private static final int FLAG_REF = 0x80;
+
+    /**
+     * The marshal stream.
+     */
+    private final InputStream in;
+
+    /**
+     * The values flagged as referenced, by order of appearance.
+     */
+    private final List<Object> refs = new ArrayList<Object>();
+
+    /**
+     * The interned strings of the PYTHON 2 format.
+     */
+    private final List<Object> interned = new ArrayList<Object>();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param in
+     *            The marshal stream, should be buffered
+     */
+    public MarshalReader(InputStream in) {
+	// Call super
+	super();
+	// Store the stream
+	this.in = in;
+    }
+
+    /**
+     * Read the marshaled value, as written by PYTHON 2 or PYTHON 3.
+     * Dictionaries are read as maps, lists, sets and tuples as lists, strings
+     * and bytes as strings.
+     * 
+     * @return The value
+     * @throws IOException
+     */
+    public Object read() throws IOException {
+	return read(readByte());
+    }
+
+    /**
+     * Read a value whose code is already read.
+     * 
+     * @param code
+     *            The code of the value: its type and reference flag
+     * @return The value
+     * @throws IOException
+     */
+    private Object read(int code) throws IOException {
+	// Check if the value may be referenced
+	boolean flag = (code & FLAG_REF) != 0;
+	// Reserve its reference before reading the nested values
+	int ref = flag ? reserve() : -1;
+	// Read the value
+	Object value = readType(code & ~FLAG_REF);
+	// Check if referenced
+	if (flag)
+	    // Store it
+	    refs.set(ref, value);
+	// Return the value
+	return value;
+    }
+
+    /**
+     * Read a value of a given type.
+     * 
+     * @param type
+     *            The type, without the reference flag
+     * @return The value
+     * @throws IOException
+     */
+    private Object readType(int type) throws IOException {
+	switch (type) {
+	case 'N': // NONE
+	    return null;
+	case 'F': // FALSE
+	    return Boolean.FALSE;
+	case 'T': // TRUE
+	    return Boolean.TRUE;
+	case 'i': // INT
+	    return (long) readInt();
+	case 'I': // INT64
+	    return readInt() & 0xffffffffL | (long) readInt() << 32;
+	case 'l': { // LONG
+	    int size = readInt();
+	    long value = 0;
+	    for (int i = 0; i < Math.abs(size); i++)
+		value += (long) (readByte() | readByte() << 8) << (15 * i);
+	    return size < 0 ? -value : value;
+	}
+	case 'f': // FLOAT
+	    return Double.valueOf(new String(readBytes(readByte()), "ISO-8859-1"));
+	case 'g': // BINARY_FLOAT
+	    return Double.longBitsToDouble(readInt() & 0xffffffffL | (long) readInt() << 32);
+	case 's': // STRING
+	    return new String(readBytes(readInt()), "UTF-8");
+	case 't': { // INTERNED
+	    Object value = new String(readBytes(readInt()), "UTF-8");
+	    interned.add(value);
+	    return value;
+	}
+	case 'R': // STRINGREF
+	    return get(interned, readInt());
+	case 'u': // UNICODE
+	    return new String(readBytes(readInt()), "UTF-8");
+	case 'a': // ASCII
+	case 'A': // ASCII_INTERNED
+	    return new String(readBytes(readInt()), "ISO-8859-1");
+	case 'z': // SHORT_ASCII
+	case 'Z': // SHORT_ASCII_INTERNED
+	    return new String(readBytes(readByte()), "ISO-8859-1");
+	case '(': // TUPLE
+	case '[': // LIST
+	case '<': // SET
+	case '>': // FROZENSET
+	    return readValues(readInt());
+	case ')': // SMALL_TUPLE
+	    return readValues(readByte());
+	case '{': { // DICT
+	    Map<Object, Object> dict = new LinkedHashMap<Object, Object>();
+	    while (true) {
+		int code = readByte();
+		if (code == '0') // NULL
+		    return dict;
+		Object key = read(code);
+		dict.put(key, read());
+	    }
+	}
+	case 'r': // REF
+	    return get(refs, readInt());
+	default:
+	    throw new IOException("unsupported marshal type: 0x" + Integer.toHexString(type));
+	}
+    }
+
+    /**
+     * Reserve a reference.
+     * 
+     * @return The index of the reference
+     */
+    private int reserve() {
+	// Add an empty slot
+	refs.add(null);
+	// Return its index
+	return refs.size() - 1;
+    }
+
+    /**
+     * Get a referenced value.
+     * 
+     * @param values
+     *            The referenced values
+     * @param index
+     *            The index of the value
+     * @return The value
+     * @throws IOException
+     */
+    private static Object get(List<Object> values, int index) throws IOException {
+	// Check the index
+	if (index < 0 || index >= values.size())
+	    // Corrupted
+	    throw new IOException("invalid marshal reference: " + index);
+	// Return the value
+	return values.get(index);
+    }
+
+    /**
+     * Read the items of a sequence.
+     * 
+     * @param count
+     *            The number of items
+     * @return The items
+     * @throws IOException
+     */
+    private List<Object> readValues(int count) throws IOException {
+	// Check the count
+	if (count < 0)
+	    // Corrupted
+	    throw new IOException("invalid marshal length: " + count);
+	// Store the items
+	List<Object> values = new ArrayList<Object>(Math.min(count, 1024));
+	// Read them
+	for (int i = 0; i < count; i++)
+	    // Read an item
+	    values.add(read());
+	// Return the items
+	return values;
+    }
+
+    /**
+     * Read a byte.
+     * 
+     * @return The byte, unsigned
+     * @throws IOException
+     */
+    private int readByte() throws IOException {
+	// Read the byte
+	int b = in.read();
+	// Check if the end is reached
+	if (b == -1)
+	    // Truncated
+	    throw new EOFException("truncated marshal");
+	// Return the byte
+	return b;
+    }
+
+    /**
+     * Read some bytes.
+     * 
+     * @param count
+     *            The number of bytes
+     * @return The bytes
+     * @throws IOException
+     */
+    private byte[] readBytes(int count) throws IOException {
+	// Check the count
+	if (count < 0)
+	    // Corrupted
+	    throw new IOException("invalid marshal length: " + count);
+	// Get the buffer
+	byte[] bytes = new byte[count];
+	// Read until full
+	for (int offset = 0; offset < count;) {
+	    // Read some bytes
+	    int read = in.read(bytes, offset, count - offset);
+	    // Check if the end is reached
+	    if (read == -1)
+		// Truncated
+		throw new EOFException("truncated marshal");
+	    // Next bytes
+	    offset += read;
+	}
+	// Return the bytes
+	return bytes;
+    }
+
+    /**
+     * Read a little endian signed 4 bytes integer.
+     * 
+     * @return The integer
+     * @throws IOException
+     */
+    private int readInt() throws IOException {
+	// Store the integer
+	int value = 0;
+	// Read the bytes
+	for (int i = 0; i < 4; i++)
+	    // Add the byte
+	    value |= readByte() << (8 * i);
+	// Return the integer
+	return value;
+    }
+}
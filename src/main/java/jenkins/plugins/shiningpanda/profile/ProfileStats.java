@@ -0,0 +1,384 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.profile;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class ProfileStats {
+
+    /**
+     * Fraction of the total time under which a call path is dropped from the
+     * stacks, so that the number of stacks stays bounded.
+     */
+    private static final double MINIMUM = Double
+	    .parseDouble(System.getProperty(ProfileStats.class.getName() + ".minimum", "0.0001"));
+
+    /**
+     * Maximal depth of the stacks.
+     */
+    private static final int MAX_DEPTH = Integer.getInteger(ProfileStats.class.getName() + ".maxDepth", 256);
+
+    /**
+     * The functions, by key.
+     */
+    private final Map<Object, Function> functions = new LinkedHashMap<Object, Function>();
+
+    /**
+     * Get the number of profiled functions.
+     * 
+     * @return The number of functions
+     */
+    public int size() {
+	return functions.size();
+    }
+
+    /**
+     * Get the total time of the profiled code, the sum of the time spent in
+     * the functions when not called by a profiled function.
+     * 
+     * @return The time in seconds
+     */
+    public double getTotal() {
+	// Store the time
+	double total = 0;
+	// Go threw the functions
+	for (Function function : functions.values())
+	    // Add the time spent out of the callers
+	    total += function.getRoot();
+	// Return the time
+	return total;
+    }
+
+    /**
+     * Convert the statistics to collapsed stacks. Profiles only record the
+     * time spent by a function when called by another one, so the time of a
+     * function is shared between its call paths as its callers share it, the
+     * time not spent under a caller starts a stack, recursive calls are
+     * folded in their first call and paths taking less than a small fraction
+     * of the total time are dropped.
+     * 
+     * @return The time in microseconds, by stack of function names
+     *         separated by semicolons
+     */
+    public SortedMap<String, Long> collapse() {
+	// Store the stacks
+	SortedMap<String, Long> stacks = new TreeMap<String, Long>();
+	// Get the total time
+	double total = getTotal();
+	// Go threw the functions
+	for (Function function : functions.values())
+	    // Check if called out of the profiled functions
+	    if (function.getRoot() > 0)
+		// Walk its calls
+		walk(stacks, function, function.getRoot(), "", new HashSet<Function>(), total * MINIMUM);
+	// Return the stacks
+	return stacks;
+    }
+
+    /**
+     * Add the stacks of a function and its callees.
+     * 
+     * @param stacks
+     *            The stacks
+     * @param function
+     *            The function
+     * @param time
+     *            The time spent in this function on this path, in seconds
+     * @param path
+     *            The stack of the callers, empty for a root
+     * @param active
+     *            The functions on the path
+     * @param minimum
+     *            The minimal time of a path
+     */
+    private void walk(SortedMap<String, Long> stacks, Function function, double time, String path,
+	    Set<Function> active, double minimum) {
+	// Get the stack of this function
+	String stack = path.length() == 0 ? function.name : path + ";" + function.name;
+	// Get the share of the function time spent on this path
+	double share = function.total > 0 ? time / function.total : 0;
+	// Get the own time on this path, in microseconds
+	long self = Math.round(Math.min(function.self * share, time) * 1000000);
+	// Check if some time is spent
+	if (self > 0) {
+	    // Get the time already recorded for this stack
+	    Long value = stacks.get(stack);
+	    // Add the own time
+	    stacks.put(stack, value == null ? self : value + self);
+	}
+	// Check the depth
+	if (active.size() >= MAX_DEPTH)
+	    // Too deep
+	    return;
+	// This function is on the path
+	active.add(function);
+	// Go threw the callees
+	for (Map.Entry<Function, Double> entry : function.callees.entrySet()) {
+	    // Get the time of the callee on this path
+	    double child = entry.getValue() * share;
+	    // Check if not recursive and long enough
+	    if (!active.contains(entry.getKey()) && child >= minimum && child > 0)
+		// Walk the callee
+		walk(stacks, entry.getKey(), child, stack, active, minimum);
+	}
+	// Leave the path
+	active.remove(function);
+    }
+
+    /**
+     * Get the function of a key, creating it if required.
+     * 
+     * @param key
+     *            The key: the file, the line and the name of the function
+     * @return The function
+     */
+    private Function getFunction(Object key) {
+	// Look for the function
+	Function function = functions.get(key);
+	// Check if exists
+	if (function == null) {
+	    // Create it
+	    function = new Function(getName(key));
+	    // Store it
+	    functions.put(key, function);
+	}
+	// Return the function
+	return function;
+    }
+
+    /**
+     * Get the display name of a function, as printed by the pstats module.
+     * 
+     * @param key
+     *            The key: the file, the line and the name of the function
+     * @return The name
+     */
+    static String getName(Object key) {
+	// Store the name
+	String name;
+	// Check the key
+	if (key instanceof List && ((List<?>) key).size() == 3) {
+	    // Get the items
+	    List<?> items = (List<?>) key;
+	    // Built-in functions have no file
+	    if ("~".equals(items.get(0)) && Long.valueOf(0).equals(items.get(1)))
+		// Only keep the name
+		name = String.valueOf(items.get(2));
+	    else
+		// File, line and name
+		name = items.get(0) + ":" + items.get(1) + "(" + items.get(2) + ")";
+	} else
+	    // Unexpected key
+	    name = String.valueOf(key);
+	// Semicolons separate the functions of a stack
+	return name.replace(';', ',').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Get a number of a statistic tuple.
+     * 
+     * @param values
+     *            The tuple
+     * @param index
+     *            The index of the number
+     * @return The number
+     * @throws IOException
+     */
+    private static double getNumber(List<?> values, int index) throws IOException {
+	// Get the value
+	Object value = values.size() > index ? values.get(index) : null;
+	// Check if this is a number
+	if (!(value instanceof Number))
+	    // Corrupted
+	    throw new IOException("invalid profile statistics: " + values);
+	// Return the number
+	return ((Number) value).doubleValue();
+    }
+
+    /**
+     * Read the statistics dumped by the cProfile or the profile module.
+     * 
+     * @param in
+     *            The stream of the dump, should be buffered
+     * @return The statistics
+     * @throws IOException
+     */
+    public static ProfileStats read(InputStream in) throws IOException {
+	// Read the dump
+	Object dump = new MarshalReader(in).read();
+	// Check its type
+	if (!(dump instanceof Map))
+	    // Not a profile
+	    throw new IOException("invalid profile statistics");
+	// Get the statistics
+	ProfileStats stats = new ProfileStats();
+	// Store the callers of the functions
+	Map<Function, Map<?, ?>> callers = new HashMap<Function, Map<?, ?>>();
+	// Go threw the functions
+	for (Map.Entry<?, ?> entry : ((Map<?, ?>) dump).entrySet()) {
+	    // Check the values
+	    if (!(entry.getValue() instanceof List))
+		// Corrupted
+		throw new IOException("invalid profile statistics: " + entry.getValue());
+	    // Get the values
+	    List<?> values = (List<?>) entry.getValue();
+	    // Get the function
+	    Function function = stats.getFunction(entry.getKey());
+	    // Store the primitive calls
+	    function.calls = getNumber(values, 0);
+	    // Store the own time
+	    function.self = getNumber(values, 2);
+	    // Store the cumulative time
+	    function.total = getNumber(values, 3);
+	    // Check if there are callers
+	    if (values.size() > 4 && values.get(4) instanceof Map)
+		// Store them
+		callers.put(function, (Map<?, ?>) values.get(4));
+	}
+	// Go threw the callers
+	for (Map.Entry<Function, Map<?, ?>> entry : callers.entrySet()) {
+	    // Get the callee
+	    Function callee = entry.getKey();
+	    // Go threw its callers
+	    for (Map.Entry<?, ?> call : entry.getValue().entrySet()) {
+		// Get the caller
+		Function caller = stats.getFunction(call.getKey());
+		// Recursive calls are folded in the first call
+		if (caller == callee)
+		    // Ignore them
+		    continue;
+		// Store the time
+		double time;
+		// The cProfile module records the cumulative time of the calls
+		if (call.getValue() instanceof List)
+		    // Get it
+		    time = getNumber((List<?>) call.getValue(), 3);
+		// The profile module only records the number of calls
+		else if (call.getValue() instanceof Number && callee.calls > 0)
+		    // Share the cumulative time of the callee
+		    time = callee.total * ((Number) call.getValue()).doubleValue() / callee.calls;
+		// Unknown
+		else
+		    // Ignore it
+		    continue;
+		// Link the functions
+		caller.callees.put(callee, time);
+		// Add the time spent under a caller
+		callee.called += time;
+	    }
+	}
+	// Return the statistics
+	return stats;
+    }
+
+    /**
+     * Load the statistics dumped by the cProfile or the profile module.
+     * 
+     * @param file
+     *            The dump
+     * @return The statistics
+     * @throws IOException
+     */
+    public static ProfileStats load(File file) throws IOException {
+	// Open the file
+	InputStream in = new BufferedInputStream(new FileInputStream(file));
+	try {
+	    // Read it
+	    return read(in);
+	} finally {
+	    // Close the file
+	    in.close();
+	}
+    }
+
+    /**
+     * A profiled function.
+     */
+    private static class Function {
+
+	/**
+	 * The display name.
+	 */
+	private final String name;
+
+	/**
+	 * The number of primitive calls.
+	 */
+	private double calls;
+
+	/**
+	 * The time spent in the function itself, in seconds.
+	 */
+	private double self;
+
+	/**
+	 * The time spent in the function and its callees, in seconds.
+	 */
+	private double total;
+
+	/**
+	 * The time spent in the function when called by the profiled
+	 * functions, in seconds.
+	 */
+	private double called;
+
+	/**
+	 * The time spent in the functions called by this one, by function.
+	 */
+	private final Map<Function, Double> callees = new LinkedHashMap<Function, Double>();
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param name
+	 *            The display name
+	 */
+	private Function(String name) {
+	    // Call super
+	    super();
+	    // Store the name
+	    this.name = name;
+	}
+
+	/**
+	 * Get the time spent in the function when not called by a profiled
+	 * function, such as the script run by the profiler.
+	 * 
+	 * @return The time in seconds
+	 */
+	private double getRoot() {
+	    return Math.max(0, total - called);
+	}
+    }
+}
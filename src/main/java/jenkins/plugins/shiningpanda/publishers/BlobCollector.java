@@ -0,0 +1,89 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.publishers;
+
+import java.io.IOException;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.PeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.coverage.BlobStore;
+
+@Extension
+public class BlobCollector extends AsyncPeriodicWork {
+
+    /**
+     * Time between two collections.
+     */
+    private static final long PERIOD = Long.getLong(BlobCollector.class.getName() + ".period", DAY);
+
+    /**
+     * Constructor.
+     */
+    public BlobCollector() {
+	// Call super
+	super("Coverage blob collection");
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.PeriodicWork#getRecurrencePeriod()
+     */
+    @Override
+    public long getRecurrencePeriod() {
+	return PERIOD;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.AsyncPeriodicWork#execute(hudson.model.TaskListener)
+     */
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+	try {
+	    // Delete the blobs no more referenced
+	    int deleted = BlobStore.get().collect();
+	    // Log
+	    listener.getLogger().println(Messages.BlobCollector_Collected(deleted));
+	} catch (IOException e) {
+	    // Log, try again at the next run
+	    listener.error(Messages.BlobCollector_Failed(e.getMessage()));
+	}
+    }
+
+    /**
+     * Collect the blobs no more referenced in the background, unless a
+     * collection is already running.
+     */
+    public static void schedule() {
+	// Get the collector
+	BlobCollector collector = PeriodicWork.all().get(BlobCollector.class);
+	// Check if registered
+	if (collector != null)
+	    // Run it
+	    collector.doRun();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.publishers;
+
+import java.io.File;
+import java.io.IOException;
+
+import hudson.Launcher;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixRun;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.actions.coverage.CoverageMatrixBuildAction;
+import jenkins.plugins.shiningpanda.coverage.CoverageLines;
+import jenkins.plugins.shiningpanda.coverage.CoverageSummary;
+
+public class CoverageAggregator extends MatrixAggregator {
+
+    /**
+     * The union of the lines of the configurations merged so far.
+     */
+    private final CoverageLines union = new CoverageLines();
+
+    /**
+     * The number of configurations merged so far.
+     */
+    private int configurations = 0;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param build
+     *            The matrix build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     */
+    public CoverageAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+	super(build, launcher, listener);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.matrix.MatrixAggregator#endRun(hudson.matrix.MatrixRun)
+     */
+    @Override
+    public boolean endRun(MatrixRun run) throws InterruptedException, IOException {
+	// Check if the configuration build is successful
+	if (run.getResult() != null && !run.getResult().isBetterOrEqualTo(Result.UNSTABLE))
+	    // Its coverage is not recorded
+	    return true;
+	// Get the lines file of the configuration build
+	File file = CoverageLines.getFile(CoveragePublisher.getHtmlDir(run));
+	// Check if its coverage was published
+	if (!file.isFile())
+	    // Nothing to merge
+	    return true;
+	// Store the union
+	CoverageSummary summary;
+	try {
+	    // Read the lines
+	    CoverageLines lines = CoverageLines.load(file);
+	    // Merge them
+	    synchronized (union) {
+		// Add the lines
+		union.merge(lines);
+		// Count the configuration
+		configurations++;
+		// Get the summary of the union
+		summary = union.getSummary();
+	    }
+	} catch (IOException e) {
+	    // Log, the configuration is missing in the union
+	    listener.getLogger().println(Messages.CoverageAggregator_MergeFailed(run.getFullDisplayName(),
+		    e.getMessage()));
+	    // Go on
+	    return true;
+	}
+	// Get the coverage index of the matrix build
+	CoverageMatrixBuildAction action = build.getAction(CoverageMatrixBuildAction.class);
+	// Check if exists
+	if (action != null)
+	    // Show the union while the other configurations are running
+	    action.setUnion(summary, configurations);
+	// Go on
+	return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.matrix.MatrixAggregator#endBuild()
+     */
+    @Override
+    public boolean endBuild() throws InterruptedException, IOException {
+	// Store the union
+	CoverageSummary summary;
+	// Get a consistent union
+	synchronized (union) {
+	    // Check if a configuration was merged
+	    if (configurations == 0)
+		// Nothing to persist
+		return true;
+	    // Get the summary of the union
+	    summary = union.getSummary();
+	}
+	// Write it once next to the reports of the matrix build
+	summary.save(CoverageSummary.getFile(CoveragePublisher.getHtmlDir(build)));
+	// Log the union
+	listener.getLogger()
+		.println(Messages.CoverageAggregator_Merged(configurations, summary.getTotals().getPercent()));
+	// Go on
+	return true;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.publishers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Job;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.coverage.CoverageSummary;
+import jenkins.plugins.shiningpanda.coverage.ReportIndex;
+
+@Extension
+public class CoverageCompactor extends AsyncPeriodicWork {
+
+    /**
+     * Time between two compactions.
+     */
+    private static final long PERIOD = Long.getLong(CoverageCompactor.class.getName() + ".period", HOUR);
+
+    /**
+     * Maximum number of builds compacted at each run, the other ones being
+     * compacted at the next runs.
+     */
+    private static final int BATCH_SIZE = Integer.getInteger(CoverageCompactor.class.getName() + ".batchSize", 20);
+
+    /**
+     * Constructor.
+     */
+    public CoverageCompactor() {
+	// Call super
+	super("Coverage compaction");
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.PeriodicWork#getRecurrencePeriod()
+     */
+    @Override
+    public long getRecurrencePeriod() {
+	return PERIOD;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.model.AsyncPeriodicWork#execute(hudson.model.TaskListener)
+     */
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+	// Store the number of builds that can still be compacted
+	int budget = BATCH_SIZE;
+	// Go threw the jobs, including the configurations of matrix projects
+	for (AbstractProject<?, ?> job : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+	    // Check if the batch is complete
+	    if (budget <= 0)
+		// Go on at the next run
+		return;
+	    // Get the publisher
+	    CoveragePublisher publisher = job.getPublishersList().get(CoveragePublisher.class);
+	    // Check if its reports are compacted
+	    if (publisher != null && publisher.keep > 0)
+		// Compact the old builds of the job
+		budget -= compact(job, publisher.keep, budget, listener);
+	}
+    }
+
+    /**
+     * Compact the reports of the old builds of a job, without loading the
+     * builds. Builds without summary are left untouched as they would lose
+     * their coverage.
+     * 
+     * @param job
+     *            The job
+     * @param keep
+     *            The number of builds keeping their full reports
+     * @param budget
+     *            The maximum number of builds to compact
+     * @param listener
+     *            The listener to log the progress to
+     * @return The number of compacted builds
+     * @throws InterruptedException
+     */
+    public static int compact(Job<?, ?> job, int keep, int budget, TaskListener listener)
+	    throws InterruptedException {
+	// Store the build numbers
+	List<Integer> numbers = new ArrayList<Integer>();
+	// Get the build folders
+	File[] dirs = job.getBuildDir().listFiles();
+	// Go threw them
+	for (int i = 0; dirs != null && i < dirs.length; i++) {
+	    try {
+		// Add the number of the build
+		numbers.add(Integer.parseInt(dirs[i].getName()));
+	    } catch (NumberFormatException e) {
+		// Not a build folder
+	    }
+	}
+	// Start with the latest builds
+	Collections.sort(numbers, Collections.reverseOrder());
+	// Store the number of builds with coverage
+	int published = 0;
+	// Store the number of compacted builds
+	int compacted = 0;
+	// Go threw the builds
+	for (int i = 0; i < numbers.size() && compacted < budget; i++) {
+	    // Check if interrupted
+	    if (Thread.interrupted())
+		// Stop
+		throw new InterruptedException();
+	    // Get the archived reports folder
+	    File base = new File(new File(job.getBuildDir(), Integer.toString(numbers.get(i))),
+		    CoveragePublisher.BASENAME);
+	    // Check if the build published its coverage and if it is one of the
+	    // latest builds
+	    if (!ReportIndex.getFile(base).isFile() || ++published <= keep)
+		// Keep its reports
+		continue;
+	    // Check if the reports are summarized
+	    if (!CoverageSummary.getFile(base).isFile())
+		// Keep its reports
+		continue;
+	    try {
+		// Delete the full reports
+		if (CoveragePublisher.compact(base)) {
+		    // Count the build
+		    compacted++;
+		    // Log
+		    listener.getLogger()
+			    .println(Messages.CoverageCompactor_Compacted(job.getFullName(), numbers.get(i)));
+		}
+	    } catch (IOException e) {
+		// Log, try again at the next run
+		listener.error(Messages.CoverageCompactor_Failed(job.getFullName(), numbers.get(i), e.getMessage()));
+	    }
+	}
+	// Return the number of compacted builds
+	return compacted;
+    }
+}
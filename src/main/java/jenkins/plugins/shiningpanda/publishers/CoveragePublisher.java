@@ -21,17 +21,36 @@
  */
 package jenkins.plugins.shiningpanda.publishers;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.servlet.ServletException;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import hudson.EnvVars;
@@ -40,22 +59,52 @@ import hudson.FilePath;
 import hudson.Functions;
 import hudson.Launcher;
 import hudson.Util;
+import hudson.matrix.MatrixAggregatable;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixRun;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.remoting.Channel;
+import hudson.remoting.Pipe;
+import hudson.remoting.RemoteOutputStream;
+import hudson.remoting.VirtualChannel;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
 import hudson.util.FormValidation;
+import jenkins.MasterToSlaveFileCallable;
 import jenkins.plugins.shiningpanda.Messages;
 import jenkins.plugins.shiningpanda.actions.coverage.CoverageBuildAction;
+import jenkins.plugins.shiningpanda.actions.coverage.CoverageMatrixBuildAction;
 import jenkins.plugins.shiningpanda.actions.coverage.CoverageProjectAction;
+import jenkins.plugins.shiningpanda.coverage.BlobStore;
+import jenkins.plugins.shiningpanda.coverage.CoverageCounts;
+import jenkins.plugins.shiningpanda.coverage.CoverageData;
+import jenkins.plugins.shiningpanda.coverage.CoverageDiff;
+import jenkins.plugins.shiningpanda.coverage.CoverageGate;
+import jenkins.plugins.shiningpanda.coverage.CoverageHistory;
+import jenkins.plugins.shiningpanda.coverage.CoverageLines;
+import jenkins.plugins.shiningpanda.coverage.CoverageStorage;
+import jenkins.plugins.shiningpanda.coverage.CoverageSummary;
+import jenkins.plugins.shiningpanda.coverage.Manifest;
+import jenkins.plugins.shiningpanda.coverage.Precompressor;
+import jenkins.plugins.shiningpanda.coverage.ReportArchiver;
+import jenkins.plugins.shiningpanda.coverage.ReportFinder;
+import jenkins.plugins.shiningpanda.coverage.ReportIndex;
+import jenkins.plugins.shiningpanda.coverage.ReportParser;
+import jenkins.plugins.shiningpanda.coverage.ReportStore;
+import jenkins.plugins.shiningpanda.coverage.StatusParser;
+import jenkins.plugins.shiningpanda.metrics.FlightEvent;
+import jenkins.plugins.shiningpanda.metrics.Metrics;
 
-public class CoveragePublisher extends Recorder {
+public class CoveragePublisher extends Recorder implements MatrixAggregatable {
 
     /**
      * Base name for the HTML report folder on master.
@@ -87,6 +136,40 @@ public class CoveragePublisher extends Recorder {
      */
     public final String htmlDir;
 
+    /**
+     * How to store the reports on master: as files, in a single archive or as
+     * deduplicated files.
+     */
+    public String storage = CoverageStorage.FILES.getKey();
+
+    /**
+     * Number of builds keeping their full reports, older builds only keeping
+     * their summary and index. Zero to keep all the reports.
+     */
+    public int keep;
+
+    /**
+     * The minimum covered percentage of all the files, null if not checked.
+     */
+    public Double minimum;
+
+    /**
+     * The minimum covered percentage of each file, null if not checked.
+     */
+    public Double fileMinimum;
+
+    /**
+     * The maximum drop of the covered percentage versus the previous
+     * successful build, in percentage points, null if not checked.
+     */
+    public Double maximumDrop;
+
+    /**
+     * The result of the builds not meeting the thresholds: UNSTABLE or
+     * FAILURE.
+     */
+    public String gateResult = Result.UNSTABLE.toString();
+
     /**
      * Constructor using fields.
      * 
@@ -102,60 +185,146 @@ public class CoveragePublisher extends Recorder {
     }
 
     /**
-     * Look for HTML reports.
+     * How to store the reports on master.
      * 
-     * @param workspace
-     *            The workspace
-     * @param environment
-     *            If environment
+     * @param storage
+     *            The key of the storage, the files if unknown
      */
-    private List<FilePath> getHtmlDirs(FilePath workspace, EnvVars environment)
-	    throws IOException, InterruptedException {
-	// Get the candidates
-	FilePath[] candidates;
-	// If an HTML folder is not specified look for it in all workspace
-	if (htmlDir == null)
-	    // List all folders containing a coverage_html.js file
-	    candidates = workspace.list("**/" + JS);
-	// Else use the provided value
-	else
-	    // List all folders containing a coverage_html.js file
-	    candidates = workspace.list(environment.expand(htmlDir) + "/" + JS);
-	// Store the list of matching folders
-	List<FilePath> dirs = new ArrayList<FilePath>();
-	// Go threw the candidates
-	for (FilePath js : candidates)
-	    // Check that following files also exists
-	    if (js.sibling(INDEX).exists() && (js.sibling(STATUS_LTE_3).exists() || js.sibling(STATUS).exists()))
-		// Add the parent folder
-		dirs.add(js.getParent());
-	// Return the found directories
-	return dirs;
+    @DataBoundSetter
+    public void setStorage(String storage) {
+	this.storage = CoverageStorage.get(storage).getKey();
     }
 
     /**
-     * Get the HTML target folder.
+     * Number of builds keeping their full reports.
      * 
-     * @param base
-     *            The base target directory
-     * @param workspace
-     *            The workspace
-     * @param dir
-     *            The directory in workspace containing reports
-     * @param single
-     *            Is there more than one report
-     */
-    private FilePath getHtmlTargetDir(FilePath base, FilePath workspace, FilePath dir, boolean single) {
-	// If only one report, copy it in the base folder
-	if (single)
-	    // Return the base folder
-	    return base;
-	// Else replicate the workspace tree. Get the workspace path.
-	String ws = workspace.getRemote();
-	// Get the index to delete the workspace path
-	int beginIndex = ws.endsWith("/") || ws.endsWith("\\") ? ws.length() : ws.length() + 1;
-	// Delete workspace part
-	return base.child(dir.getRemote().substring(beginIndex));
+     * @param keep
+     *            The number of builds, blank to keep all the reports
+     */
+    @DataBoundSetter
+    public void setKeep(String keep) {
+	this.keep = Math.max(0, parseKeep(keep));
+    }
+
+    /**
+     * The minimum covered percentage of all the files.
+     * 
+     * @param minimum
+     *            The percentage, blank if not checked
+     */
+    @DataBoundSetter
+    public void setMinimum(String minimum) {
+	this.minimum = parseThreshold(minimum);
+    }
+
+    /**
+     * The minimum covered percentage of each file.
+     * 
+     * @param fileMinimum
+     *            The percentage, blank if not checked
+     */
+    @DataBoundSetter
+    public void setFileMinimum(String fileMinimum) {
+	this.fileMinimum = parseThreshold(fileMinimum);
+    }
+
+    /**
+     * The maximum drop of the covered percentage versus the previous
+     * successful build.
+     * 
+     * @param maximumDrop
+     *            The drop in percentage points, blank if not checked
+     */
+    @DataBoundSetter
+    public void setMaximumDrop(String maximumDrop) {
+	this.maximumDrop = parseThreshold(maximumDrop);
+    }
+
+    /**
+     * The result of the builds not meeting the thresholds.
+     * 
+     * @param gateResult
+     *            FAILURE, else the builds are unstable
+     */
+    @DataBoundSetter
+    public void setGateResult(String gateResult) {
+	this.gateResult = Result.FAILURE.toString().equals(gateResult) ? Result.FAILURE.toString()
+		: Result.UNSTABLE.toString();
+    }
+
+    /**
+     * ShiningPanda 0.24 compatibility: the storage and the result of the
+     * builds not meeting the thresholds are not set in the configurations
+     * saved before they were added.
+     * 
+     * @return The publisher
+     */
+    private Object readResolve() {
+	// Check if the storage is set
+	if (storage == null)
+	    // Store the reports as files
+	    storage = CoverageStorage.FILES.getKey();
+	// Check if the result is set
+	if (gateResult == null)
+	    // Builds not meeting the thresholds are unstable
+	    gateResult = Result.UNSTABLE.toString();
+	// Return the publisher
+	return this;
+    }
+
+    /**
+     * Parse the number of builds keeping their full reports.
+     * 
+     * @param keep
+     *            The number of builds
+     * @return The number of builds, zero if blank or invalid
+     */
+    private static int parseKeep(String keep) {
+	// Get the value
+	keep = Util.fixEmptyAndTrim(keep);
+	// Check if blank
+	if (keep == null)
+	    // Keep all the reports
+	    return 0;
+	try {
+	    // Parse the value
+	    return Integer.parseInt(keep);
+	} catch (NumberFormatException e) {
+	    // Keep all the reports
+	    return 0;
+	}
+    }
+
+    /**
+     * Parse a threshold.
+     * 
+     * @param threshold
+     *            The threshold
+     * @return The threshold, null if blank or invalid
+     */
+    private static Double parseThreshold(String threshold) {
+	// Get the value
+	threshold = Util.fixEmptyAndTrim(threshold);
+	// Check if blank
+	if (threshold == null)
+	    // Not checked
+	    return null;
+	try {
+	    // Parse the value
+	    return Double.valueOf(threshold);
+	} catch (NumberFormatException e) {
+	    // Not checked
+	    return null;
+	}
+    }
+
+    /**
+     * Get the thresholds.
+     * 
+     * @return The quality gate
+     */
+    public CoverageGate getGate() {
+	return new CoverageGate(minimum, fileMinimum, maximumDrop);
     }
 
     /*
@@ -169,10 +338,26 @@ public class CoveragePublisher extends Recorder {
 	    throws InterruptedException, IOException {
 	// Get the workspace
 	FilePath workspace = build.getWorkspace();
-	// Look for HTML reports
-	List<FilePath> dirs = getHtmlDirs(build.getWorkspace(), build.getEnvironment(listener));
+	// Begin the flight recorder event
+	FlightEvent event = FlightEvent.begin(FlightEvent.COVERAGE_ARCHIVE);
+	// Get the base target folder
+	FilePath base = new FilePath(getHtmlDir(build));
+	// Cleanup
+	base.deleteRecursive();
+	// Get the archive
+	File archive = ReportStore.getArchive(getHtmlDir(build));
+	// Cleanup
+	archive.delete();
+	// Release the deduplicated files of a previous publication
+	release(build);
+	// Get the storage
+	CoverageStorage kind = CoverageStorage.get(storage);
+	// Find, summarize and send the reports in a single call on the node
+	// hosting the workspace
+	PublishedReports reports = publish(workspace, build.getEnvironment(listener), kind, build instanceof MatrixRun,
+		getHtmlDir(build), archive, listener);
 	// If no reports, log and modify build result
-	if (dirs.size() == 0) {
+	if (reports.getFolders().isEmpty()) {
 	    // If build is already unstable log nothing
 	    if (build.getResult().isBetterOrEqualTo(Result.UNSTABLE))
 		// Else log that nothing found
@@ -182,19 +367,57 @@ public class CoveragePublisher extends Recorder {
 	    // Go on
 	    return true;
 	}
-	// Get the base target folder
-	FilePath base = new FilePath(getHtmlDir(build));
-	// Cleanup
-	base.deleteRecursive();
-	// Go threw the report folders
-	for (FilePath dir : dirs) {
-	    // Get the target folder
-	    FilePath targetDir = getHtmlTargetDir(base, workspace, dir, dirs.size() == 1);
-	    // Only copy files if not already exists, we do not handle included
-	    // reports
-	    if (!targetDir.exists())
-		// Copy their contents
-		dir.copyRecursiveTo("**/*", targetDir);
+	// Store the number of bytes written in the report files, the archive,
+	// the deduplicated files or the data file
+	long bytes = reports.getBytes();
+	// Check if the reports are stored as deduplicated files
+	if (CoverageStorage.DEDUPLICATED == kind)
+	    // Store the files not already stored
+	    bytes = deduplicate(workspace, reports, ReportStore.getManifest(getHtmlDir(build)), listener);
+	// Check if only the coverage data is stored
+	else if (CoverageStorage.DATA == kind)
+	    // Store the data and the sources not already stored
+	    bytes = extract(workspace, reports, ReportStore.getData(getHtmlDir(build)), listener);
+	// Check if the reports are stored as files
+	if (getHtmlDir(build).isDirectory())
+	    // Prepare the compressed variants served to browsers
+	    Precompressor.compressAll(getHtmlDir(build));
+	// Get the coverage of the reports, read with them
+	CoverageSummary summary = reports.getSummary();
+	// Go threw the unreadable reports
+	for (String warning : summary.getWarnings())
+	    // Log
+	    listener.getLogger().println(Messages.CoverageArchiver_StatusFailed(warning));
+	// Write it next to the reports
+	summary.save(CoverageSummary.getFile(getHtmlDir(build)));
+	// Compare it with the previous successful build
+	diff(build, summary);
+	// Check if this is a configuration build of a matrix project
+	if (build instanceof MatrixRun)
+	    // Record the covered lines to combine the configurations
+	    lines(reports.getData(), getHtmlDir(build), listener);
+	// Index the archived reports
+	ReportIndex index = ReportIndex.save(getHtmlDir(build), ReportIndex.scan(getHtmlDir(build)));
+	// Check the coverage before indexing the reports on the matrix build,
+	// so that a configuration failed by the thresholds is not combined
+	check(build, summary, listener);
+	// Check if this is a successful configuration build of a matrix project
+	if (build instanceof MatrixRun
+		&& (build.getResult() == null || build.getResult().isBetterOrEqualTo(Result.UNSTABLE)))
+	    // Index its reports on the matrix build
+	    CoverageMatrixBuildAction.record((MatrixRun) build, index.getReports());
+	// Record the size of the archived reports, only the new files when
+	// deduplicated or extracted
+	Metrics.update(Metrics.COVERAGE_ARCHIVE, Metrics.NONE, bytes);
+	// Commit the flight recorder event
+	event.commit(build.getFullDisplayName(), reports.getFolders().size(), bytes);
+	try {
+	    // Add the build to the coverage history of the job
+	    CoverageHistory.append(CoverageHistory.getDir(build.getParent()), build.getNumber(),
+		    build.getTimeInMillis(), summary, bytes);
+	} catch (IOException e) {
+	    // Log, the build is only missing in the trend
+	    listener.getLogger().println(Messages.CoverageArchiver_HistoryFailed(e.getMessage()));
 	}
 	// Add the build action
 	build.addAction(new CoverageBuildAction(build));
@@ -202,6 +425,547 @@ public class CoveragePublisher extends Recorder {
 	return true;
     }
 
+    /**
+     * Find, validate and summarize the reports on the node hosting the
+     * workspace, in a single call. The reports stored as files or as an
+     * archive are streamed to master by the same call, in a single
+     * compressed stream, each report being logged as it is sent.
+     * 
+     * @param workspace
+     *            The workspace
+     * @param environment
+     *            The environment of the build
+     * @param kind
+     *            The storage of the reports
+     * @param lines
+     *            Check if the coverage data is needed to record the covered
+     *            lines
+     * @param base
+     *            The base target folder on master
+     * @param archive
+     *            The archive on master
+     * @param listener
+     *            The listener to log the progress to
+     * @return The published reports
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private PublishedReports publish(FilePath workspace, EnvVars environment, CoverageStorage kind, boolean lines,
+	    File base, File archive, BuildListener listener) throws IOException, InterruptedException {
+	// Get the pattern of the report folders
+	String pattern = htmlDir == null ? null : environment.expand(htmlDir);
+	// Check if the reports are sent with the call
+	if (CoverageStorage.DEDUPLICATED == kind || CoverageStorage.DATA == kind)
+	    // Only find and read them, their content is sent once compared
+	    // with the stored one
+	    return workspace.act(new PublishReports(pattern, kind.getKey(), lines, listener, null));
+	// Write the archive in a temporary file so that it is never read
+	// partially
+	File tmp = new File(archive.getPath() + ".tmp");
+	// Store the published reports
+	PublishedReports reports;
+	// Store the number of transferred bytes
+	long transferred;
+	// Store the number of written bytes
+	long bytes;
+	// Check if the workspace is on a slave
+	if (workspace.isRemote()) {
+	    // Get a pipe to stream the archive to master
+	    Pipe pipe = Pipe.createRemoteToLocal();
+	    // Find and send the reports on the node hosting the workspace
+	    Future<PublishedReports> future = workspace
+		    .actAsync(new PublishReports(pattern, kind.getKey(), lines, listener, pipe.getOut()));
+	    // Count the transferred bytes
+	    CountingInputStream in = new CountingInputStream(pipe.getIn());
+	    try {
+		// Check if the reports are stored as a single archive
+		if (CoverageStorage.ARCHIVE == kind) {
+		    // Open the temporary file
+		    OutputStream out = new FileOutputStream(tmp);
+		    try {
+			// Write the archive while received
+			bytes = IOUtils.copyLarge(in, out);
+		    } finally {
+			// Close the file
+			out.close();
+		    }
+		}
+		// Else the report files are stored in a folder
+		else
+		    // Extract the archive while received
+		    bytes = ReportArchiver.extract(in, base);
+	    } finally {
+		// Close the pipe
+		in.close();
+	    }
+	    try {
+		// Wait for the end of the call
+		reports = future.get();
+	    } catch (ExecutionException e) {
+		// Cleanup
+		tmp.delete();
+		// Propagate the cause
+		throw new IOException("failed to archive the coverage reports", e.getCause());
+	    }
+	    // Get the number of transferred bytes
+	    transferred = in.getByteCount();
+	}
+	// Else the workspace is on master, the call is not serialized so that
+	// no pipe can be connected: write the archive in the temporary file
+	else {
+	    // Open the temporary file
+	    OutputStream out = new FileOutputStream(tmp);
+	    try {
+		// Find and write the reports
+		reports = workspace.act(new PublishReports(pattern, kind.getKey(), lines, listener, out));
+	    } catch (IOException e) {
+		// Cleanup
+		tmp.delete();
+		// Propagate
+		throw e;
+	    } finally {
+		// Close the file
+		out.close();
+	    }
+	    // Get the number of written bytes
+	    transferred = bytes = tmp.length();
+	    // Check if the report files are stored in a folder
+	    if (CoverageStorage.ARCHIVE != kind) {
+		// Open the temporary archive
+		InputStream in = new FileInputStream(tmp);
+		try {
+		    // Extract the archive
+		    bytes = ReportArchiver.extract(in, base);
+		} finally {
+		    // Close the archive
+		    in.close();
+		    // Cleanup
+		    tmp.delete();
+		}
+	    }
+	}
+	// Check if some reports were found
+	if (reports.getFolders().isEmpty()) {
+	    // Cleanup
+	    tmp.delete();
+	    // Nothing sent
+	    return reports;
+	}
+	// Check if stored as a single archive
+	if (CoverageStorage.ARCHIVE == kind && !tmp.renameTo(archive))
+	    // Failed to replace
+	    throw new IOException("failed to rename " + tmp + " to " + archive);
+	// Log the transfer
+	listener.getLogger().println(Messages.CoverageArchiver_Archived(reports.getCount(),
+		Functions.humanReadableByteSize(transferred)));
+	// Store the number of written bytes
+	reports.setBytes(bytes);
+	// Return the published reports
+	return reports;
+    }
+
+    /**
+     * Store the reports as deduplicated files: the digests of the files are
+     * computed on the node hosting the workspace when the reports are found,
+     * and only the files whose content is not already stored on master are
+     * transferred, in a single archive.
+     * 
+     * @param workspace
+     *            The workspace
+     * @param reports
+     *            The published reports, with the digests of their files
+     * @param file
+     *            The manifest file on master
+     * @param listener
+     *            The listener to log the progress to
+     * @return The number of bytes written in the blob store
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private long deduplicate(FilePath workspace, PublishedReports reports, File file, BuildListener listener)
+	    throws IOException, InterruptedException {
+	// Get the paths of the report folders
+	List<String> remotes = new ArrayList<String>(reports.getFolders().values());
+	// Get their paths in the manifest
+	List<String> targets = new ArrayList<String>(reports.getFolders().keySet());
+	// Get the digests of the files, computed on the node hosting them
+	Manifest manifest = reports.getManifest();
+	// Get the blob store
+	BlobStore blobs = BlobStore.get();
+	// Reference the blobs before storing them so that they cannot be
+	// released by a concurrent build deletion
+	blobs.acquire(manifest.getHashes());
+	// Store the number of written bytes
+	long bytes = 0;
+	// Check if the manifest was saved
+	boolean saved = false;
+	try {
+	    // Store the path of a file for each blob to transfer
+	    Map<String, String> missing = new LinkedHashMap<String, String>();
+	    // Go threw the files
+	    for (Map.Entry<String, Manifest.Entry> entry : manifest.getEntries().entrySet())
+		// Check if the content is already stored
+		if (!missing.containsKey(entry.getValue().getHash()) && !blobs.contains(entry.getValue().getHash()))
+		    // Transfer this file
+		    missing.put(entry.getValue().getHash(), entry.getKey());
+	    // Check if there is something to transfer
+	    if (!missing.isEmpty())
+		// Transfer the missing files
+		bytes = transfer(workspace, remotes, targets, missing, blobs, new File(file.getPath() + ".tmp"),
+			listener);
+	    // Write the manifest
+	    manifest.save(file);
+	    // Saved
+	    saved = true;
+	    // Log the transfer
+	    listener.getLogger().println(Messages.CoverageArchiver_Deduplicated(manifest.getEntries().size(),
+		    missing.size(), Functions.humanReadableByteSize(bytes)));
+	} finally {
+	    // Check if failed
+	    if (!saved)
+		// Release the blobs
+		blobs.release(manifest.getHashes());
+	    // The blobs are now referenced by the manifest or released
+	    blobs.settle(manifest.getHashes());
+	}
+	// Return the number of written bytes
+	return bytes;
+    }
+
+    /**
+     * Store the coverage data of the reports. The pages of the reports are
+     * read on the node hosting them when the reports are found, only the
+     * states of their lines and their highlighted sources are kept, and only
+     * the sources not already stored are transferred.
+     * 
+     * @param workspace
+     *            The workspace
+     * @param reports
+     *            The published reports, with their coverage data
+     * @param file
+     *            The data file on master
+     * @param listener
+     *            The listener to log the progress to
+     * @return The number of bytes written in the data file and the blob store
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private long extract(FilePath workspace, PublishedReports reports, File file, BuildListener listener)
+	    throws IOException, InterruptedException {
+	// Get the pages, read on the node hosting them
+	CoverageData data = reports.getData();
+	// Get the blob store
+	BlobStore blobs = BlobStore.get();
+	// Reference the sources before storing them so that they cannot be
+	// released by a concurrent build deletion
+	blobs.acquire(data.getHashes());
+	// Store the number of written bytes
+	long bytes = 0;
+	// Check if the data file was saved
+	boolean saved = false;
+	try {
+	    // Store a page for each source to transfer
+	    Map<String, CoverageData.Page> missing = new LinkedHashMap<String, CoverageData.Page>();
+	    // Go threw the pages
+	    for (CoverageData.Page page : data.getPages().values())
+		// Check if the source is already stored
+		if (!missing.containsKey(page.getHash()) && !blobs.contains(page.getHash()))
+		    // Transfer this source
+		    missing.put(page.getHash(), page);
+	    // Check if there is something to transfer
+	    if (!missing.isEmpty()) {
+		// Read the missing sources on the node hosting them
+		Map<String, String> sources = workspace.act(new ReadSources(reports.getFolders(),
+			new ArrayList<CoverageData.Page>(missing.values())));
+		// Go threw the sources
+		for (Map.Entry<String, CoverageData.Page> entry : missing.entrySet()) {
+		    // Get the source
+		    String source = sources.get(entry.getValue().getStorePath());
+		    // Check if read
+		    if (source == null)
+			// Deleted in the meantime
+			throw new IOException("missing source of " + entry.getValue().getStorePath());
+		    // Store it, checking that it did not change in the meantime
+		    bytes += blobs.put(entry.getKey(), new ByteArrayInputStream(source.getBytes("UTF-8")));
+		}
+	    }
+	    // Write the data file
+	    data.save(file);
+	    // Saved
+	    saved = true;
+	    // Add its size
+	    bytes += file.length();
+	    // Log the transfer
+	    listener.getLogger().println(Messages.CoverageArchiver_Extracted(data.getPages().size(), missing.size(),
+		    Functions.humanReadableByteSize(bytes)));
+	} finally {
+	    // Check if failed
+	    if (!saved)
+		// Release the sources
+		blobs.release(data.getHashes());
+	    // The sources are now referenced by the data file or released
+	    blobs.settle(data.getHashes());
+	}
+	// Return the number of written bytes
+	return bytes;
+    }
+
+    /**
+     * Transfer some files in an archive written on the node hosting the
+     * workspace, and store their content in the blob store.
+     * 
+     * @param workspace
+     *            The workspace
+     * @param remotes
+     *            The report folders
+     * @param targets
+     *            The paths of the report folders in the manifest
+     * @param missing
+     *            The path of the file to transfer for each blob
+     * @param blobs
+     *            The blob store
+     * @param tmp
+     *            The temporary archive on master
+     * @param listener
+     *            The listener to log the progress to
+     * @return The number of bytes written in the blob store
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private long transfer(FilePath workspace, List<String> remotes, List<String> targets, Map<String, String> missing,
+	    BlobStore blobs, File tmp, BuildListener listener) throws IOException, InterruptedException {
+	// Store the number of written bytes
+	long bytes = 0;
+	try {
+	    // Open the temporary archive
+	    OutputStream out = new FileOutputStream(tmp);
+	    try {
+		// Write the archive
+		workspace.act(new ArchiveReports(remotes, targets, new ArrayList<String>(missing.values()), listener,
+			new RemoteOutputStream(out)));
+		// Wait for all the data to be written
+		if (workspace.getChannel() instanceof Channel)
+		    // Synchronize
+		    ((Channel) workspace.getChannel()).syncLocalIO();
+	    } finally {
+		// Close the file
+		out.close();
+	    }
+	    // Read the archive
+	    ZipFile zip = new ZipFile(tmp);
+	    try {
+		// Go threw the blobs
+		for (Map.Entry<String, String> blob : missing.entrySet()) {
+		    // Get the entry of the file
+		    ZipEntry entry = zip.getEntry(blob.getValue());
+		    // Check if transferred
+		    if (entry == null)
+			// Deleted in the meantime
+			throw new IOException("missing " + blob.getValue() + " in " + tmp);
+		    // Read its content
+		    InputStream in = zip.getInputStream(entry);
+		    try {
+			// Store it
+			bytes += blobs.put(blob.getKey(), in);
+		    } finally {
+			// Close the entry
+			in.close();
+		    }
+		}
+	    } finally {
+		// Close the archive
+		zip.close();
+	    }
+	} finally {
+	    // Delete the temporary archive
+	    tmp.delete();
+	}
+	// Return the number of written bytes
+	return bytes;
+    }
+
+    /**
+     * Record the states of the covered lines of the reports next to them, so
+     * that the matrix build can combine its configurations.
+     * 
+     * @param data
+     *            The coverage data of the reports, read when they were found
+     * @param base
+     *            The archived reports folder
+     * @param listener
+     *            The listener to log the failure to
+     */
+    private void lines(CoverageData data, File base, BuildListener listener) {
+	try {
+	    // Write the lines of the source files
+	    CoverageLines.of(data).save(CoverageLines.getFile(base));
+	} catch (IOException e) {
+	    // Log, the configuration is only missing in the combined coverage
+	    listener.getLogger().println(Messages.CoverageArchiver_LinesFailed(e.getMessage()));
+	}
+    }
+
+    /**
+     * Compare the coverage of a build with the one of the previous successful
+     * build, file by file, and store the changes next to the reports.
+     * 
+     * @param build
+     *            The build
+     * @param summary
+     *            The summary of the build
+     * @throws IOException
+     */
+    private void diff(AbstractBuild<?, ?> build, CoverageSummary summary) throws IOException {
+	// Get the previous successful build
+	Run<?, ?> previous = build.getPreviousSuccessfulBuild();
+	// Check if found
+	if (previous == null)
+	    // Nothing to compare to
+	    return;
+	// Get its summary
+	CoverageSummary before = CoverageSummary.get(getHtmlDir(previous));
+	// Check if summarized
+	if (before == null)
+	    // Nothing to compare to
+	    return;
+	// Compare and store the changes
+	CoverageDiff.compute(previous.getNumber(), before, summary).save(CoverageDiff.getFile(getHtmlDir(build)));
+    }
+
+    /**
+     * Check the coverage of a build against the thresholds, from its summary,
+     * and lower the result of the build if not met.
+     * 
+     * @param build
+     *            The build
+     * @param summary
+     *            The summary of the build
+     * @param listener
+     *            The listener to log the failed checks to
+     */
+    private void check(AbstractBuild<?, ?> build, CoverageSummary summary, BuildListener listener) {
+	// Get the thresholds
+	CoverageGate gate = getGate();
+	// Check if something is checked
+	if (!gate.isEnabled())
+	    // Nothing to check
+	    return;
+	// Check if the thresholds are met
+	boolean passed = true;
+	// Check the coverage of all the files
+	if (gate.isBelow(summary)) {
+	    // Log
+	    listener.error(Messages.CoverageArchiver_Gate_Below(summary.getTotals().getPercent(), minimum));
+	    // Failed
+	    passed = false;
+	}
+	// Get the previous successful build
+	Run<?, ?> previous = build.getPreviousSuccessfulBuild();
+	// Get its summary
+	CoverageSummary reference = previous == null ? null : CoverageSummary.get(getHtmlDir(previous));
+	// Check the drop versus this build
+	if (gate.isDropped(summary, reference)) {
+	    // Log
+	    listener.error(Messages.CoverageArchiver_Gate_Dropped(CoverageGate.getDrop(summary, reference),
+		    previous.getDisplayName(), maximumDrop));
+	    // Failed
+	    passed = false;
+	}
+	// Get the files below their minimum
+	SortedMap<String, CoverageCounts> files = gate.getFilesBelow(summary);
+	// Check if some files are below
+	if (!files.isEmpty()) {
+	    // Log
+	    listener.error(Messages.CoverageArchiver_Gate_FilesBelow(files.size(), fileMinimum));
+	    // Go threw the files
+	    for (Map.Entry<String, CoverageCounts> entry : files.entrySet())
+		// List the file
+		listener.getLogger().println(
+			Messages.CoverageArchiver_Gate_File(entry.getKey(), entry.getValue().getPercent()));
+	    // Failed
+	    passed = false;
+	}
+	// Check if failed
+	if (!passed)
+	    // Lower the result, never raised
+	    build.setResult(Result.fromString(gateResult));
+    }
+
+    /**
+     * Release the deduplicated files or sources of a build, deleting the
+     * content no more used by any build.
+     * 
+     * @param run
+     *            The build
+     * @throws IOException
+     */
+    public static void release(Run<?, ?> run) throws IOException {
+	// Delegate
+	release(getHtmlDir(run));
+    }
+
+    /**
+     * Release the deduplicated files or sources of an archived reports
+     * folder, deleting the content no more used by any build.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @throws IOException
+     */
+    public static void release(File base) throws IOException {
+	// Get the manifest
+	File file = ReportStore.getManifest(base);
+	// Check if the reports were deduplicated
+	if (file.isFile()) {
+	    // Release the blobs
+	    BlobStore.get().release(Manifest.load(file).getHashes());
+	    // Delete the manifest
+	    if (!file.delete())
+		// Failed to delete
+		throw new IOException("failed to delete " + file);
+	}
+	// Get the coverage data
+	file = ReportStore.getData(base);
+	// Check if only the coverage data was stored
+	if (file.isFile()) {
+	    // Release the sources
+	    BlobStore.get().release(CoverageData.load(file).getHashes());
+	    // Delete the data file
+	    if (!file.delete())
+		// Failed to delete
+		throw new IOException("failed to delete " + file);
+	}
+    }
+
+    /**
+     * Delete the full reports of an archived reports folder, whatever their
+     * storage. The summary, the index and the changes are kept, so that the
+     * build still shows its coverage.
+     * 
+     * @param base
+     *            The archived reports folder
+     * @return True if some reports were deleted, else false
+     * @throws IOException
+     */
+    public static boolean compact(File base) throws IOException {
+	// Check if there is something to delete
+	if (!ReportStore.isArchived(base))
+	    // Already compacted
+	    return false;
+	// Delete the report files
+	FileUtils.deleteDirectory(base);
+	// Get the archive
+	File archive = ReportStore.getArchive(base);
+	// Delete it
+	if (archive.isFile() && !archive.delete())
+	    // Failed to delete
+	    throw new IOException("failed to delete " + archive);
+	// Release the deduplicated files or sources
+	release(base);
+	// Compacted
+	return true;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -215,6 +979,17 @@ public class CoveragePublisher extends Recorder {
 	return Collections.<Action> singleton(new CoverageProjectAction(project));
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * hudson.matrix.MatrixAggregatable#createAggregator(hudson.matrix.MatrixBuild
+     * , hudson.Launcher, hudson.model.BuildListener)
+     */
+    public MatrixAggregator createAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+	return new CoverageAggregator(build, launcher, listener);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -236,6 +1011,521 @@ public class CoveragePublisher extends Recorder {
 	return run == null ? null : new File(run.getRootDir(), BASENAME);
     }
 
+    /**
+     * Write an archive of report folders on the node hosting them.
+     */
+    private static class ArchiveReports extends MasterToSlaveFileCallable<Integer> {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The paths of the report folders.
+	 */
+	private final List<String> dirs;
+
+	/**
+	 * The paths of the report folders in the archive.
+	 */
+	private final List<String> targets;
+
+	/**
+	 * The paths of the files to archive, null for all.
+	 */
+	private final List<String> paths;
+
+	/**
+	 * The listener to log the archived reports to.
+	 */
+	private final TaskListener listener;
+
+	/**
+	 * The stream to write the archive to.
+	 */
+	private final OutputStream out;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param dirs
+	 *            The paths of the report folders
+	 * @param targets
+	 *            The paths of the report folders in the archive
+	 * @param paths
+	 *            The paths of the files to archive, null for all
+	 * @param listener
+	 *            The listener to log the archived reports to
+	 * @param out
+	 *            The stream to write the archive to
+	 */
+	private ArchiveReports(List<String> dirs, List<String> targets, List<String> paths, TaskListener listener,
+		OutputStream out) {
+	    // Call super
+	    super();
+	    // Store the folders
+	    this.dirs = dirs;
+	    // Store their paths in the archive
+	    this.targets = targets;
+	    // Store the files to archive
+	    this.paths = paths;
+	    // Store the listener
+	    this.listener = listener;
+	    // Store the stream
+	    this.out = out;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see hudson.FilePath.FileCallable#invoke(java.io.File,
+	 * hudson.remoting.VirtualChannel)
+	 */
+	public Integer invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+	    // Get the archiver
+	    ReportArchiver archiver = new ReportArchiver();
+	    // Go threw the folders
+	    for (int i = 0; i < dirs.size(); i++)
+		// Add the folder, included reports are ignored
+		archiver.add(new File(dirs.get(i)), targets.get(i));
+	    // Write the archive, logging each report as it is sent
+	    return archiver.write(out, paths, listener.getLogger());
+	}
+    }
+
+    /**
+     * The reports found on the node hosting the workspace, with their
+     * coverage and, depending on the storage, the digests of their files or
+     * their coverage data.
+     */
+    private static class PublishedReports implements Serializable {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The paths of the report folders, by path in the archived reports
+	 * folder.
+	 */
+	private final SortedMap<String, String> folders;
+
+	/**
+	 * The coverage of the reports.
+	 */
+	private final CoverageSummary summary;
+
+	/**
+	 * The digests of the files of the reports, null if not computed.
+	 */
+	private final Manifest manifest;
+
+	/**
+	 * The coverage data of the reports, null if not read.
+	 */
+	private final CoverageData data;
+
+	/**
+	 * The number of files sent.
+	 */
+	private final int count;
+
+	/**
+	 * The number of bytes written on master.
+	 */
+	private transient long bytes;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param folders
+	 *            The paths of the report folders, by path in the archived
+	 *            reports folder
+	 * @param summary
+	 *            The coverage of the reports
+	 * @param manifest
+	 *            The digests of the files of the reports, null if not
+	 *            computed
+	 * @param data
+	 *            The coverage data of the reports, null if not read
+	 * @param count
+	 *            The number of files sent
+	 */
+	private PublishedReports(SortedMap<String, String> folders, CoverageSummary summary, Manifest manifest,
+		CoverageData data, int count) {
+	    // Call super
+	    super();
+	    // Store the folders
+	    this.folders = folders;
+	    // Store the coverage
+	    this.summary = summary;
+	    // Store the digests
+	    this.manifest = manifest;
+	    // Store the coverage data
+	    this.data = data;
+	    // Store the number of files
+	    this.count = count;
+	}
+
+	/**
+	 * Get the paths of the report folders, by path in the archived reports
+	 * folder.
+	 * 
+	 * @return The folders, empty if no report found
+	 */
+	public SortedMap<String, String> getFolders() {
+	    return folders;
+	}
+
+	/**
+	 * Get the coverage of the reports.
+	 * 
+	 * @return The summary
+	 */
+	public CoverageSummary getSummary() {
+	    return summary;
+	}
+
+	/**
+	 * Get the digests of the files of the reports.
+	 * 
+	 * @return The manifest, null if not computed
+	 */
+	public Manifest getManifest() {
+	    return manifest;
+	}
+
+	/**
+	 * Get the coverage data of the reports.
+	 * 
+	 * @return The data, null if not read
+	 */
+	public CoverageData getData() {
+	    return data;
+	}
+
+	/**
+	 * Get the number of files sent.
+	 * 
+	 * @return The number of files
+	 */
+	public int getCount() {
+	    return count;
+	}
+
+	/**
+	 * Get the number of bytes written on master.
+	 * 
+	 * @return The number of bytes
+	 */
+	public long getBytes() {
+	    return bytes;
+	}
+
+	/**
+	 * Set the number of bytes written on master.
+	 * 
+	 * @param bytes
+	 *            The number of bytes
+	 */
+	public void setBytes(long bytes) {
+	    this.bytes = bytes;
+	}
+    }
+
+    /**
+     * Find the reports on the node hosting the workspace, validate and
+     * summarize them, and depending on the storage send them in a single
+     * archive, compute the digests of their files or read their coverage
+     * data, all in a single call.
+     */
+    private static class PublishReports extends MasterToSlaveFileCallable<PublishedReports> {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The Ant pattern of the report folders, null to look in the whole
+	 * workspace.
+	 */
+	private final String pattern;
+
+	/**
+	 * The key of the storage of the reports.
+	 */
+	private final String storage;
+
+	/**
+	 * Check if the coverage data is needed to record the covered lines.
+	 */
+	private final boolean lines;
+
+	/**
+	 * The listener to log the sent reports to.
+	 */
+	private final TaskListener listener;
+
+	/**
+	 * The stream to write the archive to, null if the reports are not sent.
+	 */
+	private final OutputStream out;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param pattern
+	 *            The Ant pattern of the report folders, null to look in the
+	 *            whole workspace
+	 * @param storage
+	 *            The key of the storage of the reports
+	 * @param lines
+	 *            Check if the coverage data is needed to record the covered
+	 *            lines
+	 * @param listener
+	 *            The listener to log the sent reports to
+	 * @param out
+	 *            The stream to write the archive to, null if the reports are
+	 *            not sent
+	 */
+	private PublishReports(String pattern, String storage, boolean lines, TaskListener listener,
+		OutputStream out) {
+	    // Call super
+	    super();
+	    // Store the pattern
+	    this.pattern = pattern;
+	    // Store the storage
+	    this.storage = storage;
+	    // Store if the lines are recorded
+	    this.lines = lines;
+	    // Store the listener
+	    this.listener = listener;
+	    // Store the stream
+	    this.out = out;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see hudson.FilePath.FileCallable#invoke(java.io.File,
+	 * hudson.remoting.VirtualChannel)
+	 */
+	public PublishedReports invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+	    try {
+		// Look for the reports
+		List<String> dirs = ReportFinder.find(f, pattern);
+		// Store the report folders by path in the archived reports folder
+		SortedMap<String, String> folders = new TreeMap<String, String>();
+		// Go threw the reports
+		for (String dir : dirs)
+		    // Add the folder
+		    folders.put(getTargetPath(f, dir, dirs.size() == 1), dir);
+		// Read the coverage of the reports
+		CoverageSummary summary = summarize(folders);
+		// Get the storage
+		CoverageStorage kind = CoverageStorage.get(storage);
+		// Store the digests of the files
+		Manifest manifest = null;
+		// Store the coverage data
+		CoverageData data = null;
+		// Store the number of sent files
+		int count = 0;
+		// Check if the reports are sent
+		if (out != null)
+		    // Send them in a single archive
+		    count = getArchiver(folders).write(out, null, listener.getLogger());
+		// Check if the reports are deduplicated
+		else if (CoverageStorage.DEDUPLICATED == kind)
+		    // Compute the digests of their files
+		    manifest = getArchiver(folders).digest();
+		// Check if only the coverage data is stored, or if it is needed
+		if (CoverageStorage.DATA == kind || (lines && !folders.isEmpty()))
+		    // Read the pages, with the digests of their sources if stored
+		    data = extract(folders, CoverageStorage.DATA == kind);
+		// Return the reports
+		return new PublishedReports(folders, summary, manifest, data, count);
+	    } finally {
+		// Check if the reports are sent
+		if (out != null)
+		    // Always end the stream, even if empty or failed
+		    IOUtils.closeQuietly(out);
+	    }
+	}
+
+	/**
+	 * Get the path of a report folder in the archived reports folder.
+	 * 
+	 * @param workspace
+	 *            The workspace
+	 * @param dir
+	 *            The path of the report folder
+	 * @param single
+	 *            Is there only one report
+	 * @return The relative path, blank for the archived reports folder
+	 */
+	private static String getTargetPath(File workspace, String dir, boolean single) {
+	    // If only one report, copy it in the base folder
+	    if (single)
+		// Return the base folder
+		return "";
+	    // Else replicate the workspace tree. Get the workspace path.
+	    String ws = workspace.getPath();
+	    // Get the index to delete the workspace path
+	    int beginIndex = ws.endsWith("/") || ws.endsWith("\\") ? ws.length() : ws.length() + 1;
+	    // Delete workspace part
+	    return dir.substring(beginIndex).replace('\\', '/');
+	}
+
+	/**
+	 * Get an archiver of the reports, included reports being ignored.
+	 * 
+	 * @param folders
+	 *            The report folders, by path in the archived reports folder
+	 * @return The archiver
+	 */
+	private static ReportArchiver getArchiver(SortedMap<String, String> folders) {
+	    // Get the archiver
+	    ReportArchiver archiver = new ReportArchiver();
+	    // Go threw the folders, the including ones first
+	    for (Map.Entry<String, String> folder : folders.entrySet())
+		// Add the folder, included reports are ignored
+		archiver.add(new File(folder.getValue()), folder.getKey());
+	    // Return the archiver
+	    return archiver;
+	}
+
+	/**
+	 * Read the status files of the reports.
+	 * 
+	 * @param folders
+	 *            The report folders, by path in the archived reports folder
+	 * @return The summary
+	 */
+	private static CoverageSummary summarize(SortedMap<String, String> folders) {
+	    // Get the summary
+	    CoverageSummary summary = new CoverageSummary();
+	    // Go threw the folders
+	    for (Map.Entry<String, String> folder : folders.entrySet()) {
+		try {
+		    // Read the status file of the report
+		    summary.add(folder.getKey(), StatusParser.parse(new File(folder.getValue())));
+		} catch (IOException e) {
+		    // Remember that this report is not summarized
+		    summary.addWarning(folder.getValue() + ": " + e.getMessage());
+		}
+	    }
+	    // Return the summary
+	    return summary;
+	}
+
+	/**
+	 * Read the coverage data of the pages of the reports, logging each
+	 * report when its data is stored.
+	 * 
+	 * @param folders
+	 *            The report folders, by path in the archived reports folder
+	 * @param digest
+	 *            Check if the data is stored, the digests of the sources
+	 *            being then computed
+	 * @return The data
+	 * @throws IOException
+	 */
+	private CoverageData extract(SortedMap<String, String> folders, boolean digest) throws IOException {
+	    // Get the data
+	    CoverageData data = new CoverageData();
+	    // Go threw the folders
+	    for (Map.Entry<String, String> folder : folders.entrySet()) {
+		// Check if the data is stored
+		if (digest)
+		    // Log the progress
+		    listener.getLogger().println(Messages.CoverageArchiver_Archiving(folder.getValue()));
+		// Add the report, even without page
+		data.addReport(folder.getKey());
+		// Go threw its pages
+		for (File page : ReportParser.getPages(new File(folder.getValue()))) {
+		    // Read the page
+		    ReportParser.Source source = ReportParser.parse(page);
+		    // Check if this page shows a source file
+		    if (source == null)
+			// Next page
+			continue;
+		    // Get the digest of its source, blank if not needed
+		    String hash = digest ? Manifest.digest(new ByteArrayInputStream(source.getText().getBytes("UTF-8")))
+			    : "";
+		    // Add the page
+		    data.addPage(new CoverageData.Page(folder.getKey(), page.getName(), source.getPath(),
+			    CoverageData.encode(source.getStates()), hash));
+		}
+	    }
+	    // Return the data
+	    return data;
+	}
+    }
+
+    /**
+     * Read the highlighted sources of pages on the node hosting them.
+     */
+    private static class ReadSources extends MasterToSlaveFileCallable<Map<String, String>> {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The paths of the report folders, by path in the data.
+	 */
+	private final Map<String, String> folders;
+
+	/**
+	 * The pages.
+	 */
+	private final List<CoverageData.Page> pages;
+
+	/**
+	 * Constructor using fields.
+	 * 
+	 * @param folders
+	 *            The paths of the report folders, by path in the data
+	 * @param pages
+	 *            The pages
+	 */
+	private ReadSources(Map<String, String> folders, List<CoverageData.Page> pages) {
+	    // Call super
+	    super();
+	    // Store the folders
+	    this.folders = folders;
+	    // Store the pages
+	    this.pages = pages;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see hudson.FilePath.FileCallable#invoke(java.io.File,
+	 * hudson.remoting.VirtualChannel)
+	 */
+	public Map<String, String> invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+	    // Store the sources
+	    Map<String, String> sources = new HashMap<String, String>();
+	    // Go threw the pages
+	    for (CoverageData.Page page : pages) {
+		// Read the page
+		ReportParser.Source source = ReportParser
+			.parse(new File(folders.get(page.getReport()), page.getName()));
+		// Check if still a source page
+		if (source != null)
+		    // Add its source
+		    sources.put(page.getStorePath(), source.getText());
+	    }
+	    // Return the sources
+	    return sources;
+	}
+    }
+
     /**
      * Recorder descriptor.
      */
@@ -289,5 +1579,89 @@ public class CoveragePublisher extends Recorder {
 	    // If a workspace is available, check that the value is relative
 	    return workspace != null ? workspace.validateFileMask(value) : FormValidation.ok();
 	}
+
+	/**
+	 * Check if the number of builds keeping their full reports is valid.
+	 * 
+	 * @param value
+	 *            The value to check
+	 * @return Success if blank or a non negative integer
+	 */
+	public FormValidation doCheckKeep(@QueryParameter String value) {
+	    // Check if blank
+	    if (Util.fixEmptyAndTrim(value) == null)
+		// Keep all the reports
+		return FormValidation.ok();
+	    // Else check that this is a number
+	    return FormValidation.validateNonNegativeInteger(value);
+	}
+
+	/**
+	 * Check if a percentage threshold is valid.
+	 * 
+	 * @param value
+	 *            The value to check
+	 * @return Success if blank or a number between 0 and 100
+	 */
+	private static FormValidation checkThreshold(String value) {
+	    // Check if blank
+	    if (Util.fixEmptyAndTrim(value) == null)
+		// Not checked
+		return FormValidation.ok();
+	    try {
+		// Parse the value
+		double threshold = Double.parseDouble(value.trim());
+		// Check the range
+		if (threshold >= 0 && threshold <= 100)
+		    // Valid
+		    return FormValidation.ok();
+	    } catch (NumberFormatException e) {
+		// Invalid
+	    }
+	    // Not a percentage
+	    return FormValidation.error(Messages.CoverageArchiver_Gate_Invalid());
+	}
+
+	/**
+	 * Check if the minimum covered percentage of all the files is valid.
+	 * 
+	 * @param value
+	 *            The value to check
+	 * @return Success if blank or a percentage
+	 */
+	public FormValidation doCheckMinimum(@QueryParameter String value) {
+	    return checkThreshold(value);
+	}
+
+	/**
+	 * Check if the minimum covered percentage of each file is valid.
+	 * 
+	 * @param value
+	 *            The value to check
+	 * @return Success if blank or a percentage
+	 */
+	public FormValidation doCheckFileMinimum(@QueryParameter String value) {
+	    return checkThreshold(value);
+	}
+
+	/**
+	 * Check if the maximum drop of the covered percentage is valid.
+	 * 
+	 * @param value
+	 *            The value to check
+	 * @return Success if blank or a percentage
+	 */
+	public FormValidation doCheckMaximumDrop(@QueryParameter String value) {
+	    return checkThreshold(value);
+	}
+
+	/**
+	 * Get the list of the available storages.
+	 * 
+	 * @return The list of storages
+	 */
+	public List<CoverageStorage> getStorages() {
+	    return CoverageStorage.ALL;
+	}
     }
 }
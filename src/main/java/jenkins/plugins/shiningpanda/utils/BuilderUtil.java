@@ -28,16 +28,22 @@ import java.util.List;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.matrix.MatrixRun;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
+import hudson.model.TaskListener;
 import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.actions.profile.ImportTimeAction;
+import jenkins.plugins.shiningpanda.actions.profile.ProfileAction;
 import jenkins.plugins.shiningpanda.command.Command;
 import jenkins.plugins.shiningpanda.command.CommandNature;
+import jenkins.plugins.shiningpanda.command.ImportTimePythonCommand;
 import jenkins.plugins.shiningpanda.interpreters.Python;
 import jenkins.plugins.shiningpanda.interpreters.Virtualenv;
 import jenkins.plugins.shiningpanda.matrix.PythonAxis;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
+import jenkins.plugins.shiningpanda.workspace.Workspace;
 
 public class BuilderUtil {
 
@@ -133,7 +139,7 @@ public class BuilderUtil {
      * @throws IOException
      * @throws InterruptedException
      */
-    public static Python getInterpreter(Launcher launcher, BuildListener listener, String home)
+    public static Python getInterpreter(Launcher launcher, TaskListener listener, String home)
 	    throws IOException, InterruptedException {
 	// Get an interpreter given its home
 	Python interpreter = Python.fromHome(new FilePath(launcher.getChannel(), home));
@@ -157,6 +163,32 @@ public class BuilderUtil {
 	return interpreter;
     }
 
+    /**
+     * Get the interpreter of an installation, tagged with the name of the
+     * installation.
+     * 
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param installation
+     *            The installation, already converted for the build
+     * @return The interpreter if exists, else null
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static Python getInterpreter(Launcher launcher, TaskListener listener, PythonInstallation installation)
+	    throws IOException, InterruptedException {
+	// Get the interpreter given its home
+	Python interpreter = getInterpreter(launcher, listener, installation.getHome());
+	// Check if found a valid interpreter
+	if (interpreter != null)
+	    // Remember the installation it comes from
+	    interpreter.setInstallation(installation.getName());
+	// Return the interpreter
+	return interpreter;
+    }
+
     /**
      * Get a VIRTUALENV from its home folder.
      * 
@@ -184,6 +216,37 @@ public class BuilderUtil {
 	return virtualenv;
     }
 
+    /**
+     * Perform a build step, timing its phases.
+     * 
+     * @param name
+     *            The name of the step
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The listener
+     * @param step
+     *            The step
+     * @return true if successful, else false
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public static boolean perform(String name, AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener,
+	    TimedStep step) throws InterruptedException, IOException {
+	// Time the phases of this step
+	PhaseTimer timer = PhaseTimer.start(build, name);
+	// Make sure that the step is recorded
+	try {
+	    // Delegate
+	    return step.execute(build, launcher, listener);
+	} finally {
+	    // Record the step
+	    timer.stop(listener);
+	}
+    }
+
     /**
      * Launch a command.
      * 
@@ -207,7 +270,7 @@ public class BuilderUtil {
      * @throws IOException
      * @throws InterruptedException
      */
-    public static boolean launch(Launcher launcher, BuildListener listener, FilePath pwd, EnvVars environment,
+    public static boolean launch(Launcher launcher, TaskListener listener, FilePath pwd, EnvVars environment,
 	    Python interpreter, String nature, String command, boolean ignoreExitCode)
 		    throws IOException, InterruptedException {
 	// Get PYTHON executable
@@ -221,6 +284,213 @@ public class BuilderUtil {
 		.launch(launcher, listener, environment, pwd);
     }
 
+    /**
+     * Launch a command, optionally running PYTHON scripts under the profiler
+     * or recording their import times, or in a persistent worker interpreter
+     * shared by the steps of the build, or in the daemon of the executor for
+     * JYTHON.
+     * 
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The build listener
+     * @param pwd
+     *            The working directory
+     * @param environment
+     *            The environment
+     * @param interpreter
+     *            The interpreter
+     * @param nature
+     *            The nature of the command: PYTHON, shell, X shell
+     * @param command
+     *            The command to execute
+     * @param ignoreExitCode
+     *            Is the exit code ignored?
+     * @param options
+     *            The options of the PYTHON scripts
+     * @return true if was successful, else false
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static boolean launch(AbstractBuild<?, ?> build, Launcher launcher, TaskListener listener, FilePath pwd,
+	    EnvVars environment, Python interpreter, String nature, String command, boolean ignoreExitCode,
+	    LaunchOptions options) throws IOException, InterruptedException {
+	// Check if the import times are recorded by a PYTHON script
+	if (options.isImportTime() && CommandNature.get(nature) == CommandNature.PYTHON)
+	    // Do not record them if not supported by the interpreter
+	    options = checkImportTime(build, launcher, listener, pwd, environment, interpreter, options);
+	// Check if profiled or if the import times are recorded
+	if (options.isInstrumented() && CommandNature.get(nature) == CommandNature.PYTHON)
+	    // Run it in a new instrumented interpreter
+	    return instrument(build, launcher, listener, pwd, environment, interpreter, command, ignoreExitCode,
+		    options);
+	// Check if the worker is required
+	if (!options.isPersistent() || CommandNature.get(nature) != CommandNature.PYTHON)
+	    // Delegate
+	    return launch(launcher, listener, pwd, environment, interpreter, nature, command, ignoreExitCode);
+	// Get PYTHON executable
+	String executable = interpreter.getExecutable().getRemote();
+	// Set the interpreter environment
+	environment.overrideAll(interpreter.getEnvironment());
+	// Add PYTHON_EXE environment variable
+	environment.override("PYTHON_EXE", executable);
+	// Check if this is a JYTHON
+	if (interpreter.isJython() != null)
+	    // JYTHON can not fork and is slow to start, use the daemon of the
+	    // executor
+	    return Command.getDaemon(FilePathUtil.isUnix(pwd), executable, CommandNature.get(nature), command,
+		    ignoreExitCode, Workspace.fromBuild(build).getDaemonWorkerPy())
+		    .launch(launcher, listener, environment, pwd);
+	// Launch the script in the worker
+	return Command.get(FilePathUtil.isUnix(pwd), executable, CommandNature.get(nature), command, ignoreExitCode,
+		build, Workspace.fromBuild(build).getWorkerPy()).launch(launcher, listener, environment, pwd);
+    }
+
+    /**
+     * Check that an interpreter supports the recording of the import times,
+     * available since PYTHON 3.7. If not, log a warning: the script runs
+     * without recording them rather than failing the build. The version is
+     * only checked once per interpreter and build.
+     * 
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The build listener
+     * @param pwd
+     *            The working directory
+     * @param environment
+     *            The environment
+     * @param interpreter
+     *            The interpreter
+     * @param options
+     *            The options of the PYTHON scripts
+     * @return The options, without the import times if not supported
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static LaunchOptions checkImportTime(AbstractBuild<?, ?> build, Launcher launcher, TaskListener listener,
+	    FilePath pwd, EnvVars environment, Python interpreter, LaunchOptions options)
+	    throws IOException, InterruptedException {
+	// Get the environment of the interpreter
+	EnvVars probe = new EnvVars(environment);
+	// Set the interpreter environment
+	probe.overrideAll(interpreter.getEnvironment());
+	// Get the version of the interpreter
+	int version = ImportTimePythonCommand.getVersion(build, launcher, listener, probe, pwd,
+		interpreter.getExecutable().getRemote());
+	// Check if supported
+	if (version >= ImportTimePythonCommand.MINIMUM_VERSION)
+	    // Keep the options
+	    return options;
+	// Log
+	listener.getLogger().println(Messages
+		.BuilderUtil_ImportTime_Unsupported(version < 0 ? "?" : (version / 100) + "." + (version % 100)));
+	// Run without recording the import times
+	return new LaunchOptions(options.isPersistent(), options.isProfile(), false);
+    }
+
+    /**
+     * Launch a PYTHON script under the cProfile module and record its profile
+     * in the build, or record its import times in the build, or both.
+     * 
+     * @param build
+     *            The build
+     * @param launcher
+     *            The launcher
+     * @param listener
+     *            The build listener
+     * @param pwd
+     *            The working directory
+     * @param environment
+     *            The environment
+     * @param interpreter
+     *            The interpreter
+     * @param command
+     *            The command to execute
+     * @param ignoreExitCode
+     *            Is the exit code ignored?
+     * @param options
+     *            The options of the PYTHON scripts
+     * @return true if was successful, else false
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static boolean instrument(AbstractBuild<?, ?> build, Launcher launcher, TaskListener listener,
+	    FilePath pwd, EnvVars environment, Python interpreter, String command, boolean ignoreExitCode,
+	    LaunchOptions options) throws IOException, InterruptedException {
+	// Get PYTHON executable
+	String executable = interpreter.getExecutable().getRemote();
+	// Set the interpreter environment
+	environment.overrideAll(interpreter.getEnvironment());
+	// Add PYTHON_EXE environment variable
+	environment.override("PYTHON_EXE", executable);
+	// Store the file receiving the statistics
+	FilePath stats = null;
+	// Check if profiled
+	if (options.isProfile()) {
+	    // Get the home folder of the workspace
+	    FilePath home = Workspace.fromBuild(build).getHome();
+	    // Create it
+	    home.mkdirs();
+	    // Get the file receiving the statistics, out of the job workspace
+	    stats = home.createTempFile("profile", ProfileAction.STATS);
+	}
+	// Be able to delete the statistics in all cases
+	try {
+	    // Store the result of the script
+	    boolean success;
+	    // Check if the import times are recorded
+	    if (options.isImportTime()) {
+		// Get the command
+		ImportTimePythonCommand python = Command.getImportTime(FilePathUtil.isUnix(pwd), executable, command,
+			ignoreExitCode, stats);
+		// Launch the script
+		success = python.launch(launcher, listener, environment, pwd);
+		// Record the import times, even if the script failed
+		ImportTimeAction.record(build, python.getTimes(), listener);
+	    } else
+		// Launch the script under the profiler
+		success = Command.getProfiled(FilePathUtil.isUnix(pwd), executable, CommandNature.PYTHON, command,
+			ignoreExitCode, stats).launch(launcher, listener, environment, pwd);
+	    // Check if profiled
+	    if (stats != null)
+		// Record the profile, even if the script failed
+		ProfileAction.record(build, getStepName(command), stats, listener);
+	    // Return the result of the script
+	    return success;
+	} finally {
+	    // Check if profiled
+	    if (stats != null)
+		// Delete the statistics on the executor
+		stats.delete();
+	}
+    }
+
+    /**
+     * Get the name of a profiled step: the first line of its command.
+     * 
+     * @param command
+     *            The command
+     * @return The name
+     */
+    private static String getStepName(String command) {
+	// Go threw the lines
+	for (String line : Util.fixNull(command).split("\\r?\\n")) {
+	    // Get the line without the blanks
+	    String name = line.trim();
+	    // Check if something left
+	    if (name.length() != 0)
+		// Truncate the long lines
+		return name.length() > 60 ? name.substring(0, 57) + "..." : name;
+	}
+	// Empty command
+	return "";
+    }
+
     /**
      * Get the first available interpreter on the executor.
      * 
@@ -273,9 +543,12 @@ public class BuilderUtil {
 	    Python interpreter = Python.fromHome(new FilePath(launcher.getChannel(), installation.getHome()));
 	    // Check if exists, is valid and has no whitespace in its home
 	    if (interpreter != null && interpreter.isValid()
-		    && !StringUtil.hasWhitespace(interpreter.getHome().getRemote()))
+		    && !StringUtil.hasWhitespace(interpreter.getHome().getRemote())) {
+		// Remember the installation it comes from
+		interpreter.setInstallation(installation.getName());
 		// Add the interpreter
 		interpreters.add(interpreter);
+	    }
 	}
 	// Return the list of interpreters
 	return interpreters;
@@ -22,6 +22,7 @@
 package jenkins.plugins.shiningpanda.utils;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.FileFileFilter;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.jenkinsci.remoting.RoleChecker;
 
 import hudson.FilePath;
@@ -69,7 +71,16 @@ public class FilePathUtil {
      * @throws InterruptedException
      */
     public static boolean isWindows(FilePath filePath) throws IOException, InterruptedException {
-	return filePath.act(new IsWindows()).booleanValue();
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Ask the executor
+	try {
+	    // Check the OS
+	    return filePath.act(new IsWindows()).booleanValue();
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
     }
 
     /**
@@ -152,8 +163,20 @@ public class FilePathUtil {
      * @throws InterruptedException
      */
     public static String read(FilePath filePath, String encoding) throws IOException, InterruptedException {
-	// Sometimes FilePath.readToString doesn't work, don't ask me why...
-	return filePath.act(new Read(filePath, encoding));
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Store the content
+	String content = null;
+	// Read the file
+	try {
+	    // Sometimes FilePath.readToString doesn't work, don't ask me why...
+	    content = filePath.act(new Read(filePath, encoding));
+	    // Return the content
+	    return content;
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, content == null ? 0 : content.getBytes(encoding).length);
+	}
     }
 
     /**
@@ -167,7 +190,7 @@ public class FilePathUtil {
      */
     public static FilePath existsOrNull(FilePath... filePaths) throws IOException, InterruptedException {
 	for (FilePath filePath : filePaths)
-	    if (filePath != null && filePath.exists())
+	    if (filePath != null && exists(filePath))
 		return filePath;
 	return null;
     }
@@ -183,7 +206,7 @@ public class FilePathUtil {
      */
     public static FilePath isDirectoryOrNull(FilePath... filePaths) throws IOException, InterruptedException {
 	for (FilePath filePath : filePaths)
-	    if (filePath != null && filePath.isDirectory())
+	    if (isDirectory(filePath))
 		return filePath;
 	return null;
     }
@@ -216,8 +239,8 @@ public class FilePathUtil {
      * @throws InterruptedException
      */
     public static boolean differ(FilePath filePath1, FilePath filePath2) throws IOException, InterruptedException {
-	if (filePath1.exists() && filePath2.exists())
-	    return filePath1.digest() != filePath2.digest();
+	if (exists(filePath1) && exists(filePath2))
+	    return !digest(filePath1).equals(digest(filePath2));
 	return true;
     }
 
@@ -233,8 +256,8 @@ public class FilePathUtil {
      * @throws InterruptedException
      */
     public static boolean differ(FilePath filePath, String content) throws IOException, InterruptedException {
-	if (filePath.exists())
-	    return filePath.digest() != Util.getDigestOf(content);
+	if (exists(filePath))
+	    return !digest(filePath).equals(Util.getDigestOf(content));
 	return true;
     }
 
@@ -248,7 +271,7 @@ public class FilePathUtil {
      * @throws InterruptedException
      */
     public static boolean isFile(FilePath filePath) throws IOException, InterruptedException {
-	return filePath != null && filePath.exists() && !filePath.isDirectory();
+	return filePath != null && exists(filePath) && !isDirectory(filePath);
     }
 
     /**
@@ -261,7 +284,229 @@ public class FilePathUtil {
      * @throws InterruptedException
      */
     public static boolean isDirectory(FilePath filePath) throws IOException, InterruptedException {
-	return filePath != null && filePath.isDirectory();
+	// Check if a path is provided
+	if (filePath == null)
+	    // No path, no directory
+	    return false;
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Check on the executor
+	try {
+	    // Check if this is a directory
+	    return filePath.isDirectory();
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
+    }
+
+    /**
+     * Check if the provided path exists.
+     * 
+     * @param filePath
+     *            The path to check
+     * @return true if exists, else false
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static boolean exists(FilePath filePath) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Check on the executor
+	try {
+	    // Check if exists
+	    return filePath.exists();
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
+    }
+
+    /**
+     * Get the MD5 digest of a file.
+     * 
+     * @param filePath
+     *            The file
+     * @return The digest
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static String digest(FilePath filePath) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Compute on the executor
+	try {
+	    // Get the digest
+	    return filePath.digest();
+	} finally {
+	    // Record the call, the digest is 32 bytes long
+	    RemotingStats.stop(filePath, start, 32);
+	}
+    }
+
+    /**
+     * Write a content in a file, creating its parent folders if required.
+     * 
+     * @param filePath
+     *            The file
+     * @param content
+     *            The content
+     * @param encoding
+     *            The encoding
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void write(FilePath filePath, String content, String encoding)
+	    throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Write on the executor
+	try {
+	    // Write the content
+	    filePath.write(content, encoding);
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, content.getBytes(encoding).length);
+	}
+    }
+
+    /**
+     * Copy a file.
+     * 
+     * @param src
+     *            The source file
+     * @param dest
+     *            The destination file
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void copy(FilePath src, FilePath dest) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Count the transferred bytes
+	CountingOutputStream out = new CountingOutputStream(dest.write());
+	// Copy
+	try {
+	    // Send the content of the source in the destination
+	    src.copyTo(out);
+	} finally {
+	    // Close the destination
+	    out.close();
+	    // Record the call on the remote side
+	    RemotingStats.stop(src.isRemote() ? src : dest, start, out.getByteCount());
+	}
+    }
+
+    /**
+     * List the children of a directory.
+     * 
+     * @param filePath
+     *            The directory
+     * @param filter
+     *            The filter, null to get all the children
+     * @return The children
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static List<FilePath> list(FilePath filePath, FileFilter filter) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// List on the executor
+	try {
+	    // Get the children
+	    return filePath.list(filter);
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
+    }
+
+    /**
+     * List the files of a directory matching an Ant pattern.
+     * 
+     * @param filePath
+     *            The directory
+     * @param includes
+     *            The Ant pattern
+     * @return The matching files
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static FilePath[] list(FilePath filePath, String includes) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// List on the executor
+	try {
+	    // Get the matching files
+	    return filePath.list(includes);
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
+    }
+
+    /**
+     * Create a directory and its parents if required.
+     * 
+     * @param filePath
+     *            The directory
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void mkdirs(FilePath filePath) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Create on the executor
+	try {
+	    // Create the directory
+	    filePath.mkdirs();
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
+    }
+
+    /**
+     * Delete a file or an empty directory.
+     * 
+     * @param filePath
+     *            The file
+     * @return true if deleted, else false
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static boolean delete(FilePath filePath) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Delete on the executor
+	try {
+	    // Delete the file
+	    return filePath.delete();
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
+    }
+
+    /**
+     * Delete a directory and its content.
+     * 
+     * @param filePath
+     *            The directory
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void deleteRecursive(FilePath filePath) throws IOException, InterruptedException {
+	// Get the start time of the call
+	long start = RemotingStats.start();
+	// Delete on the executor
+	try {
+	    // Delete the directory
+	    filePath.deleteRecursive();
+	} finally {
+	    // Record the call
+	    RemotingStats.stop(filePath, start, 0);
+	}
     }
 
     /**
@@ -279,7 +524,7 @@ public class FilePathUtil {
 	// Check if differ
 	if (differ(filePath, content))
 	    // If differ, write
-	    filePath.write(content, "UTF-8");
+	    write(filePath, content, "UTF-8");
 	// Return the file path
 	return filePath;
     }
@@ -301,12 +546,12 @@ public class FilePathUtil {
 	    // Check if differ
 	    if (differ(src, dest))
 		// If differ, copy
-		src.copyTo(dest);
+		copy(src, dest);
 	}
 	// Handle directory
 	else if (isDirectory(src)) {
 	    // Get the list of the files to synchronize
-	    List<FilePath> srcFiles = src.list(FileFileFilter.FILE);
+	    List<FilePath> srcFiles = list(src, FileFileFilter.FILE);
 	    // Get the list of the related file names
 	    List<String> srcNames = new ArrayList<String>();
 	    // Go threw the files
@@ -315,13 +560,13 @@ public class FilePathUtil {
 		srcNames.add(srcFile.getName());
 	    // Delete files in destination folder that don't exist anymore in
 	    // source folder
-	    if (dest.exists())
+	    if (exists(dest))
 		// List the files
-		for (FilePath destFile : dest.list(FileFileFilter.FILE))
+		for (FilePath destFile : list(dest, FileFileFilter.FILE))
 		    // Check if contained in the source files
 		    if (!srcNames.contains(destFile.getName()))
 			// If not delete it
-			destFile.delete();
+			delete(destFile);
 	    // Synchronize all files
 	    for (FilePath srcFile : srcFiles)
 		// Synchronize folders
@@ -355,7 +600,7 @@ public class FilePathUtil {
      */
     public static List<FilePath> listSharedLibraries(FilePath filePath) throws IOException, InterruptedException {
 	return !isDirectory(filePath) ? Collections.<FilePath> emptyList()
-		: Arrays.asList(filePath.list("*.so,*.so.*,*.dylib,*.dylib.*"));
+		: Arrays.asList(list(filePath, "*.so,*.so.*,*.dylib,*.dylib.*"));
     }
 
 }
@@ -0,0 +1,91 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import hudson.console.LineTransformationOutputStream;
+import jenkins.plugins.shiningpanda.profile.ImportTimes;
+
+public class ImportTimeOutputStream extends LineTransformationOutputStream {
+
+    /**
+     * The stream receiving the other lines.
+     */
+    private final OutputStream out;
+
+    /**
+     * The parsed import times.
+     */
+    private final ImportTimes times = new ImportTimes();
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param out
+     *            The stream receiving the lines that are not import times
+     */
+    public ImportTimeOutputStream(OutputStream out) {
+	// Call super
+	super();
+	// Store the stream
+	this.out = out;
+    }
+
+    /**
+     * Get the parsed import times.
+     * 
+     * @return The import times
+     */
+    public ImportTimes getTimes() {
+	return times;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.console.LineTransformationOutputStream#eol(byte[], int)
+     */
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+	// Import time lines are only made of ASCII characters
+	if (times.parse(trimEOL(new String(b, 0, len, "ISO-8859-1"))))
+	    // Consumed
+	    return;
+	// Forward the other lines untouched
+	out.write(b, 0, len);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.console.LineTransformationOutputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+	// Flush the last line if it is not terminated
+	super.close();
+	// Do not close the decorated stream as it is shared
+	out.flush();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.utils;
+
+public class LaunchOptions {
+
+    /**
+     * Run the PYTHON scripts in a persistent interpreter shared by the steps of
+     * the build.
+     */
+    private final boolean persistent;
+
+    /**
+     * Run the PYTHON scripts under the profiler and record their profile.
+     */
+    private final boolean profile;
+
+    /**
+     * Run the PYTHON scripts with the import times enabled and record them.
+     */
+    private final boolean importTime;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param persistent
+     *            Run the PYTHON scripts in a persistent interpreter shared by
+     *            the steps of the build
+     * @param profile
+     *            Run the PYTHON scripts under the profiler and record their
+     *            profile
+     * @param importTime
+     *            Run the PYTHON scripts with the import times enabled and
+     *            record them
+     */
+    public LaunchOptions(boolean persistent, boolean profile, boolean importTime) {
+	// Call super
+	super();
+	// Store the persistent flag
+	this.persistent = persistent;
+	// Store the profile flag
+	this.profile = profile;
+	// Store the import times flag
+	this.importTime = importTime;
+    }
+
+    /**
+     * Is the interpreter reused between the steps of the build?
+     * 
+     * @return true if reused, else false
+     */
+    public boolean isPersistent() {
+	return persistent;
+    }
+
+    /**
+     * Is the command profiled? A profiled command always runs in a new
+     * interpreter.
+     * 
+     * @return true if profiled, else false
+     */
+    public boolean isProfile() {
+	return profile;
+    }
+
+    /**
+     * Are the import times recorded? The command then always runs in a new
+     * interpreter.
+     * 
+     * @return true if recorded, else false
+     */
+    public boolean isImportTime() {
+	return importTime;
+    }
+
+    /**
+     * Is the command instrumented?
+     * 
+     * @return true if profiled or if the import times are recorded, else false
+     */
+    public boolean isInstrumented() {
+	return profile || importTime;
+    }
+}
@@ -51,6 +51,8 @@ public class LauncherUtil {
      */
     public static boolean launch(Launcher launcher, TaskListener listener, FilePath pwd, EnvVars environment,
 	    ArgumentListBuilder args) throws InterruptedException {
+	// Count the call
+	RemotingStats.count(pwd);
 	// Be able to display error
 	try {
 	    // Launch the process
@@ -85,6 +87,8 @@ public class LauncherUtil {
 	    throws InterruptedException, IOException {
 	// Get the arguments
 	ArgumentListBuilder args = new ArgumentListBuilder("ln", "-s", target.getRemote(), link.getRemote());
+	// Count the call
+	RemotingStats.count(link);
 	// Be able to display error
 	try {
 	    // Launch the process
@@ -0,0 +1,271 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.actions.timing.TimingAction;
+import jenkins.plugins.shiningpanda.actions.timing.TimingPhase;
+import jenkins.plugins.shiningpanda.actions.timing.TimingStep;
+
+public class PhaseTimer {
+
+    /**
+     * Interpreter lookup phase.
+     */
+    public static final String INTERPRETER = "interpreter lookup";
+
+    /**
+     * Packages synchronization phase.
+     */
+    public static final String PACKAGES = "packages sync";
+
+    /**
+     * VIRTUALENV signature check phase.
+     */
+    public static final String SIGNATURE = "signature check";
+
+    /**
+     * VIRTUALENV creation phase.
+     */
+    public static final String VIRTUALENV = "virtualenv creation";
+
+    /**
+     * PIP installation phase.
+     */
+    public static final String PIP = "pip install";
+
+    /**
+     * BUILDOUT bootstrap phase.
+     */
+    public static final String BOOTSTRAP = "bootstrap";
+
+    /**
+     * User command phase.
+     */
+    public static final String COMMAND = "user command";
+
+    /**
+     * The timer of the step running on the current thread.
+     */
+    private static final ThreadLocal<PhaseTimer> CURRENT = new ThreadLocal<PhaseTimer>();
+
+    /**
+     * The build.
+     */
+    private final AbstractBuild<?, ?> build;
+
+    /**
+     * The name of the step.
+     */
+    private final String step;
+
+    /**
+     * Start of the step in milliseconds since the start of the build.
+     */
+    private final long start;
+
+    /**
+     * Start of the step in nanoseconds.
+     */
+    private final long startNanos;
+
+    /**
+     * The completed phases.
+     */
+    private final List<TimingPhase> phases = new ArrayList<TimingPhase>();
+
+    /**
+     * The name of the running phase, null if none.
+     */
+    private String phase;
+
+    /**
+     * Start of the running phase in nanoseconds.
+     */
+    private long phaseNanos;
+
+    /**
+     * Number of remote calls when the running phase started.
+     */
+    private long phaseCalls;
+
+    /**
+     * Number of bytes transferred by remote calls when the running phase
+     * started.
+     */
+    private long phaseBytes;
+
+    /**
+     * Time spent in remote calls when the running phase started.
+     */
+    private long phaseTime;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param build
+     *            The build
+     * @param step
+     *            The name of the step
+     */
+    private PhaseTimer(AbstractBuild<?, ?> build, String step) {
+	// Call super
+	super();
+	// Store the build
+	this.build = build;
+	// Store the name of the step
+	this.step = step;
+	// Compute the start of the step relatively to the start of the build
+	this.start = Math.max(0, System.currentTimeMillis() - build.getStartTimeInMillis());
+	// Get the monotonic start
+	this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start to time a step on the current thread.
+     * 
+     * @param build
+     *            The build
+     * @param step
+     *            The name of the step
+     * @return The timer
+     */
+    public static PhaseTimer start(AbstractBuild<?, ?> build, String step) {
+	// Create the timer
+	PhaseTimer timer = new PhaseTimer(build, step);
+	// Make it the current one
+	CURRENT.set(timer);
+	// Return the timer
+	return timer;
+    }
+
+    /**
+     * Enter a new phase in the step running on the current thread, ending the
+     * running phase if any.
+     * 
+     * @param phase
+     *            The name of the phase, nothing done if null
+     * @return The name of the phase that was running, null if none
+     */
+    public static String enter(String phase) {
+	// Get the current timer
+	PhaseTimer timer = CURRENT.get();
+	// Check if timing
+	if (timer == null || phase == null)
+	    // Nothing to do
+	    return null;
+	// Get the running phase
+	String previous = timer.phase;
+	// End it
+	timer.end();
+	// Start the new one
+	timer.phase = phase;
+	// Store its start
+	timer.phaseNanos = System.nanoTime();
+	// Get the remoting statistics of the current thread
+	RemotingStats stats = RemotingStats.current();
+	// Store the number of remote calls
+	timer.phaseCalls = stats.getCalls();
+	// Store the number of transferred bytes
+	timer.phaseBytes = stats.getBytes();
+	// Store the time spent in remote calls
+	timer.phaseTime = stats.getTime();
+	// Return the previous phase
+	return previous;
+    }
+
+    /**
+     * Go back to a phase returned by {@link #enter(String)}, ending the
+     * running phase even if no phase was running before.
+     * 
+     * @param previous
+     *            The name of the phase to go back to, null if none
+     */
+    public static void restore(String previous) {
+	// Get the current timer
+	PhaseTimer timer = CURRENT.get();
+	// Check if timing
+	if (timer == null)
+	    // Nothing to do
+	    return;
+	// Check if a phase was running before
+	if (previous == null)
+	    // Only end the running phase
+	    timer.end();
+	else
+	    // Enter the previous phase again
+	    enter(previous);
+    }
+
+    /**
+     * End the running phase if any.
+     */
+    private void end() {
+	// Check if a phase is running
+	if (phase == null)
+	    // Nothing to do
+	    return;
+	// Get the end of the phase
+	long now = System.nanoTime();
+	// Get the remoting statistics of the current thread
+	RemotingStats stats = RemotingStats.current();
+	// Record the phase
+	phases.add(new TimingPhase(phase, start + TimeUnit.NANOSECONDS.toMillis(phaseNanos - startNanos),
+		TimeUnit.NANOSECONDS.toMillis(now - phaseNanos), stats.getCalls() - phaseCalls,
+		stats.getBytes() - phaseBytes, stats.getTime() - phaseTime));
+	// No running phase anymore
+	phase = null;
+    }
+
+    /**
+     * Stop timing the step, record it in the timing action of the build and
+     * log its remoting statistics.
+     * 
+     * @param listener
+     *            The listener
+     */
+    public void stop(TaskListener listener) {
+	// End the running phase
+	end();
+	// Check if this timer is the current one
+	if (CURRENT.get() == this)
+	    // Release it
+	    CURRENT.remove();
+	// Get the duration of the step
+	long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	// Create the step
+	TimingStep timing = new TimingStep(step, start, duration, phases);
+	// Record the step
+	TimingAction.get(build).add(timing);
+	// Check if some remote calls were made
+	if (timing.getRemoteCalls() != 0)
+	    // Log the remoting statistics of the step
+	    listener.getLogger().println(Messages.PhaseTimer_RemoteCalls(timing.getRemoteCalls(),
+		    timing.getRemoteBytes(), timing.getRemoteTime()));
+    }
+}
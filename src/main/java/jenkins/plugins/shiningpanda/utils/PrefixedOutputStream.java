@@ -0,0 +1,90 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import hudson.console.LineTransformationOutputStream;
+
+public class PrefixedOutputStream extends LineTransformationOutputStream {
+
+    /**
+     * The decorated stream.
+     */
+    private final OutputStream out;
+
+    /**
+     * The prefix added in front of each line.
+     */
+    private final byte[] prefix;
+
+    /**
+     * Constructor using fields.
+     * 
+     * @param out
+     *            The decorated stream
+     * @param prefix
+     *            The prefix added in front of each line
+     * @param charset
+     *            The charset used to encode the prefix
+     */
+    public PrefixedOutputStream(OutputStream out, String prefix, Charset charset) {
+	// Call super
+	super();
+	// Store the decorated stream
+	this.out = out;
+	// Store the encoded prefix
+	this.prefix = prefix.getBytes(charset);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.console.LineTransformationOutputStream#eol(byte[], int)
+     */
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+	// Write the whole line at once so concurrent writers do not interleave
+	byte[] line = new byte[prefix.length + len];
+	// Start with the prefix
+	System.arraycopy(prefix, 0, line, 0, prefix.length);
+	// Then the line itself
+	System.arraycopy(b, 0, line, prefix.length, len);
+	// Write it
+	out.write(line);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see hudson.console.LineTransformationOutputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+	// Flush the last line if it is not terminated
+	super.close();
+	// Do not close the decorated stream as it is shared
+	out.flush();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.FilePath;
+
+public class RemotingStats {
+
+    /**
+     * The statistics of the current thread.
+     */
+    private static final ThreadLocal<RemotingStats> CURRENT = new ThreadLocal<RemotingStats>() {
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.ThreadLocal#initialValue()
+	 */
+	@Override
+	protected RemotingStats initialValue() {
+	    return new RemotingStats();
+	}
+    };
+
+    /**
+     * The statistics of all the threads since the start of JENKINS.
+     */
+    private static final RemotingStats GLOBAL = new RemotingStats();
+
+    /**
+     * Number of remote calls.
+     */
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * Number of bytes transferred by the remote calls.
+     */
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Time spent in the remote calls in nanoseconds.
+     */
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * Get the number of remote calls.
+     * 
+     * @return The number of calls
+     */
+    public long getCalls() {
+	return calls.get();
+    }
+
+    /**
+     * Get the number of bytes transferred by the remote calls.
+     * 
+     * @return The number of bytes
+     */
+    public long getBytes() {
+	return bytes.get();
+    }
+
+    /**
+     * Get the time spent in the remote calls.
+     * 
+     * @return The time in milliseconds
+     */
+    public long getTime() {
+	return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+    }
+
+    /**
+     * Record a remote call.
+     * 
+     * @param bytes
+     *            The number of bytes transferred
+     * @param nanos
+     *            The time spent in nanoseconds
+     */
+    private void add(long bytes, long nanos) {
+	// Count the call
+	this.calls.incrementAndGet();
+	// Add the bytes
+	this.bytes.addAndGet(bytes);
+	// Add the time
+	this.nanos.addAndGet(nanos);
+    }
+
+    /**
+     * Get the statistics of the current thread.
+     * 
+     * @return The statistics
+     */
+    public static RemotingStats current() {
+	return CURRENT.get();
+    }
+
+    /**
+     * Get the statistics of all the threads since the start of JENKINS.
+     * 
+     * @return The statistics
+     */
+    public static RemotingStats global() {
+	return GLOBAL;
+    }
+
+    /**
+     * Get the start time of a call.
+     * 
+     * @return The start time in nanoseconds
+     */
+    public static long start() {
+	return System.nanoTime();
+    }
+
+    /**
+     * Record a call made by the current thread on the channel of the provided
+     * file, if this channel is a remote one.
+     * 
+     * @param filePath
+     *            The file
+     * @param start
+     *            The start time of the call as returned by start()
+     * @param bytes
+     *            The number of bytes transferred
+     */
+    public static void stop(FilePath filePath, long start, long bytes) {
+	// Check if remote
+	if (!filePath.isRemote())
+	    // Local calls are free
+	    return;
+	// Get the time spent
+	long nanos = System.nanoTime() - start;
+	// Record in the statistics of the current thread
+	current().add(bytes, nanos);
+	// Record in the global statistics
+	GLOBAL.add(bytes, nanos);
+    }
+
+    /**
+     * Count a call made by the current thread on the channel of the provided
+     * file, if this channel is a remote one. Used for process launches whose
+     * duration is not a round-trip.
+     * 
+     * @param filePath
+     *            The file
+     */
+    public static void count(FilePath filePath) {
+	// Record a call without time or payload
+	stop(filePath, System.nanoTime(), 0);
+    }
+}
@@ -46,8 +46,7 @@ public class SlaveWorkspace extends Workspace {
      */
     @Override
     public FilePath getPackagesDir() throws IOException, InterruptedException {
-	return FilePathUtil
-		.isDirectoryOrNull(FilePathUtil.synchronize(getMasterPackagesDir(), getHome().child(PACKAGES)));
+	return FilePathUtil.isDirectoryOrNull(stage(getMasterPackagesDir(), getHome().child(PACKAGES)));
     }
 
 }
@@ -22,6 +22,7 @@
 package jenkins.plugins.shiningpanda.workspace;
 
 import java.io.IOException;
+import java.net.URL;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,7 +37,10 @@ import hudson.model.Node;
 import hudson.model.Project;
 import hudson.util.IOUtils;
 import jenkins.model.Jenkins;
+import jenkins.plugins.shiningpanda.metrics.FlightEvent;
+import jenkins.plugins.shiningpanda.metrics.Metrics;
 import jenkins.plugins.shiningpanda.utils.FilePathUtil;
+import jenkins.plugins.shiningpanda.utils.RemotingStats;
 
 public abstract class Workspace {
 
@@ -80,6 +84,16 @@ public abstract class Workspace {
      */
     protected static String BOOTSTRAP = "bootstrap.py";
 
+    /**
+     * Name of the persistent PYTHON worker module.
+     */
+    protected static String WORKER = "worker.py";
+
+    /**
+     * Name of the folder of the node hosting the JYTHON daemons.
+     */
+    protected static String DAEMONS = "daemons";
+
     /**
      * Home folder for the workspace.
      */
@@ -136,10 +150,10 @@ public abstract class Workspace {
      */
     public FilePath getVirtualenvPy() throws IOException, InterruptedException {
 	// TODO: optimize transfer of PIP, SETUPTOOLS, WHEEL
-	getHome().child(SETUPTOOLS).copyFrom(getClass().getResource(SETUPTOOLS));
-	getHome().child(PIP).copyFrom(getClass().getResource(PIP));
-	getHome().child(WHEEL).copyFrom(getClass().getResource(WHEEL));
-	return FilePathUtil.synchronize(getHome().child(VIRTUALENV), getVirtualenvPyContent());
+	stage(getHome().child(SETUPTOOLS), getClass().getResource(SETUPTOOLS));
+	stage(getHome().child(PIP), getClass().getResource(PIP));
+	stage(getHome().child(WHEEL), getClass().getResource(WHEEL));
+	return stage(getHome().child(VIRTUALENV), getVirtualenvPyContent());
     }
 
     /**
@@ -160,7 +174,114 @@ public abstract class Workspace {
      * @throws InterruptedException
      */
     public FilePath getBootstrapPy() throws IOException, InterruptedException {
-	return FilePathUtil.synchronize(getHome().child(BOOTSTRAP), getBootstrapPyContent());
+	return stage(getHome().child(BOOTSTRAP), getBootstrapPyContent());
+    }
+
+    /**
+     * Get the persistent PYTHON worker module content.
+     * 
+     * @return The worker module content
+     * @throws IOException
+     */
+    public String getWorkerPyContent() throws IOException {
+	return IOUtils.toString(getClass().getResourceAsStream(WORKER));
+    }
+
+    /**
+     * Get the persistent PYTHON worker module file on executor.
+     * 
+     * @return The worker module file
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public FilePath getWorkerPy() throws IOException, InterruptedException {
+	return stage(getHome().child(WORKER), getWorkerPyContent());
+    }
+
+    /**
+     * Get the worker module used by the JYTHON daemons of the node. It is
+     * shared by all the projects of the node.
+     * 
+     * @return The worker module file
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public FilePath getDaemonWorkerPy() throws IOException, InterruptedException {
+	return stage(getHome().getParent().child(DAEMONS).child(WORKER), getWorkerPyContent());
+    }
+
+    /**
+     * Synchronize a file on executor with the provided content and account
+     * the bytes sent to the node.
+     * 
+     * @param filePath
+     *            The file to synchronize
+     * @param content
+     *            The content
+     * @return The synchronized file
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    protected FilePath stage(FilePath filePath, String content) throws IOException, InterruptedException {
+	// Get the bytes already sent by this thread
+	long bytes = RemotingStats.current().getBytes();
+	// Synchronize the file
+	FilePathUtil.synchronize(filePath, content);
+	// Account the bytes sent to the node
+	Metrics.add(Metrics.STAGED_BYTES, Metrics.NONE, RemotingStats.current().getBytes() - bytes);
+	// Return the file
+	return filePath;
+    }
+
+    /**
+     * Synchronize a file or a folder on executor with another one and account
+     * the bytes sent to the node.
+     * 
+     * @param src
+     *            The source file or folder
+     * @param dest
+     *            The destination file or folder
+     * @return The destination file or folder
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    protected FilePath stage(FilePath src, FilePath dest) throws IOException, InterruptedException {
+	// Begin the flight recorder event
+	FlightEvent event = FlightEvent.begin(FlightEvent.PACKAGES_SYNC);
+	// Get the bytes already sent by this thread
+	long bytes = RemotingStats.current().getBytes();
+	// Synchronize the file or the folder
+	FilePathUtil.synchronize(src, dest);
+	// Get the bytes sent to the node
+	bytes = RemotingStats.current().getBytes() - bytes;
+	// Account them
+	Metrics.add(Metrics.STAGED_BYTES, Metrics.NONE, bytes);
+	// Commit the flight recorder event
+	event.commit(Metrics.node(), dest.getRemote(), bytes);
+	// Return the destination
+	return dest;
+    }
+
+    /**
+     * Copy a resource on executor and account the bytes sent to the node.
+     * 
+     * @param filePath
+     *            The destination file
+     * @param resource
+     *            The resource
+     * @return The destination file
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    protected FilePath stage(FilePath filePath, URL resource) throws IOException, InterruptedException {
+	// Copy the resource
+	filePath.copyFrom(resource);
+	// Check if the resource was sent to another node
+	if (filePath.isRemote())
+	    // Account the size of the resource
+	    Metrics.add(Metrics.STAGED_BYTES, Metrics.NONE, Math.max(0, resource.openConnection().getContentLength()));
+	// Return the file
+	return filePath;
     }
 
     /**
@@ -225,7 +346,7 @@ public abstract class Workspace {
 	// Get errors
 	try {
 	    // Delete recursively
-	    getHome().deleteRecursive();
+	    FilePathUtil.deleteRecursive(getHome());
 	} catch (Exception e) {
 	    // Log
 	    LOGGER.log(Level.SEVERE, "Failed to delete workspace: " + getHome().getRemote(), e);
@@ -0,0 +1,299 @@
+# ShiningPanda plug-in for Jenkins
+# Copyright (C) 2011-2015 ShiningPanda S.A.S.
+#
+# This program is free software: you can redistribute it and/or modify
+# it under the terms of its license which incorporates the terms and
+# conditions of version 3 of the GNU Affero General Public License,
+# supplemented by the additional permissions under the GNU Affero GPL
+# version 3 section 7: if you modify this program, or any covered work,
+# by linking or combining it with other code, such other code is not
+# for that reason alone subject to any of the requirements of the GNU
+# Affero GPL version 3.
+#
+# This program is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of
+# MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+# license for more details.
+#
+# You should have received a copy of the license along with this program.
+# If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+"""Persistent Python worker.
+
+Usage: python worker.py TOKEN
+
+Read requests on the standard input, each request being made of two lines:
+the path of the script to run and its working directory. The output of the
+script is written on the standard output, followed by a line containing
+``shiningpanda-worker-TOKEN:EXIT_CODE``.
+
+If the platform supports it, each script runs in a forked child so the state
+of the worker is never altered, else scripts run in the worker itself.
+
+Modules listed (comma separated) in the SHININGPANDA_WORKER_PRELOAD
+environment variable are imported once when the worker starts.
+
+Usage: python worker.py TOKEN --daemon PORT_FILE IDLE_TIMEOUT
+
+Serve the requests on a local socket, mainly for interpreters without fork
+and with a slow startup such as Jython. The port and the token are written
+in PORT_FILE once the daemon is ready. Each connection sends the token, the
+path of the script, its working directory and its environment (KEY=VALUE
+lines ended by an empty line) and receives the output of the script followed
+by the end of script line. Scripts run in the daemon itself, one at a time,
+and the modules they import and their changes of the module search path are
+dropped once they complete. PORT_FILE is only readable by its owner. The
+daemon exits if no request is received during IDLE_TIMEOUT seconds, or if a
+connection is closed before the end of its script, as the script then hangs
+or was aborted.
+"""
+
+import os
+import sys
+import traceback
+
+
+def read_line(stream):
+    """Read a line on the provided stream, return None on end of file."""
+    line = stream.readline()
+    if not line:
+        return None
+    if not isinstance(line, str):
+        line = line.decode('utf-8')
+    return line.rstrip('\r\n')
+
+
+def flush():
+    """Flush the standard streams."""
+    for stream in (sys.stdout, sys.stderr):
+        try:
+            stream.flush()
+        except Exception:
+            pass
+
+
+def execute(script, cwd):
+    """Run the script as __main__ in its working directory, return the exit
+    code."""
+    os.chdir(cwd)
+    sys.argv = [script]
+    sys.path[0] = os.path.dirname(script)
+    namespace = {
+        '__name__': '__main__',
+        '__file__': script,
+        '__builtins__': __builtins__,
+    }
+    try:
+        f = open(script, 'rb')
+        try:
+            source = f.read()
+        finally:
+            f.close()
+        exec(compile(source, script, 'exec'), namespace)
+    except SystemExit:
+        code = sys.exc_info()[1].code
+        if code is None:
+            return 0
+        if isinstance(code, int):
+            return code
+        sys.stderr.write('%s\n' % code)
+        return 1
+    except BaseException:
+        traceback.print_exc()
+        return 1
+    return 0
+
+
+def run_forked(script, cwd):
+    """Run the script in a forked child."""
+    flush()
+    pid = os.fork()
+    if pid == 0:
+        code = 1
+        try:
+            # The standard input is the request pipe, do not share it
+            devnull = os.open(os.devnull, os.O_RDONLY)
+            os.dup2(devnull, 0)
+            code = execute(script, cwd)
+        finally:
+            flush()
+            os._exit(code & 0xff)
+    status = os.waitpid(pid, 0)[1]
+    if os.WIFSIGNALED(status):
+        return 128 + os.WTERMSIG(status)
+    return os.WEXITSTATUS(status)
+
+
+def run_inline(script, cwd):
+    """Run the script in the worker itself."""
+    previous = (os.getcwd(), list(sys.argv), sys.path[0])
+    try:
+        return execute(script, cwd)
+    finally:
+        flush()
+        os.chdir(previous[0])
+        sys.argv = previous[1]
+        sys.path[0] = previous[2]
+
+
+def preload():
+    """Import the modules to share between all the scripts."""
+    for name in os.environ.get('SHININGPANDA_WORKER_PRELOAD', '').split(','):
+        name = name.strip()
+        if name:
+            try:
+                __import__(name)
+            except Exception:
+                traceback.print_exc()
+
+
+class Output(object):
+    """Standard stream writing in a socket."""
+
+    def __init__(self, stream):
+        self.stream = stream
+
+    def write(self, data):
+        try:
+            data = data.encode('utf-8')
+        except (AttributeError, UnicodeDecodeError):
+            pass
+        self.stream.write(data)
+
+    def writelines(self, lines):
+        for line in lines:
+            self.write(line)
+
+    def flush(self):
+        self.stream.flush()
+
+
+def remove(path):
+    """Remove a file if exists."""
+    if os.path.exists(path):
+        os.remove(path)
+
+
+def watch(connection, port_file):
+    """Exit if the connection is closed before something is appended to the
+    returned list."""
+    import threading
+    done = []
+
+    def run():
+        try:
+            data = connection.recv(1)
+        except Exception:
+            data = None
+        if not data and not done:
+            remove(port_file)
+            os._exit(1)
+    thread = threading.Thread(target=run)
+    if hasattr(thread, 'daemon'):
+        thread.daemon = True
+    else:
+        thread.setDaemon(True)
+    thread.start()
+    return done
+
+
+def handle(connection, token, port_file):
+    """Run the script requested on the connection."""
+    requests = connection.makefile('rb')
+    out = connection.makefile('wb')
+    if read_line(requests) != token:
+        return
+    script = read_line(requests)
+    cwd = read_line(requests)
+    environ = {}
+    while True:
+        line = read_line(requests)
+        if not line:
+            break
+        key, value = line.split('=', 1)
+        environ[key] = value
+    previous = (dict(os.environ), sys.stdout, sys.stderr)
+    modules, path = dict(sys.modules), list(sys.path)
+    os.environ.clear()
+    os.environ.update(environ)
+    sys.stdout = sys.stderr = Output(out)
+    done = watch(connection, port_file)
+    try:
+        code = run_inline(script, cwd)
+    finally:
+        done.append(True)
+        sys.stdout, sys.stderr = previous[1], previous[2]
+        os.environ.clear()
+        os.environ.update(previous[0])
+        for name in list(sys.modules.keys()):
+            if name not in modules:
+                del sys.modules[name]
+        sys.modules.update(modules)
+        sys.path[:] = path
+    out.write(('shiningpanda-worker-%s:%d\n' % (token, code)).encode('ascii'))
+    out.flush()
+
+
+def serve(token, port_file, timeout):
+    """Serve the requests received on a local socket until idle."""
+    import socket
+    server = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+    server.bind(('127.0.0.1', 0))
+    server.listen(5)
+    server.settimeout(timeout)
+    # The token gives the right to run code: only the owner can read it
+    remove(port_file + '.tmp')
+    fd = os.open(port_file + '.tmp', os.O_WRONLY | os.O_CREAT | os.O_EXCL, 384)
+    try:
+        os.write(fd, ('%d\n%s\n' % (server.getsockname()[1], token)).encode('ascii'))
+    finally:
+        os.close(fd)
+    try:
+        os.chmod(port_file + '.tmp', 384)
+    except Exception:
+        pass
+    remove(port_file)
+    os.rename(port_file + '.tmp', port_file)
+    try:
+        while True:
+            try:
+                connection = server.accept()[0]
+            except socket.timeout:
+                break
+            try:
+                connection.settimeout(None)
+                handle(connection, token, port_file)
+            except Exception:
+                traceback.print_exc()
+            try:
+                connection.shutdown(socket.SHUT_RDWR)
+            except Exception:
+                pass
+            connection.close()
+    finally:
+        server.close()
+        remove(port_file)
+
+
+def main():
+    token = sys.argv[1]
+    if sys.argv[2:3] == ['--daemon']:
+        preload()
+        serve(token, sys.argv[3], float(sys.argv[4]))
+        return
+    requests = getattr(sys.stdin, 'buffer', sys.stdin)
+    out = getattr(sys.stdout, 'buffer', sys.stdout)
+    run = hasattr(os, 'fork') and run_forked or run_inline
+    preload()
+    while True:
+        script = read_line(requests)
+        cwd = read_line(requests)
+        if script is None or cwd is None:
+            break
+        code = run(script, cwd)
+        flush()
+        out.write(('shiningpanda-worker-%s:%d\n' % (token, code)).encode('ascii'))
+        out.flush()
+
+
+if __name__ == '__main__':
+    main()
@@ -256,6 +256,42 @@ public abstract class ShiningPandaTestCase extends HudsonTestCase {
 	return home;
     }
 
+    /**
+     * Create a fake PYTHON installation: a shell script emulating the timing
+     * of VIRTUALENV creations, PIP calls and scripts, without network or real
+     * interpreter. Each VIRTUALENV creation appends a line in the log file.
+     * 
+     * @param home
+     *            The home folder
+     * @param log
+     *            The file logging the VIRTUALENV creations
+     * @param virtualenv
+     *            Duration of a VIRTUALENV creation in seconds
+     * @param pip
+     *            Duration of a PIP call in seconds
+     * @param command
+     *            Duration of other calls in seconds
+     * @return The home folder
+     * @throws IOException
+     */
+    protected File createFakePythonInstallation(File home, File log, String virtualenv, String pip, String command)
+	    throws IOException {
+	// Get the PYTHON binary path
+	File binary = new File(new File(home, "bin"), "python");
+	// Write the script
+	FileUtils.writeStringToFile(binary,
+		"#!/bin/sh\n" + "case \"$1\" in\n" + "  *virtualenv.py)\n" + "    for home; do :; done\n"
+			+ "    sleep " + virtualenv + "\n" + "    mkdir -p \"$home/bin\"\n"
+			+ "    cp \"$0\" \"$home/bin/python\"\n" + "    touch \"$home/bin/activate\"\n"
+			+ "    echo \"$home\" >> \"" + log.getAbsolutePath() + "\"\n" + "    ;;\n" + "  -m)\n"
+			+ "    sleep " + pip + "\n" + "    ;;\n" + "  *)\n" + "    sleep " + command + "\n"
+			+ "    ;;\n" + "esac\n");
+	// Make it executable
+	binary.setExecutable(true);
+	// Return home folder
+	return home;
+    }
+
     /**
      * Configure a PYTHON installation.
      * 
@@ -0,0 +1,90 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.builders;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import jenkins.plugins.shiningpanda.Messages;
+import jenkins.plugins.shiningpanda.ShiningPandaTestCase;
+import jenkins.plugins.shiningpanda.command.CommandNature;
+import jenkins.plugins.shiningpanda.tools.PythonInstallation;
+
+public class TestParallelPythonBuilder extends ShiningPandaTestCase {
+
+    public void testRoundTripFreeStyle() throws Exception {
+	PythonInstallation installation2 = configureCPython2();
+	PythonInstallation installation3 = configureCPython3();
+	ParallelPythonBuilder before = new ParallelPythonBuilder(
+		new String[] { installation2.getName(), installation3.getName() }, CommandNature.SHELL.getKey(),
+		"echo hello", true, "2");
+	ParallelPythonBuilder after = configFreeStyleRoundtrip(before);
+	assertEqualBeans2(before, after, "nature,command,ignoreExitCode,maxParallel,pythonNames");
+    }
+
+    public void testPrefixedOutput() throws Exception {
+	PythonInstallation installation2 = configureCPython2();
+	PythonInstallation installation3 = configureCPython3();
+	ParallelPythonBuilder builder = new ParallelPythonBuilder(
+		new String[] { installation2.getName(), installation3.getName() }, CommandNature.SHELL.getKey(),
+		"echo \"hello from $PYTHON_EXE\"", false, null);
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(builder);
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("this build should have been successful:\n" + log, log.contains("SUCCESS"));
+	assertTrue("missing prefixed output:\n" + log, log.contains("[" + installation2.getName() + "] hello from"));
+	assertTrue("missing prefixed output:\n" + log, log.contains("[" + installation3.getName() + "] hello from"));
+    }
+
+    public void testOneFailure() throws Exception {
+	PythonInstallation installation2 = configureCPython2();
+	PythonInstallation installation3 = configureCPython3();
+	ParallelPythonBuilder builder = new ParallelPythonBuilder(
+		new String[] { installation2.getName(), installation3.getName() }, CommandNature.PYTHON.getKey(),
+		"import sys\nsys.exit(sys.version_info[0] == 3 and 1 or 0)", false, "1");
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(builder);
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("this build should have failed:\n" + log, log.contains("FAILURE"));
+	assertTrue("missing per interpreter result:\n" + log,
+		log.contains(Messages.ParallelPythonBuilder_Failure(installation3.getName())));
+	assertTrue("missing per interpreter result:\n" + log,
+		log.contains(Messages.ParallelPythonBuilder_Success(installation2.getName())));
+    }
+
+    public void testNoInstallationSelected() throws Exception {
+	configureCPython2();
+	ParallelPythonBuilder builder = new ParallelPythonBuilder(new String[] {}, CommandNature.SHELL.getKey(),
+		"echo hello", false, null);
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(builder);
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatus(Result.FAILURE, build);
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("an installation was required:\n" + log,
+		log.contains(Messages.ParallelPythonBuilder_PythonNames_Required()));
+    }
+}
@@ -21,7 +21,10 @@
  */
 package jenkins.plugins.shiningpanda.builders;
 
+import java.io.File;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
 
@@ -34,9 +37,15 @@ import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import jenkins.plugins.shiningpanda.Messages;
 import jenkins.plugins.shiningpanda.ShiningPandaTestCase;
+import jenkins.plugins.shiningpanda.actions.profile.ImportTimeAction;
+import jenkins.plugins.shiningpanda.actions.profile.ProfileAction;
+import jenkins.plugins.shiningpanda.actions.profile.ProfileStep;
+import jenkins.plugins.shiningpanda.actions.timing.TimingAction;
+import jenkins.plugins.shiningpanda.actions.timing.TimingStep;
 import jenkins.plugins.shiningpanda.command.CommandNature;
 import jenkins.plugins.shiningpanda.matrix.PythonAxis;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
+import jenkins.plugins.shiningpanda.utils.PhaseTimer;
 
 public class TestPythonBuilder extends ShiningPandaTestCase {
 
@@ -170,4 +179,132 @@ public class TestPythonBuilder extends ShiningPandaTestCase {
 	assertTrue("this build should have say " + home + ":\n" + log, log.contains(home));
     }
 
+    private PythonBuilder newPythonBuilder(String pythonName, String command, boolean persistent, boolean profile,
+	    boolean importTime) {
+	PythonBuilder builder = new PythonBuilder(pythonName, CommandNature.PYTHON.getKey(), command, false);
+	builder.setPersistent(persistent);
+	builder.setProfile(profile);
+	builder.setImportTime(importTime);
+	return builder;
+    }
+
+    public void testRoundTripPersistent() throws Exception {
+	PythonInstallation installation = configureCPython2();
+	PythonBuilder before = newPythonBuilder(installation.getName(), "print(1)", true, false, false);
+	PythonBuilder after = configFreeStyleRoundtrip(before);
+	assertEqualBeans2(before, after, "pythonName,nature,command,ignoreExitCode,persistent");
+    }
+
+    public void testPersistent() throws Exception {
+	PythonInstallation installation = configureCPython2();
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(newPythonBuilder(installation.getName(),
+		"import os, sys\nsys.stdout.write('worker %d\\n' % os.getppid())\nsys.stdout.write('first step')",
+		true, false, false));
+	project.getBuildersList().add(newPythonBuilder(installation.getName(),
+		"import os, sys\nsys.stdout.write('worker %d\\n' % os.getppid())\nsys.stdout.write('second step\\n')\n"
+			+ "sys.exit(3)",
+		true, false, false));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("a worker should have been started:\n" + log, log.indexOf("persistent Python worker") != -1);
+	assertEquals("a single worker should have been started:\n" + log, log.indexOf("persistent Python worker"),
+		log.lastIndexOf("persistent Python worker"));
+	Matcher matcher = Pattern.compile("worker (\\d+)\n").matcher(log);
+	assertTrue("the first step should have logged its worker:\n" + log, matcher.find());
+	String worker = matcher.group(1);
+	assertTrue("the second step should have logged its worker:\n" + log, matcher.find());
+	assertEquals("the second step should have reused the worker:\n" + log, worker, matcher.group(1));
+	assertTrue("the first step should have been logged:\n" + log, log.contains("first step\n"));
+	assertTrue("the second step should have been logged:\n" + log, log.contains("second step\n"));
+	assertFalse("the marker should not have been logged:\n" + log, log.contains("shiningpanda-worker-"));
+	assertTrue("this build should have failed:\n" + log, log.contains("FAILURE"));
+    }
+
+    public void testPersistentJython() throws Exception {
+	PythonInstallation installation = configureJython();
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(newPythonBuilder(installation.getName(),
+		"import os\nprint('first step in ' + os.environ['JOB_NAME'])", true, false, false));
+	project.getBuildersList().add(newPythonBuilder(installation.getName(),
+		"import sys\nsys.stdout.write('second step\\n')", true, false, false));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("the first step should have been logged:\n" + log,
+		log.contains("first step in " + project.getName()));
+	assertTrue("the second step should have been logged:\n" + log, log.contains("second step\n"));
+	assertTrue("this build should have been successful:\n" + log, log.contains("SUCCESS"));
+	build = project.scheduleBuild2(0).get();
+	log = FileUtils.readFileToString(build.getLogFile());
+	assertFalse("the daemon should have been reused:\n" + log, log.contains("Jython daemon"));
+    }
+
+    public void testRoundTripProfile() throws Exception {
+	PythonInstallation installation = configureCPython2();
+	PythonBuilder before = newPythonBuilder(installation.getName(), "print(1)", false, true, false);
+	PythonBuilder after = configFreeStyleRoundtrip(before);
+	assertEqualBeans2(before, after, "pythonName,nature,command,ignoreExitCode,persistent,profile");
+    }
+
+    public void testProfile() throws Exception {
+	PythonInstallation installation = configureCPython2();
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(newPythonBuilder(installation.getName(),
+		"def fib(n):\n    return n if n < 2 else fib(n - 1) + fib(n - 2)\nfib(18)", true, true, false));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("this build should have been successful:\n" + log, log.contains("SUCCESS"));
+	ProfileAction action = build.getAction(ProfileAction.class);
+	assertNotNull("a profile action was expected:\n" + log, action);
+	assertEquals(1, action.getSteps().size());
+	ProfileStep step = action.getSteps().get(0);
+	assertEquals("def fib(n):", step.getName());
+	File dir = ProfileAction.getDir(build);
+	assertTrue(new File(dir, step.getId() + ProfileAction.STATS).isFile());
+	assertTrue(FileUtils.readFileToString(new File(dir, step.getId() + ProfileAction.COLLAPSED)).contains("(fib)"));
+	assertTrue(FileUtils.readFileToString(new File(dir, step.getId() + ProfileAction.GRAPH)).contains("(fib)"));
+    }
+
+    public void testRoundTripImportTime() throws Exception {
+	PythonInstallation installation = configureCPython3();
+	PythonBuilder before = newPythonBuilder(installation.getName(), "print(1)", false, false, true);
+	PythonBuilder after = configFreeStyleRoundtrip(before);
+	assertEqualBeans2(before, after, "pythonName,nature,command,ignoreExitCode,persistent,profile,importTime");
+    }
+
+    public void testImportTime() throws Exception {
+	PythonInstallation installation = configureCPython3();
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(newPythonBuilder(installation.getName(),
+		"import json\nprint(json.dumps('hello'))", false, false, true));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("this build should have been successful:\n" + log, log.contains("SUCCESS"));
+	assertTrue(log.contains("\"hello\""));
+	assertFalse(log.contains("import time:"));
+	ImportTimeAction action = build.getAction(ImportTimeAction.class);
+	assertNotNull("an import time action was expected:\n" + log, action);
+	assertTrue(action.getTotal() > 0);
+	assertFalse(action.getSlowest().isEmpty());
+	assertNotNull(action.getCumulative("json"));
+	assertTrue(ImportTimeAction.getFile(build).isFile());
+    }
+
+    public void testTiming() throws Exception {
+	PythonInstallation installation = configureCPython2();
+	PythonBuilder builder = new PythonBuilder(installation.getName(), CommandNature.SHELL.getKey(), "echo hello",
+		false);
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(builder);
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	TimingAction action = build.getAction(TimingAction.class);
+	assertNotNull("a timing action was expected", action);
+	assertEquals(1, action.getSteps().size());
+	TimingStep step = action.getSteps().get(0);
+	assertEquals(builder.getDescriptor().getDisplayName(), step.getName());
+	assertEquals(2, step.getPhases().size());
+	assertEquals(PhaseTimer.INTERPRETER, step.getPhases().get(0).getName());
+	assertEquals(PhaseTimer.COMMAND, step.getPhases().get(1).getName());
+    }
+
 }
@@ -36,6 +36,7 @@ import jenkins.plugins.shiningpanda.Messages;
 import jenkins.plugins.shiningpanda.ShiningPandaTestCase;
 import jenkins.plugins.shiningpanda.command.CommandNature;
 import jenkins.plugins.shiningpanda.matrix.PythonAxis;
+import jenkins.plugins.shiningpanda.metrics.Metrics;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
 
 public class TestVirtualenvBuilder extends ShiningPandaTestCase {
@@ -163,6 +164,22 @@ public class TestVirtualenvBuilder extends ShiningPandaTestCase {
 	assertFalse("a new virtualenv should not have been created:\n" + log, log.contains("New python executable in"));
     }
 
+    public void testSignatureMetrics() throws Exception {
+	Metrics.get().clear();
+	PythonInstallation installation = configureCPython2();
+	VirtualenvBuilder builder = new VirtualenvBuilder(installation.getName(), "env", false, false,
+		CommandNature.SHELL.getKey(), "echo", false);
+	FreeStyleProject project = createFreeStyleProject();
+	project.getBuildersList().add(builder);
+	assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+	assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+	assertEquals(1,
+		Metrics.get().counter(Metrics.SIGNATURE_MISS, Metrics.MASTER, installation.getName()).getValue());
+	assertEquals(1, Metrics.get().counter(Metrics.SIGNATURE_HIT, Metrics.MASTER, installation.getName()).getValue());
+	assertEquals(1, Metrics.get().histogram(Metrics.VIRTUALENV_CREATION, Metrics.MASTER, installation.getName())
+		.getCount());
+    }
+
     public void testVirtualenvClear() throws Exception {
 	PythonInstallation installation = configureCPython2();
 	VirtualenvBuilder builder = new VirtualenvBuilder(installation.getName(), "env", true, false,
@@ -0,0 +1,149 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import junit.framework.TestCase;
+
+public class TestBlobStore extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+	super.setUp();
+	dir = File.createTempFile("blobs", "");
+	dir.delete();
+	dir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+	FileUtils.deleteDirectory(dir);
+	super.tearDown();
+    }
+
+    private BlobStore newBlobStore(final List<File> files) {
+	return new BlobStore(dir) {
+	    @Override
+	    protected List<File> getReferencingFiles() {
+		return files;
+	    }
+	};
+    }
+
+    private String put(BlobStore blobs, String content) throws IOException {
+	String hash = Manifest.digest(new ByteArrayInputStream(content.getBytes("UTF-8")));
+	blobs.put(hash, new ByteArrayInputStream(content.getBytes("UTF-8")));
+	return hash;
+    }
+
+    public void testJournal() throws Exception {
+	BlobStore blobs = newBlobStore(Collections.<File> emptyList());
+	blobs.acquire(Arrays.asList("aa01", "bb02"));
+	blobs.acquire(Arrays.asList("aa01"));
+	blobs.release(Arrays.asList("bb02"));
+	String content = FileUtils.readFileToString(new File(dir, BlobStore.REFERENCES), "UTF-8");
+	assertEquals("aa01 +1\nbb02 +1\naa01 +1\nbb02 -1\n", content);
+	blobs = newBlobStore(Collections.<File> emptyList());
+	assertEquals(2, blobs.getReferences("aa01"));
+	assertEquals(0, blobs.getReferences("bb02"));
+    }
+
+    public void testCompact() throws Exception {
+	BlobStore blobs = newBlobStore(Collections.<File> emptyList());
+	List<String> hashes = Arrays.asList("aa01", "bb02", "cc03", "dd04");
+	for (int i = 0; i < 500; i++)
+	    blobs.acquire(hashes);
+	List<String> lines = FileUtils.readLines(new File(dir, BlobStore.REFERENCES), "UTF-8");
+	assertTrue("long journal should have been compacted: " + lines.size(), lines.size() < 2000);
+	blobs = newBlobStore(Collections.<File> emptyList());
+	assertEquals(500, blobs.getReferences("dd04"));
+    }
+
+    public void testIncompleteLine() throws Exception {
+	FileUtils.writeStringToFile(new File(dir, BlobStore.REFERENCES), "aa01 2\nbb02 +1\ncc03 +", "UTF-8");
+	BlobStore blobs = newBlobStore(Collections.<File> emptyList());
+	assertEquals(2, blobs.getReferences("aa01"));
+	assertEquals(1, blobs.getReferences("bb02"));
+	assertEquals(0, blobs.getReferences("cc03"));
+    }
+
+    public void testRebuild() throws Exception {
+	FileUtils.writeStringToFile(new File(dir, BlobStore.REFERENCES), "aa01 x\n", "UTF-8");
+	Manifest manifest = new Manifest();
+	manifest.put("htmlcov/index.html", "aa01", 10);
+	manifest.put("htmlcov/style.css", "bb02", 10);
+	File first = new File(dir, "first" + ReportStore.MANIFEST);
+	manifest.save(first);
+	File second = new File(dir, "second" + ReportStore.MANIFEST);
+	manifest.save(second);
+	BlobStore blobs = newBlobStore(Arrays.asList(first, second));
+	assertEquals(2, blobs.getReferences("aa01"));
+	assertEquals(2, blobs.getReferences("bb02"));
+	blobs = newBlobStore(Collections.<File> emptyList());
+	assertEquals("rebuilt counts should have been saved", 2, blobs.getReferences("aa01"));
+    }
+
+    public void testUnknownReferences() throws Exception {
+	BlobStore blobs = newBlobStore(Collections.<File> emptyList());
+	String hash = put(blobs, "hello");
+	FileUtils.writeStringToFile(new File(dir, BlobStore.REFERENCES), hash + " x\n", "UTF-8");
+	File corrupted = new File(dir, "build" + ReportStore.MANIFEST);
+	FileUtils.writeStringToFile(corrupted, hash + " big htmlcov/index.html\n", "UTF-8");
+	blobs = newBlobStore(Arrays.asList(corrupted));
+	assertEquals(0, blobs.release(Arrays.asList(hash)));
+	assertTrue("blob should have been kept: " + hash, blobs.contains(hash));
+	assertEquals(hash + " x\n", FileUtils.readFileToString(new File(dir, BlobStore.REFERENCES), "UTF-8"));
+    }
+
+    public void testCollect() throws Exception {
+	List<File> files = new ArrayList<File>();
+	BlobStore blobs = newBlobStore(files);
+	String kept = put(blobs, "kept");
+	String deleted = put(blobs, "deleted");
+	String stored = put(blobs, "stored");
+	blobs.acquire(Arrays.asList(kept, deleted));
+	blobs.settle(Arrays.asList(kept, deleted));
+	blobs.acquire(Arrays.asList(stored));
+	Manifest manifest = new Manifest();
+	manifest.put("htmlcov/index.html", kept, 4);
+	File file = new File(dir, "build" + ReportStore.MANIFEST);
+	manifest.save(file);
+	files.add(file);
+	assertEquals(1, blobs.collect());
+	assertTrue("referenced blob should have been kept: " + kept, blobs.contains(kept));
+	assertTrue("blob being stored should have been kept: " + stored, blobs.contains(stored));
+	assertFalse("orphan blob should have been deleted: " + deleted, blobs.contains(deleted));
+	assertEquals(0, blobs.getReferences(deleted));
+	assertEquals(1, blobs.getReferences(stored));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestCoverageData extends TestCase {
+
+    public void testEncode() throws Exception {
+	assertEquals("", CoverageData.encode(new char[0]));
+	assertEquals("r3.m12px", CoverageData.encode("rrr.mmmmmmmmmmmmpx".toCharArray()));
+	assertEquals("rrr.mmmmmmmmmmmmpx", new String(CoverageData.decode("r3.m12px")));
+    }
+
+    public void testDecodeInvalid() throws Exception {
+	try {
+	    CoverageData.decode("12r");
+	    fail("digits without state should be rejected");
+	} catch (IllegalArgumentException e) {
+	    // Expected
+	}
+    }
+
+    public void testCounts() throws Exception {
+	CoverageCounts counts = new CoverageData.Page("", "toto_py.html", "toto.py", "r3.m2px", "0").getCounts();
+	assertEquals(new CoverageCounts(6, 2, 1, 0, 0, 0), counts);
+    }
+
+    public void testSaveLoad() throws Exception {
+	CoverageData data = new CoverageData();
+	data.addReport("");
+	data.addPage(new CoverageData.Page("toto/htmlcov", "a b_py.html", "a b.py", "r2m", "1234"));
+	data.addPage(new CoverageData.Page("toto/htmlcov", "c_py.html", "c.py", "r", "1234"));
+	data.addPage(new CoverageData.Page("toto/htmlcov/nested", "d_py.html", "d.py", "m", "5678"));
+	File file = File.createTempFile("coveragepy", ".data");
+	try {
+	    data.save(file);
+	    CoverageData loaded = CoverageData.load(file);
+	    assertEquals(Arrays.asList("", "toto/htmlcov", "toto/htmlcov/nested"),
+		    Arrays.asList(loaded.getReports().toArray()));
+	    assertEquals(data.getPages().keySet(), loaded.getPages().keySet());
+	    assertEquals(2, loaded.getPages("toto/htmlcov").size());
+	    CoverageData.Page page = loaded.getPages().get("toto/htmlcov/a b_py.html");
+	    assertEquals("a b.py", page.getPath());
+	    assertEquals("rrm", new String(page.getStates()));
+	    assertEquals("1234", page.getHash());
+	    assertEquals(Arrays.asList("1234", "5678"), Arrays.asList(loaded.getHashes().toArray()));
+	} finally {
+	    file.delete();
+	}
+    }
+}
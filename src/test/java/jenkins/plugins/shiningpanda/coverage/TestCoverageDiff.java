@@ -0,0 +1,82 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestCoverageDiff extends TestCase {
+
+    private CoverageSummary summary(Object... files) {
+	Map<String, CoverageCounts> counts = new HashMap<String, CoverageCounts>();
+	for (int i = 0; i < files.length; i += 3)
+	    counts.put((String) files[i],
+		    new CoverageCounts((Integer) files[i + 1], (Integer) files[i + 2], 0, 0, 0, 0));
+	CoverageSummary summary = new CoverageSummary();
+	summary.add("", counts);
+	return summary;
+    }
+
+    private CoverageDiff compute() {
+	return CoverageDiff.compute(3, summary("same.py", 10, 1, "better.py", 10, 5, "worse.py", 10, 1, "old.py", 4, 4),
+		summary("same.py", 10, 1, "better.py", 10, 2, "worse.py", 12, 4, "new file.py", 6, 2));
+    }
+
+    public void testCompute() throws Exception {
+	CoverageDiff diff = compute();
+	assertEquals(3, diff.getPrevious());
+	List<CoverageDiff.Change> changes = diff.getChanges();
+	assertEquals(4, changes.size());
+	assertEquals("worse.py", changes.get(0).getPath());
+	assertEquals(3, changes.get(0).getUncoveredDelta());
+	assertEquals(100.0 * 8 / 12 - 90.0, changes.get(0).getPercentDelta(), 0.001);
+	assertEquals("new file.py", changes.get(1).getPath());
+	assertNull(changes.get(1).getBefore());
+	assertNull(changes.get(1).getPercentDelta());
+	assertEquals("better.py", changes.get(2).getPath());
+	assertEquals(-3, changes.get(2).getUncoveredDelta());
+	assertEquals("old.py", changes.get(3).getPath());
+	assertNull(changes.get(3).getAfter());
+    }
+
+    public void testSaveLoad() throws Exception {
+	File file = File.createTempFile("coveragepy", ".diff");
+	try {
+	    compute().save(file);
+	    CoverageDiff diff = CoverageDiff.load(file);
+	    assertEquals(3, diff.getPrevious());
+	    List<CoverageDiff.Change> changes = diff.getChanges();
+	    assertEquals(4, changes.size());
+	    assertEquals("new file.py", changes.get(1).getPath());
+	    assertNull(changes.get(1).getBefore());
+	    assertEquals(new CoverageCounts(6, 2, 0, 0, 0, 0), changes.get(1).getAfter());
+	    assertEquals(new CoverageCounts(10, 1, 0, 0, 0, 0), changes.get(0).getBefore());
+	    assertNull(changes.get(3).getAfter());
+	} finally {
+	    file.delete();
+	}
+    }
+}
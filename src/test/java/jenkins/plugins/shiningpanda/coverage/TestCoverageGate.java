@@ -0,0 +1,72 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestCoverageGate extends TestCase {
+
+    private CoverageSummary summary(long statements, long missing) {
+	CoverageSummary summary = new CoverageSummary();
+	Map<String, CoverageCounts> counts = new HashMap<String, CoverageCounts>();
+	counts.put("toto.py", new CoverageCounts(statements, missing, 0, 0, 0, 0));
+	counts.put("empty.py", new CoverageCounts(0, 0, 0, 0, 0, 0));
+	counts.put("full.py", new CoverageCounts(statements, 0, 0, 0, 0, 0));
+	summary.add("htmlcov", counts);
+	return summary;
+    }
+
+    public void testDisabled() throws Exception {
+	CoverageGate gate = new CoverageGate(null, null, null);
+	assertFalse(gate.isEnabled());
+	assertFalse(gate.isBelow(summary(10, 10)));
+	assertFalse(gate.isDropped(summary(10, 10), summary(10, 0)));
+	assertTrue(gate.getFilesBelow(summary(10, 10)).isEmpty());
+    }
+
+    public void testMinimum() throws Exception {
+	CoverageGate gate = new CoverageGate(70., null, null);
+	assertTrue(gate.isEnabled());
+	assertTrue(gate.isBelow(summary(10, 8)));
+	assertFalse(gate.isBelow(summary(10, 5)));
+    }
+
+    public void testDrop() throws Exception {
+	CoverageGate gate = new CoverageGate(null, null, 5.);
+	assertNull(CoverageGate.getDrop(summary(10, 5), null));
+	assertEquals(25., CoverageGate.getDrop(summary(10, 5), summary(10, 0)), 0.001);
+	assertTrue(gate.isDropped(summary(10, 5), summary(10, 0)));
+	assertFalse(gate.isDropped(summary(10, 0), summary(10, 5)));
+	assertFalse(gate.isDropped(summary(10, 5), null));
+    }
+
+    public void testFilesBelow() throws Exception {
+	CoverageGate gate = new CoverageGate(null, 60., null);
+	assertEquals(Arrays.asList("htmlcov/toto.py"),
+		Arrays.asList(gate.getFilesBelow(summary(10, 5)).keySet().toArray()));
+	assertTrue(gate.getFilesBelow(summary(10, 4)).isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+
+import junit.framework.TestCase;
+
+public class TestCoverageHistory extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+	super.setUp();
+	dir = File.createTempFile("history", "");
+	dir.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+	FileUtils.deleteDirectory(dir);
+	super.tearDown();
+    }
+
+    private CoverageSummary summary(long statements, long missing) {
+	CoverageSummary summary = new CoverageSummary();
+	summary.add("htmlcov", Collections.singletonMap("toto.py", new CoverageCounts(statements, missing, 0, 0, 0, 0)));
+	return summary;
+    }
+
+    public void testAppend() throws Exception {
+	assertEquals(0, CoverageHistory.size(dir));
+	assertTrue(CoverageHistory.append(dir, 1, 1000, summary(10, 5), 100));
+	assertTrue(CoverageHistory.append(dir, 2, 2000, summary(20, 5), 200));
+	assertEquals(2, CoverageHistory.size(dir));
+	CoverageHistory history = CoverageHistory.read(dir, 0);
+	assertEquals(0, history.getFirst());
+	assertEquals(2, history.size());
+	assertEquals(2, history.get(CoverageHistory.NUMBER, 1));
+	assertEquals(2000, history.get(CoverageHistory.TIMESTAMP, 1));
+	assertEquals(1, history.get(CoverageHistory.FILES, 1));
+	assertEquals(20, history.get(CoverageHistory.STATEMENTS, 1));
+	assertEquals(5, history.get(CoverageHistory.MISSING, 1));
+	assertEquals(200, history.get(CoverageHistory.BYTES, 1));
+    }
+
+    public void testReadFrom() throws Exception {
+	for (int number = 1; number <= 5; number++)
+	    CoverageHistory.append(dir, number, number, summary(number, 0), 0);
+	CoverageHistory history = CoverageHistory.read(dir, 3);
+	assertEquals(3, history.getFirst());
+	assertEquals(2, history.size());
+	assertEquals(4, history.get(CoverageHistory.NUMBER, 0));
+	assertEquals(0, CoverageHistory.read(dir, 10).size());
+    }
+
+    public void testAppendTwice() throws Exception {
+	assertTrue(CoverageHistory.append(dir, 2, 0, summary(10, 5), 0));
+	assertFalse(CoverageHistory.append(dir, 2, 0, summary(10, 5), 0));
+	assertFalse(CoverageHistory.append(dir, 1, 0, summary(10, 5), 0));
+	assertEquals(1, CoverageHistory.size(dir));
+    }
+
+    public void testIncompleteRow() throws Exception {
+	CoverageHistory.append(dir, 1, 0, summary(10, 5), 0);
+	RandomAccessFile raf = new RandomAccessFile(new File(dir, CoverageHistory.NUMBER + ".col"), "rw");
+	try {
+	    raf.seek(raf.length());
+	    raf.writeLong(2);
+	} finally {
+	    raf.close();
+	}
+	assertEquals(1, CoverageHistory.size(dir));
+	assertTrue(CoverageHistory.append(dir, 3, 0, summary(30, 5), 0));
+	CoverageHistory history = CoverageHistory.read(dir, 0);
+	assertEquals(2, history.size());
+	assertEquals(3, history.get(CoverageHistory.NUMBER, 1));
+	assertEquals(30, history.get(CoverageHistory.STATEMENTS, 1));
+    }
+
+    public void testLast() throws Exception {
+	assertNull(CoverageHistory.last(dir));
+	CoverageHistory.append(dir, 1, 0, summary(10, 5), 0);
+	CoverageHistory last = CoverageHistory.last(dir);
+	assertEquals(1, last.get(CoverageHistory.NUMBER, 0));
+	assertSame(last, CoverageHistory.last(dir));
+	CoverageHistory.append(dir, 2, 0, summary(20, 5), 0);
+	last = CoverageHistory.last(dir);
+	assertEquals(2, last.get(CoverageHistory.NUMBER, 0));
+	assertEquals(new CoverageCounts(20, 5, 0, 0, 0, 0), last.getCounts(0));
+    }
+}
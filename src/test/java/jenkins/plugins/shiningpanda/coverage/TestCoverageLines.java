@@ -0,0 +1,79 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+public class TestCoverageLines extends TestCase {
+
+    public void testMergeStates() throws Exception {
+	assertEquals(CoverageData.RUN, CoverageLines.merge(CoverageData.MISSING, CoverageData.RUN));
+	assertEquals(CoverageData.RUN, CoverageLines.merge(CoverageData.RUN, CoverageData.PARTIAL));
+	assertEquals(CoverageData.PARTIAL, CoverageLines.merge(CoverageData.MISSING, CoverageData.PARTIAL));
+	assertEquals(CoverageData.MISSING, CoverageLines.merge(CoverageData.EXCLUDED, CoverageData.MISSING));
+	assertEquals(CoverageData.EXCLUDED, CoverageLines.merge(CoverageData.PLAIN, CoverageData.EXCLUDED));
+    }
+
+    public void testUnion() throws Exception {
+	CoverageLines py27 = new CoverageLines();
+	py27.merge("toto.py", "rmm.m".toCharArray());
+	py27.merge("py2.py", "rm".toCharArray());
+	CoverageLines py35 = new CoverageLines();
+	py35.merge("toto.py", "rrmx".toCharArray());
+	CoverageLines union = new CoverageLines();
+	union.merge(py27);
+	union.merge(py35);
+	assertEquals("rrmxm", new String(union.getFiles().get("toto.py")));
+	assertEquals("rm", new String(union.getFiles().get("py2.py")));
+	CoverageSummary summary = union.getSummary();
+	assertEquals(new CoverageCounts(4, 2, 1, 0, 0, 0), summary.getFiles().get("toto.py"));
+	assertEquals(new CoverageCounts(6, 3, 1, 0, 0, 0), summary.getTotals());
+	assertEquals("rmm.m", new String(py27.getFiles().get("toto.py")));
+    }
+
+    public void testOf() throws Exception {
+	CoverageData data = new CoverageData();
+	data.addPage(new CoverageData.Page("htmlcov", "toto_py.html", "toto.py", "rm2", "0"));
+	data.addPage(new CoverageData.Page("toto/htmlcov", "toto_py.html", "toto.py", "m2r", "0"));
+	CoverageLines lines = CoverageLines.of(data);
+	assertEquals(1, lines.getFiles().size());
+	assertEquals("rmr", new String(lines.getFiles().get("toto.py")));
+    }
+
+    public void testSaveLoad() throws Exception {
+	CoverageLines lines = new CoverageLines();
+	lines.merge("a b.py", "r2.m".toCharArray());
+	lines.merge("c.py", new char[0]);
+	File file = File.createTempFile("coveragepy", ".lines");
+	try {
+	    lines.save(file);
+	    CoverageLines loaded = CoverageLines.load(file);
+	    assertEquals(lines.getFiles().keySet(), loaded.getFiles().keySet());
+	    assertEquals("rr.m", new String(loaded.getFiles().get("a b.py")));
+	    assertEquals("", new String(loaded.getFiles().get("c.py")));
+	} finally {
+	    file.delete();
+	}
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+public class TestCoverageSummary extends TestCase {
+
+    public void testSplit() throws Exception {
+	CoverageSummary summary = new CoverageSummary();
+	Map<String, CoverageCounts> counts = new HashMap<String, CoverageCounts>();
+	counts.put("toto.py", new CoverageCounts(10, 5, 0, 0, 0, 0));
+	counts.put("nested/tata.py", new CoverageCounts(2, 1, 0, 0, 0, 0));
+	summary.add("htmlcov", counts);
+	counts = new HashMap<String, CoverageCounts>();
+	counts.put("titi.py", new CoverageCounts(4, 0, 0, 0, 0, 0));
+	summary.add("htmlcov/nested", counts);
+	counts = new HashMap<String, CoverageCounts>();
+	counts.put("lost.py", new CoverageCounts(4, 4, 0, 0, 0, 0));
+	summary.add("other", counts);
+	SortedMap<String, CoverageSummary> split = summary.split(Arrays.asList("htmlcov", "htmlcov/nested"));
+	assertEquals(2, split.size());
+	assertEquals(Arrays.asList("toto.py"), Arrays.asList(split.get("htmlcov").getFiles().keySet().toArray()));
+	assertEquals(Arrays.asList("tata.py", "titi.py"),
+		Arrays.asList(split.get("htmlcov/nested").getFiles().keySet().toArray()));
+	assertEquals(new CoverageCounts(6, 1, 0, 0, 0, 0), split.get("htmlcov/nested").getTotals());
+    }
+
+    public void testSplitRoot() throws Exception {
+	CoverageSummary summary = new CoverageSummary();
+	Map<String, CoverageCounts> counts = new HashMap<String, CoverageCounts>();
+	counts.put("toto.py", new CoverageCounts(10, 5, 0, 0, 0, 0));
+	summary.add("", counts);
+	SortedMap<String, CoverageSummary> split = summary.split(Arrays.asList(""));
+	assertEquals(new CoverageCounts(10, 5, 0, 0, 0, 0), split.get("").getFiles().get("toto.py"));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import junit.framework.TestCase;
+
+public class TestCoverageTrend extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+	super.setUp();
+	dir = File.createTempFile("history", "");
+	dir.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+	FileUtils.deleteDirectory(dir);
+	super.tearDown();
+    }
+
+    private void append(long number, long statements, long missing) throws Exception {
+	CoverageSummary summary = new CoverageSummary();
+	summary.add("", Collections.singletonMap("toto.py", new CoverageCounts(statements, missing, 0, 0, 0, 0)));
+	CoverageHistory.append(dir, number, number, summary, 0);
+    }
+
+    private String read(ReportFile image) throws Exception {
+	return IOUtils.toString(image.open(), "UTF-8");
+    }
+
+    public void testEmpty() throws Exception {
+	assertNull(CoverageTrend.get(dir).getImage());
+    }
+
+    public void testImage() throws Exception {
+	append(1, 10, 5);
+	append(2, 10, 1);
+	ReportFile image = CoverageTrend.get(dir).getImage();
+	assertEquals("2-2", image.getETag());
+	String svg = read(image);
+	assertTrue(svg, svg.startsWith("<svg"));
+	assertTrue(svg, svg.contains("<title>#1: 50.0%</title>"));
+	assertTrue(svg, svg.contains("<title>#2: 90.0%</title>"));
+	assertNotNull(image.getGzip());
+    }
+
+    public void testCached() throws Exception {
+	append(1, 10, 5);
+	CoverageTrend trend = CoverageTrend.get(dir);
+	assertSame(trend, CoverageTrend.get(dir));
+	ReportFile image = trend.getImage();
+	assertSame(image, trend.getImage());
+	append(3, 10, 0);
+	ReportFile updated = trend.getImage();
+	assertEquals("2-3", updated.getETag());
+	assertTrue(read(updated).contains("<title>#3: 100.0%</title>"));
+    }
+
+    public void testPoints() throws Exception {
+	for (int number = 1; number <= CoverageTrend.POINTS + 10; number++)
+	    append(number, 10, 0);
+	String svg = read(CoverageTrend.get(dir).getImage());
+	assertFalse(svg, svg.contains("<title>#10: "));
+	assertTrue(svg, svg.contains("<title>#11: "));
+	assertTrue(svg, svg.contains("<title>#" + (CoverageTrend.POINTS + 10) + ": "));
+    }
+}
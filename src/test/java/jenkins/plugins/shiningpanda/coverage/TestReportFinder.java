@@ -0,0 +1,90 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+
+import junit.framework.TestCase;
+import jenkins.plugins.shiningpanda.publishers.CoveragePublisher;
+
+public class TestReportFinder extends TestCase {
+
+    private File root;
+
+    @Override
+    protected void setUp() throws Exception {
+	super.setUp();
+	root = File.createTempFile("workspace", "");
+	root.delete();
+	root.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+	FileUtils.deleteDirectory(root);
+	super.tearDown();
+    }
+
+    private void createReport(String dir, String status) throws Exception {
+	File report = new File(root, dir);
+	report.mkdirs();
+	FileUtils.writeStringToFile(new File(report, CoveragePublisher.JS), "");
+	FileUtils.writeStringToFile(new File(report, CoveragePublisher.INDEX), "");
+	FileUtils.writeStringToFile(new File(report, status), "");
+    }
+
+    private String path(String dir) {
+	return new File(root, dir).getPath();
+    }
+
+    public void testFind() throws Exception {
+	createReport("htmlcov", CoveragePublisher.STATUS);
+	createReport("toto/htmlcov", CoveragePublisher.STATUS_LTE_3);
+	createReport("toto/htmlcov/nested", CoveragePublisher.STATUS);
+	assertEquals(Arrays.asList(path("htmlcov"), path("toto/htmlcov"), path("toto/htmlcov/nested")),
+		ReportFinder.find(root, null));
+    }
+
+    public void testFindPattern() throws Exception {
+	createReport("htmlcov", CoveragePublisher.STATUS);
+	createReport("toto/htmlcov", CoveragePublisher.STATUS);
+	assertEquals(Arrays.asList(path("toto/htmlcov")), ReportFinder.find(root, "toto/*"));
+    }
+
+    public void testFindInvalid() throws Exception {
+	createReport("htmlcov", CoveragePublisher.STATUS);
+	new File(root, "htmlcov/" + CoveragePublisher.STATUS).delete();
+	assertTrue(ReportFinder.find(root, null).isEmpty());
+    }
+
+    public void testFindPruned() throws Exception {
+	createReport(".git/htmlcov", CoveragePublisher.STATUS);
+	createReport("node_modules/htmlcov", CoveragePublisher.STATUS);
+	createReport(".tox/py27/htmlcov", CoveragePublisher.STATUS);
+	FileUtils.writeStringToFile(new File(root, ".tox/py27/pyvenv.cfg"), "");
+	createReport("htmlcov", CoveragePublisher.STATUS);
+	assertEquals(Arrays.asList(path("htmlcov")), ReportFinder.find(root, null));
+    }
+}
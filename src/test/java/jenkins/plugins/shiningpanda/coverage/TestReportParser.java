@@ -0,0 +1,92 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import junit.framework.TestCase;
+
+public class TestReportParser extends TestCase {
+
+    private static final String COVERAGE_4 = "<html><head><title>Coverage for pkg/a&amp;b.py: 60%</title></head>\n"
+	    + "<body><table><tr><td class=\"linenos\">\n"
+	    + "<p id=\"n1\" class=\"stm run hide_run\"><a href=\"#n1\">1</a></p>\n"
+	    + "<p id=\"n2\" class=\"stm mis\"><a href=\"#n2\">2</a></p>\n" + "</td><td class=\"text\">\n"
+	    + "<p id=\"t1\" class=\"stm run hide_run\"><span class=\"key\">def</span> <span class=\"nam\">f</span>"
+	    + "<span class=\"op\">():</span><span class=\"strut\">&nbsp;</span></p>\n"
+	    + "<p id=\"t2\" class=\"stm mis\">&nbsp; &nbsp; <span class=\"key\">pass</span>"
+	    + "<span class=\"strut\">&nbsp;</span></p>\n"
+	    + "<p id=\"t3\" class=\"pln\"><span class=\"strut\">&nbsp;</span></p>\n"
+	    + "<p id=\"t4\" class=\"stm par run hide_run\"><span class=\"annotate\" title=\"never jumped\">4&nbsp;"
+	    + "&#x219B;&nbsp;6</span><span class=\"key\">if</span> <span class=\"nam\">x</span>"
+	    + "<span class=\"strut\">&nbsp;</span></p>\n"
+	    + "<p id=\"t5\" class=\"stm run hide_run\">&nbsp; &nbsp; <span class=\"nam\">f</span>"
+	    + "<span class=\"strut\">&nbsp;</span></p>\n"
+	    + "<p id=\"t6\" class=\"exc\"><span class=\"nam\">g</span><span class=\"strut\">&nbsp;</span></p>\n"
+	    + "</td></tr></table></body></html>\n";
+
+    private static final String COVERAGE_7 = "<!DOCTYPE html>\n<html><head>\n"
+	    + "<title>Coverage for toto.py: 50%</title>\n</head><body>\n<main id=\"source\">\n"
+	    + "<p class=\"run\"><span class=\"n\"><a id=\"t1\" href=\"#t1\">1</a></span><span class=\"t\">"
+	    + "<span class=\"key\">import</span> <span class=\"nam\">os</span>&nbsp;</span><span class=\"r\"></span></p>\n"
+	    + "<p class=\"pln\"><span class=\"n\"><a id=\"t2\" href=\"#t2\">2</a></span><span class=\"t\">&nbsp;</span>"
+	    + "<span class=\"r\"></span></p>\n"
+	    + "<p class=\"par run show_par\"><span class=\"n\"><a id=\"t3\" href=\"#t3\">3</a></span><span class=\"t\">"
+	    + "<span class=\"key\">if</span> <span class=\"nam\">x</span><span class=\"op\">:</span>&nbsp;</span>"
+	    + "<span class=\"r\"><span class=\"annotate short\">3&#x202F;&#x219B;&#x202F;exit</span></span></p>\n"
+	    + "<p class=\"mis show_mis\"><span class=\"n\"><a id=\"t4\" href=\"#t4\">4</a></span><span class=\"t\">"
+	    + "&nbsp; &nbsp; <span class=\"nam\">y</span>&nbsp;</span><span class=\"r\"></span></p>\n"
+	    + "</main></body></html>\n";
+
+    public void testParseCoverage4() throws Exception {
+	ReportParser.Source source = ReportParser.parse(COVERAGE_4);
+	assertEquals("pkg/a&b.py", source.getPath());
+	assertEquals("rm.prx", new String(source.getStates()));
+	String[] lines = source.getText().split("\n", -1);
+	assertEquals(6, lines.length);
+	assertEquals("<span class=\"key\">def</span> <span class=\"nam\">f</span><span class=\"op\">():</span>",
+		lines[0]);
+	assertEquals("&nbsp; &nbsp; <span class=\"key\">pass</span>", lines[1]);
+	assertEquals("", lines[2]);
+	assertEquals("<span class=\"key\">if</span> <span class=\"nam\">x</span>", lines[3]);
+    }
+
+    public void testParseCoverage7() throws Exception {
+	ReportParser.Source source = ReportParser.parse(COVERAGE_7);
+	assertEquals("toto.py", source.getPath());
+	assertEquals("r.pm", new String(source.getStates()));
+	String[] lines = source.getText().split("\n", -1);
+	assertEquals(4, lines.length);
+	assertEquals("<span class=\"key\">import</span> <span class=\"nam\">os</span>", lines[0]);
+	assertEquals("", lines[1]);
+	assertEquals("<span class=\"key\">if</span> <span class=\"nam\">x</span><span class=\"op\">:</span>",
+		lines[2]);
+	assertEquals("&nbsp; &nbsp; <span class=\"nam\">y</span>", lines[3]);
+    }
+
+    public void testParseIndex() throws Exception {
+	assertNull(ReportParser.parse("<html><head><title>Coverage report: 50%</title></head></html>"));
+    }
+
+    public void testUnescape() throws Exception {
+	assertEquals("a<b>&\"c\" \u00e9 &bogus; &#99999999;",
+		ReportParser.unescape("a&lt;b&gt;&amp;&quot;c&quot; &#233; &bogus; &#99999999;"));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestReportSender extends TestCase {
+
+    public void testParseRange() throws Exception {
+	assertTrue(Arrays.equals(new long[] { 0, 99 }, ReportSender.parseRange("bytes=0-99", 1000)));
+	assertTrue(Arrays.equals(new long[] { 500, 999 }, ReportSender.parseRange("bytes=500-", 1000)));
+	assertTrue(Arrays.equals(new long[] { 900, 999 }, ReportSender.parseRange("bytes=-100", 1000)));
+	assertTrue(Arrays.equals(new long[] { 0, 999 }, ReportSender.parseRange("bytes=-2000", 1000)));
+	assertTrue(Arrays.equals(new long[] { 990, 999 }, ReportSender.parseRange("bytes=990-2000", 1000)));
+    }
+
+    public void testParseRangeUnsatisfiable() throws Exception {
+	assertSame(ReportSender.UNSATISFIABLE, ReportSender.parseRange("bytes=1000-", 1000));
+	assertSame(ReportSender.UNSATISFIABLE, ReportSender.parseRange("bytes=2000-3000", 1000));
+	assertSame(ReportSender.UNSATISFIABLE, ReportSender.parseRange("bytes=-0", 1000));
+	assertSame(ReportSender.UNSATISFIABLE, ReportSender.parseRange("bytes=-10", 0));
+    }
+
+    public void testParseRangeIgnored() throws Exception {
+	assertNull(ReportSender.parseRange("items=0-99", 1000));
+	assertNull(ReportSender.parseRange("bytes=0-9,20-29", 1000));
+	assertNull(ReportSender.parseRange("bytes=99-0", 1000));
+	assertNull(ReportSender.parseRange("bytes=a-b", 1000));
+	assertNull(ReportSender.parseRange("bytes=-", 1000));
+    }
+
+    public void testMatches() throws Exception {
+	assertTrue(ReportSender.matches("\"abc\"", "\"abc\""));
+	assertTrue(ReportSender.matches("\"xyz\", W/\"abc\"", "\"abc\""));
+	assertTrue(ReportSender.matches("*", "\"abc\""));
+	assertFalse(ReportSender.matches("\"abc-gzip\"", "\"abc\""));
+    }
+
+    public void testAcceptsGzip() throws Exception {
+	assertTrue(ReportSender.acceptsGzip("gzip, deflate"));
+	assertTrue(ReportSender.acceptsGzip("deflate, GZIP;q=0.5"));
+	assertFalse(ReportSender.acceptsGzip("gzip;q=0"));
+	assertFalse(ReportSender.acceptsGzip("identity"));
+	assertFalse(ReportSender.acceptsGzip(null));
+    }
+}
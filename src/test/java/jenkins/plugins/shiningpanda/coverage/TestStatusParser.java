@@ -0,0 +1,98 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+public class TestStatusParser extends TestCase {
+
+    private static final String JSON = "{\"format\": 2, \"version\": \"4.5.4\", \"globals\": \"abc\", \"files\": {"
+	    + "\"pkg_mod_py\": {\"hash\": \"def\", \"index\": {\"nums\": [1, 100, 2, 10, 20, 3, 4], "
+	    + "\"html_filename\": \"pkg_mod_py.html\", \"relative_filename\": \"pkg/mod.py\"}}, "
+	    + "\"pkg_init_py\": {\"hash\": \"ghi\", \"index\": {\"nums\": [0, 1, 7, 0, 0, 0, 0, 0], "
+	    + "\"extra\": [null, true, {\"a\": \"\\\"\\u00e9\"}], \"relative_filename\": \"pkg/__init__.py\"}}}}";
+
+    private static final String PICKLE_0 = "(dp0\nVformat\np1\nI1\nsVfiles\np2\n(dp3\nVpkg_mod\np4\n(dp5\nVindex\np6\n(dp7\nVnums\n"
+	    + "p8\nccopy_reg\n_reconstructor\np9\n(ccoverage.results\nNumbers\np10\nc__builtin__\n"
+	    + "object\np11\nNtp12\nRp13\n(dp14\nVn_files\np15\nI1\nsVn_statements\np16\nI100\n"
+	    + "sVn_excluded\np17\nI2\nsVn_missing\np18\nI10\nsVn_branches\np19\nI20\n"
+	    + "sVn_partial_branches\np20\nI3\nsVn_missing_branches\np21\nI4\nsbsVname\np22\nVpkg/mod\n"
+	    + "p23\nssss.";
+
+    private static final String PICKLE_2 = "80027d7100285806000000666f726d617471014b01580500000066696c657371027d71035807000000706b675f6d6f64"
+	    + "71047d71055805000000696e64657871067d71072858040000006e756d73710863636f7665726167652e726573756c74"
+	    + "730a4e756d626572730a71092981710a7d710b2858070000006e5f66696c6573710c4b01580c0000006e5f7374617465"
+	    + "6d656e7473710d4b64580a0000006e5f6578636c75646564710e4b0258090000006e5f6d697373696e67710f4b0a580a"
+	    + "0000006e5f6272616e6368657371104b1458120000006e5f7061727469616c5f6272616e6368657371114b0358120000"
+	    + "006e5f6d697373696e675f6272616e6368657371124b04756258040000006e616d6571135807000000706b672f6d6f64"
+	    + "7114757373752e";
+
+    private static byte[] hex(String hex) {
+	byte[] bytes = new byte[hex.length() / 2];
+	for (int i = 0; i < bytes.length; i++)
+	    bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+	return bytes;
+    }
+
+    private void assertCounts(CoverageCounts counts) {
+	assertEquals(100, counts.getStatements());
+	assertEquals(10, counts.getMissing());
+	assertEquals(2, counts.getExcluded());
+	assertEquals(20, counts.getBranches());
+	assertEquals(3, counts.getPartialBranches());
+	assertEquals(4, counts.getMissingBranches());
+	assertEquals(100.0 * 106 / 120, counts.getPercent(), 0.001);
+    }
+
+    public void testParseJson() throws Exception {
+	SortedMap<String, CoverageCounts> files = StatusParser.parseJson(new ByteArrayInputStream(JSON.getBytes("UTF-8")));
+	assertEquals(2, files.size());
+	assertCounts(files.get("pkg/mod.py"));
+	assertEquals(7, files.get("pkg/__init__.py").getStatements());
+	assertEquals(100.0, files.get("pkg/__init__.py").getPercent(), 0.001);
+    }
+
+    public void testParsePickleProtocol0() throws Exception {
+	SortedMap<String, CoverageCounts> files = StatusParser
+		.parsePickle(new ByteArrayInputStream(PICKLE_0.getBytes("ISO-8859-1")));
+	assertEquals(1, files.size());
+	assertCounts(files.get("pkg/mod"));
+    }
+
+    public void testParsePickleProtocol2() throws Exception {
+	SortedMap<String, CoverageCounts> files = StatusParser.parsePickle(new ByteArrayInputStream(hex(PICKLE_2)));
+	assertEquals(1, files.size());
+	assertCounts(files.get("pkg/mod"));
+    }
+
+    public void testTruncated() throws Exception {
+	try {
+	    StatusParser.parseJson(new ByteArrayInputStream(JSON.substring(0, 100).getBytes("UTF-8")));
+	    fail("truncated document should not be parsed");
+	} catch (IOException e) {
+	}
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.coverage;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import junit.framework.TestCase;
+
+public class TestSummaryStore extends TestCase {
+
+    private File dir;
+
+    private File base;
+
+    @Override
+    protected void setUp() throws Exception {
+	super.setUp();
+	dir = File.createTempFile("coveragepy", "");
+	dir.delete();
+	dir.mkdirs();
+	base = new File(dir, "coveragepy");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+	FileUtils.deleteDirectory(dir);
+	super.tearDown();
+    }
+
+    public void testServeSummary() throws Exception {
+	CoverageSummary summary = new CoverageSummary();
+	Map<String, CoverageCounts> counts = new HashMap<String, CoverageCounts>();
+	counts.put("toto.py", new CoverageCounts(10, 5, 0, 0, 0, 0));
+	summary.add("htmlcov", counts);
+	counts = new HashMap<String, CoverageCounts>();
+	counts.put("titi.py", new CoverageCounts(4, 0, 0, 0, 0, 0));
+	summary.add("htmlcov/nested", counts);
+	summary.save(CoverageSummary.getFile(base));
+	ReportIndex.save(base, Arrays.asList("htmlcov", "htmlcov/nested"));
+	ReportStore store = ReportStore.get(base);
+	assertTrue("compacted reports should be served from the summary", store instanceof SummaryStore);
+	assertTrue(store.isDirectory("htmlcov"));
+	assertTrue(store.isReport("htmlcov/nested"));
+	assertNull(store.getFile("htmlcov/toto_py.html"));
+	String html = IOUtils.toString(store.getFile("htmlcov/index.html").open(), "UTF-8");
+	assertTrue("missing file in index:\n" + html, html.contains("toto.py"));
+	assertFalse("nested report file in index:\n" + html, html.contains("titi.py"));
+	assertTrue("missing coverage in index:\n" + html, html.contains("50%"));
+    }
+
+    public void testNoSummary() throws Exception {
+	ReportIndex.save(base, Arrays.asList("htmlcov"));
+	assertNull(ReportStore.get(base));
+    }
+}
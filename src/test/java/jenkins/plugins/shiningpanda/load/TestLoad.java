@@ -0,0 +1,135 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.load;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.matrix.AxisList;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
+import hudson.matrix.TextAxis;
+import hudson.model.Node.Mode;
+import hudson.model.Result;
+import hudson.model.labels.LabelAtom;
+import hudson.slaves.DumbSlave;
+import hudson.slaves.NodeProperty;
+import hudson.slaves.RetentionStrategy;
+import jenkins.plugins.shiningpanda.ShiningPandaTestCase;
+import jenkins.plugins.shiningpanda.actions.timing.TimingAction;
+import jenkins.plugins.shiningpanda.actions.timing.TimingStep;
+import jenkins.plugins.shiningpanda.builders.VirtualenvBuilder;
+import jenkins.plugins.shiningpanda.command.CommandNature;
+import jenkins.plugins.shiningpanda.tools.PythonInstallation;
+
+/**
+ * Load test firing concurrent builds on a local agent with a fake interpreter.
+ * Skipped unless the shiningpanda.load system property is set, for instance:
+ * 
+ * <pre>
+ * mvn test -Dtest=TestLoad -Dshiningpanda.load=true -Dshiningpanda.load.builds=20
+ * </pre>
+ */
+public class TestLoad extends ShiningPandaTestCase {
+
+    private static final Logger LOGGER = Logger.getLogger(TestLoad.class.getName());
+
+    private static final String LABEL = "load";
+
+    private File log;
+
+    private DumbSlave createLoadSlave(int executors) throws Exception {
+	DumbSlave slave = new DumbSlave("load-slave", "", createTmpDir("load-slave").getAbsolutePath(),
+		String.valueOf(executors), Mode.NORMAL, LABEL, createComputerLauncher(null), RetentionStrategy.NOOP,
+		Collections.<NodeProperty<?>> emptyList());
+	hudson.addNode(slave);
+	slave.toComputer().connect(false).get();
+	return slave;
+    }
+
+    private MatrixProject createLoadProject(PythonInstallation installation, int configurations) throws Exception {
+	List<String> values = new ArrayList<String>();
+	for (int i = 0; i < configurations; i++)
+	    values.add(String.valueOf(i));
+	MatrixProject project = createMatrixProject();
+	project.setAxes(new AxisList(new TextAxis("CONFIGURATION", values)));
+	project.setAssignedLabel(new LabelAtom(LABEL));
+	project.getBuildersList().add(new VirtualenvBuilder(installation.getName(), "env", false, false,
+		CommandNature.SHELL.getKey(), "python -m pip install nose\npython test.py", false));
+	return project;
+    }
+
+    private int getCreations() throws Exception {
+	return log.exists() ? FileUtils.readLines(log).size() : 0;
+    }
+
+    private long percentile(List<Long> values, double percentile) {
+	List<Long> sorted = new ArrayList<Long>(values);
+	Collections.sort(sorted);
+	return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1));
+    }
+
+    private void report(String name, MatrixBuild build, long elapsed, int creations) throws Exception {
+	List<Long> latencies = new ArrayList<Long>();
+	for (MatrixRun run : build.getRuns()) {
+	    assertEquals("run should have been successful:\n" + FileUtils.readFileToString(run.getLogFile()),
+		    Result.SUCCESS, run.getResult());
+	    for (TimingStep step : run.getAction(TimingAction.class).getSteps())
+		latencies.add(step.getDuration());
+	}
+	LOGGER.info(String.format(
+		"%s: %d runs in %d ms, throughput %.2f runs/s, step latency p50 %d ms, p99 %d ms, "
+			+ "%d virtualenv creations",
+		name, build.getRuns().size(), elapsed, 1000. * build.getRuns().size() / elapsed,
+		percentile(latencies, .5), percentile(latencies, .99), creations));
+    }
+
+    public void testConcurrentBuilds() throws Exception {
+	if (!Boolean.getBoolean("shiningpanda.load"))
+	    return;
+	int builds = Integer.getInteger("shiningpanda.load.builds", 20);
+	log = new File(createTmpDir("load-log"), "creations.log");
+	File home = createFakePythonInstallation(createTmpDir("load-python"), log,
+		System.getProperty("shiningpanda.load.virtualenv", "2"), System.getProperty("shiningpanda.load.pip", "1"),
+		System.getProperty("shiningpanda.load.command", "0.2"));
+	PythonInstallation installation = configurePython("Fake", home.getAbsolutePath());
+	createLoadSlave(builds);
+	MatrixProject project = createLoadProject(installation, builds);
+	// First build: all the configurations create their environment at once
+	long start = System.currentTimeMillis();
+	MatrixBuild cold = project.scheduleBuild2(0).get();
+	report("cold", cold, System.currentTimeMillis() - start, getCreations());
+	assertEquals(builds, getCreations());
+	// Second build: environments are up to date, none should be re-created
+	start = System.currentTimeMillis();
+	MatrixBuild warm = project.scheduleBuild2(0).get();
+	int recreations = getCreations() - builds;
+	report("warm", warm, System.currentTimeMillis() - start, recreations);
+	assertEquals("no virtualenv should have been re-created", 0, recreations);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.metrics;
+
+import junit.framework.TestCase;
+
+public class TestMetrics extends TestCase {
+
+    public void testCounter() throws Exception {
+	Metrics metrics = new Metrics();
+	metrics.counter("hit", "master", "CPython-2").inc();
+	metrics.counter("hit", "master", "CPython-2").add(2);
+	metrics.counter("hit", "slave0", "CPython-2").inc();
+	assertEquals(3, metrics.counter("hit", "master", "CPython-2").getValue());
+	assertEquals(1, metrics.counter("hit", "slave0", "CPython-2").getValue());
+	assertEquals(2, metrics.getCounters().size());
+	assertTrue(metrics.getHistograms().isEmpty());
+    }
+
+    public void testHistogram() throws Exception {
+	Histogram histogram = new Metrics().histogram("time", "master", "");
+	assertEquals(0, histogram.getPercentile(0.5));
+	for (int i = 1; i <= 100; i++)
+	    histogram.update(i);
+	assertEquals(100, histogram.getCount());
+	assertEquals(5050, histogram.getSum());
+	assertEquals(1, histogram.getMin());
+	assertEquals(100, histogram.getMax());
+	assertEquals(50, histogram.getMean());
+	assertEquals(63, histogram.getPercentile(0.5));
+	assertEquals(100, histogram.getPercentile(0.99));
+	assertEquals(1, histogram.getPercentile(0.01));
+    }
+
+    public void testHistogramZero() throws Exception {
+	Histogram histogram = new Metrics().histogram("time", "master", "");
+	histogram.update(0);
+	histogram.update(0);
+	assertEquals(0, histogram.getPercentile(0.99));
+	assertEquals(0, histogram.getMax());
+    }
+
+    public void testFlightEvent() throws Exception {
+	FlightEvent.begin(FlightEvent.VIRTUALENV_CREATION).commit("master", "/tmp/env", "CPython-2", true);
+	FlightEvent.begin(FlightEvent.COVERAGE_SERVE).commit(null, "/", 200);
+	FlightEvent.begin(FlightEvent.PACKAGES_SYNC).commit("master", "/tmp/packages", 12, "ignored");
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.profile;
+
+import java.io.File;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class TestFlameGraph extends TestCase {
+
+    private SortedMap<String, Long> stacks() {
+	SortedMap<String, Long> stacks = new TreeMap<String, Long>();
+	stacks.put("main", 100L);
+	stacks.put("main;fib", 600L);
+	stacks.put("main;load data", 300L);
+	return stacks;
+    }
+
+    public void testSaveLoad() throws Exception {
+	File file = File.createTempFile("shiningpanda", ".collapsed");
+	try {
+	    FlameGraph.save(stacks(), file);
+	    assertEquals(stacks(), FlameGraph.load(file));
+	} finally {
+	    file.delete();
+	}
+    }
+
+    public void testRender() throws Exception {
+	String svg = FlameGraph.render(stacks(), "<build>");
+	assertTrue(svg.startsWith("<svg "));
+	assertTrue(svg.contains("&lt;build&gt;"));
+	assertTrue(svg.contains("data-n=\"fib\""));
+	assertTrue(svg.contains("<title>load data (300 \u00b5s, 30.00%)</title>"));
+	assertTrue(svg.contains("<title>all (1000 \u00b5s, 100.00%)</title>"));
+    }
+
+    public void testFit() throws Exception {
+	assertEquals("fib", FlameGraph.fit("fib", 100));
+	assertEquals("long_f..", FlameGraph.fit("long_function_name", 62));
+	assertEquals("", FlameGraph.fit("fib", 20));
+    }
+}
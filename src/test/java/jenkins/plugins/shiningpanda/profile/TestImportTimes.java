@@ -0,0 +1,80 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.profile;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestImportTimes extends TestCase {
+
+    private static final String[] LINES = { "import time: self [us] | cumulative | imported package",
+	    "import time:       167 |        167 |       _json",
+	    "import time:       340 |        507 |     json.scanner",
+	    "import time:       274 |       5540 |   json.decoder",
+	    "import time:       323 |        323 |   json.encoder",
+	    "import time:       180 |       6042 | json",
+	    "import time:        99 |         99 | _io" };
+
+    private ImportTimes parse() {
+	ImportTimes times = new ImportTimes();
+	for (String line : LINES)
+	    assertTrue(times.parse(line));
+	return times;
+    }
+
+    public void testParse() throws Exception {
+	ImportTimes times = parse();
+	assertFalse(times.parse("Traceback (most recent call last):"));
+	assertEquals(6, times.size());
+	assertEquals(6141, times.getTotal());
+	assertEquals(274, times.get("json.decoder").getSelf());
+	assertEquals(5540, times.get("json.decoder").getCumulative());
+	assertNull(times.get("import"));
+    }
+
+    public void testSlowest() throws Exception {
+	ImportTimes times = parse();
+	times.add(parse());
+	assertEquals(12282, times.getTotal());
+	List<ImportTimes.Module> slowest = times.getSlowest(3);
+	assertEquals(3, slowest.size());
+	assertEquals("json", slowest.get(0).getName());
+	assertEquals(12084, slowest.get(0).getCumulative());
+	assertEquals("json.decoder", slowest.get(1).getName());
+	assertEquals("json.scanner", slowest.get(2).getName());
+    }
+
+    public void testSaveLoad() throws Exception {
+	File file = File.createTempFile("importtime", ".txt");
+	try {
+	    parse().save(file);
+	    ImportTimes times = ImportTimes.load(file);
+	    assertEquals(6, times.size());
+	    assertEquals(6141, times.getTotal());
+	    assertEquals(323, times.get("json.encoder").getCumulative());
+	} finally {
+	    file.delete();
+	}
+    }
+}
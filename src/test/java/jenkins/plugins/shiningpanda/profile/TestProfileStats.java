@@ -0,0 +1,80 @@
+/*
+ * ShiningPanda plug-in for Jenkins
+ * Copyright (C) 2011-2015 ShiningPanda S.A.S.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of its license which incorporates the terms and 
+ * conditions of version 3 of the GNU Affero General Public License, 
+ * supplemented by the additional permissions under the GNU Affero GPL
+ * version 3 section 7: if you modify this program, or any covered work, 
+ * by linking or combining it with other code, such other code is not 
+ * for that reason alone subject to any of the requirements of the GNU
+ * Affero GPL version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * license for more details.
+ *
+ * You should have received a copy of the license along with this program.
+ * If not, see <https://raw.github.com/jenkinsci/shiningpanda-plugin/master/LICENSE.txt>.
+ */
+package jenkins.plugins.shiningpanda.profile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+public class TestProfileStats extends TestCase {
+
+    private static final String PYTHON_3 = "fba903fa017ee900000000fa1f3c6275696c742d696e206d6574686f64206275696c7469"
+	    + "6e732e657865633e2905e9010000007205000000e70000000000000000e7000000000000f03f7b30a903fa046d2e7079"
+	    + "7205000000fa083c6d6f64756c653e290572050000007205000000e79a9999999999b93f72070000007b7201000000a9"
+	    + "0472050000007205000000720b000000720700000030a9037209000000e903000000da036669622905720e000000e90f"
+	    + "000000e7333333333333e33f72110000007b7208000000a904e9020000007213000000e79a9999999999d93f72140000"
+	    + "00a9037209000000e905000000da046d61696ea90472050000007205000000e79a9999999999c93f7219000000307215"
+	    + "000000290572050000007205000000e7333333333333d33fe7000000000000e03f7b7208000000a90472050000007205"
+	    + "000000721a000000721b0000003030";
+
+    private static final String PYTHON_2 = "7b280300000074040000006d2e7079690100000074010000006628050000006901000000"
+	    + "690100000067000000000000e03f67000000000000e83f7b302803000000520000000069020000007401000000672805"
+	    + "0000006901000000690100000067000000000000d03f67000000000000d03f7b28030000005200000000690100000052"
+	    + "0100000028040000006901000000690100000067000000000000d03f67000000000000d03f3030";
+
+    private static byte[] hex(String hex) {
+	byte[] bytes = new byte[hex.length() / 2];
+	for (int i = 0; i < bytes.length; i++)
+	    bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+	return bytes;
+    }
+
+    public void testCollapse() throws Exception {
+	ProfileStats stats = ProfileStats.read(new ByteArrayInputStream(hex(PYTHON_3)));
+	assertEquals(4, stats.size());
+	assertEquals(1.0, stats.getTotal(), 0.001);
+	SortedMap<String, Long> stacks = stats.collapse();
+	assertEquals(4, stacks.size());
+	String module = "<built-in method builtins.exec>;m.py:1(<module>)";
+	assertEquals(Long.valueOf(100000), stacks.get(module));
+	assertEquals(Long.valueOf(400000), stacks.get(module + ";m.py:3(fib)"));
+	assertEquals(Long.valueOf(300000), stacks.get(module + ";m.py:5(main)"));
+	assertEquals(Long.valueOf(200000), stacks.get(module + ";m.py:5(main);m.py:3(fib)"));
+    }
+
+    public void testPython2() throws Exception {
+	SortedMap<String, Long> stacks = ProfileStats.read(new ByteArrayInputStream(hex(PYTHON_2))).collapse();
+	assertEquals(2, stacks.size());
+	assertEquals(Long.valueOf(500000), stacks.get("m.py:1(f)"));
+	assertEquals(Long.valueOf(250000), stacks.get("m.py:1(f);m.py:2(g)"));
+    }
+
+    public void testTruncated() throws Exception {
+	try {
+	    ProfileStats.read(new ByteArrayInputStream(hex(PYTHON_3.substring(0, 200))));
+	    fail("truncated statistics should not be read");
+	} catch (IOException e) {
+	}
+    }
+}
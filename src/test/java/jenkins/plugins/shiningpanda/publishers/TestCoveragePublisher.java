@@ -22,20 +22,62 @@
 package jenkins.plugins.shiningpanda.publishers;
 
 import java.io.File;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
 
+import hudson.matrix.AxisList;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
+import hudson.matrix.TextAxis;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
 import jenkins.plugins.shiningpanda.ShiningPandaTestCase;
+import jenkins.plugins.shiningpanda.actions.coverage.CoverageMatrixBuildAction;
+import jenkins.plugins.shiningpanda.coverage.BlobStore;
+import jenkins.plugins.shiningpanda.coverage.CoverageDiff;
+import jenkins.plugins.shiningpanda.coverage.CoverageHistory;
+import jenkins.plugins.shiningpanda.coverage.CoverageLines;
+import jenkins.plugins.shiningpanda.coverage.CoverageStorage;
+import jenkins.plugins.shiningpanda.coverage.CoverageSummary;
+import jenkins.plugins.shiningpanda.coverage.Manifest;
+import jenkins.plugins.shiningpanda.coverage.ReportIndex;
+import jenkins.plugins.shiningpanda.coverage.ReportStore;
 import jenkins.plugins.shiningpanda.scm.CoverageSCM;
 
 public class TestCoveragePublisher extends ShiningPandaTestCase {
 
+    private CoveragePublisher newCoveragePublisher(String htmlDir, CoverageStorage storage) {
+	CoveragePublisher publisher = new CoveragePublisher(htmlDir);
+	publisher.setStorage(storage.getKey());
+	return publisher;
+    }
+
     public void testRoundTrip() throws Exception {
 	CoveragePublisher before = new CoveragePublisher("**/htmlcov");
 	CoveragePublisher after = configRoundtrip(before);
-	assertEqualBeans2(before, after, "htmlDir");
+	assertEqualBeans2(before, after, "htmlDir,storage");
+    }
+
+    public void testRoundTripArchive() throws Exception {
+	CoveragePublisher before = newCoveragePublisher("**/htmlcov", CoverageStorage.ARCHIVE);
+	CoveragePublisher after = configRoundtrip(before);
+	assertEqualBeans2(before, after, "htmlDir,storage");
+    }
+
+    public void testRoundTripGate() throws Exception {
+	CoveragePublisher before = newCoveragePublisher("**/htmlcov", CoverageStorage.DEDUPLICATED);
+	before.setKeep("5");
+	before.setMinimum("80");
+	before.setFileMinimum("60");
+	before.setMaximumDrop("2.5");
+	before.setGateResult("FAILURE");
+	CoveragePublisher after = configRoundtrip(before);
+	assertEqualBeans2(before, after, "htmlDir,storage,keep,minimum,fileMinimum,maximumDrop,gateResult");
     }
 
     public void testNoHtmlDir() throws Exception {
@@ -73,6 +115,276 @@ public class TestCoveragePublisher extends ShiningPandaTestCase {
 	assertTrue("missing report under htmlcov folder", new File(coveragepy, "toto/htmlcov").exists());
     }
 
+    public void testReportIndex() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov", "toto/htmlcov"));
+	project.getPublishersList().add(new CoveragePublisher(null));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	File coveragepy = CoveragePublisher.getHtmlDir(build);
+	File index = ReportIndex.getFile(coveragepy);
+	assertTrue("missing report index: " + index.getAbsolutePath(), index.exists());
+	assertEquals(2, ReportIndex.get(coveragepy).getReports().size());
+	assertTrue(index.delete());
+	assertEquals(2, ReportIndex.get(coveragepy).getReports().size());
+	assertTrue("report index should have been rebuilt: " + index.getAbsolutePath(), index.exists());
+    }
+
+    public void testSingleReportIndex() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov"));
+	project.getPublishersList().add(new CoveragePublisher("htmlcov"));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	assertTrue("archived folder should be a report", ReportIndex.get(CoveragePublisher.getHtmlDir(build)).isSingle());
+    }
+
+    public void testMatrixIndex() throws Exception {
+	MatrixProject project = createMatrixProject();
+	project.setAxes(new AxisList(new TextAxis("X", "a", "b")));
+	project.setScm(new CoverageSCM("htmlcov"));
+	project.getPublishersList().add(new CoveragePublisher("htmlcov"));
+	MatrixBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	CoverageMatrixBuildAction index = build.getAction(CoverageMatrixBuildAction.class);
+	assertNotNull("matrix build should have a coverage index", index);
+	List<CoverageMatrixBuildAction.Cell> cells = index.getCells(project);
+	assertEquals(2, cells.size());
+	for (CoverageMatrixBuildAction.Cell cell : cells) {
+	    MatrixRun run = project.getItem(cell.getCombination()).getBuildByNumber(cell.getNumber());
+	    assertEquals(CoveragePublisher.getHtmlDir(run), cell.getHtmlDir(run.getParent()));
+	    assertEquals(run.getFullDisplayName(), cell.getTitle(run.getParent()));
+	}
+	assertSame(index, CoverageMatrixBuildAction.find(project));
+	String page = new WebClient().goTo(project.getUrl() + CoveragePublisher.BASENAME + "/").asXml();
+	assertTrue("missing configuration in index:\n" + page, page.contains("X=a/"));
+	assertTrue("missing configuration in index:\n" + page, page.contains("X=b/"));
+    }
+
+    public void testMatrixUnion() throws Exception {
+	MatrixProject project = createMatrixProject();
+	project.setAxes(new AxisList(new TextAxis("X", "a", "b")));
+	project.setScm(new CoverageSCM("htmlcov"));
+	project.getPublishersList().add(new CoveragePublisher("htmlcov"));
+	MatrixBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	for (MatrixRun run : build.getRuns()) {
+	    File lines = CoverageLines.getFile(CoveragePublisher.getHtmlDir(run));
+	    assertTrue("missing lines: " + lines.getAbsolutePath(), lines.isFile());
+	}
+	File summary = CoverageSummary.getFile(CoveragePublisher.getHtmlDir(build));
+	assertTrue("missing combined coverage: " + summary.getAbsolutePath(), summary.isFile());
+	CoverageMatrixBuildAction index = build.getAction(CoverageMatrixBuildAction.class);
+	assertNotNull("matrix build should have a combined coverage", index.getUnion());
+	assertEquals(2, index.getConfigurations());
+	new WebClient().goTo(build.getUrl());
+    }
+
+    public void testArchiveStorage() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov", "toto/htmlcov", "toto/htmlcov/nested"));
+	project.getPublishersList().add(newCoveragePublisher(null, CoverageStorage.ARCHIVE));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	File coveragepy = CoveragePublisher.getHtmlDir(build);
+	assertFalse("reports should not have been copied: " + coveragepy.getAbsolutePath(), coveragepy.exists());
+	File archive = ReportStore.getArchive(coveragepy);
+	assertTrue("missing archive: " + archive.getAbsolutePath(), archive.isFile());
+	ReportStore store = ReportStore.get(coveragepy);
+	assertTrue("missing report in archive", store.isReport("htmlcov"));
+	assertTrue("missing report in archive", store.isReport("toto/htmlcov"));
+	assertTrue("missing nested report in archive", store.isReport("toto/htmlcov/nested"));
+	assertEquals(3, ReportIndex.get(coveragepy).getReports().size());
+	WebClient client = new WebClient();
+	client.goTo(build.getUrl() + CoveragePublisher.BASENAME + "/toto/htmlcov/", "text/html");
+	client.goTo(build.getUrl() + CoveragePublisher.BASENAME + "/toto/htmlcov/index.html", "text/html");
+    }
+
+    public void testHtmlDirOnSlave() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setAssignedNode(createOnlineSlave());
+	project.setScm(new CoverageSCM("htmlcov", "toto/htmlcov"));
+	project.getPublishersList().add(new CoveragePublisher(null));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	File coveragepy = CoveragePublisher.getHtmlDir(build);
+	assertTrue("missing report under htmlcov folder", new File(coveragepy, "htmlcov/index.html").exists());
+	assertTrue("missing report under htmlcov folder", new File(coveragepy, "toto/htmlcov/index.html").exists());
+    }
+
+    public void testArchiveStorageOnSlave() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setAssignedNode(createOnlineSlave());
+	project.setScm(new CoverageSCM("htmlcov", "toto/htmlcov"));
+	project.getPublishersList().add(newCoveragePublisher(null, CoverageStorage.ARCHIVE));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	File coveragepy = CoveragePublisher.getHtmlDir(build);
+	File archive = ReportStore.getArchive(coveragepy);
+	assertTrue("missing archive: " + archive.getAbsolutePath(), archive.isFile());
+	ReportStore store = ReportStore.get(coveragepy);
+	assertTrue("missing report in archive", store.isReport("htmlcov"));
+	assertTrue("missing report in archive", store.isReport("toto/htmlcov"));
+    }
+
+    public void testDeduplicatedStorage() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov", "toto/htmlcov"));
+	project.getPublishersList().add(newCoveragePublisher(null, CoverageStorage.DEDUPLICATED));
+	FreeStyleBuild first = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(first);
+	FreeStyleBuild second = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(second);
+	File coveragepy = CoveragePublisher.getHtmlDir(second);
+	assertFalse("reports should not have been copied: " + coveragepy.getAbsolutePath(), coveragepy.exists());
+	File file = ReportStore.getManifest(coveragepy);
+	assertTrue("missing manifest: " + file.getAbsolutePath(), file.isFile());
+	ReportStore store = ReportStore.get(coveragepy);
+	assertTrue("missing report in manifest", store.isReport("htmlcov"));
+	assertTrue("missing report in manifest", store.isReport("toto/htmlcov"));
+	Manifest manifest = Manifest.load(file);
+	String hash = manifest.get("htmlcov/" + CoveragePublisher.INDEX).getHash();
+	BlobStore blobs = BlobStore.get();
+	assertTrue("missing blob: " + hash, blobs.contains(hash));
+	assertEquals(2, blobs.getReferences(hash));
+	WebClient client = new WebClient();
+	client.goTo(second.getUrl() + CoveragePublisher.BASENAME + "/toto/htmlcov/", "text/html");
+	first.delete();
+	assertEquals(1, blobs.getReferences(hash));
+	assertTrue("blob should still be stored: " + hash, blobs.contains(hash));
+	second.delete();
+	assertEquals(0, blobs.getReferences(hash));
+	assertFalse("blob should have been deleted: " + hash, blobs.contains(hash));
+    }
+
+    public void testHistory() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov"));
+	project.getPublishersList().add(newCoveragePublisher(null, CoverageStorage.ARCHIVE));
+	FreeStyleBuild first = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(first);
+	FreeStyleBuild second = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(second);
+	File summary = CoverageSummary.getFile(CoveragePublisher.getHtmlDir(second));
+	assertTrue("missing summary: " + summary.getAbsolutePath(), summary.isFile());
+	CoverageHistory history = CoverageHistory.read(CoverageHistory.getDir(project), 0);
+	assertEquals(2, history.size());
+	assertEquals(first.getNumber(), history.get(CoverageHistory.NUMBER, 0));
+	assertEquals(second.getNumber(), history.get(CoverageHistory.NUMBER, 1));
+	assertTrue("missing report size", history.get(CoverageHistory.BYTES, 1) > 0);
+	WebClient client = new WebClient();
+	client.goTo(project.getUrl() + CoveragePublisher.BASENAME + "/trend", "image/svg+xml");
+	File diff = CoverageDiff.getFile(CoveragePublisher.getHtmlDir(second));
+	assertTrue("missing diff: " + diff.getAbsolutePath(), diff.isFile());
+	assertFalse("first build has nothing to compare to",
+		CoverageDiff.getFile(CoveragePublisher.getHtmlDir(first)).exists());
+	client.goTo(second.getUrl() + CoveragePublisher.BASENAME + "/changes");
+    }
+
+    public void testRemoteApi() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov", "toto/htmlcov"));
+	project.getPublishersList().add(new CoveragePublisher(null));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	WebClient client = new WebClient();
+	String json = client.goTo(build.getUrl() + "api/json?tree=actions[percent,statements,missing,reports[path]]",
+		"application/json").getWebResponse().getContentAsString();
+	assertTrue("missing statements in build API:\n" + json, json.contains("\"statements\":0"));
+	assertTrue("missing report in build API:\n" + json, json.contains("\"path\":\"toto/htmlcov\""));
+	json = client.goTo(project.getUrl() + "api/json?tree=actions[build,statements]", "application/json")
+		.getWebResponse().getContentAsString();
+	assertTrue("missing build in job API:\n" + json, json.contains("\"build\":" + build.getNumber()));
+    }
+
+    public void testDataStorage() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov", "toto/htmlcov"));
+	project.getPublishersList().add(newCoveragePublisher(null, CoverageStorage.DATA));
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(build);
+	File coveragepy = CoveragePublisher.getHtmlDir(build);
+	assertFalse("reports should not have been copied: " + coveragepy.getAbsolutePath(), coveragepy.exists());
+	File file = ReportStore.getData(coveragepy);
+	assertTrue("missing data: " + file.getAbsolutePath(), file.isFile());
+	ReportStore store = ReportStore.get(coveragepy);
+	assertTrue("missing report in data", store.isReport("htmlcov"));
+	assertTrue("missing report in data", store.isReport("toto/htmlcov"));
+	assertEquals(2, ReportIndex.get(coveragepy).getReports().size());
+	WebClient client = new WebClient();
+	client.goTo(build.getUrl() + CoveragePublisher.BASENAME + "/toto/htmlcov/", "text/html");
+	build.delete();
+	assertFalse("data should have been deleted: " + file.getAbsolutePath(), file.exists());
+    }
+
+    public void testRetention() throws Exception {
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov"));
+	CoveragePublisher publisher = newCoveragePublisher(null, CoverageStorage.ARCHIVE);
+	publisher.setKeep("1");
+	project.getPublishersList().add(publisher);
+	FreeStyleBuild first = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(first);
+	FreeStyleBuild second = project.scheduleBuild2(0).get();
+	assertBuildStatusSuccess(second);
+	assertEquals(1, CoverageCompactor.compact(project, 1, 10, TaskListener.NULL));
+	File coveragepy = CoveragePublisher.getHtmlDir(first);
+	assertFalse("archive should have been deleted", ReportStore.isArchived(coveragepy));
+	assertTrue("summary should have been kept", CoverageSummary.getFile(coveragepy).isFile());
+	assertTrue("latest reports should have been kept",
+		ReportStore.isArchived(CoveragePublisher.getHtmlDir(second)));
+	assertEquals(2, CoverageHistory.read(CoverageHistory.getDir(project), 0).size());
+	new WebClient().goTo(first.getUrl() + CoveragePublisher.BASENAME + "/", "text/html");
+	assertEquals(0, CoverageCompactor.compact(project, 1, 10, TaskListener.NULL));
+    }
+
+    public void testGate() throws Exception {
+	String status = "{\"format\": 2, \"files\": {\"toto_py\": {\"index\": {\"nums\": [1, 10, 0, 5, 0, 0, 0], "
+		+ "\"relative_filename\": \"toto.py\"}}}}";
+	FreeStyleProject project = createFreeStyleProject();
+	project.setScm(new CoverageSCM("htmlcov").withStatus(status));
+	CoveragePublisher publisher = new CoveragePublisher(null);
+	publisher.setMinimum("80");
+	publisher.setFileMinimum("60");
+	publisher.setGateResult("FAILURE");
+	project.getPublishersList().add(publisher);
+	FreeStyleBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatus(Result.FAILURE, build);
+	String log = FileUtils.readFileToString(build.getLogFile());
+	assertTrue("missing failing file in log:\n" + log, log.contains("toto.py"));
+	publisher = new CoveragePublisher(null);
+	publisher.setMinimum("40");
+	publisher.setFileMinimum("40");
+	publisher.setGateResult("FAILURE");
+	project.getPublishersList().replace(publisher);
+	assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+    }
+
+    public void testMatrixGate() throws Exception {
+	String status = "{\"format\": 2, \"files\": {\"toto_py\": {\"index\": {\"nums\": [1, 10, 0, 5, 0, 0, 0], "
+		+ "\"relative_filename\": \"toto.py\"}}}}";
+	MatrixProject project = createMatrixProject();
+	project.setAxes(new AxisList(new TextAxis("X", "a", "b")));
+	project.setScm(new CoverageSCM("htmlcov").withStatus(status));
+	CoveragePublisher publisher = new CoveragePublisher("htmlcov");
+	publisher.setMinimum("80");
+	publisher.setGateResult("FAILURE");
+	project.getPublishersList().add(publisher);
+	MatrixBuild build = project.scheduleBuild2(0).get();
+	assertBuildStatus(Result.FAILURE, build);
+	CoverageMatrixBuildAction index = build.getAction(CoverageMatrixBuildAction.class);
+	assertTrue("failed configurations should not have been indexed",
+		index == null || index.getCells(project).isEmpty());
+    }
+
+    public void testReadResolve() throws Exception {
+	CoveragePublisher publisher = (CoveragePublisher) Jenkins.XSTREAM2
+		.fromXML("<jenkins.plugins.shiningpanda.publishers.CoveragePublisher>"
+			+ "<htmlDir>htmlcov</htmlDir></jenkins.plugins.shiningpanda.publishers.CoveragePublisher>");
+	assertEquals(CoverageStorage.FILES.getKey(), publisher.storage);
+	assertEquals(Result.UNSTABLE.toString(), publisher.gateResult);
+    }
+
     public void testHtmlDirNotExists() throws Exception {
 	FreeStyleProject project = createFreeStyleProject();
 	project.getPublishersList().add(new CoveragePublisher(null));
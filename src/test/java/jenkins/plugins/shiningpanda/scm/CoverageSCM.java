@@ -47,6 +47,11 @@ public class CoverageSCM extends NullSCM {
      */
     private String[] htmlDirs;
 
+    /**
+     * Content of the status.json file to create, null for none
+     */
+    private String status;
+
     /**
      * Constructor using fields
      * 
@@ -58,6 +63,18 @@ public class CoverageSCM extends NullSCM {
 	this.htmlDirs = htmlDirs;
     }
 
+    /**
+     * Create a status.json file in the folders
+     * 
+     * @param status
+     *            The content of the status.json file
+     * @return This SCM
+     */
+    public CoverageSCM withStatus(String status) {
+	this.status = status;
+	return this;
+    }
+
     public SCMRevisionState calcRevisionsFromBuild(AbstractBuild<?, ?> build, Launcher launcher, TaskListener listener)
 	    throws IOException, InterruptedException {
 	return null;
@@ -77,6 +94,8 @@ public class CoverageSCM extends NullSCM {
 	    FileUtils.writeStringToFile(new File(htmlDirFile, "coverage_html.js"), "");
 	    FileUtils.writeStringToFile(new File(htmlDirFile, "status.dat"), "");
 	    FileUtils.writeStringToFile(new File(htmlDirFile, "index.html"), "");
+	    if (status != null)
+		FileUtils.writeStringToFile(new File(htmlDirFile, "status.json"), status);
 	}
 	return createEmptyChangeLog(changeLogFile, listener, "log");
     }
@@ -26,6 +26,7 @@ import java.io.File;
 import org.apache.commons.io.FileUtils;
 
 import hudson.FilePath;
+import hudson.slaves.DumbSlave;
 import jenkins.plugins.shiningpanda.ShiningPandaTestCase;
 
 public class TestFilePathUtil extends ShiningPandaTestCase {
@@ -181,4 +182,25 @@ public class TestFilePathUtil extends ShiningPandaTestCase {
 	FilePathUtil.synchronize(srcDirFilePath, destDirFilePath);
 	assertContentEquals(srcFilePath, destFilePath);
     }
+
+    public void testRemotingStatsLocal() throws Exception {
+	long calls = RemotingStats.current().getCalls();
+	FilePathUtil.exists(getFilePath("toto"));
+	assertEquals("local calls should not be counted", calls, RemotingStats.current().getCalls());
+    }
+
+    public void testRemotingStatsRemote() throws Exception {
+	DumbSlave slave = createOnlineSlave();
+	FilePath filePath = new FilePath(slave.getChannel(), new File(createTmpDir(), "file.txt").getAbsolutePath());
+	RemotingStats current = RemotingStats.current();
+	long calls = current.getCalls();
+	long bytes = current.getBytes();
+	long global = RemotingStats.global().getCalls();
+	FilePathUtil.write(filePath, "hello", "UTF-8");
+	assertEquals("hello", FilePathUtil.read(filePath, "UTF-8"));
+	assertEquals(calls + 2, current.getCalls());
+	assertEquals(bytes + 10, current.getBytes());
+	assertTrue("global statistics should include the calls", RemotingStats.global().getCalls() >= global + 2);
+    }
+
 }